@@ -0,0 +1,420 @@
+package org.example;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.core.io.JsonStringEncoder;
+import org.example.util.DecompressingInputStream;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Splits an NDJSON product corpus into one file per route in a single pass, where a route takes the
+ * products whose category array contains any of its categories. A product can go to several routes.
+ * <p>
+ * The input is read in chunks that end on a line feed and the chunks are routed on a thread pool. A
+ * line is only parsed if it contains one of the quoted category names as raw bytes, so most lines of a
+ * corpus never reach the JSON parser. A category written with escapes the needle does not have is
+ * missed. Routed lines are collected per chunk and written in input order through large buffers to
+ * one file channel per route. A gzip compressed input is decompressed on its own thread.
+ * <p>
+ * Run with ./gradlew splitCorpus --args="input.json products-men.json=Men products-toys.json=Toys,Games"
+ */
+public final class CorpusSplitter {
+    private static final String DEFAULT_INPUT = "src/main/resources/products-full.json";
+    private static final String DEFAULT_ROUTE = "products-men.json=Men";
+    private static final int CHUNK_SIZE = 4 * 1024 * 1024;
+    private static final int OUTPUT_BUFFER_SIZE = 1024 * 1024;
+    private static final JsonFactory jsonFactory = new JsonFactory();
+
+    private final List<Route> routes;
+    private final int threads;
+    private final int chunkSize;
+    // quoted category bytes and the routes each category belongs to, in route order
+    private final byte[][] needles;
+    private final Map<String, int[]> categoryRoutes = new LinkedHashMap<>();
+    private final AtomicLong parsedLines = new AtomicLong();
+    private final AtomicLong malformedLines = new AtomicLong();
+
+    /**
+     * @param routes where products go by category
+     * @param threads chunks routed at the same time
+     * @param chunkSize bytes of input per chunk, grown for a longer line
+     */
+    public CorpusSplitter(final List<Route> routes, final int threads, final int chunkSize) {
+        if (routes.isEmpty()) {
+            throw new IllegalArgumentException("At least one route is required");
+        }
+        this.routes = List.copyOf(routes);
+        this.threads = Math.max(1, threads);
+        this.chunkSize = Math.max(1, chunkSize);
+        final Map<String, List<Integer>> byCategory = new LinkedHashMap<>();
+        for (int r = 0; r < routes.size(); r++) {
+            for (String category : routes.get(r).categories()) {
+                byCategory.computeIfAbsent(category, c -> new ArrayList<>()).add(r);
+            }
+        }
+        byCategory.forEach((category, indexes) ->
+                categoryRoutes.put(category, indexes.stream().mapToInt(Integer::intValue).toArray()));
+        this.needles = categoryRoutes.keySet().stream()
+                .map(category -> ('"' + new String(JsonStringEncoder.getInstance().quoteAsString(category)) + '"')
+                        .getBytes(StandardCharsets.UTF_8))
+                .toArray(byte[][]::new);
+    }
+
+    public static void main(String[] args) {
+        final String input = args.length > 0 ? args[0] : DEFAULT_INPUT;
+        final List<Route> routes = new ArrayList<>();
+        for (int i = 1; i < args.length; i++) {
+            routes.add(Route.parse(args[i]));
+        }
+        if (routes.isEmpty()) {
+            routes.add(Route.parse(DEFAULT_ROUTE));
+        }
+
+        try {
+            final Result result = new CorpusSplitter(routes, Runtime.getRuntime().availableProcessors(), CHUNK_SIZE)
+                    .split(Paths.get(input));
+            System.out.printf("Split %d lines of %s in %d ms, %d parsed, %d malformed%n",
+                    result.lines(), input, result.elapsedMillis(), result.parsedLines(), result.malformedLines());
+            result.routedLines().forEach((output, lines) -> System.out.printf("%10d %s%n", lines, output));
+        } catch (IOException | UncheckedIOException e) {
+            System.err.println("Error processing files: " + e.getMessage());
+            e.printStackTrace();
+        }
+    }
+
+    /**
+     * Route every line of an input to the outputs of its categories, replacing existing outputs
+     *
+     * @param input the NDJSON corpus, plain or gzip compressed
+     * @return lines read and routed
+     */
+    public Result split(final Path input) throws IOException {
+        final long start = System.nanoTime();
+        parsedLines.set(0);
+        malformedLines.set(0);
+        final ExecutorService executor = Executors.newFixedThreadPool(threads,
+                Thread.ofPlatform().name("corpus-splitter-", 0).daemon().factory());
+        final Deque<Future<Chunk>> pending = new ArrayDeque<>();
+        final List<Output> outputs = new ArrayList<>();
+        long lines = 0;
+        try (InputStream in = DecompressingInputStream.isGzip(input)
+                ? DecompressingInputStream.start(Files.newInputStream(input))
+                : Files.newInputStream(input)) {
+            for (Route route : routes) {
+                outputs.add(new Output(route.output()));
+            }
+            byte[] carry = new byte[0];
+            boolean end = false;
+            while (!end) {
+                final byte[] block = Arrays.copyOf(carry, carry.length + chunkSize);
+                final int read = in.readNBytes(block, carry.length, chunkSize);
+                final int length = carry.length + read;
+                end = read < chunkSize;
+                final int cut = end ? length : lastLineEnd(block, length);
+                if (cut == 0) {
+                    // a line longer than the chunk, read on until it ends
+                    carry = Arrays.copyOf(block, length);
+                    continue;
+                }
+                carry = Arrays.copyOfRange(block, cut, length);
+                pending.add(executor.submit(() -> route(block, cut)));
+                // a bounded window of chunks in flight keeps memory flat while the oldest is written
+                if (pending.size() > threads * 2) {
+                    lines += write(pending.removeFirst(), outputs);
+                }
+            }
+            while (!pending.isEmpty()) {
+                lines += write(pending.removeFirst(), outputs);
+            }
+        } finally {
+            executor.shutdownNow();
+            for (Output output : outputs) {
+                output.close();
+            }
+        }
+
+        final Map<String, Long> routedLines = new LinkedHashMap<>();
+        for (int r = 0; r < routes.size(); r++) {
+            routedLines.put(routes.get(r).output().toString(), outputs.get(r).lines);
+        }
+        return new Result(lines, parsedLines.get(), malformedLines.get(), routedLines,
+                (System.nanoTime() - start) / 1_000_000);
+    }
+
+    /**
+     * Route the lines of a chunk
+     *
+     * @param block the chunk, starting on a line
+     * @param length bytes of the chunk to route
+     * @return the routed lines of each route
+     */
+    private Chunk route(final byte[] block, final int length) throws IOException {
+        final ByteArrayOutputStream[] routed = new ByteArrayOutputStream[routes.size()];
+        final long[] routedLines = new long[routes.size()];
+        final boolean[] matched = new boolean[routes.size()];
+        long lines = 0;
+        int lineStart = 0;
+        while (lineStart < length) {
+            int lineEnd = lineStart;
+            while (lineEnd < length && block[lineEnd] != '\n') {
+                lineEnd++;
+            }
+            final int next = lineEnd + 1;
+            if (lineEnd > lineStart && block[lineEnd - 1] == '\r') {
+                lineEnd--;
+            }
+            if (!isBlank(block, lineStart, lineEnd)) {
+                lines++;
+                if (match(block, lineStart, lineEnd, matched)) {
+                    for (int r = 0; r < matched.length; r++) {
+                        if (matched[r]) {
+                            if (routed[r] == null) {
+                                routed[r] = new ByteArrayOutputStream(length / 8);
+                            }
+                            routed[r].write(block, lineStart, lineEnd - lineStart);
+                            routed[r].write('\n');
+                            routedLines[r]++;
+                        }
+                    }
+                }
+            }
+            lineStart = next;
+        }
+        final byte[][] bytes = new byte[routes.size()][];
+        for (int r = 0; r < routed.length; r++) {
+            bytes[r] = routed[r] == null ? null : routed[r].toByteArray();
+        }
+        return new Chunk(lines, bytes, routedLines);
+    }
+
+    /**
+     * Find the routes of a line, parsing its category array only if the line contains a quoted
+     * category name
+     *
+     * @param matched set to true for each route the line goes to
+     * @return true if the line goes to any route
+     */
+    private boolean match(final byte[] block, final int start, final int end, final boolean[] matched)
+            throws IOException {
+        boolean candidate = false;
+        for (byte[] needle : needles) {
+            if (indexOf(block, start, end, needle) >= 0) {
+                candidate = true;
+                break;
+            }
+        }
+        if (!candidate) {
+            return false;
+        }
+
+        parsedLines.incrementAndGet();
+        Arrays.fill(matched, false);
+        boolean any = false;
+        try (JsonParser parser = jsonFactory.createParser(block, start, end - start)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                malformedLines.incrementAndGet();
+                return false;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if (!"category".equals(field) || value != JsonToken.START_ARRAY) {
+                    parser.skipChildren();
+                    continue;
+                }
+                while (parser.nextToken() != JsonToken.END_ARRAY) {
+                    if (parser.currentToken() == JsonToken.VALUE_STRING) {
+                        final int[] indexes = categoryRoutes.get(parser.getText());
+                        if (indexes != null) {
+                            for (int r : indexes) {
+                                matched[r] = true;
+                            }
+                            any = true;
+                        }
+                    } else {
+                        parser.skipChildren();
+                    }
+                }
+                return any;
+            }
+        } catch (IOException e) {
+            // the line is not valid JSON, it goes nowhere
+            malformedLines.incrementAndGet();
+            return false;
+        }
+        return any;
+    }
+
+    private long write(final Future<Chunk> future, final List<Output> outputs) throws IOException {
+        final Chunk chunk;
+        try {
+            chunk = future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException("Interrupted while splitting", e);
+        } catch (ExecutionException e) {
+            throw e.getCause() instanceof IOException io ? io : new IOException(e.getCause().getMessage(), e);
+        }
+        for (int r = 0; r < outputs.size(); r++) {
+            if (chunk.routed()[r] != null) {
+                outputs.get(r).write(chunk.routed()[r], chunk.routedLines()[r]);
+            }
+        }
+        return chunk.lines();
+    }
+
+    private static int lastLineEnd(final byte[] block, final int length) {
+        for (int i = length - 1; i >= 0; i--) {
+            if (block[i] == '\n') {
+                return i + 1;
+            }
+        }
+        return 0;
+    }
+
+    private static boolean isBlank(final byte[] block, final int start, final int end) {
+        for (int i = start; i < end; i++) {
+            if (block[i] != ' ' && block[i] != '\t' && block[i] != '\r') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static int indexOf(final byte[] block, final int start, final int end, final byte[] needle) {
+        final byte first = needle[0];
+        final int last = end - needle.length;
+        outer:
+        for (int i = start; i <= last; i++) {
+            if (block[i] != first) {
+                continue;
+            }
+            for (int j = 1; j < needle.length; j++) {
+                if (block[i + j] != needle[j]) {
+                    continue outer;
+                }
+            }
+            return i;
+        }
+        return -1;
+    }
+
+    /**
+     * @param output the file the products of the route are written to
+     * @param categories categories of which a product needs at least one
+     */
+    public record Route(Path output, Set<String> categories) {
+        /**
+         * @param spec an output file and its categories like products-toys.json=Toys,Games, or a single
+         *             category whose output is named after it like Men for products-men.json
+         * @return the route
+         */
+        public static Route parse(final String spec) {
+            final int separator = spec.indexOf('=');
+            if (separator < 0) {
+                final String name = spec.toLowerCase(Locale.ROOT).replaceAll("[^a-z0-9]+", "-");
+                return new Route(Paths.get("products-" + name + ".json"), Set.of(spec));
+            }
+            final Set<String> categories = new LinkedHashSet<>();
+            for (String category : spec.substring(separator + 1).split(",")) {
+                if (!category.isBlank()) {
+                    categories.add(category.trim());
+                }
+            }
+            if (separator == 0 || categories.isEmpty()) {
+                throw new IllegalArgumentException("Route needs an output and a category: " + spec);
+            }
+            return new Route(Paths.get(spec.substring(0, separator)), categories);
+        }
+    }
+
+    /**
+     * @param lines non blank lines read
+     * @param parsedLines lines that passed the byte prefilter and were parsed
+     * @param malformedLines parsed lines that were not a JSON object
+     * @param routedLines lines written to each output
+     * @param elapsedMillis time of the pass
+     */
+    public record Result(
+            long lines,
+            long parsedLines,
+            long malformedLines,
+            Map<String, Long> routedLines,
+            long elapsedMillis) {
+    }
+
+    private record Chunk(long lines, byte[][] routed, long[] routedLines) {
+    }
+
+    /**
+     * An output file written through a large direct buffer
+     */
+    private static final class Output {
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(OUTPUT_BUFFER_SIZE);
+        private long lines;
+
+        private Output(final Path path) throws IOException {
+            this.channel = FileChannel.open(path,
+                    StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        }
+
+        private void write(final byte[] bytes, final long routedLines) throws IOException {
+            lines += routedLines;
+            if (bytes.length > buffer.remaining()) {
+                flush();
+            }
+            if (bytes.length > buffer.capacity()) {
+                final ByteBuffer wrapped = ByteBuffer.wrap(bytes);
+                while (wrapped.hasRemaining()) {
+                    channel.write(wrapped);
+                }
+                return;
+            }
+            buffer.put(bytes);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        private void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package org.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "indexing.jobs")
+public class IndexJobProperties {
+    // indexing runs executed at the same time, later submissions wait in the queue
+    private int threads = 1;
+    // finished jobs kept for status requests, the oldest are forgotten first
+    private int history = 20;
+    // time between progress events sent to watchers of a job
+    private long progressIntervalMillis = 1000;
+}
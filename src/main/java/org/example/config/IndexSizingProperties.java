@@ -0,0 +1,19 @@
+package org.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.util.unit.DataSize;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "indexing.product.sizing")
+public class IndexSizingProperties {
+    public enum Mode { OFF, RECOMMEND, APPLY }
+
+    private Mode mode = Mode.RECOMMEND;
+    private int sampleSize = 1000;
+    private DataSize targetShardSize = DataSize.ofGigabytes(30);
+    private DataSize graphMemoryBudget = DataSize.ofGigabytes(4);
+    private int maxShards = 32;
+}
@@ -0,0 +1,29 @@
+package org.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "indexing.product.ingest")
+public class IngestProperties {
+    // watch the directory and send new records to the live index
+    private boolean enabled = false;
+    // directory the upstream system drops NDJSON files into
+    private String directory = "incoming";
+    // glob of the file names in the directory to ingest
+    private String pattern = "*.{json,ndjson}";
+    // records sent in one embedding and bulk request
+    private int batchSize = 500;
+    // time between passes when no change is reported, also the wait before retrying a failed pass
+    private long pollMillis = 5000;
+    // a file unchanged this long is complete, its last line is read even without a line feed
+    private long settleMillis = 60000;
+    // byte offset ingested so far of every file, kept across restarts
+    private String offsetsPath = "ingest-offsets.json";
+    // sends of a record the cluster rejects before it is written to the dead-letter file and skipped
+    private int maxBatchAttempts = 3;
+    // NDJSON file the records rejected maxBatchAttempts times are appended to, as they were read
+    private String deadLetterPath = "ingest-dead-letters.ndjson";
+}
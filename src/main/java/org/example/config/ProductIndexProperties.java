@@ -4,10 +4,15 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.context.annotation.Configuration;
 
+import java.util.ArrayList;
+import java.util.List;
+
 @Data
 @Configuration
 @ConfigurationProperties(prefix = "indexing.product")
 public class ProductIndexProperties {
+    public enum DedupMode { OFF, FIRST_WINS, LAST_WINS }
+
     private String alias;
     private String oldAlias;
     private int oldIndexKeepDays;
@@ -17,4 +22,33 @@ public class ProductIndexProperties {
     private int replicas;
     private int refreshSeconds;
     private int statusWaitSeconds;
+    // build with more primaries and shrink before promotion, 0 disables
+    private int buildShards;
+    private int servingShards = 1;
+    // index sort entries like category.keyword:asc, empty disables
+    private List<String> indexSort = new ArrayList<>();
+    // documents sorted client side by the index sort before bulk, 0 disables
+    private int presortWindow;
+    // route documents and category scoped searches by top level category
+    private boolean routeByCategory;
+    // concurrent writers used by the per category partitioned indexer
+    private int partitionThreads = 4;
+    // files read and parsed at the same time by a run over several input files
+    private int readerThreads = 4;
+    // product id to content hash of the live index, written by the delta indexer
+    private String manifestPath = "products-manifest.tsv";
+    // progress of the running full index for resume, blank disables
+    private String checkpointPath;
+    // flushes between checkpoints
+    private int checkpointInterval = 10;
+    // which copy of a repeated product id is indexed
+    private DedupMode dedup = DedupMode.OFF;
+    // significant digits embedding components are rounded to before bulk, 0 keeps full precision
+    private int vectorDigits;
+    // L2 normalize embeddings client side and map fts_embedding with innerproduct instead of cosinesimil
+    private boolean normalizeVectors;
+    // quantize embeddings to int8 and map fts_embedding as a byte vector
+    private boolean quantizeVectors;
+    // records embedded at the start of a run to calibrate the int8 quantization range
+    private int quantizationSample = 1000;
 }
\ No newline at end of file
@@ -0,0 +1,21 @@
+package org.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "indexing.product.realtime")
+public class RealtimeIndexProperties {
+    // most single product writes sent in one embedding and bulk request
+    private int maxBatchSize = 100;
+    // longest the oldest write of a batch waits for others to join it
+    private long maxDelayMillis = 5;
+    // writes waiting for a batch before new ones are refused
+    private int queueCapacity = 10000;
+    // return a write only once it is searchable, so its latency is request to visible
+    private boolean waitForRefresh = true;
+    // longest a request waits for the result of its write
+    private long timeoutMillis = 30000;
+}
@@ -0,0 +1,42 @@
+package org.example.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+@Data
+@Configuration
+@ConfigurationProperties(prefix = "indexing.product.vector")
+public class VectorIndexProperties {
+    // profile used by builds that do not name one, blank keeps the mapping file as is
+    private String profile;
+    // k-NN engine and compression settings of fts_embedding by profile name
+    private Map<String, Profile> profiles = new LinkedHashMap<>();
+    private Report report = new Report();
+
+    @Data
+    public static class Profile {
+        // k-NN engine like lucene or faiss, blank keeps the engine of the mapping file
+        private String engine;
+        // in_memory or on_disk, blank leaves the cluster default
+        private String mode;
+        // 1x to 32x, blank leaves the default of the mode
+        private String compressionLevel;
+    }
+
+    @Data
+    public static class Report {
+        // measure recall and latency of every new index before the run returns
+        private boolean enabled;
+        // classpath resource with one query text per line
+        private String queryFile = "/vector-report-queries.txt";
+        private int k = 10;
+        // timed k-NN searches per query for the latency percentiles
+        private int repetitions = 5;
+        // reports are appended as one JSON line per build
+        private String path = "vector-reports.jsonl";
+    }
+}
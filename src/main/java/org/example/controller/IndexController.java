@@ -4,27 +4,87 @@ import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.responses.ApiResponse;
 import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
+import jakarta.servlet.http.HttpServletRequest;
+import org.example.config.ProductIndexProperties;
+import org.example.config.RealtimeIndexProperties;
+import org.example.indexer.DeltaProductIndexer;
+import org.example.indexer.DirectoryIngester;
 import org.example.indexer.FullProductIndexer;
+import org.example.indexer.IndexJob;
+import org.example.indexer.IndexJobManager;
+import org.example.indexer.PartitionedProductIndexer;
+import org.example.indexer.RealtimeProductIndexer;
+import org.example.model.Product;
 import org.example.service.OpenSearchService;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.DeleteMapping;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.PutMapping;
+import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Supplier;
 
 @RestController
 @Tag(name = "Index Controller", description = "API endpoints for product indexing operations")
 public class IndexController {
     private static final Logger logger = LoggerFactory.getLogger(IndexController.class);
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final String GZIP_MEDIA_TYPE = "application/gzip";
 
     private final OpenSearchService openSearchService;
     private final FullProductIndexer fullProductIndexer;
+    private final PartitionedProductIndexer partitionedProductIndexer;
+    private final DeltaProductIndexer deltaProductIndexer;
+    private final IndexJobManager indexJobManager;
+    private final ProductIndexProperties indexProperties;
+    private final RealtimeProductIndexer realtimeProductIndexer;
+    private final RealtimeIndexProperties realtimeProperties;
+    private final DirectoryIngester directoryIngester;
 
     @Autowired
-    public IndexController(OpenSearchService openSearchService, FullProductIndexer fullProductIndexer) {
+    public IndexController(
+            OpenSearchService openSearchService,
+            FullProductIndexer fullProductIndexer,
+            PartitionedProductIndexer partitionedProductIndexer,
+            DeltaProductIndexer deltaProductIndexer,
+            IndexJobManager indexJobManager,
+            ProductIndexProperties indexProperties,
+            RealtimeProductIndexer realtimeProductIndexer,
+            RealtimeIndexProperties realtimeProperties,
+            DirectoryIngester directoryIngester) {
         this.openSearchService = openSearchService;
         this.fullProductIndexer = fullProductIndexer;
+        this.partitionedProductIndexer = partitionedProductIndexer;
+        this.deltaProductIndexer = deltaProductIndexer;
+        this.indexJobManager = indexJobManager;
+        this.indexProperties = indexProperties;
+        this.realtimeProductIndexer = realtimeProductIndexer;
+        this.realtimeProperties = realtimeProperties;
+        this.directoryIngester = directoryIngester;
     }
 
     @GetMapping("/index-products")
@@ -34,14 +94,18 @@ public class IndexController {
         @ApiResponse(responseCode = "500", description = "Error occurred during indexing")
     })
     public String indexProducts(
-            @RequestParam(name = "limit", required = false) Integer limit) {
-        logger.info("Starting product indexing process with limit: {}", limit);
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "resume", defaultValue = "false") boolean resume,
+            @RequestParam(name = "vectorProfile", required = false) String vectorProfile) {
+        logger.info("Starting product indexing process with limit: {}, resume: {}, vectorProfile: {}",
+                limit, resume, vectorProfile);
         
         try {
+            // runs as a job like /index-jobs so it can be watched and cancelled, this request waits for it
             final long start =  System.currentTimeMillis();
-            final int indexed = fullProductIndexer.indexFromFile("src/main/resources/products-men-min.json", limit);
+            final IndexJob job = awaitSuccess(submitProductJob(limit, resume, vectorProfile));
             final long elapsed = System.currentTimeMillis() - start;
-            final String message = String.format("Successfully indexed %d products in %sms", indexed, elapsed);
+            final String message = String.format("Successfully indexed %d products in %sms", job.getIndexed(), elapsed);
             logger.info(message);
             return message;
         } catch (Exception e) {
@@ -50,6 +114,353 @@ public class IndexController {
         }
     }
 
+    // form content types are left out, the servlet container would read a form body to parse parameters
+    @PostMapping(value = "/index-products", consumes = {NDJSON_MEDIA_TYPE, GZIP_MEDIA_TYPE,
+            MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_OCTET_STREAM_VALUE})
+    @Operation(summary = "Index uploaded products",
+            description = "Builds a new index from the NDJSON request body, plain or gzip compressed, while it is "
+                    + "uploaded. The body is read only as fast as it is indexed")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product indexing completed successfully"),
+        @ApiResponse(responseCode = "409", description = "A build of the alias is in flight"),
+        @ApiResponse(responseCode = "500", description = "Error occurred during indexing")
+    })
+    public String indexUploadedProducts(
+            HttpServletRequest request,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "vectorProfile", required = false) String vectorProfile) {
+        logger.info("Starting product indexing of a {} byte upload with limit: {}, vectorProfile: {}",
+                request.getContentLengthLong(), limit, vectorProfile);
+
+        try {
+            final long start =  System.currentTimeMillis();
+            final InputStream body = request.getInputStream();
+            final long length = request.getContentLengthLong();
+            final Map<String, Object> parameters = new LinkedHashMap<>();
+            parameters.put("upload", UUID.randomUUID().toString());
+            parameters.put("limit", limit);
+            parameters.put("vectorProfile", vectorProfile);
+            // the job reads the body while this request waits, so an upload never queues behind another
+            // build, where a later request could supersede it
+            final IndexJob submitted = indexJobManager.submitIfIdle(
+                    "products-upload", getProductJobKey(), parameters,
+                    progress -> fullProductIndexer.indexFromStream(body, length, limit, vectorProfile, progress));
+            if (submitted == null) {
+                throw new ResponseStatusException(HttpStatus.CONFLICT,
+                        "A build of alias " + indexProperties.getAlias() + " is in flight, retry the upload later");
+            }
+            final IndexJob job = awaitSuccess(submitted);
+            final long elapsed = System.currentTimeMillis() - start;
+            final String message = String.format("Successfully indexed %d products in %sms", job.getIndexed(), elapsed);
+            logger.info(message);
+            return message;
+        } catch (ResponseStatusException e) {
+            throw e;
+        } catch (Exception e) {
+            logger.error("Failed to index uploaded products: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to index uploaded products: " + e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/index-product-files")
+    @Operation(summary = "Index product files",
+            description = "Builds a new index from every file of a directory or glob, reading the files at the "
+                    + "same time into one shared embedding and bulk stage")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product indexing completed successfully"),
+        @ApiResponse(responseCode = "500", description = "Error occurred during indexing")
+    })
+    public String indexProductFiles(
+            @RequestParam(name = "input") String input,
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "vectorProfile", required = false) String vectorProfile) {
+        logger.info("Starting product indexing of files {} with limit: {}, vectorProfile: {}",
+                input, limit, vectorProfile);
+
+        try {
+            final long start =  System.currentTimeMillis();
+            final Map<String, Object> parameters = new LinkedHashMap<>();
+            parameters.put("input", input);
+            parameters.put("limit", limit);
+            parameters.put("vectorProfile", vectorProfile);
+            final IndexJob job = awaitSuccess(indexJobManager.submit(
+                    "products-files", getProductJobKey(), parameters,
+                    progress -> fullProductIndexer.indexFromFiles(input, limit, vectorProfile, progress)));
+            final long elapsed = System.currentTimeMillis() - start;
+            final String message = String.format("Successfully indexed %d products in %sms", job.getIndexed(), elapsed);
+            logger.info(message);
+            return message;
+        } catch (Exception e) {
+            logger.error("Failed to index product files: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to index product files: " + e.getMessage(), e);
+        }
+    }
+
+    @PostMapping("/index-jobs")
+    @Operation(summary = "Submit a product indexing job",
+            description = "Starts a full product index build in the background and returns its job id. A request "
+                    + "matching the build in flight returns that build's job instead")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "202", description = "Job accepted")
+    })
+    public ResponseEntity<IndexJob.View> submitIndexJob(
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "resume", defaultValue = "false") boolean resume,
+            @RequestParam(name = "vectorProfile", required = false) String vectorProfile) {
+        return ResponseEntity.accepted().body(submitProductJob(limit, resume, vectorProfile).view());
+    }
+
+    @GetMapping("/index-jobs")
+    @Operation(summary = "List indexing jobs", description = "Returns running, queued and recent jobs, newest first")
+    public List<IndexJob.View> getIndexJobs() {
+        return indexJobManager.getJobs().stream().map(IndexJob::view).toList();
+    }
+
+    @GetMapping("/index-jobs/{id}")
+    @Operation(summary = "Get an indexing job",
+            description = "Returns the status, documents processed, per stage throughput, ETA and errors of a job")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Job found"),
+        @ApiResponse(responseCode = "404", description = "Unknown job id")
+    })
+    public IndexJob.View getIndexJob(@PathVariable("id") String id) {
+        return getJob(id).view();
+    }
+
+    @GetMapping(value = "/index-jobs/{id}/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    @Operation(summary = "Stream indexing job progress",
+            description = "Sends a progress server-sent event with the job status at a fixed interval until the job "
+                    + "finishes, then a done event")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Event stream opened"),
+        @ApiResponse(responseCode = "404", description = "Unknown job id")
+    })
+    public SseEmitter streamIndexJob(@PathVariable("id") String id) {
+        final IndexJob job = getJob(id);
+        // the stream ends with the job, not with the servlet async timeout
+        final SseEmitter emitter = new SseEmitter(0L);
+        final Future<?> watch = indexJobManager.watch(job,
+                view -> {
+                    try {
+                        emitter.send(SseEmitter.event().name("progress").data(view, MediaType.APPLICATION_JSON));
+                    } catch (IOException e) {
+                        // the client went away, throwing stops the watch
+                        throw new UncheckedIOException(e);
+                    }
+                },
+                () -> {
+                    try {
+                        emitter.send(SseEmitter.event().name("done").data(job.getStatus().name()));
+                        emitter.complete();
+                    } catch (IOException e) {
+                        emitter.completeWithError(e);
+                    }
+                });
+        emitter.onCompletion(() -> watch.cancel(false));
+        emitter.onTimeout(() -> watch.cancel(false));
+        emitter.onError(e -> watch.cancel(false));
+        return emitter;
+    }
+
+    @DeleteMapping("/index-jobs/{id}")
+    @Operation(summary = "Cancel an indexing job",
+            description = "Stops a queued or running job and deletes its partial index")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Cancellation requested"),
+        @ApiResponse(responseCode = "404", description = "Unknown job id")
+    })
+    public IndexJob.View cancelIndexJob(@PathVariable("id") String id) {
+        final IndexJob job = indexJobManager.cancel(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown index job " + id);
+        }
+        return job.view();
+    }
+
+    private IndexJob submitProductJob(final Integer limit, final boolean resume, final String vectorProfile) {
+        final Map<String, Object> parameters = new LinkedHashMap<>();
+        parameters.put("limit", limit);
+        parameters.put("resume", resume);
+        parameters.put("vectorProfile", vectorProfile);
+        // builds of the same alias are single flight, a duplicate request attaches to the build in flight
+        return indexJobManager.submit("products", getProductJobKey(), parameters,
+                progress -> fullProductIndexer.indexFromFile(
+                        "src/main/resources/products-men-min.json", limit, resume, vectorProfile, progress));
+    }
+
+    private String getProductJobKey() {
+        return "products:" + indexProperties.getAlias();
+    }
+
+    /**
+     * Wait for a job to finish
+     *
+     * @return the job
+     * @throws IllegalStateException if the job failed or was cancelled
+     */
+    private IndexJob awaitSuccess(final IndexJob submitted) throws InterruptedException {
+        final IndexJob job = indexJobManager.await(submitted);
+        if (job.getStatus() != IndexJob.Status.SUCCEEDED) {
+            throw new IllegalStateException(job.getStatus() == IndexJob.Status.CANCELLED
+                    ? String.format("job %s was cancelled", job.getId())
+                    : job.getError());
+        }
+        return job;
+    }
+
+    private IndexJob getJob(final String id) {
+        final IndexJob job = indexJobManager.getJob(id);
+        if (job == null) {
+            throw new ResponseStatusException(HttpStatus.NOT_FOUND, "Unknown index job " + id);
+        }
+        return job;
+    }
+
+    @PutMapping(value = "/products/{id}", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @Operation(summary = "Upsert a product",
+            description = "Embeds a product in the input file format and indexes it into the live index, batched "
+                    + "with concurrent writes. Returns once the write is visible with wait-for-refresh on. When "
+                    + "documents are routed by category, previousCategory deletes the copy of a product that moved")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product written"),
+        @ApiResponse(responseCode = "400", description = "Product id missing or different from the path"),
+        @ApiResponse(responseCode = "500", description = "The cluster rejected the product"),
+        @ApiResponse(responseCode = "503", description = "Too many writes waiting")
+    })
+    public CompletableFuture<RealtimeProductIndexer.Result> upsertProduct(
+            @PathVariable("id") String id,
+            @RequestParam(name = "previousCategory", required = false) String previousCategory,
+            @RequestBody Product product) {
+        if (product.getId() == null) {
+            product.setId(id);
+        } else if (!product.getId().equals(id)) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST,
+                    String.format("Product id %s does not match path id %s", product.getId(), id));
+        }
+        return awaitWrite(() -> realtimeProductIndexer.upsert(product, previousCategory));
+    }
+
+    @DeleteMapping("/products/{id}")
+    @Operation(summary = "Delete a product",
+            description = "Deletes a product from the live index, batched with concurrent writes. The top level "
+                    + "category is required when documents are routed by category")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Delete applied, result not_found if there was no such "
+                + "product"),
+        @ApiResponse(responseCode = "400", description = "Category missing for an index routed by category"),
+        @ApiResponse(responseCode = "503", description = "Too many writes waiting")
+    })
+    public CompletableFuture<RealtimeProductIndexer.Result> deleteProduct(
+            @PathVariable("id") String id,
+            @RequestParam(name = "category", required = false) String category) {
+        return awaitWrite(() -> realtimeProductIndexer.delete(id, category));
+    }
+
+    @GetMapping("/products/write-stats")
+    @Operation(summary = "Realtime write statistics",
+            description = "Returns counts of single product writes, the average micro-batch size and p50/p99 "
+                    + "latency from request to result of recent writes")
+    public RealtimeProductIndexer.Stats getProductWriteStats() {
+        return realtimeProductIndexer.getStats();
+    }
+
+    @GetMapping("/ingest-status")
+    @Operation(summary = "Directory ingest status",
+            description = "Returns the files and bytes dropped into the ingest directory that are not indexed yet, "
+                    + "the age of the oldest of them and the time from new data to indexed of recent batches")
+    public DirectoryIngester.Status getIngestStatus() {
+        return directoryIngester.getStatus();
+    }
+
+    /**
+     * Queue a realtime write and map its failures to response statuses, the request thread is released
+     * while the write waits for its batch
+     */
+    private CompletableFuture<RealtimeProductIndexer.Result> awaitWrite(
+            final Supplier<CompletableFuture<RealtimeProductIndexer.Result>> write) {
+        final CompletableFuture<RealtimeProductIndexer.Result> result;
+        try {
+            result = write.get();
+        } catch (IllegalArgumentException e) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, e.getMessage(), e);
+        } catch (RejectedExecutionException e) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, e.getMessage(), e);
+        }
+        return result
+                .orTimeout(realtimeProperties.getTimeoutMillis(), TimeUnit.MILLISECONDS)
+                .exceptionally(e -> {
+                    final Throwable cause = e instanceof CompletionException && e.getCause() != null
+                            ? e.getCause()
+                            : e;
+                    throw cause instanceof TimeoutException
+                            ? new ResponseStatusException(HttpStatus.GATEWAY_TIMEOUT, "Write timed out", cause)
+                            : new ResponseStatusException(HttpStatus.INTERNAL_SERVER_ERROR, cause.getMessage(), cause);
+                });
+    }
+
+    @GetMapping("/index-product-partitions")
+    @Operation(summary = "Index product partitions",
+            description = "Indexes each top level category into its own index, or rebuilds a single category")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product partition indexing completed successfully"),
+        @ApiResponse(responseCode = "500", description = "Error occurred during indexing")
+    })
+    public String indexProductPartitions(
+            @RequestParam(name = "limit", required = false) Integer limit,
+            @RequestParam(name = "category", required = false) String category) {
+        logger.info("Starting partitioned product indexing with limit: {}, category: {}", limit, category);
+
+        try {
+            final long start =  System.currentTimeMillis();
+            final Map<String, Object> parameters = new LinkedHashMap<>();
+            parameters.put("limit", limit);
+            parameters.put("category", category);
+            // partitions are attached to the same alias, so the run takes turns with the other builds of it
+            final IndexJob job = awaitSuccess(indexJobManager.submit(
+                    "products-partitions", getProductJobKey(), parameters,
+                    progress -> partitionedProductIndexer.indexFromFile(
+                            "src/main/resources/products-men-min.json", limit, category, progress)));
+            final long elapsed = System.currentTimeMillis() - start;
+            final String message = String.format("Successfully indexed %d products in %sms", job.getIndexed(), elapsed);
+            logger.info(message);
+            return message;
+        } catch (Exception e) {
+            logger.error("Failed to index product partitions: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to index product partitions: " + e.getMessage(), e);
+        }
+    }
+
+    @GetMapping("/index-product-changes")
+    @Operation(summary = "Index product changes",
+            description = "Sends only new or changed products to the live index and deletes removed products")
+    @ApiResponses(value = {
+        @ApiResponse(responseCode = "200", description = "Product delta indexing completed successfully"),
+        @ApiResponse(responseCode = "500", description = "Error occurred during indexing")
+    })
+    public String indexProductChanges(
+            @RequestParam(name = "limit", required = false) Integer limit) {
+        logger.info("Starting delta product indexing with limit: {}", limit);
+
+        try {
+            final long start =  System.currentTimeMillis();
+            final Map<String, Object> parameters = new LinkedHashMap<>();
+            parameters.put("limit", limit);
+            // a delta run writes to the live index or rebuilds it, it must not overlap another build of the alias
+            final IndexJob job = awaitSuccess(indexJobManager.submit(
+                    "products-changes", getProductJobKey(), parameters,
+                    progress -> deltaProductIndexer.indexFromFile(
+                            "src/main/resources/products-men-min.json", limit, progress)));
+            final long elapsed = System.currentTimeMillis() - start;
+            final String message = String.format(
+                    "Successfully indexed %d changed products in %sms", job.getIndexed(), elapsed);
+            logger.info(message);
+            return message;
+        } catch (Exception e) {
+            logger.error("Failed to index product changes: {}", e.getMessage(), e);
+            throw new RuntimeException("Failed to index product changes: " + e.getMessage(), e);
+        }
+    }
+
     @GetMapping("/index-health")
     @Operation(summary = "Check OpenSearch cluster health", description = "Verifies cluster staus of OpenSearch")
     @ApiResponses(value = {
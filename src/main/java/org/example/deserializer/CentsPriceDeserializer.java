@@ -0,0 +1,19 @@
+package org.example.deserializer;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.JsonDeserializer;
+
+import java.io.IOException;
+
+/**
+ * Reads a price as whole cents straight from the parser's character buffer
+ */
+public class CentsPriceDeserializer extends JsonDeserializer<Long> {
+
+    @Override
+    public Long deserialize(final JsonParser p, final DeserializationContext ctxt) throws IOException {
+        final long cents = PriceParser.parseCents(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        return cents == PriceParser.NO_PRICE ? null : cents;
+    }
+}
@@ -7,28 +7,19 @@ import com.fasterxml.jackson.databind.JsonDeserializer;
 import java.io.IOException;
 import java.math.BigDecimal;
 
+/**
+ * Reads a price as a BigDecimal with a scale of 2, parsed by {@link PriceParser}
+ */
 public class PriceDeserializer extends JsonDeserializer<BigDecimal> {
 
     @Override
     public BigDecimal deserialize(final JsonParser p, final DeserializationContext ctxt) throws IOException {
-        String priceString = p.getValueAsString();
-        
-        if (priceString == null || priceString.trim().isEmpty()) {
+        final String priceString = p.getValueAsString();
+        if (priceString == null) {
             return null;
         }
 
-        // If range exists, just use the first value
-        if (priceString.indexOf("$") != priceString.lastIndexOf("$")) {
-            priceString = priceString.substring(0, priceString.lastIndexOf("$"));
-        }
-        
-        // Remove currency symbols and whitespace
-        String cleanPrice = priceString.replaceAll("[^\\d.]", "");
-        
-        try {
-            return new BigDecimal(cleanPrice);
-        } catch (NumberFormatException e) {
-            throw new IOException("Unable to parse price: " + priceString, e);
-        }
+        final long cents = PriceParser.parseCents(priceString.toCharArray(), 0, priceString.length());
+        return cents == PriceParser.NO_PRICE ? null : BigDecimal.valueOf(cents, 2);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,101 @@
+package org.example.deserializer;
+
+import java.io.IOException;
+
+/**
+ * Parses free form price text into whole cents in a single pass over the characters, without
+ * building strings, regular expressions or BigDecimals. Currency symbols and any other characters
+ * that are not digits or a decimal point are ignored, and a range like {@code $9.39 - $49.33}
+ * keeps the text before the last dollar sign. Fractions beyond cents are rounded half up, like the
+ * scaled_float price field does on indexing.
+ */
+public final class PriceParser {
+    public static final long NO_PRICE = -1;
+
+    private static final long MAX_DOLLARS = Long.MAX_VALUE / 100;
+
+    private PriceParser() {
+    }
+
+    /**
+     * Parse a price into cents
+     *
+     * @param chars buffer holding the price text
+     * @param offset offset of the first character
+     * @param length number of characters
+     * @return the price in cents or NO_PRICE if the text is blank
+     * @throws IOException if the text does not hold a single decimal number
+     */
+    public static long parseCents(final char[] chars, final int offset, final int length) throws IOException {
+        boolean blank = true;
+        int dollarSigns = 0;
+        long value = 0;
+        int digits = 0;
+        int dots = 0;
+        // digits seen after the decimal point, -1 before it
+        int fraction = -1;
+        boolean roundUp = false;
+        // state at the last dollar sign, a range keeps only the text before it
+        long markValue = 0;
+        int markDigits = 0;
+        int markDots = 0;
+        int markFraction = -1;
+        boolean markRoundUp = false;
+
+        for (int i = offset, end = offset + length; i < end; i++) {
+            final char c = chars[i];
+            if (c > ' ') {
+                blank = false;
+            }
+            if (c == '$') {
+                dollarSigns++;
+                markValue = value;
+                markDigits = digits;
+                markDots = dots;
+                markFraction = fraction;
+                markRoundUp = roundUp;
+            } else if (c == '.') {
+                if (++dots == 1) {
+                    fraction = 0;
+                }
+            } else if (c >= '0' && c <= '9') {
+                final int digit = c - '0';
+                digits++;
+                if (fraction < 0) {
+                    if (value > (MAX_DOLLARS - digit) / 10) {
+                        throw invalid(chars, offset, length);
+                    }
+                    value = value * 10 + digit;
+                } else if (fraction < 2) {
+                    value = value * 10 + digit;
+                    fraction++;
+                } else if (fraction == 2) {
+                    roundUp = digit >= 5;
+                    fraction++;
+                }
+            }
+        }
+
+        if (blank) {
+            return NO_PRICE;
+        }
+        if (dollarSigns > 1) {
+            value = markValue;
+            digits = markDigits;
+            dots = markDots;
+            fraction = markFraction;
+            roundUp = markRoundUp;
+        }
+        if (digits == 0 || dots > 1) {
+            throw invalid(chars, offset, length);
+        }
+        for (int scale = Math.max(fraction, 0); scale < 2; scale++) {
+            value *= 10;
+        }
+        return roundUp ? value + 1 : value;
+    }
+
+    private static IOException invalid(final char[] chars, final int offset, final int length) {
+        return new IOException("Unable to parse price: " + new String(chars, offset, length));
+    }
+}
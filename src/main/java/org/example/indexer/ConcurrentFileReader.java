@@ -0,0 +1,276 @@
+package org.example.indexer;
+
+import org.example.config.ProductIndexProperties.DedupMode;
+import org.example.model.Product;
+import org.example.util.OffsetLineReader;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Function;
+
+/**
+ * Reads several NDJSON files at the same time and hands the parsed products to a single consumer in
+ * batches. Each reader thread takes the next unread file, so a file is always read by one thread in
+ * order. Batches go through a bounded queue, so readers wait instead of running ahead of a slow
+ * consumer. The record limit is shared by all readers and counts records over every file.
+ * <p>
+ * Files are read in no particular order relative to each other. First wins deduplication keeps the
+ * copy that was read first, last wins is left to the bulk requests like for a stream.
+ */
+final class ConcurrentFileReader implements AutoCloseable {
+    // handed over by the last reader to finish, compared by identity
+    private static final List<Product> END = new ArrayList<>(0);
+    // initial capacity of the first wins id map per file, it grows past it
+    private static final int RECORDS_PER_FILE_GUESS = 1 << 14;
+
+    private final Queue<Path> unread;
+    private final int readers;
+    private final int batchSize;
+    private final int maxRecords;
+    private final Function<String, Product> parser;
+    private final ExecutorService executor;
+    private final BlockingQueue<List<Product>> batches;
+    @Nullable
+    private final DuplicateFilter duplicates;
+    private final Map<String, AtomicInteger> fileRecords = new LinkedHashMap<>();
+    private final AtomicInteger claimed = new AtomicInteger();
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicInteger activeReaders = new AtomicInteger();
+    private final AtomicReference<Exception> failure = new AtomicReference<>();
+    private volatile boolean stopped;
+
+    /**
+     * @param files the files to read
+     * @param readers the number of files read at the same time
+     * @param batchSize products per batch handed to the consumer
+     * @param limit maximum number of records to read over all files or null for every record
+     * @param dedup which copy of a repeated product id to keep
+     * @param parser binds a line to a product, returning null for a malformed record
+     */
+    ConcurrentFileReader(
+            final List<Path> files,
+            final int readers,
+            final int batchSize,
+            @Nullable final Integer limit,
+            @Nullable final DedupMode dedup,
+            final Function<String, Product> parser) {
+        this.unread = new ConcurrentLinkedQueue<>(files);
+        this.readers = Math.clamp(readers, 1, Math.max(1, files.size()));
+        this.batchSize = Math.max(1, batchSize);
+        this.maxRecords = limit == null ? Integer.MAX_VALUE : limit;
+        this.parser = parser;
+        this.executor = Executors.newFixedThreadPool(this.readers,
+                Thread.ofPlatform().name("product-file-reader-", 0).daemon().factory());
+        this.batches = new ArrayBlockingQueue<>(this.readers * 2);
+        this.duplicates = DuplicateFilter.openStream(dedup, (long) files.size() * RECORDS_PER_FILE_GUESS);
+        files.forEach(file -> fileRecords.put(file.toString(), new AtomicInteger()));
+    }
+
+    /**
+     * Resolve the files of an input
+     *
+     * @param input a file, a directory whose files are all read, or a glob of file names in a directory
+     *              like data/part-*.json
+     * @return the files in name order
+     * @throws IllegalArgumentException if nothing matches
+     */
+    static List<Path> resolve(final String input) throws IOException {
+        final Path path = Paths.get(input);
+        final List<Path> files = new ArrayList<>();
+        if (Files.isRegularFile(path)) {
+            files.add(path);
+        } else if (Files.isDirectory(path)) {
+            try (DirectoryStream<Path> stream = Files.newDirectoryStream(path, Files::isRegularFile)) {
+                stream.forEach(files::add);
+            }
+        } else {
+            final Path directory = path.getParent() == null ? Paths.get("") : path.getParent();
+            if (Files.isDirectory(directory)) {
+                try (DirectoryStream<Path> stream =
+                             Files.newDirectoryStream(directory, path.getFileName().toString())) {
+                    stream.forEach(file -> {
+                        if (Files.isRegularFile(file)) {
+                            files.add(file);
+                        }
+                    });
+                }
+            }
+        }
+        if (files.isEmpty()) {
+            throw new IllegalArgumentException("No input files match " + input);
+        }
+        files.sort(null);
+        return files;
+    }
+
+    /**
+     * Start the reader threads
+     */
+    void start() {
+        activeReaders.set(readers);
+        for (int i = 0; i < readers; i++) {
+            executor.execute(this::run);
+        }
+    }
+
+    /**
+     * Wait for the next batch
+     *
+     * @return the next batch or null once every file has been read or the limit was reached
+     * @throws IOException if a file could not be read
+     */
+    @Nullable
+    List<Product> next() throws IOException, InterruptedException {
+        final List<Product> batch = batches.take();
+        final Exception e = failure.get();
+        if (e != null) {
+            // a repeated call fails the same way instead of waiting
+            batches.offer(END);
+            throw e instanceof IOException io ? io : new IOException(e.getMessage(), e);
+        }
+        if (batch == END) {
+            batches.offer(END);
+            return null;
+        }
+        return batch;
+    }
+
+    /**
+     * @return records read over all files, counted against the limit
+     */
+    int getLineCount() {
+        return Math.min(claimed.get(), maxRecords);
+    }
+
+    /**
+     * @return bytes read over all files as stored, compressed or not
+     */
+    long getBytesRead() {
+        return bytesRead.get();
+    }
+
+    /**
+     * @return records read from each file, in name order
+     */
+    Map<String, Integer> getFileRecords() {
+        final Map<String, Integer> records = new LinkedHashMap<>();
+        fileRecords.forEach((file, count) -> records.put(file, count.get()));
+        return records;
+    }
+
+    /**
+     * @return records skipped as duplicates
+     */
+    int getDuplicates() {
+        if (duplicates == null) {
+            return 0;
+        }
+        synchronized (duplicates) {
+            return duplicates.getDuplicates();
+        }
+    }
+
+    @Override
+    public void close() {
+        stopped = true;
+        executor.shutdownNow();
+        if (duplicates != null) {
+            synchronized (duplicates) {
+                duplicates.close();
+            }
+        }
+    }
+
+    private void run() {
+        try {
+            Path file;
+            while (!stopped && claimed.get() < maxRecords && (file = unread.poll()) != null) {
+                read(file);
+            }
+        } catch (IOException | RuntimeException e) {
+            failure.compareAndSet(null, e instanceof UncheckedIOException unchecked ? unchecked.getCause() : e);
+            stopped = true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            if (activeReaders.decrementAndGet() == 0 && !Thread.currentThread().isInterrupted()) {
+                try {
+                    batches.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+    }
+
+    private void read(final Path file) throws IOException, InterruptedException {
+        final AtomicInteger records = fileRecords.get(file.toString());
+        long counted = 0;
+        try (OffsetLineReader reader = OffsetLineReader.openInput(file, 0)) {
+            List<Product> batch = new ArrayList<>(batchSize);
+            boolean complete = false;
+            String line;
+            while (!stopped) {
+                line = reader.readLine();
+                if (line == null) {
+                    complete = true;
+                    break;
+                }
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final int ordinal = claimed.incrementAndGet();
+                if (ordinal > maxRecords) {
+                    break;
+                }
+                records.incrementAndGet();
+
+                final Product product = parser.apply(line);
+                if (product == null || !accept(product, ordinal)) {
+                    continue;
+                }
+                batch.add(product);
+                if (batch.size() >= batchSize) {
+                    bytesRead.addAndGet(reader.getSourcePosition() - counted);
+                    counted = reader.getSourcePosition();
+                    batches.put(batch);
+                    batch = new ArrayList<>(batchSize);
+                }
+            }
+            // the position in a compressed file is an estimate, a file read to its end counts in full
+            bytesRead.addAndGet((complete ? Files.size(file) : reader.getSourcePosition()) - counted);
+            if (!batch.isEmpty() && !stopped) {
+                batches.put(batch);
+            }
+        }
+    }
+
+    private boolean accept(final Product product, final int ordinal) {
+        if (duplicates == null) {
+            return true;
+        }
+        synchronized (duplicates) {
+            // the off-heap map is freed once the reader is closed
+            return !stopped && duplicates.accept(product.getId(), ordinal);
+        }
+    }
+}
@@ -0,0 +1,349 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.ProductIndexProperties;
+import org.example.model.Product;
+import org.example.service.OpenSearchService;
+import org.example.util.IndexUtils;
+import org.example.util.OffsetLineReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+/**
+ * Applies only the differences between the input file and the live index. A manifest of product id
+ * to content hash from the previous run decides which products are new or changed and need to be
+ * embedded and sent, and which ids disappeared and need to be deleted. A changed product whose
+ * embedding text and routing are unchanged, like a new price or image, is sent as a partial update
+ * that keeps its embedding, without calling the embedding service. Without a usable manifest the run
+ * falls back to a full rebuild and writes a fresh manifest for the next run.
+ */
+@Component
+public class DeltaProductIndexer implements Indexer {
+    private static final Logger logger = LoggerFactory.getLogger(DeltaProductIndexer.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final FullProductIndexer fullProductIndexer;
+    private final OpenSearchService openSearchService;
+    private final ProductIndexProperties indexProperties;
+
+    @Autowired
+    public DeltaProductIndexer(
+            final FullProductIndexer fullProductIndexer,
+            final OpenSearchService openSearchService,
+            final ProductIndexProperties indexProperties) {
+        this.fullProductIndexer = fullProductIndexer;
+        this.openSearchService = openSearchService;
+        this.indexProperties = indexProperties;
+    }
+
+    @Override
+    public int indexFromFile(final String filePath) {
+        return indexFromFile(filePath, null);
+    }
+
+    @Override
+    public int indexFromFile(final String filePath, @Nullable final Integer limit) {
+        return indexFromFile(filePath, limit, new IndexProgress());
+    }
+
+    /**
+     * Send the changes of a local file to the live index, or rebuild it without a usable manifest.
+     * Cancelling stops before the next record and leaves the manifest as it was, so the next run sends
+     * the changes that were not reached again. Changes already sent stay in the live index.
+     *
+     * @param filePath path to the documents file
+     * @param limit maximum number of documents to read
+     * @param progress counters of the run to update
+     * @return the number of indexed documents
+     * @throws CancellationException if the run was cancelled
+     */
+    public int indexFromFile(final String filePath, @Nullable final Integer limit, final IndexProgress progress) {
+        progress.setStage(IndexProgress.Stage.PLANNING);
+        final Path manifestPath = Paths.get(indexProperties.getManifestPath());
+        final String liveIndexName = getLiveIndexName();
+        final ProductManifest previous;
+        try {
+            previous = ProductManifest.read(manifestPath);
+        } catch (IOException e) {
+            logger.error("Manifest {} could not be read: {}", manifestPath, e.getMessage());
+            return rebuild(filePath, limit, manifestPath, liveIndexName, progress);
+        }
+        if (previous == null || liveIndexName == null || !liveIndexName.equals(previous.getIndexName())) {
+            logger.info("No manifest for live index {}, running a full rebuild", liveIndexName);
+            return rebuild(filePath, limit, manifestPath, liveIndexName, progress);
+        }
+
+        final ProductManifest current = new ProductManifest(liveIndexName);
+        final List<Product> changed = new ArrayList<>();
+        final List<Product> updated = new ArrayList<>();
+        final Set<String> moved = new HashSet<>();
+        final Set<String> rejected = new HashSet<>();
+        final int maxRecords = limit == null ? Integer.MAX_VALUE : limit;
+        int lineCount = 0;
+        int malformedLines = 0;
+        int indexed = 0;
+        int embedSkipped = 0;
+        final Path path = Paths.get(filePath);
+        try (OffsetLineReader reader = OffsetLineReader.openInput(path, 0)) {
+            progress.startIndexing(liveIndexName, Files.size(path), 0, limit);
+            String line;
+            while (!progress.isCancelled() && (line = reader.readLine()) != null && lineCount < maxRecords) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                lineCount++;
+
+                final Product product = parseProduct(line, lineCount);
+                if (product == null) {
+                    malformedLines++;
+                    continue;
+                }
+                final String hash = ProductManifest.hash(product, objectMapper);
+                final String routing = getRouting(product);
+                final String ftsHash = ProductManifest.ftsHash(product);
+                current.put(product.getId(), hash, routing, ftsHash);
+
+                final ProductManifest.Entry entry = previous.get(product.getId());
+                if (entry != null && entry.hash().equals(hash) && Objects.equals(entry.routing(), routing)) {
+                    continue;
+                }
+                // same embedding text on the same shard, only the other fields need to be replaced
+                if (entry != null && ftsHash.equals(entry.ftsHash()) && Objects.equals(entry.routing(), routing)) {
+                    updated.add(product);
+                    if (updated.size() >= indexProperties.getBatchSize()) {
+                        embedSkipped += sendUpdates(updated, liveIndexName, rejected, progress);
+                        progress.recordRead(lineCount, reader.getSourcePosition());
+                    }
+                    continue;
+                }
+                // a changed category routes the new version to another shard, drop the old copy
+                if (entry != null && !Objects.equals(entry.routing(), routing)) {
+                    moved.add(product.getId());
+                }
+                changed.add(product);
+                if (changed.size() >= indexProperties.getBatchSize()) {
+                    indexed += sendChanges(changed, moved, previous, liveIndexName, rejected, progress);
+                    progress.recordRead(lineCount, reader.getSourcePosition());
+                }
+            }
+            if (progress.isCancelled()) {
+                throw new CancellationException(String.format(
+                        "Delta indexing of %s into %s was cancelled after %d changes, the manifest was not updated",
+                        filePath, liveIndexName, indexed + embedSkipped));
+            }
+            if (!changed.isEmpty()) {
+                indexed += sendChanges(changed, moved, previous, liveIndexName, rejected, progress);
+            }
+            if (!updated.isEmpty()) {
+                embedSkipped += sendUpdates(updated, liveIndexName, rejected, progress);
+            }
+            progress.recordRead(lineCount, reader.getSourcePosition());
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            return indexed + embedSkipped;
+        }
+        progress.setStage(IndexProgress.Stage.FINALIZING);
+
+        if (!rejected.isEmpty()) {
+            logger.warn("{} rejected {} changed products and partial updates, their previous manifest entries "
+                    + "are kept", liveIndexName, rejected.size());
+        }
+        // rejected products keep their previous entry, or none if they are new, so the next run sends them again
+        for (String id : rejected) {
+            final ProductManifest.Entry entry = previous.get(id);
+            if (entry == null) {
+                current.remove(id);
+            } else {
+                current.put(id, entry);
+            }
+        }
+
+        if (limit == null && malformedLines == 0) {
+            final Set<String> removed = new HashSet<>(previous.ids());
+            removed.removeAll(current.ids());
+            deleteFromPrevious(removed, previous, liveIndexName);
+            logger.info("Delta run sent {} changed products, {} of them as partial updates without embedding, "
+                            + "{} rejected, and deleted {} of {} in {}",
+                    indexed + embedSkipped, embedSkipped, rejected.size(), removed.size(), previous.size(),
+                    liveIndexName);
+        } else {
+            // products past the limit or on a malformed line were not read, keep their manifest entries
+            // instead of deleting them
+            previous.ids().stream()
+                    .filter(id -> current.get(id) == null)
+                    .forEach(id -> current.put(id, previous.get(id)));
+            logger.info("Delta run sent {} changed products to {}, {} of them as partial updates without "
+                            + "embedding, {} rejected, deletes skipped for a {}",
+                    indexed + embedSkipped, liveIndexName, embedSkipped, rejected.size(),
+                    malformedLines > 0 ? malformedLines + " malformed lines" : "limited run");
+        }
+
+        finalizer(liveIndexName);
+        writeManifest(current, manifestPath);
+        progress.setStage(IndexProgress.Stage.DONE);
+        return indexed + embedSkipped;
+    }
+
+    @Override
+    public int bulkIndexRecords(final List<JsonNode> nodeList, final String indexName) {
+        return fullProductIndexer.bulkIndexRecords(nodeList, indexName);
+    }
+
+    @Override
+    public void finalizer(final String newIndexName) {
+        // the live index keeps its serving settings, make the changes visible right away
+        openSearchService.refreshIndex(newIndexName);
+    }
+
+    /**
+     * Rebuild the whole index and record a manifest of what was indexed if the alias moved to it
+     */
+    private int rebuild(
+            final String filePath,
+            @Nullable final Integer limit,
+            final Path manifestPath,
+            @Nullable final String previousIndexName,
+            final IndexProgress progress) {
+        final int indexed = fullProductIndexer.indexFromFile(filePath, limit, false, null, progress);
+        final String liveIndexName = getLiveIndexName();
+        if (liveIndexName == null || liveIndexName.equals(previousIndexName)) {
+            logger.error("Full rebuild did not produce a new live index, manifest not written");
+            return indexed;
+        }
+
+        final ProductManifest manifest = new ProductManifest(liveIndexName);
+        final int maxRecords = limit == null ? Integer.MAX_VALUE : limit;
+        int lineCount = 0;
+        int malformedLines = 0;
+        try (OffsetLineReader reader = OffsetLineReader.openInput(Paths.get(filePath), 0)) {
+            String line;
+            while ((line = reader.readLine()) != null && lineCount < maxRecords) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                lineCount++;
+                final Product product = parseProduct(line, lineCount);
+                if (product == null) {
+                    malformedLines++;
+                    continue;
+                }
+                manifest.put(product.getId(), ProductManifest.hash(product, objectMapper), getRouting(product),
+                        ProductManifest.ftsHash(product));
+            }
+        } catch (IOException e) {
+            logger.error("Manifest could not be built from {}: {}", filePath, e.getMessage());
+            return indexed;
+        }
+        if (malformedLines > 0) {
+            logger.warn("Skipped {} malformed lines of {} in the manifest", malformedLines, filePath);
+        }
+        writeManifest(manifest, manifestPath);
+        return indexed;
+    }
+
+    /**
+     * Delete the old copies of moved products before sending the batch, so a delete can never hit
+     * the new copy, then embed and index the batch and clear both collections
+     *
+     * @param rejected collects the ids of the products the cluster rejected
+     * @return the number of products indexed
+     */
+    private int sendChanges(
+            final List<Product> changed,
+            final Set<String> moved,
+            final ProductManifest previous,
+            final String indexName,
+            final Set<String> rejected,
+            final IndexProgress progress) {
+        deleteFromPrevious(moved, previous, indexName);
+        final List<String> batchRejected = fullProductIndexer.bulkIndexProducts(changed, indexName, progress);
+        rejected.addAll(batchRejected);
+        final int indexed = changed.size() - batchRejected.size();
+        changed.clear();
+        moved.clear();
+        return indexed;
+    }
+
+    /**
+     * Send products with unchanged embedding text as partial updates and clear the batch
+     *
+     * @param rejected collects the ids of the products the cluster rejected
+     * @return the number of products updated
+     */
+    private int sendUpdates(
+            final List<Product> updated,
+            final String indexName,
+            final Set<String> rejected,
+            final IndexProgress progress) {
+        final List<String> batchRejected = fullProductIndexer.bulkUpdateProducts(updated, indexName, progress);
+        rejected.addAll(batchRejected);
+        final int sent = updated.size() - batchRejected.size();
+        updated.clear();
+        return sent;
+    }
+
+    /**
+     * @return the product on the line or null if the line is not a valid product, it is skipped like the
+     * full indexer skips it
+     */
+    @Nullable
+    private Product parseProduct(final String line, final int lineNumber) {
+        try {
+            return objectMapper.readValue(line, Product.class);
+        } catch (JsonProcessingException e) {
+            logger.error("Skipping malformed line {}: {}", lineNumber, e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private void deleteFromPrevious(final Set<String> ids, final ProductManifest previous, final String indexName) {
+        if (!ids.isEmpty()) {
+            openSearchService.bulkDelete(List.copyOf(ids), indexName, id -> previous.get(id).routing());
+        }
+    }
+
+    private void writeManifest(final ProductManifest manifest, final Path manifestPath) {
+        try {
+            manifest.write(manifestPath);
+            logger.info("Wrote manifest of {} products for {} to {}",
+                    manifest.size(), manifest.getIndexName(), manifestPath);
+        } catch (IOException e) {
+            logger.error("Manifest {} could not be written: {}", manifestPath, e.getMessage());
+        }
+    }
+
+    @Nullable
+    private String getRouting(final Product product) {
+        return indexProperties.isRouteByCategory()
+                ? IndexUtils.getCategoryRouting(product.getTopLevelCategory())
+                : null;
+    }
+
+    /**
+     * @return the single index behind the product alias or null if there is none
+     */
+    @Nullable
+    private String getLiveIndexName() {
+        return IndexUtils.getSingleIndex(
+                openSearchService.getIndexesByAlias(indexProperties.getAlias()), indexProperties.getAlias(),
+                "delta indexing");
+    }
+}
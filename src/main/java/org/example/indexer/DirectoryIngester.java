@@ -0,0 +1,477 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.example.config.IngestProperties;
+import org.example.config.ProductIndexProperties;
+import org.example.model.Product;
+import org.example.service.OpenSearchService;
+import org.example.util.IndexUtils;
+import org.example.util.OffsetLineReader;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.StandardWatchEventKinds;
+import java.nio.file.WatchKey;
+import java.nio.file.WatchService;
+import java.nio.file.attribute.BasicFileAttributes;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Continuously sends the NDJSON files an upstream system drops into a directory to the live index.
+ * A watch on the directory wakes a pass as soon as a file is created or grows, and a pass also runs
+ * every poll interval for file systems that report changes late or not at all. Each pass tails every
+ * matching file from the byte offset ingested so far and sends its records to the index behind the
+ * alias in batches. Only lines ending with a line feed are read while a file may still be written.
+ * <p>
+ * Offsets move only after every record before them was accepted by the cluster and are written to
+ * disk after each batch, so a restart continues where the last batch ended. A batch with rejected
+ * records fails the pass and is sent again by the next one. Once every rejected record of a batch was
+ * rejected the configured number of times, they are appended to the dead-letter file as they were read
+ * and the offsets move past them, so a record the cluster always rejects does not hold its file back.
+ * A crash between a batch and its offset write sends that batch again, which replaces the same documents. A file whose
+ * identity changes or that shrinks below its offset was replaced and is read from the start. Like
+ * realtime writes, records sent while a full rebuild runs are lost when the alias moves. Records do
+ * not carry the category a product was indexed under, so ingest refuses to run while documents are
+ * routed by category, where a product that moved category would keep its old copy on another shard.
+ */
+@Component
+public class DirectoryIngester {
+    private static final Logger logger = LoggerFactory.getLogger(DirectoryIngester.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    // batches kept in the freshness window
+    private static final int LATENCY_SAMPLES = 1024;
+    private static final String ROUTED_BY_CATEGORY = "directory ingest cannot delete the old copy of a product "
+            + "that moved category while documents are routed by category";
+
+    private final FullProductIndexer fullProductIndexer;
+    private final OpenSearchService openSearchService;
+    private final ProductIndexProperties indexProperties;
+    private final IngestProperties ingestProperties;
+    private final ExecutorService watcher;
+    // embedding and bulk counters over every batch since startup
+    private final IndexProgress progress = new IndexProgress();
+    private final Map<String, FileOffset> offsets = new ConcurrentHashMap<>();
+    // when unread data was first seen in a file, cleared once the file is caught up
+    private final Map<String, Long> backlogSince = new ConcurrentHashMap<>();
+    private final LatencyWindow freshness = new LatencyWindow(LATENCY_SAMPLES);
+    private final AtomicLong records = new AtomicLong();
+    private final AtomicLong malformed = new AtomicLong();
+    private final AtomicLong failedPasses = new AtomicLong();
+    private final AtomicLong deadLettered = new AtomicLong();
+    // times each record of the pending batch was rejected, cleared once it is accepted or dead-lettered
+    private final Map<String, Integer> rejections = new ConcurrentHashMap<>();
+    private volatile boolean offsetsLoaded;
+    private volatile boolean running;
+    private volatile String lastError;
+
+    @Autowired
+    public DirectoryIngester(
+            final FullProductIndexer fullProductIndexer,
+            final OpenSearchService openSearchService,
+            final ProductIndexProperties indexProperties,
+            final IngestProperties ingestProperties) {
+        this.fullProductIndexer = fullProductIndexer;
+        this.openSearchService = openSearchService;
+        this.indexProperties = indexProperties;
+        this.ingestProperties = ingestProperties;
+        this.watcher = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("directory-ingester").daemon().factory());
+    }
+
+    /**
+     * Start watching the directory if ingest is enabled and documents are not routed by category
+     */
+    @PostConstruct
+    public void start() {
+        if (!ingestProperties.isEnabled()) {
+            return;
+        }
+        if (indexProperties.isRouteByCategory()) {
+            lastError = ROUTED_BY_CATEGORY;
+            logger.error("Not watching {}: {}", ingestProperties.getDirectory(), ROUTED_BY_CATEGORY);
+            return;
+        }
+        watcher.execute(this::run);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        watcher.shutdownNow();
+    }
+
+    private void run() {
+        final Path directory = Paths.get(ingestProperties.getDirectory());
+        running = true;
+        try (WatchService watchService = directory.getFileSystem().newWatchService()) {
+            Files.createDirectories(directory);
+            directory.register(watchService,
+                    StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY);
+            logger.info("Ingesting {} files dropped into {}",
+                    ingestProperties.getPattern(), directory.toAbsolutePath());
+            while (!Thread.currentThread().isInterrupted()) {
+                try {
+                    ingest();
+                    lastError = null;
+                } catch (IOException | RuntimeException e) {
+                    // the offsets did not move, the next pass retries the same records
+                    failedPasses.incrementAndGet();
+                    lastError = e.getMessage();
+                    logger.error("Ingest pass over {} failed: {}", directory, e.getMessage(), e);
+                }
+                // the events only wake the next pass, which looks at every file anyway
+                final WatchKey key = watchService.poll(ingestProperties.getPollMillis(), TimeUnit.MILLISECONDS);
+                if (key != null) {
+                    key.pollEvents();
+                    key.reset();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException e) {
+            lastError = e.getMessage();
+            logger.error("Directory {} cannot be watched: {}", directory, e.getMessage(), e);
+        } finally {
+            running = false;
+        }
+    }
+
+    /**
+     * Read every matching file from its offset and send the new records, oldest file first
+     *
+     * @return the number of records sent
+     * @throws IllegalStateException if documents are routed by category
+     */
+    int ingest() throws IOException {
+        if (indexProperties.isRouteByCategory()) {
+            throw new IllegalStateException(ROUTED_BY_CATEGORY);
+        }
+        loadOffsets();
+        final List<Path> files = listFiles();
+        final Set<String> listed = new HashSet<>();
+        final List<Product> batch = new ArrayList<>();
+        // the line each record of the batch was read from, for the dead-letter file
+        final List<String> lines = new ArrayList<>();
+        // offset each file in the batch reaches once the batch is acknowledged
+        final Map<String, FileOffset> pending = new LinkedHashMap<>();
+        int sent = 0;
+        for (Path file : files) {
+            final String key = file.toAbsolutePath().toString();
+            listed.add(key);
+            final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+            final String identity = getIdentity(attributes);
+            final long startOffset = getStartOffset(key, identity, attributes.size());
+            if (startOffset >= attributes.size()) {
+                continue;
+            }
+            backlogSince.putIfAbsent(key, System.nanoTime());
+
+            // a file nobody wrote to for a while will not get the line feed of its last line
+            final boolean settled = System.currentTimeMillis() - attributes.lastModifiedTime().toMillis()
+                    >= ingestProperties.getSettleMillis();
+            try (OffsetLineReader reader = OffsetLineReader.open(file, startOffset)) {
+                String line;
+                while (!Thread.currentThread().isInterrupted()
+                        && (line = settled ? reader.readLine() : reader.readCompleteLine()) != null) {
+                    line = line.trim();
+                    pending.put(key, new FileOffset(key, identity, reader.getOffset()));
+                    if (line.isEmpty()) {
+                        continue;
+                    }
+                    final Product product = readProduct(file, line);
+                    if (product != null) {
+                        batch.add(product);
+                        lines.add(line);
+                    }
+                    if (batch.size() >= Math.max(1, ingestProperties.getBatchSize())) {
+                        sent += flush(batch, lines, pending);
+                    }
+                }
+            }
+        }
+        sent += flush(batch, lines, pending);
+
+        // forget files that were removed from the directory
+        offsets.keySet().retainAll(listed);
+        backlogSince.keySet().retainAll(listed);
+        return sent;
+    }
+
+    /**
+     * Send a batch to the live index, then move and save the offsets of the files it was read from
+     *
+     * @return the number of records sent
+     */
+    private int flush(
+            final List<Product> batch, final List<String> lines, final Map<String, FileOffset> pending)
+            throws IOException {
+        if (pending.isEmpty()) {
+            return 0;
+        }
+        final int sent = batch.size();
+        if (!batch.isEmpty()) {
+            final String indexName = getLiveIndexName();
+            final List<String> rejected = fullProductIndexer.bulkIndexProducts(batch, indexName, progress);
+            int accepted = sent;
+            if (!rejected.isEmpty()) {
+                final Set<String> rejectedIds = new HashSet<>(rejected);
+                final int maxAttempts = Math.max(1, ingestProperties.getMaxBatchAttempts());
+                boolean exhausted = true;
+                for (String id : rejectedIds) {
+                    exhausted &= rejections.merge(id, 1, Integer::sum) >= maxAttempts;
+                }
+                if (!exhausted) {
+                    // fail the pass before the offsets move, the next pass sends the whole batch again
+                    throw new IllegalStateException(String.format(
+                            "%s rejected %s of %s records from %s, offsets were not moved",
+                            indexName, rejected.size(), sent, pending.keySet()));
+                }
+                accepted -= writeDeadLetters(batch, lines, rejectedIds, pending.keySet());
+                rejections.keySet().removeAll(rejectedIds);
+            }
+            if (!rejections.isEmpty()) {
+                batch.forEach(product -> rejections.remove(product.getId()));
+            }
+            records.addAndGet(accepted);
+        }
+        offsets.putAll(pending);
+        writeOffsets();
+
+        final long now = System.nanoTime();
+        for (FileOffset offset : pending.values()) {
+            final Long since = backlogSince.get(offset.path());
+            if (since != null) {
+                freshness.add(now - since);
+            }
+            final Path file = Paths.get(offset.path());
+            if (!Files.exists(file) || offset.offset() >= Files.size(file)) {
+                backlogSince.remove(offset.path());
+            }
+        }
+        logger.debug("Ingested {} records from {}", sent, pending.keySet());
+        batch.clear();
+        lines.clear();
+        pending.clear();
+        return sent;
+    }
+
+    /**
+     * Append the lines of the rejected records of a batch to the dead-letter file
+     *
+     * @return the number of records written
+     */
+    private int writeDeadLetters(
+            final List<Product> batch, final List<String> lines, final Set<String> rejectedIds,
+            final Set<String> files) throws IOException {
+        final List<String> deadLetters = new ArrayList<>();
+        for (int i = 0; i < batch.size(); i++) {
+            if (rejectedIds.contains(batch.get(i).getId())) {
+                deadLetters.add(lines.get(i));
+            }
+        }
+        final Path path = Paths.get(ingestProperties.getDeadLetterPath()).toAbsolutePath();
+        Files.createDirectories(path.getParent());
+        Files.write(path, deadLetters, StandardCharsets.UTF_8,
+                StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        deadLettered.addAndGet(deadLetters.size());
+        logger.error("Wrote {} records from {} rejected {} times to {}: {}", deadLetters.size(), files,
+                ingestProperties.getMaxBatchAttempts(), path, rejectedIds);
+        return deadLetters.size();
+    }
+
+    /**
+     * @return how far ingest is behind the files in the directory and counters since startup
+     */
+    public Status getStatus() {
+        int fileCount = 0;
+        int backlogFiles = 0;
+        long backlogBytes = 0;
+        try {
+            loadOffsets();
+            for (Path file : listFiles()) {
+                fileCount++;
+                final BasicFileAttributes attributes = Files.readAttributes(file, BasicFileAttributes.class);
+                final long unread = attributes.size() - getStartOffset(
+                        file.toAbsolutePath().toString(), getIdentity(attributes), attributes.size());
+                if (unread > 0) {
+                    backlogFiles++;
+                    backlogBytes += unread;
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        final long oldest = backlogSince.values().stream().min(Long::compare).orElse(System.nanoTime());
+        final long[] sorted = freshness.sorted();
+        final IndexProgress.Snapshot snapshot = progress.snapshot();
+        return new Status(
+                running,
+                Paths.get(ingestProperties.getDirectory()).toAbsolutePath().toString(),
+                fileCount,
+                backlogFiles,
+                backlogBytes,
+                backlogFiles == 0 ? 0 : (System.nanoTime() - oldest) / 1_000_000,
+                LatencyWindow.percentileMillis(sorted, 0.5),
+                LatencyWindow.percentileMillis(sorted, 0.99),
+                records.get(),
+                snapshot.rejectedDocuments(),
+                deadLettered.get(),
+                malformed.get(),
+                failedPasses.get(),
+                lastError);
+    }
+
+    /**
+     * @return the offset to read a file from, 0 if it is new or was replaced since it was last read
+     */
+    private long getStartOffset(final String key, final String identity, final long size) {
+        final FileOffset offset = offsets.get(key);
+        if (offset == null) {
+            return 0;
+        }
+        if (!offset.identity().equals(identity) || offset.offset() > size) {
+            logger.warn("{} was replaced since it was last read, reading it from the start", key);
+            return 0;
+        }
+        return offset.offset();
+    }
+
+    private List<Path> listFiles() throws IOException {
+        final Path directory = Paths.get(ingestProperties.getDirectory());
+        final List<Path> files = new ArrayList<>();
+        if (!Files.isDirectory(directory)) {
+            return files;
+        }
+        try (DirectoryStream<Path> stream = Files.newDirectoryStream(directory, ingestProperties.getPattern())) {
+            for (Path file : stream) {
+                if (Files.isRegularFile(file)) {
+                    files.add(file);
+                }
+            }
+        }
+        // upstream writes files in order, an older file holds the older version of a product
+        files.sort(Comparator.comparing((Path file) -> file.toFile().lastModified())
+                .thenComparing(Path::toString));
+        return files;
+    }
+
+    @Nullable
+    private Product readProduct(final Path file, final String line) {
+        try {
+            return objectMapper.readValue(line, Product.class);
+        } catch (IOException e) {
+            malformed.incrementAndGet();
+            logger.error("Skipping malformed record in {}: {}", file, e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * @return the file key if the file system has one, otherwise the creation time
+     */
+    private static String getIdentity(final BasicFileAttributes attributes) {
+        return attributes.fileKey() != null
+                ? attributes.fileKey().toString()
+                : String.valueOf(attributes.creationTime().toMillis());
+    }
+
+    private void loadOffsets() throws IOException {
+        if (offsetsLoaded) {
+            return;
+        }
+        final Path path = Paths.get(ingestProperties.getOffsetsPath());
+        if (Files.exists(path)) {
+            final List<FileOffset> saved = objectMapper.readValue(path.toFile(), new TypeReference<>() { });
+            saved.forEach(offset -> offsets.put(offset.path(), offset));
+            logger.info("Loaded ingest offsets of {} files from {}", saved.size(), path);
+        }
+        offsetsLoaded = true;
+    }
+
+    /**
+     * Write the offsets to a temporary file and move it over the previous one, so a crash while
+     * writing never leaves truncated offsets behind
+     */
+    private void writeOffsets() throws IOException {
+        final Path absolute = Paths.get(ingestProperties.getOffsetsPath()).toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        final Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        objectMapper.writeValue(temp.toFile(), List.copyOf(offsets.values()));
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * @return the single index behind the product alias, which records are written to and quantized for
+     */
+    private String getLiveIndexName() {
+        return IndexUtils.requireSingleIndex(
+                openSearchService.getIndexesByAlias(indexProperties.getAlias()), indexProperties.getAlias(),
+                "directory ingest");
+    }
+
+    /**
+     * @param path the absolute path of the file
+     * @param identity the file key or creation time, which changes when the file is replaced
+     * @param offset the byte offset of the first line that has not been ingested
+     */
+    record FileOffset(String path, String identity, long offset) {
+    }
+
+    /**
+     * @param running true while the directory is watched
+     * @param directory the watched directory
+     * @param files matching files in the directory
+     * @param backlogFiles files with data that has not been ingested
+     * @param backlogBytes bytes that have not been ingested
+     * @param lagMillis age of the oldest data not ingested yet, from when a pass first saw it
+     * @param freshnessP50Millis median time from data being seen to being indexed over recent batches
+     * @param freshnessP99Millis 99th percentile time from data being seen to being indexed over recent batches
+     * @param records records sent since startup
+     * @param rejectedRecords records the cluster rejected
+     * @param deadLetterRecords records rejected too often, written to the dead-letter file and skipped
+     * @param malformedRecords lines that could not be parsed and were skipped
+     * @param failedPasses passes that stopped on an error and will be retried
+     * @param lastError the error of the last pass or null if it succeeded
+     */
+    public record Status(
+            boolean running,
+            String directory,
+            int files,
+            int backlogFiles,
+            long backlogBytes,
+            long lagMillis,
+            double freshnessP50Millis,
+            double freshnessP99Millis,
+            long records,
+            long rejectedRecords,
+            long deadLetterRecords,
+            long malformedRecords,
+            long failedPasses,
+            String lastError) {
+    }
+}
@@ -0,0 +1,262 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import org.example.config.ProductIndexProperties.DedupMode;
+import org.example.util.OffHeapLongIntMap;
+import org.example.util.OffsetLineReader;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Drops repeated product ids from an ingest run so each product is embedded and indexed once.
+ * Records are identified by their ordinal, the position of the record among the non-empty lines of
+ * the input file. ASIN ids are packed into a long and kept off-heap, any other id falls back to an
+ * on-heap map.
+ */
+public class DuplicateFilter implements AutoCloseable {
+    private static final JsonFactory jsonFactory = new JsonFactory();
+    private static final int ASIN_LENGTH = 10;
+    private static final int ASIN_RADIX = 36;
+    // records read to measure the average record size of a file, the map grows past the estimate
+    private static final int SAMPLE_RECORDS = 1000;
+
+    private final DedupMode mode;
+    private final OffHeapLongIntMap asinOrdinals;
+    private final Map<String, Integer> otherOrdinals = new HashMap<>();
+    private int duplicates;
+
+    private DuplicateFilter(final DedupMode mode, final long expectedRecords) {
+        this.mode = mode;
+        this.asinOrdinals = new OffHeapLongIntMap(expectedRecords);
+    }
+
+    /**
+     * Build a filter for a run over a file. Last wins needs the ordinal of the final copy of every id,
+     * so the records the run will read are scanned up front. First wins on a resumed run scans the
+     * records before the resume offset so ids indexed before the restart are still known.
+     *
+     * @param mode which copy of a repeated id to keep
+     * @param path the input file
+     * @param resumeOffset byte offset the run starts reading from
+     * @param maxRecords the number of records the run reads
+     * @return the filter or null if deduplication is off
+     */
+    @Nullable
+    public static DuplicateFilter open(
+            @Nullable final DedupMode mode,
+            final Path path,
+            final long resumeOffset,
+            final int maxRecords) throws IOException {
+        if (mode == null || mode == DedupMode.OFF) {
+            return null;
+        }
+        final DuplicateFilter filter = new DuplicateFilter(mode, estimateRecords(path, maxRecords));
+        try {
+            final long scanTo = mode == DedupMode.LAST_WINS ? Long.MAX_VALUE : resumeOffset;
+            if (scanTo > 0) {
+                filter.scan(path, scanTo, maxRecords);
+            }
+            return filter;
+        } catch (IOException | RuntimeException e) {
+            filter.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Build a filter for a stream that is read once. First wins needs no scan. Last wins cannot look
+     * ahead, so no filter is returned and the bulk requests resolve it: a later copy of an id replaces
+     * the document of the earlier one, unless a presort window reorders the two or category routing
+     * sends them to different shards.
+     *
+     * @param mode which copy of a repeated id to keep
+     * @param expectedRecords a guess at the number of records, the map grows past it
+     * @return the filter or null if the stream is not filtered
+     */
+    @Nullable
+    public static DuplicateFilter openStream(@Nullable final DedupMode mode, final long expectedRecords) {
+        return mode == DedupMode.FIRST_WINS ? new DuplicateFilter(mode, expectedRecords) : null;
+    }
+
+    /**
+     * Decide if a record should be indexed
+     *
+     * @param id the product id of the record
+     * @param ordinal the one based ordinal of the record in the input file
+     * @return false if the record is a duplicate that should be skipped
+     */
+    public boolean accept(@Nullable final String id, final int ordinal) {
+        if (id == null) {
+            return true;
+        }
+        final boolean keep = mode == DedupMode.LAST_WINS
+                ? get(id) == ordinal
+                : putIfAbsent(id, ordinal) == OffHeapLongIntMap.NO_VALUE;
+        if (!keep) {
+            duplicates++;
+        }
+        return keep;
+    }
+
+    /**
+     * @return the number of records skipped as duplicates
+     */
+    public int getDuplicates() {
+        return duplicates;
+    }
+
+    /**
+     * @return the number of distinct ids seen
+     */
+    public long getDistinctIds() {
+        return asinOrdinals.size() + otherOrdinals.size();
+    }
+
+    /**
+     * @return the off-heap bytes held for ASIN ids
+     */
+    public long getOffHeapBytes() {
+        return asinOrdinals.byteSize();
+    }
+
+    @Override
+    public void close() {
+        asinOrdinals.close();
+    }
+
+    /**
+     * Estimate the record count of a file from the average size of its first records
+     *
+     * @param path the input file, plain or gzip compressed
+     * @param maxRecords the number of records the run reads
+     * @return the estimated number of records the run reads
+     */
+    static long estimateRecords(final Path path, final int maxRecords) throws IOException {
+        final int sampleRecords = Math.min(SAMPLE_RECORDS, maxRecords);
+        int records = 0;
+        try (OffsetLineReader reader = OffsetLineReader.openInput(path, 0)) {
+            String line;
+            while (records < sampleRecords && (line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    records++;
+                }
+            }
+            if (records < sampleRecords || records == maxRecords) {
+                // the whole file or every record of the run was read
+                return records;
+            }
+            // stored bytes, so a compressed file is measured against its compressed size
+            final long sampledBytes = Math.max(1, reader.getSourcePosition());
+            return Math.min(maxRecords, Files.size(path) * records / sampledBytes);
+        }
+    }
+
+    /**
+     * Pack a 10 character upper case alphanumeric ASIN into a non-zero long
+     *
+     * @param id the product id
+     * @return the packed id or 0 if the id is not an ASIN
+     */
+    static long encodeAsin(final String id) {
+        if (id.length() != ASIN_LENGTH) {
+            return 0;
+        }
+        long encoded = 0;
+        for (int i = 0; i < ASIN_LENGTH; i++) {
+            final char c = id.charAt(i);
+            final int digit;
+            if (c >= '0' && c <= '9') {
+                digit = c - '0';
+            } else if (c >= 'A' && c <= 'Z') {
+                digit = c - 'A' + 10;
+            } else {
+                return 0;
+            }
+            encoded = encoded * ASIN_RADIX + digit;
+        }
+        // 36^10 fits in 52 bits, shift by one so the all zero ASIN is not the empty key
+        return encoded + 1;
+    }
+
+    private int get(final String id) {
+        final long asin = encodeAsin(id);
+        if (asin != 0) {
+            return asinOrdinals.get(asin);
+        }
+        return otherOrdinals.getOrDefault(id, OffHeapLongIntMap.NO_VALUE);
+    }
+
+    private int put(final String id, final int ordinal) {
+        final long asin = encodeAsin(id);
+        if (asin != 0) {
+            return asinOrdinals.put(asin, ordinal);
+        }
+        final Integer previous = otherOrdinals.put(id, ordinal);
+        return previous == null ? OffHeapLongIntMap.NO_VALUE : previous;
+    }
+
+    private int putIfAbsent(final String id, final int ordinal) {
+        final long asin = encodeAsin(id);
+        if (asin != 0) {
+            return asinOrdinals.putIfAbsent(asin, ordinal);
+        }
+        final Integer previous = otherOrdinals.putIfAbsent(id, ordinal);
+        return previous == null ? OffHeapLongIntMap.NO_VALUE : previous;
+    }
+
+    private void scan(final Path path, final long scanTo, final int maxRecords) throws IOException {
+        int ordinal = 0;
+        try (OffsetLineReader reader = OffsetLineReader.openInput(path, 0)) {
+            String line;
+            while (reader.getOffset() < scanTo && ordinal < maxRecords && (line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                ordinal++;
+                final String id = readId(line);
+                if (id != null) {
+                    if (mode == DedupMode.LAST_WINS) {
+                        put(id, ordinal);
+                    } else {
+                        putIfAbsent(id, ordinal);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Stream the top level id of a record without building a tree. Like binding to Product, the
+     * last of the id and asin fields wins.
+     */
+    @Nullable
+    private static String readId(final String line) {
+        String id = null;
+        try (JsonParser parser = jsonFactory.createParser(line)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                return null;
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                final String field = parser.currentName();
+                final JsonToken value = parser.nextToken();
+                if (("id".equals(field) || "asin".equals(field)) && value == JsonToken.VALUE_STRING) {
+                    id = parser.getText();
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        } catch (IOException e) {
+            // malformed records are skipped by the indexer and never reach accept
+            return null;
+        }
+        return id;
+    }
+}
@@ -4,11 +4,22 @@ import com.fasterxml.jackson.core.JsonFactory;
 import com.fasterxml.jackson.core.JsonParser;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
 import org.example.config.ProductIndexProperties;
+import org.example.config.VectorIndexProperties;
 import org.example.model.Product;
 import org.example.service.EmbeddingService;
 import org.example.service.OpenSearchService;
+import org.example.util.DecompressingInputStream;
 import org.example.util.IndexUtils;
+import org.example.util.OffsetLineReader;
+import org.example.util.ScalarQuantizer;
+import org.example.util.VectorUtils;
+import org.opensearch.client.opensearch._types.mapping.TypeMapping;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.indices.IndexSettings;
+import org.opensearch.client.opensearch.indices.SegmentSortOrder;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -16,48 +27,273 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import javax.annotation.Nullable;
-import java.io.BufferedReader;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.PushbackInputStream;
+import java.io.UncheckedIOException;
 import java.nio.file.Files;
+import java.nio.file.Path;
 import java.nio.file.Paths;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.LongSummaryStatistics;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ConcurrentHashMap;
 
 @Component
 public class FullProductIndexer implements Indexer {
     private static final Logger logger = LoggerFactory.getLogger(FullProductIndexer.class);
     private static final ObjectMapper objectMapper = new ObjectMapper();
     private static final JsonFactory jsonFactory = objectMapper.getFactory();
+    private static final String VECTOR_FIELD = "fts_embedding";
+    private static final String INNER_PRODUCT_SPACE = "innerproduct";
+    private static final String BYTE_DATA_TYPE = "byte";
+    // initial capacity of the first wins id map of a stream of unknown length, it grows past it
+    private static final int STREAM_RECORDS_GUESS = 1 << 16;
 
     private final EmbeddingService embeddingService;
     private final OpenSearchService openSearchService;
     private final ProductIndexProperties indexProperties;
+    private final IndexSizingPlanner sizingPlanner;
+    private final VectorIndexProperties vectorProperties;
+    private final VectorIndexReporter vectorReporter;
+    // quantizer of each index written to, empty for indexes that store float vectors
+    private final Map<String, Optional<ScalarQuantizer>> quantizers = new ConcurrentHashMap<>();
 
     @Autowired
     public FullProductIndexer(
             final EmbeddingService embeddingService,
             final OpenSearchService openSearchService,
-            final ProductIndexProperties indexProperties) {
+            final ProductIndexProperties indexProperties,
+            final IndexSizingPlanner sizingPlanner,
+            final VectorIndexProperties vectorProperties,
+            final VectorIndexReporter vectorReporter) {
         this.embeddingService = embeddingService;
         this.openSearchService = openSearchService;
         this.indexProperties = indexProperties;
+        this.sizingPlanner = sizingPlanner;
+        this.vectorProperties = vectorProperties;
+        this.vectorReporter = vectorReporter;
     }
 
     protected String init() {
+        return init(null);
+    }
+
+    /**
+     * Create the index for a new indexing run
+     *
+     * @param plan sizing plan to apply to the new index or null to use the settings and mapping files as is
+     * @return the name of the index to write documents to
+     */
+    protected String init(@Nullable final IndexPlan plan) {
+        return init(plan, null);
+    }
+
+    /**
+     * Create the index for a new indexing run
+     *
+     * @param plan sizing plan to apply to the new index or null to use the settings and mapping files as is
+     * @param quantizer int8 quantizer to map the embedding field as a byte vector with or null to keep floats
+     * @return the name of the index to write documents to
+     */
+    protected String init(@Nullable final IndexPlan plan, @Nullable final ScalarQuantizer quantizer) {
+        return init(plan, quantizer, resolveVectorProfile(null));
+    }
+
+    /**
+     * Create the index for a new indexing run
+     *
+     * @param plan sizing plan to apply to the new index or null to use the settings and mapping files as is
+     * @param quantizer int8 quantizer to map the embedding field as a byte vector with or null to keep floats
+     * @param vectorProfile name of the k-NN engine and compression profile to map the embedding field with
+     *                      or null to keep the mapping file
+     * @return the name of the index to write documents to
+     */
+    protected String init(
+            @Nullable final IndexPlan plan,
+            @Nullable final ScalarQuantizer quantizer,
+            @Nullable final String vectorProfile) {
         final String newIndexName = IndexUtils.getIndexName(indexProperties.getAlias());
+        final int servingShards = getServingShards(plan);
+        final boolean shrink = isShrinkEnabled(servingShards);
+        final List<ProductSortComparator.SortField> indexSort =
+                ProductSortComparator.parse(indexProperties.getIndexSort());
+        if (!shrink && plan == null && indexSort.isEmpty()
+                && !indexProperties.isNormalizeVectors() && quantizer == null && vectorProfile == null) {
+            openSearchService.createIndex(
+                    newIndexName,
+                    indexProperties.getSettings(),
+                    indexProperties.getMapping());
+            return newIndexName;
+        }
+
+        // spread bulk writes over more primaries, the finalizer shrinks to the serving count
+        final int buildShards = indexProperties.getBuildShards();
+        if (shrink && (servingShards < 1 || buildShards % servingShards != 0)) {
+            throw new IllegalArgumentException(String.format(
+                    "servingShards %s must be a factor of buildShards %s", servingShards, buildShards));
+        }
+        final Integer shards;
+        if (shrink) {
+            shards = buildShards;
+        } else if (plan != null) {
+            shards = servingShards;
+        } else {
+            shards = null;
+        }
+        final String indexName = shrink ? IndexUtils.getBuildIndexName(newIndexName) : newIndexName;
         openSearchService.createIndex(
-                newIndexName,
+                indexName,
                 indexProperties.getSettings(),
-                indexProperties.getMapping());
+                indexProperties.getMapping(),
+                settings -> customizeSettings(settings, shards, indexSort),
+                mapping -> customizeMapping(mapping, plan, quantizer, vectorProfile));
+        if (quantizer != null) {
+            quantizers.put(indexName, Optional.of(quantizer));
+        }
 
-        return newIndexName;
+        return indexName;
+    }
+
+    /**
+     * Apply the sizing plan, the vector space of normalized embeddings, the byte vectors of a
+     * quantized run and the engine and compression of a vector profile to the mapping file
+     *
+     * @param mapping the mapping loaded from the mapping file
+     * @param plan sizing plan for the run or null
+     * @param quantizer int8 quantizer of the run or null
+     * @param vectorProfile name of the vector profile of the run or null
+     * @return the mapping to create the index with
+     * @throws IllegalArgumentException if the profile is unknown or compresses vectors that are already quantized
+     */
+    TypeMapping customizeMapping(
+            final TypeMapping mapping,
+            @Nullable final IndexPlan plan,
+            @Nullable final ScalarQuantizer quantizer,
+            @Nullable final String vectorProfile) {
+        TypeMapping result = mapping;
+        if (vectorProfile != null) {
+            final VectorIndexProperties.Profile profile = getVectorProfile(vectorProfile);
+            if (quantizer != null && (StringUtils.isNotBlank(profile.getMode())
+                    || StringUtils.isNotBlank(profile.getCompressionLevel()))) {
+                // the cluster compresses float vectors only, byte vectors are already at their smallest
+                throw new IllegalArgumentException(String.format(
+                        "vector profile %s sets mode or compression, which cannot be combined with quantize-vectors",
+                        vectorProfile));
+            }
+            result = OpenSearchService.withVectorEngine(result, VECTOR_FIELD,
+                    profile.getEngine(), profile.getMode(), profile.getCompressionLevel());
+        }
+        if (plan != null) {
+            result = OpenSearchService.withHnswParameters(result, VECTOR_FIELD, plan.m(), plan.efConstruction());
+        }
+        if (indexProperties.isNormalizeVectors()) {
+            // unit vectors rank the same by inner product as by cosine, without normalizing per comparison
+            result = OpenSearchService.withSpaceType(result, VECTOR_FIELD, INNER_PRODUCT_SPACE);
+        }
+        if (quantizer != null) {
+            // the scale travels with the index so resumed runs, delta runs and searches quantize the same way
+            result = OpenSearchService.withDataType(result, VECTOR_FIELD, BYTE_DATA_TYPE);
+            result = OpenSearchService.withQuantizer(result, VECTOR_FIELD, quantizer);
+        }
+        return result;
+    }
+
+    IndexSettings customizeSettings(
+            final IndexSettings settings,
+            @Nullable final Integer shards,
+            final List<ProductSortComparator.SortField> indexSort) {
+        IndexSettings result = settings;
+        if (shards != null) {
+            result = OpenSearchService.withNumberOfShards(result, shards);
+        }
+        if (!indexSort.isEmpty()) {
+            result = OpenSearchService.withIndexSort(
+                    result,
+                    indexSort.stream().map(ProductSortComparator.SortField::field).toList(),
+                    indexSort.stream()
+                            .map(field -> field.ascending() ? SegmentSortOrder.Asc : SegmentSortOrder.Desc)
+                            .toList());
+        }
+        return result;
+    }
+
+    protected boolean isShrinkEnabled(final int servingShards) {
+        return indexProperties.getBuildShards() > servingShards;
+    }
+
+    /**
+     * Return the number of primary shards the promoted index should have
+     *
+     * @param plan sizing plan for the run or null
+     * @return the planned shard count, reduced to a factor of the build shard count when shrinking
+     */
+    protected int getServingShards(@Nullable final IndexPlan plan) {
+        if (plan == null) {
+            return indexProperties.getServingShards();
+        }
+        final int buildShards = indexProperties.getBuildShards();
+        if (buildShards <= 0) {
+            return plan.shards();
+        }
+        int shards = Math.min(plan.shards(), buildShards);
+        while (buildShards % shards != 0) {
+            shards--;
+        }
+        return shards;
+    }
+
+    /**
+     * Shrink a build index to the serving shard count. The build index is kept until the alias points at
+     * the shrunk index, so a shrunk index that does not recover leaves the complete copy in place.
+     *
+     * @param buildIndexName the name of the index documents were written to
+     * @param servingShards the number of primary shards of the shrunk index
+     * @return the name of the shrunk index or null if the shrink did not complete
+     */
+    protected String shrink(final String buildIndexName, final int servingShards) {
+        final String servingIndexName = IndexUtils.getServingIndexName(buildIndexName);
+        if (!openSearchService.prepareForShrink(buildIndexName, indexProperties.getStatusWaitSeconds())) {
+            logger.error("Index {} could not be prepared for shrinking", buildIndexName);
+            return null;
+        }
+        if (!openSearchService.shrinkIndex(
+                buildIndexName, servingIndexName, servingShards, indexProperties.getStatusWaitSeconds())) {
+            return null;
+        }
+        return servingIndexName;
     }
 
     @Override
-    public void finalizer(final String newIndexName) {
+    public void finalizer(final String buildIndexName) {
+        final int servingShards = indexProperties.getServingShards();
+        finalizer(buildIndexName, servingShards, isShrinkEnabled(servingShards));
+    }
+
+    /**
+     * Finalize the indexing operation, shrinking build indexes to a given shard count
+     *
+     * @param buildIndexName the name of the index documents were written to
+     * @param servingShards the number of primary shards of the promoted index
+     * @param shrink true if the index was created with the build shard count and has to be shrunk
+     * @return the name of the index holding the documents, the shrunk index when shrinking, or null if
+     *         the shrink did not complete
+     */
+    protected String finalizer(final String buildIndexName, final int servingShards, final boolean shrink) {
         // commit docs to index
-        openSearchService.flushIndex(newIndexName);
+        openSearchService.flushIndex(buildIndexName);
+
+        // reduce to the serving shard count when the index was built with more primaries
+        final String newIndexName = shrink ? shrink(buildIndexName, servingShards) : buildIndexName;
+        if (newIndexName == null) {
+            logger.error("Index {} has been created but could not be shrunk", buildIndexName);
+            return null;
+        }
 
         // update to post-index settings
         openSearchService.updateSettings(
@@ -68,14 +304,33 @@ public class FullProductIndexer implements Indexer {
         // wait for the cluster/index to rebalance
         final boolean isGreen = openSearchService.waitForGreenStatus(newIndexName, indexProperties.getStatusWaitSeconds());
 
+        if (isGreen && indexProperties.isRouteByCategory()) {
+            reportRoutingSkew(newIndexName);
+        }
+
         // TODO: Implement any other desired checks on the new index before moving the alias
 
         if (isGreen) {
-            // move active alias to the new index and mark the previous as old
-            final String oldIndexName = openSearchService.moveAlias(newIndexName, indexProperties.getAlias());
-            if (oldIndexName != null) {
-                openSearchService.addAlias(oldIndexName, indexProperties.getOldAlias());
+            // move active alias to the new index and mark the previous as old, detaching every index behind
+            // the alias in one request since a partitioned build leaves several
+            final Set<String> servingIndexNames = openSearchService.getIndexesByAlias(indexProperties.getAlias());
+            final List<String> detachedIndexNames = servingIndexNames == null
+                    ? List.of()
+                    : servingIndexNames.stream().filter(indexName -> !indexName.equals(newIndexName)).toList();
+            final boolean moved = openSearchService.swapAliases(indexProperties.getAlias(),
+                    indexProperties.getOldAlias(), List.of(newIndexName), detachedIndexNames);
+            if (!moved) {
+                logger.error("Alias {} could not be moved to index {}", indexProperties.getAlias(), newIndexName);
+            } else {
+                forgetQuantizers(detachedIndexNames);
+                if (shrink) {
+                    // the shrunk index serves now, so the build index is no longer the only complete copy
+                    openSearchService.deleteIndex(buildIndexName);
+                    forgetQuantizers(List.of(buildIndexName));
+                }
             }
+        } else if (shrink) {
+            logger.error("Index {} shrunk from {} is not in a good state, keeping both", newIndexName, buildIndexName);
         } else {
             logger.error("Index {} has been created but is not in a good state", newIndexName);
         }
@@ -85,8 +340,10 @@ public class FullProductIndexer implements Indexer {
         oldIndexNames.forEach(indexName -> {
             if (IndexUtils.shouldDeleteIndex(indexName, indexProperties.getOldIndexKeepDays())) {
                  openSearchService.deleteIndex(indexName);
+                 forgetQuantizers(List.of(indexName));
             }
         });
+        return newIndexName;
     }
 
     @Override
@@ -96,57 +353,846 @@ public class FullProductIndexer implements Indexer {
 
     @Override
     public int indexFromFile(final String filePath, @Nullable final Integer limit) {
-        final String newIndexName = init();
+        return indexFromFile(filePath, limit, false);
+    }
+
+    public int indexFromFile(final String filePath, @Nullable final Integer limit, final boolean resume) {
+        return indexFromFile(filePath, limit, resume, null);
+    }
+
+    public int indexFromFile(
+            final String filePath,
+            @Nullable final Integer limit,
+            final boolean resume,
+            @Nullable final String vectorProfile) {
+        return indexFromFile(filePath, limit, resume, vectorProfile, new IndexProgress());
+    }
+
+    /**
+     * Index documents from a local file, checkpointing progress after successful bulk requests
+     *
+     * @param filePath path to the documents file
+     * @param limit maximum number of documents to index
+     * @param resume true to continue into the index of the last checkpoint of this file instead of
+     *               starting a new index
+     * @param vectorProfile name of the vector profile to build a new index with, null for the configured
+     *                      profile and blank for none
+     * @param progress counters of the run to update, cancelling it deletes the partial index
+     * @return the number of indexed documents
+     * @throws IllegalArgumentException if the vector profile is unknown
+     * @throws CancellationException if the run was cancelled before the alias moved
+     */
+    public int indexFromFile(
+            final String filePath,
+            @Nullable final Integer limit,
+            final boolean resume,
+            @Nullable final String vectorProfile,
+            final IndexProgress progress) {
+        final String profileName = resolveVectorProfile(vectorProfile);
+        progress.setStage(IndexProgress.Stage.PLANNING);
+        final Path path = Paths.get(filePath);
+        final SampleEmbeddings samples = new SampleEmbeddings();
+        IndexCheckpoint checkpoint = resume ? getResumableCheckpoint(path) : null;
+        final String newIndexName;
+        final int servingShards;
+        final boolean shrink;
+        if (checkpoint != null) {
+            newIndexName = checkpoint.indexName();
+            servingShards = checkpoint.servingShards();
+            shrink = checkpoint.shrink();
+            logger.info("Resuming indexing of {} into {} at byte {} after {} records",
+                    filePath, newIndexName, checkpoint.offset(), checkpoint.indexed());
+        } else {
+            // size the new index from a sample of the input, the plan is always logged
+            final IndexPlan plan = sizingPlanner.plan(filePath, limit);
+            final IndexPlan appliedPlan = sizingPlanner.shouldApply() ? plan : null;
+            final ScalarQuantizer quantizer = indexProperties.isQuantizeVectors()
+                    ? calibrateQuantizer(filePath, limit, samples)
+                    : null;
+            progress.checkCancelled();
+            newIndexName = init(appliedPlan, quantizer, profileName);
+            servingShards = getServingShards(appliedPlan);
+            shrink = isShrinkEnabled(servingShards);
+            checkpoint = startCheckpoint(path, newIndexName, servingShards, shrink);
+        }
+
+        // a presort window buffers several batches so they can be submitted in index sort order
+        final ProductSortComparator presort = getPresortComparator();
+        final int flushSize = presort == null
+                ? indexProperties.getBatchSize()
+                : Math.max(indexProperties.getPresortWindow(), indexProperties.getBatchSize());
 
-        final List<JsonNode> nodeList = new ArrayList<>();
+        // in-flight records are held as compact products, not as full JSON trees of the input
+        final List<Product> products = new ArrayList<>();
         final int maxRecords = limit == null ? Integer.MAX_VALUE : limit;
-        int lineCount = 0;
-        int indexed = 0;
-        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+        int lineCount = checkpoint == null ? 0 : checkpoint.lineCount();
+        int indexed = checkpoint == null ? 0 : checkpoint.indexed();
+        int flushes = 0;
+        final long startOffset = checkpoint == null ? 0 : checkpoint.offset();
+        try (OffsetLineReader reader = OffsetLineReader.openInput(path, startOffset);
+             DuplicateFilter duplicates = DuplicateFilter.open(
+                     indexProperties.getDedup(), path, startOffset, maxRecords)) {
+            // progress is measured in bytes of the file as stored, compressed or not
+            progress.startIndexing(newIndexName, Files.size(path), reader.getSourcePosition(), limit);
+            progress.recordRead(lineCount, reader.getSourcePosition());
             String line;
-            while ((line = reader.readLine()) != null && lineCount < maxRecords) {
+            while (!progress.isCancelled() && (line = reader.readLine()) != null && lineCount < maxRecords) {
                 line = line.trim();
                 if (line.isEmpty()) {
                     continue;
                 }
                 lineCount++;
 
+                final Product product = getProductFromLine(line);
+                if (product == null || duplicates != null && !duplicates.accept(product.getId(), lineCount)) {
+                    continue;
+                }
+
                 // bulk index with batch size
-                nodeList.add(getJsonNodeFromLine(line));
-                if (nodeList.size() >= indexProperties.getBatchSize()) {
-                    indexed += bulkIndexRecords(nodeList, newIndexName);
-                    nodeList.clear();
+                products.add(product);
+                progress.recordBuffered(products.size());
+                if (products.size() >= flushSize) {
+                    indexed += flush(products, newIndexName, presort, progress, samples);
+                    progress.recordRead(lineCount, reader.getSourcePosition());
+                    progress.recordBuffered(0);
+
+                    // every record before the reader offset has been acknowledged by bulk
+                    if (++flushes % Math.max(1, indexProperties.getCheckpointInterval()) == 0) {
+                        checkpoint = saveCheckpoint(checkpoint, reader.getOffset(), lineCount, indexed);
+                    }
                 }
             }
 
             // bulk index any remaining lines less than batch size
-            if (!nodeList.isEmpty()) {
-                indexed += bulkIndexRecords(nodeList, newIndexName);
+            if (!products.isEmpty() && !progress.isCancelled()) {
+                indexed += flush(products, newIndexName, presort, progress, samples);
+            }
+            progress.recordRead(lineCount, reader.getSourcePosition());
+            progress.recordBuffered(0);
+
+            if (duplicates != null) {
+                logger.info("Skipped {} duplicate ids keeping {} copies, {} distinct ids held in {} off-heap bytes",
+                        duplicates.getDuplicates(), indexProperties.getDedup(),
+                        duplicates.getDistinctIds(), duplicates.getOffHeapBytes());
             }
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
             return indexed;
         }
+        if (progress.isCancelled()) {
+            deleteCheckpoint();
+            discard(newIndexName, indexed);
+            throw new CancellationException(String.format(
+                    "Indexing of %s into %s was cancelled", filePath, newIndexName));
+        }
 
         // Finalize indexing operation
-        finalizer(newIndexName);
+        progress.setStage(IndexProgress.Stage.FINALIZING);
+        final String promotedIndexName = finalizer(newIndexName, servingShards, shrink);
+        deleteCheckpoint();
+        if (promotedIndexName != null && vectorProperties.getReport().isEnabled()) {
+            reportVectorIndex(promotedIndexName, profileName);
+        }
+        progress.setStage(IndexProgress.Stage.DONE);
 
         return indexed;
     }
 
+    /**
+     * Index documents from an NDJSON stream into a new index while the stream is read, plain or gzip
+     * compressed. Records are read only as fast as they are embedded and bulk indexed and at most one
+     * flush window is held in memory, so a slow cluster slows down the writer of the stream instead of
+     * being buffered. A stream is read once: the index is not sized from a sample, an int8 quantizer is
+     * calibrated on the first records before they are indexed, and the run cannot be resumed.
+     *
+     * @param input the documents, one JSON object per line, closed when the run ends
+     * @param inputBytes length of the stream for the completed fraction or -1 if unknown
+     * @param limit maximum number of documents to index
+     * @param vectorProfile name of the vector profile to build the new index with, null for the configured
+     *                      profile and blank for none
+     * @param progress counters of the run to update, cancelling it deletes the partial index
+     * @return the number of indexed documents
+     * @throws IllegalArgumentException if the vector profile is unknown
+     * @throws UncheckedIOException if the stream failed before its end, the partial index is deleted
+     * @throws CancellationException if the run was cancelled before the alias moved
+     */
+    public int indexFromStream(
+            final InputStream input,
+            final long inputBytes,
+            @Nullable final Integer limit,
+            @Nullable final String vectorProfile,
+            final IndexProgress progress) {
+        final String profileName = resolveVectorProfile(vectorProfile);
+        progress.setStage(IndexProgress.Stage.PLANNING);
+        final ProductSortComparator presort = getPresortComparator();
+        final int flushSize = presort == null
+                ? indexProperties.getBatchSize()
+                : Math.max(indexProperties.getPresortWindow(), indexProperties.getBatchSize());
+        final int maxRecords = limit == null ? Integer.MAX_VALUE : limit;
+        final SampleEmbeddings samples = new SampleEmbeddings();
+        // records buffered before the index is created, the quantizer is calibrated on them
+        final int sampleSize = indexProperties.isQuantizeVectors()
+                ? Math.max(1, Math.min(indexProperties.getQuantizationSample(), maxRecords))
+                : 0;
+
+        final List<Product> products = new ArrayList<>();
+        String newIndexName = null;
+        int lineCount = 0;
+        int indexed = 0;
+        try (InputStream decoded = decompressIfGzipped(input);
+             OffsetLineReader reader = OffsetLineReader.of(decoded);
+             DuplicateFilter duplicates =
+                     DuplicateFilter.openStream(indexProperties.getDedup(), STREAM_RECORDS_GUESS)) {
+            if (sampleSize == 0) {
+                newIndexName = initStreamIndex(products, profileName, inputBytes, limit, progress, samples);
+            }
+            String line;
+            while (!progress.isCancelled() && lineCount < maxRecords && (line = reader.readLine()) != null) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                lineCount++;
+
+                final Product product = getProductFromLine(line);
+                if (product == null || duplicates != null && !duplicates.accept(product.getId(), lineCount)) {
+                    continue;
+                }
+                products.add(product);
+                progress.recordBuffered(products.size());
+                if (newIndexName == null) {
+                    if (products.size() < sampleSize) {
+                        continue;
+                    }
+                    newIndexName = initStreamIndex(products, profileName, inputBytes, limit, progress, samples);
+                }
+                if (products.size() >= flushSize) {
+                    indexed += flush(products, newIndexName, presort, progress, samples);
+                    progress.recordRead(lineCount, reader.getSourcePosition());
+                    progress.recordBuffered(0);
+                }
+            }
+
+            // a stream shorter than the quantization sample
+            if (newIndexName == null && !progress.isCancelled()) {
+                newIndexName = initStreamIndex(products, profileName, inputBytes, limit, progress, samples);
+            }
+            if (!products.isEmpty() && !progress.isCancelled()) {
+                indexed += flush(products, newIndexName, presort, progress, samples);
+            }
+            progress.recordRead(lineCount, reader.getSourcePosition());
+            progress.recordBuffered(0);
+        } catch (IOException e) {
+            if (newIndexName != null) {
+                discard(newIndexName, indexed);
+            }
+            throw new UncheckedIOException(String.format(
+                    "Indexing stream failed after %d records: %s", lineCount, e.getMessage()), e);
+        }
+        if (progress.isCancelled()) {
+            if (newIndexName != null) {
+                discard(newIndexName, indexed);
+            }
+            throw new CancellationException(String.format(
+                    "Indexing stream was cancelled after %d records", lineCount));
+        }
+
+        progress.setStage(IndexProgress.Stage.FINALIZING);
+        final int servingShards = getServingShards(null);
+        final String promotedIndexName = finalizer(newIndexName, servingShards, isShrinkEnabled(servingShards));
+        if (promotedIndexName != null && vectorProperties.getReport().isEnabled()) {
+            reportVectorIndex(promotedIndexName, profileName);
+        }
+        progress.setStage(IndexProgress.Stage.DONE);
+
+        return indexed;
+    }
+
+    /**
+     * Index several input files into one new index. Reader threads parse the files at the same time and
+     * hand batches to the calling thread, which embeds and bulk indexes them like a single file run, so
+     * parsing overlaps with the embed and bulk requests and one finalizer promotes the index once every
+     * file is read. The index is sized for the total input from a sample of the first file, which also
+     * calibrates the int8 quantizer. The limit counts records over all files. Files are read in no
+     * particular order relative to each other, last wins deduplication is left to the bulk requests like
+     * for a stream, and the run cannot be resumed.
+     *
+     * @param input a file, a directory whose files are all read, or a glob of file names in a directory
+     *              like data/part-*.json
+     * @param limit maximum number of documents to index over all files
+     * @param vectorProfile name of the vector profile to build the new index with, null for the configured
+     *                      profile and blank for none
+     * @param progress counters of the run to update, cancelling it deletes the partial index
+     * @return the number of indexed documents
+     * @throws IllegalArgumentException if no file matches the input or the vector profile is unknown
+     * @throws UncheckedIOException if a file could not be read, the partial index is deleted
+     * @throws CancellationException if the run was cancelled before the alias moved
+     */
+    public int indexFromFiles(
+            final String input,
+            @Nullable final Integer limit,
+            @Nullable final String vectorProfile,
+            final IndexProgress progress) {
+        final String profileName = resolveVectorProfile(vectorProfile);
+        progress.setStage(IndexProgress.Stage.PLANNING);
+        final List<Path> files;
+        long inputBytes = 0;
+        try {
+            files = ConcurrentFileReader.resolve(input);
+            for (Path file : files) {
+                inputBytes += Files.size(file);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(String.format("Input files %s cannot be listed", input), e);
+        }
+        final String sampleFile = files.getFirst().toString();
+        final IndexPlan plan = sizingPlanner.plan(sampleFile, inputBytes, limit);
+        final IndexPlan appliedPlan = sizingPlanner.shouldApply() ? plan : null;
+        final SampleEmbeddings samples = new SampleEmbeddings();
+        final ScalarQuantizer quantizer = indexProperties.isQuantizeVectors()
+                ? calibrateQuantizer(sampleFile, limit, samples)
+                : null;
+        progress.checkCancelled();
+        final String newIndexName = init(appliedPlan, quantizer, profileName);
+        final int servingShards = getServingShards(appliedPlan);
+        progress.startIndexing(newIndexName, inputBytes, 0, limit);
+
+        final ProductSortComparator presort = getPresortComparator();
+        final int flushSize = presort == null
+                ? indexProperties.getBatchSize()
+                : Math.max(indexProperties.getPresortWindow(), indexProperties.getBatchSize());
+        final List<Product> products = new ArrayList<>();
+        int indexed = 0;
+        try (ConcurrentFileReader reader = new ConcurrentFileReader(
+                files, indexProperties.getReaderThreads(), indexProperties.getBatchSize(), limit,
+                indexProperties.getDedup(), this::getProductFromLine)) {
+            reader.start();
+            List<Product> batch;
+            while (!progress.isCancelled() && (batch = reader.next()) != null) {
+                products.addAll(batch);
+                progress.recordBuffered(products.size());
+                if (products.size() >= flushSize) {
+                    indexed += flush(products, newIndexName, presort, progress, samples);
+                    progress.recordRead(reader.getLineCount(), reader.getBytesRead());
+                    progress.recordBuffered(0);
+                    progress.recordFiles(reader.getFileRecords());
+                }
+            }
+            if (!products.isEmpty() && !progress.isCancelled()) {
+                indexed += flush(products, newIndexName, presort, progress, samples);
+            }
+            progress.recordRead(reader.getLineCount(), reader.getBytesRead());
+            progress.recordBuffered(0);
+            progress.recordFiles(reader.getFileRecords());
+            reader.getFileRecords().forEach((file, records) -> logger.info("Read {} records from {}", records, file));
+            if (reader.getDuplicates() > 0) {
+                logger.info("Skipped {} duplicate ids keeping the first copy read", reader.getDuplicates());
+            }
+        } catch (IOException e) {
+            discard(newIndexName, indexed);
+            throw new UncheckedIOException(String.format(
+                    "Indexing of %s failed after %d documents: %s", input, indexed, e.getMessage()), e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            progress.cancel();
+        } catch (RuntimeException e) {
+            // without resume a partial index is of no use
+            discard(newIndexName, indexed);
+            throw e;
+        }
+        if (progress.isCancelled()) {
+            discard(newIndexName, indexed);
+            throw new CancellationException(String.format(
+                    "Indexing of %s into %s was cancelled", input, newIndexName));
+        }
+
+        progress.setStage(IndexProgress.Stage.FINALIZING);
+        final String promotedIndexName = finalizer(newIndexName, servingShards, isShrinkEnabled(servingShards));
+        if (promotedIndexName != null && vectorProperties.getReport().isEnabled()) {
+            reportVectorIndex(promotedIndexName, profileName);
+        }
+        progress.setStage(IndexProgress.Stage.DONE);
+
+        return indexed;
+    }
+
+    /**
+     * Create the index of a stream run, calibrating the quantizer on the records read so far when
+     * quantization is on
+     *
+     * @return the name of the index to write documents to
+     */
+    private String initStreamIndex(
+            final List<Product> sample,
+            @Nullable final String profileName,
+            final long bytesToRead,
+            @Nullable final Integer limit,
+            final IndexProgress progress,
+            final SampleEmbeddings samples) {
+        final ScalarQuantizer quantizer = indexProperties.isQuantizeVectors() && !sample.isEmpty()
+                ? calibrateQuantizer(sample, "stream", samples)
+                : null;
+        progress.checkCancelled();
+        final String indexName = init(null, quantizer, profileName);
+        progress.startIndexing(indexName, bytesToRead, 0, limit);
+        return indexName;
+    }
+
+    /**
+     * Unwrap gzip compressed input, recognized by its magic bytes so no header is needed, and
+     * decompress it on its own thread ahead of the reader
+     */
+    private static InputStream decompressIfGzipped(final InputStream input) throws IOException {
+        final PushbackInputStream pushback = new PushbackInputStream(input, 2);
+        final byte[] magic = pushback.readNBytes(2);
+        pushback.unread(magic);
+        return DecompressingInputStream.isGzip(magic) ? DecompressingInputStream.start(pushback) : pushback;
+    }
+
     @Override
     public int bulkIndexRecords(final List<JsonNode> nodeList, final String indexName) {
         final List<Product> products = nodeList.stream()
                 .map(node -> objectMapper.convertValue(node, Product.class))
                 .toList();
-        generateEmbeddings(products);
-        openSearchService.bulkIndex(products, indexName);
+        bulkIndexProducts(products, indexName);
         return nodeList.size();
     }
 
-    private JsonNode getJsonNodeFromLine(String line) {
+    /**
+     * Bulk index the buffered products in batches and clear the buffer
+     *
+     * @return the number of documents indexed
+     */
+    private int flush(
+            final List<Product> products,
+            final String indexName,
+            @Nullable final ProductSortComparator presort,
+            final IndexProgress progress,
+            final SampleEmbeddings samples) {
+        final int count = products.size();
+        if (presort == null) {
+            // a stream buffers a whole quantization sample before its first flush
+            final int batchSize = Math.max(1, indexProperties.getBatchSize());
+            for (int start = 0; start < count; start += batchSize) {
+                bulkIndexProducts(List.copyOf(products.subList(start, Math.min(start + batchSize, count))),
+                        indexName, progress, samples);
+            }
+        } else {
+            bulkIndexSorted(products, indexName, presort, progress, samples);
+        }
+        products.clear();
+        return count;
+    }
+
+    /**
+     * Sort a window of documents by the index sort and bulk index them in batches, so segments
+     * are written in near-sorted order
+     *
+     * @param window the documents to sort and index
+     * @param indexName the name of the destination index
+     * @param comparator the index sort order
+     * @param progress counters of the run
+     * @param samples embeddings of the quantization sample of the run
+     * @return the number of documents indexed
+     */
+    protected int bulkIndexSorted(
+            final List<Product> window,
+            final String indexName,
+            final ProductSortComparator comparator,
+            final IndexProgress progress,
+            @Nullable final SampleEmbeddings samples) {
+        final List<Product> products = comparator.sort(window);
+        final int batchSize = indexProperties.getBatchSize();
+        for (int start = 0; start < products.size(); start += batchSize) {
+            bulkIndexProducts(products.subList(start, Math.min(start + batchSize, products.size())),
+                    indexName, progress, samples);
+        }
+        return products.size();
+    }
+
+    protected List<String> bulkIndexProducts(final List<Product> products, final String indexName) {
+        return bulkIndexProducts(products, indexName, new IndexProgress());
+    }
+
+    /**
+     * Embed and bulk index a batch of products, timing both steps
+     *
+     * @param products the batch to index
+     * @param indexName the name of the destination index
+     * @param progress counters of the run
+     * @return the ids of the products the cluster rejected
+     */
+    protected List<String> bulkIndexProducts(
+            final List<Product> products,
+            final String indexName,
+            final IndexProgress progress) {
+        return bulkIndexProducts(products, indexName, progress, null);
+    }
+
+    /**
+     * Embed and bulk index a batch of products of a run that calibrated a quantizer, timing both steps
+     *
+     * @param samples embeddings of the quantization sample of the run, taken instead of embedding
+     *                sampled records again
+     * @return the ids of the products the cluster rejected
+     */
+    protected List<String> bulkIndexProducts(
+            final List<Product> products,
+            final String indexName,
+            final IndexProgress progress,
+            @Nullable final SampleEmbeddings samples) {
+        try {
+            final long start = System.nanoTime();
+            generateEmbeddings(products, getQuantizer(indexName), samples);
+            final long embedded = System.nanoTime();
+            progress.recordEmbedding(products.size(), embedded - start);
+            final List<String> rejected = indexProperties.isRouteByCategory()
+                    ? openSearchService.bulkIndex(products, indexName,
+                            product -> IndexUtils.getCategoryRouting(product.getTopLevelCategory()))
+                    : openSearchService.bulkIndex(products, indexName);
+            progress.recordBulk(products.size(), rejected.size(), System.nanoTime() - embedded);
+            return rejected;
+        } catch (RuntimeException e) {
+            progress.recordFailedBatch();
+            throw e;
+        }
+    }
+
+    protected List<String> bulkUpdateProducts(final List<Product> products, final String indexName) {
+        return bulkUpdateProducts(products, indexName, new IndexProgress());
+    }
+
+    /**
+     * Send products as partial updates that keep the embedding already in the index, without calling
+     * the embedding service
+     *
+     * @param products products whose embedding text did not change
+     * @param indexName the name of the index holding the products
+     * @param progress counters of the run
+     * @return the ids of the products whose update the cluster rejected
+     */
+    protected List<String> bulkUpdateProducts(
+            final List<Product> products,
+            final String indexName,
+            final IndexProgress progress) {
+        final long start = System.nanoTime();
+        final List<BulkOperation> operations = products.stream()
+                .map(product -> BulkOperation.of(op -> op.update(update -> update
+                        .index(indexName)
+                        .id(product.getId())
+                        .routing(indexProperties.isRouteByCategory()
+                                ? IndexUtils.getCategoryRouting(product.getTopLevelCategory())
+                                : null)
+                        .document(product.toPartialUpdate()))))
+                .toList();
+        final List<BulkResponseItem> items;
+        try {
+            items = openSearchService.bulk(operations, false);
+        } catch (RuntimeException e) {
+            progress.recordFailedBatch();
+            throw e;
+        }
+        final List<String> rejected = new ArrayList<>();
+        for (BulkResponseItem item : items) {
+            if (item.error() != null) {
+                logger.error("Partial update of {} failed: {}", item.id(), item.error().reason());
+                rejected.add(item.id());
+            }
+        }
+        progress.recordBulk(products.size(), rejected.size(), System.nanoTime() - start);
+        return rejected;
+    }
+
+    /**
+     * Embed products for an existing index, quantized with its scale if it stores byte vectors
+     *
+     * @param products the products to embed
+     * @param indexName the name of the index the products will be written to
+     */
+    protected void embedProducts(final List<Product> products, final String indexName) {
+        generateEmbeddings(products, getQuantizer(indexName), null);
+    }
+
+    /**
+     * Embed the first records of a file the way the run will and calibrate an int8 quantizer on them
+     *
+     * @param filePath path to the documents file
+     * @param limit maximum number of documents that will be indexed
+     * @param samples receives the float embeddings of the sample for the run to index
+     * @return the quantizer or null if no record of the sample could be embedded
+     */
+    @Nullable
+    ScalarQuantizer calibrateQuantizer(
+            final String filePath,
+            @Nullable final Integer limit,
+            final SampleEmbeddings samples) {
+        final int sampleSize = Math.min(
+                indexProperties.getQuantizationSample(), limit == null ? Integer.MAX_VALUE : limit);
+        final List<Product> sample = new ArrayList<>();
+        try (OffsetLineReader reader = OffsetLineReader.openInput(Paths.get(filePath), 0)) {
+            String line;
+            while (sample.size() < sampleSize && (line = reader.readLine()) != null) {
+                line = line.trim();
+                if (!line.isEmpty()) {
+                    final Product product = getProductFromLine(line);
+                    if (product != null) {
+                        sample.add(product);
+                    }
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Unable to sample {} for vector quantization: {}", filePath, e.getMessage());
+            return null;
+        }
+        return calibrateQuantizer(sample, filePath, samples);
+    }
+
+    /**
+     * Embed a sample of records the way the run will and calibrate an int8 quantizer on them. The
+     * float embeddings are handed to the run, so indexing the sample quantizes them instead of
+     * embedding the same records again.
+     *
+     * @param sample the records to calibrate on
+     * @param source the input the sample was read from, for logging
+     * @param samples receives the float embeddings of the sample
+     * @return the quantizer or null if no record of the sample could be embedded
+     */
+    @Nullable
+    private ScalarQuantizer calibrateQuantizer(
+            final List<Product> sample,
+            final String source,
+            final SampleEmbeddings samples) {
+        final List<float[]> vectors = new ArrayList<>(sample.size());
+        final int batchSize = Math.max(1, indexProperties.getBatchSize());
+        for (int start = 0; start < sample.size(); start += batchSize) {
+            final List<Product> batch = sample.subList(start, Math.min(start + batchSize, sample.size()));
+            final List<float[]> embeddings = embed(batch, null);
+            for (int i = 0; i < batch.size(); i++) {
+                final float[] embedding = embeddings.get(i);
+                if (embedding != null) {
+                    vectors.add(embedding);
+                    samples.put(batch.get(i).generateFts(), embedding.clone());
+                }
+            }
+        }
+        if (vectors.isEmpty()) {
+            logger.warn("No embeddings to calibrate quantization from in {}, indexing float vectors", source);
+            return null;
+        }
+        final ScalarQuantizer quantizer;
+        try {
+            quantizer = ScalarQuantizer.calibrate(vectors);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Quantization could not be calibrated from {}: {}, indexing float vectors",
+                    source, e.getMessage());
+            return null;
+        }
+        final int dimension = vectors.getFirst().length;
+        logger.info("Calibrated int8 quantization of {} on {} vectors with scale {}, "
+                        + "{} vector bytes per document instead of {}",
+                VECTOR_FIELD, vectors.size(), quantizer.getScale(), dimension, dimension * Float.BYTES);
+        return quantizer;
+    }
+
+    /**
+     * Return the quantizer an index was created with, read once from the _meta of its mapping
+     *
+     * @param indexName the name of the index
+     * @return the quantizer or null if the index stores float vectors
+     */
+    @Nullable
+    ScalarQuantizer getQuantizer(final String indexName) {
+        return quantizers.computeIfAbsent(indexName, name -> Optional.ofNullable(
+                OpenSearchService.getQuantizer(openSearchService.getMappingMeta(name), VECTOR_FIELD)))
+                .orElse(null);
+    }
+
+    /**
+     * Drop the cached quantizers of indexes that were deleted or detached from the alias, so the cache
+     * only holds indexes that are still written to
+     *
+     * @param indexNames the names of the indexes
+     */
+    void forgetQuantizers(final Collection<String> indexNames) {
+        indexNames.forEach(quantizers::remove);
+    }
+
+    /**
+     * Delete the partial index of a run that will not be finished
+     */
+    private void discard(final String indexName, final int indexed) {
+        logger.warn("Indexing into {} stopped after {} documents, deleting the partial index", indexName, indexed);
+        quantizers.remove(indexName);
+        openSearchService.deleteIndex(indexName);
+    }
+
+    /**
+     * Resolve the vector profile of a run
+     *
+     * @param name the requested profile name, null for the configured profile and blank for none
+     * @return the profile name or null to keep the mapping file
+     * @throws IllegalArgumentException if the profile is not configured
+     */
+    @Nullable
+    String resolveVectorProfile(@Nullable final String name) {
+        final String profileName = name == null ? vectorProperties.getProfile() : name;
+        if (StringUtils.isBlank(profileName)) {
+            return null;
+        }
+        getVectorProfile(profileName);
+        return profileName;
+    }
+
+    private VectorIndexProperties.Profile getVectorProfile(final String name) {
+        final VectorIndexProperties.Profile profile = vectorProperties.getProfiles().get(name);
+        if (profile == null) {
+            throw new IllegalArgumentException(String.format(
+                    "Unknown vector profile %s, configured profiles are %s",
+                    name, vectorProperties.getProfiles().keySet()));
+        }
+        return profile;
+    }
+
+    /**
+     * Measure recall and latency of a new index, failures are logged and never fail the run
+     */
+    private void reportVectorIndex(final String indexName, @Nullable final String profileName) {
+        try {
+            final String spaceType = indexProperties.isNormalizeVectors()
+                    ? INNER_PRODUCT_SPACE
+                    : openSearchService.readMapping(indexProperties.getMapping())
+                            .properties().get(VECTOR_FIELD).knnVector().method().spaceType();
+            vectorReporter.report(indexName, profileName, spaceType, getQuantizer(indexName));
+        } catch (RuntimeException e) {
+            logger.error("Vector report for {} failed: {}", indexName, e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Log how evenly category routing spread documents over the primary shards of an index
+     *
+     * @param indexName the name of the index to report on
+     */
+    protected void reportRoutingSkew(final String indexName) {
+        openSearchService.refreshIndex(indexName);
+        final Map<String, Long> shardDocs = openSearchService.getPrimaryShardDocCounts(indexName);
+        final LongSummaryStatistics stats = shardDocs.values().stream()
+                .mapToLong(Long::longValue)
+                .summaryStatistics();
+        final double skew = stats.getAverage() == 0 ? 0 : stats.getMax() / stats.getAverage();
+        logger.info("Routing skew for index {}: max/mean {} (min {}, max {}), docs per shard {}",
+                indexName, String.format("%.2f", skew), stats.getMin(), stats.getMax(), shardDocs);
+    }
+
+    @Nullable
+    private Path getCheckpointPath() {
+        return StringUtils.isBlank(indexProperties.getCheckpointPath())
+                ? null
+                : Paths.get(indexProperties.getCheckpointPath());
+    }
+
+    /**
+     * Return the checkpoint to resume from if it was taken on the same file and its index still exists
+     */
+    @Nullable
+    private IndexCheckpoint getResumableCheckpoint(final Path path) {
+        final Path checkpointPath = getCheckpointPath();
+        if (checkpointPath == null) {
+            logger.warn("Resume requested but checkpoints are disabled");
+            return null;
+        }
+        try {
+            final IndexCheckpoint checkpoint = IndexCheckpoint.read(checkpointPath);
+            if (checkpoint == null) {
+                logger.info("No checkpoint to resume from, starting a new index");
+                return null;
+            }
+            if (!checkpoint.matches(path)) {
+                logger.warn("Checkpoint was taken on {} and does not match {}, starting a new index",
+                        checkpoint.filePath(), path);
+                return null;
+            }
+            if (!openSearchService.indexExists(checkpoint.indexName())) {
+                logger.warn("Checkpoint index {} no longer exists, starting a new index", checkpoint.indexName());
+                return null;
+            }
+            return checkpoint;
+        } catch (IOException e) {
+            logger.error("Checkpoint {} could not be read: {}", checkpointPath, e.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private IndexCheckpoint startCheckpoint(
+            final Path path,
+            final String indexName,
+            final int servingShards,
+            final boolean shrink) {
+        final Path checkpointPath = getCheckpointPath();
+        if (checkpointPath == null) {
+            return null;
+        }
+        try {
+            final IndexCheckpoint checkpoint = IndexCheckpoint.start(path, indexName, servingShards, shrink);
+            checkpoint.write(checkpointPath);
+            return checkpoint;
+        } catch (IOException e) {
+            logger.error("Checkpoint for {} could not be started: {}", path, e.getMessage());
+            return null;
+        }
+    }
+
+    @Nullable
+    private IndexCheckpoint saveCheckpoint(
+            @Nullable final IndexCheckpoint checkpoint,
+            final long offset,
+            final int lineCount,
+            final int indexed) {
+        final Path checkpointPath = getCheckpointPath();
+        if (checkpoint == null || checkpointPath == null) {
+            return checkpoint;
+        }
+        final IndexCheckpoint next = checkpoint.advance(offset, lineCount, indexed);
+        try {
+            next.write(checkpointPath);
+            logger.debug("Checkpoint at byte {} after {} records", offset, indexed);
+        } catch (IOException e) {
+            logger.error("Checkpoint {} could not be written: {}", checkpointPath, e.getMessage());
+        }
+        return next;
+    }
+
+    private void deleteCheckpoint() {
+        final Path checkpointPath = getCheckpointPath();
+        if (checkpointPath == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(checkpointPath);
+        } catch (IOException e) {
+            logger.error("Checkpoint {} could not be deleted: {}", checkpointPath, e.getMessage());
+        }
+    }
+
+    @Nullable
+    private ProductSortComparator getPresortComparator() {
+        final List<ProductSortComparator.SortField> indexSort =
+                ProductSortComparator.parse(indexProperties.getIndexSort());
+        if (indexProperties.getPresortWindow() <= 0 || indexSort.isEmpty()) {
+            return null;
+        }
+        return new ProductSortComparator(indexSort);
+    }
+
+    /**
+     * Bind a line straight to a product, so fields that are not indexed are skipped by the parser
+     * instead of being held in a JSON tree
+     */
+    @Nullable
+    private Product getProductFromLine(String line) {
         try (JsonParser parser = jsonFactory.createParser(line)) {
-            return objectMapper.readTree(parser);
+            return objectMapper.readValue(parser, Product.class);
         } catch (IOException e) {
             logger.error(e.getMessage(), e);
             return null;
@@ -157,19 +1203,67 @@ public class FullProductIndexer implements Indexer {
      * Add text embeddings for the list of products passed in
      *
      * @param products The list of products to add embeddings to
+     * @param quantizer the int8 quantizer of the destination index or null to keep float embeddings
      */
-    private void generateEmbeddings(final List<Product> products) {
-        // Generate text embeddings in bulk
-        final List<String> textList = new ArrayList<>();
-        products.forEach(product -> textList.add(product.generateFts()));
-        final List<List<Float>> embeddingList = embeddingService.getEmbeddings(textList);
-
+    private void generateEmbeddings(
+            final List<Product> products,
+            @Nullable final ScalarQuantizer quantizer,
+            @Nullable final SampleEmbeddings samples) {
+        final List<float[]> embeddings = embed(products, samples);
         for (int i = 0; i < products.size(); i++) {
-            if (embeddingList.size() > i) {
-                products.get(i).setFtsEmbedding(embeddingList.get(i));
-            } else {
+            final float[] embedding = embeddings.get(i);
+            if (embedding == null) {
                 logger.error("Product {} has no embeddings", products.get(i).getId());
+            } else if (quantizer != null) {
+                products.get(i).setQuantizedEmbedding(quantizer.quantize(embedding));
+            } else {
+                VectorUtils.roundToSignificantDigits(embedding, indexProperties.getVectorDigits());
+                products.get(i).setFtsEmbedding(embedding);
+            }
+        }
+    }
+
+    /**
+     * Embed the text of each product in one request, normalized when the index stores unit vectors.
+     * Texts of the quantization sample of the run reuse the embedding made during calibration.
+     *
+     * @param samples embeddings of the quantization sample of the run or null outside of a build
+     * @return the embedding of each product, null where the service returned none
+     */
+    private List<float[]> embed(final List<Product> products, @Nullable final SampleEmbeddings samples) {
+        final List<float[]> embeddings = new ArrayList<>(products.size());
+        final List<Integer> positions = new ArrayList<>();
+        final List<String> textList = new ArrayList<>();
+        for (Product product : products) {
+            final String text = product.generateFts();
+            final float[] sampled = samples == null ? null : samples.take(text);
+            if (sampled == null) {
+                positions.add(embeddings.size());
+                textList.add(text);
             }
+            embeddings.add(sampled);
+        }
+        if (textList.isEmpty()) {
+            return embeddings;
+        }
+
+        // Generate text embeddings in bulk
+        final List<List<Float>> embeddingList = embeddingService.getEmbeddings(textList);
+        for (int i = 0; i < positions.size() && i < embeddingList.size(); i++) {
+            final float[] embedding = toFloatArray(embeddingList.get(i));
+            if (indexProperties.isNormalizeVectors()) {
+                VectorUtils.normalize(embedding);
+            }
+            embeddings.set(positions.get(i), embedding);
+        }
+        return embeddings;
+    }
+
+    private static float[] toFloatArray(final List<Float> values) {
+        final float[] result = new float[values.size()];
+        for (int i = 0; i < result.length; i++) {
+            result[i] = values.get(i);
         }
+        return result;
     }
 }
@@ -0,0 +1,99 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+
+/**
+ * Progress of an indexing run, written only after the bulk requests for every record before
+ * {@code offset} have succeeded
+ *
+ * @param filePath the input file
+ * @param fileSize the input file size when the run started
+ * @param fileModified the input file modification time in millis when the run started
+ * @param indexName the index documents are written to
+ * @param servingShards the primary shard count of the promoted index
+ * @param shrink true if the index was built with more primaries and is shrunk to servingShards
+ * @param offset the byte offset of the first line that has not been indexed
+ * @param lineCount the number of records read before offset
+ * @param indexed the number of records indexed before offset
+ */
+public record IndexCheckpoint(
+        String filePath,
+        long fileSize,
+        long fileModified,
+        String indexName,
+        int servingShards,
+        boolean shrink,
+        long offset,
+        int lineCount,
+        int indexed) {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    /**
+     * @return the checkpoint at a new position of the same run
+     */
+    public IndexCheckpoint advance(final long newOffset, final int newLineCount, final int newIndexed) {
+        return new IndexCheckpoint(filePath, fileSize, fileModified, indexName, servingShards, shrink,
+                newOffset, newLineCount, newIndexed);
+    }
+
+    /**
+     * Determine if the checkpoint was taken on the given file as it is now
+     *
+     * @param path the input file
+     * @return true if the file has the same path, size and modification time
+     */
+    public boolean matches(final Path path) throws IOException {
+        return path.toAbsolutePath().toString().equals(filePath)
+                && Files.size(path) == fileSize
+                && Files.getLastModifiedTime(path).toMillis() == fileModified;
+    }
+
+    /**
+     * Start a checkpoint for a new run over a file
+     */
+    public static IndexCheckpoint start(
+            final Path path,
+            final String indexName,
+            final int servingShards,
+            final boolean shrink) throws IOException {
+        return new IndexCheckpoint(
+                path.toAbsolutePath().toString(),
+                Files.size(path),
+                Files.getLastModifiedTime(path).toMillis(),
+                indexName,
+                servingShards,
+                shrink,
+                0,
+                0,
+                0);
+    }
+
+    /**
+     * @return the checkpoint stored at a path or null if there is none
+     */
+    @Nullable
+    public static IndexCheckpoint read(final Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        return objectMapper.readValue(path.toFile(), IndexCheckpoint.class);
+    }
+
+    /**
+     * Write the checkpoint to a temporary file and move it over the previous one, so a crash while
+     * writing never leaves a truncated checkpoint behind
+     */
+    public void write(final Path path) throws IOException {
+        final Path absolute = path.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        final Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        objectMapper.writeValue(temp.toFile(), this);
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
@@ -0,0 +1,162 @@
+package org.example.indexer;
+
+import javax.annotation.Nullable;
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Future;
+
+/**
+ * One submitted indexing run. The status fields are written by the job thread and read by status
+ * requests, the counters of the run live in its IndexProgress.
+ */
+public class IndexJob {
+    public enum Status { QUEUED, RUNNING, SUCCEEDED, FAILED, CANCELLED }
+
+    private final String id;
+    private final String type;
+    // jobs with the same key never run at the same time, null for jobs that are not coalesced
+    private final String key;
+    private final Map<String, Object> parameters;
+    private final IndexProgress progress = new IndexProgress();
+    private final Instant submittedAt = Instant.now();
+    private volatile Status status = Status.QUEUED;
+    private volatile Instant startedAt;
+    private volatile Instant finishedAt;
+    private volatile Integer indexed;
+    private volatile String error;
+    private volatile Future<?> future;
+    private final CompletableFuture<IndexJob> completion = new CompletableFuture<>();
+
+    public IndexJob(final String id, final String type, final Map<String, Object> parameters) {
+        this(id, type, null, parameters);
+    }
+
+    public IndexJob(
+            final String id,
+            final String type,
+            @Nullable final String key,
+            final Map<String, Object> parameters) {
+        this.id = id;
+        this.type = type;
+        this.key = key;
+        this.parameters = parameters;
+    }
+
+    public String getId() {
+        return id;
+    }
+
+    public String getType() {
+        return type;
+    }
+
+    @Nullable
+    public String getKey() {
+        return key;
+    }
+
+    public Map<String, Object> getParameters() {
+        return parameters;
+    }
+
+    public IndexProgress getProgress() {
+        return progress;
+    }
+
+    public Status getStatus() {
+        return status;
+    }
+
+    public boolean isFinished() {
+        return status == Status.SUCCEEDED || status == Status.FAILED || status == Status.CANCELLED;
+    }
+
+    @Nullable
+    public Integer getIndexed() {
+        return indexed;
+    }
+
+    @Nullable
+    public String getError() {
+        return error;
+    }
+
+    /**
+     * @return a copy of the job state for status responses
+     */
+    public View view() {
+        return new View(id, type, parameters, status, submittedAt, startedAt, finishedAt, indexed, error,
+                progress.snapshot());
+    }
+
+    void setFuture(final Future<?> future) {
+        this.future = future;
+    }
+
+    @Nullable
+    Future<?> getFuture() {
+        return future;
+    }
+
+    /**
+     * @return a future completed with this job when it succeeds, fails or is cancelled
+     */
+    public CompletableFuture<IndexJob> getCompletion() {
+        return completion;
+    }
+
+    void started() {
+        startedAt = Instant.now();
+        status = Status.RUNNING;
+    }
+
+    void succeeded(final int indexed) {
+        this.indexed = indexed;
+        finished(Status.SUCCEEDED);
+    }
+
+    void failed(final String error) {
+        this.error = error;
+        finished(Status.FAILED);
+    }
+
+    void cancelled() {
+        finished(Status.CANCELLED);
+    }
+
+    private synchronized void finished(final Status status) {
+        if (isFinished()) {
+            return;
+        }
+        progress.setStage(IndexProgress.Stage.DONE);
+        finishedAt = Instant.now();
+        this.status = status;
+        completion.complete(this);
+    }
+
+    /**
+     * @param id the job id
+     * @param type the kind of run, like products
+     * @param parameters the parameters the run was submitted with
+     * @param status where the job is in its lifecycle
+     * @param submittedAt when the job was submitted
+     * @param startedAt when a job thread picked it up or null while queued
+     * @param finishedAt when it ended or null while queued or running
+     * @param indexed documents indexed by a successful run or null
+     * @param error why the run failed or null
+     * @param progress counters of the run
+     */
+    public record View(
+            String id,
+            String type,
+            Map<String, Object> parameters,
+            Status status,
+            Instant submittedAt,
+            Instant startedAt,
+            Instant finishedAt,
+            Integer indexed,
+            String error,
+            IndexProgress.Snapshot progress) {
+    }
+}
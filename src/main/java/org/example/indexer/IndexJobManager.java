@@ -0,0 +1,393 @@
+package org.example.indexer;
+
+import jakarta.annotation.PreDestroy;
+import org.example.config.IndexJobProperties;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Runs indexing jobs on its own thread pool so callers get a job id back right away instead of
+ * holding a request thread for the whole run. Jobs are kept in memory, finished ones up to the
+ * configured history.
+ * <p>
+ * Jobs submitted with a key are single flight: while a job with that key is queued or running, a
+ * submission of the same type with the same parameters attaches to it. Any other submission becomes
+ * the follow-up of its type, and follow-ups of a key start one at a time in submission order once the
+ * active job finishes. A later submission attaches to the follow-up of its type, or replaces it if
+ * its parameters differ, so a rebuild never cancels a queued run of another kind. Work that must not
+ * be queued or replaced is submitted only while its key is idle.
+ */
+@Component
+public class IndexJobManager {
+    private static final Logger logger = LoggerFactory.getLogger(IndexJobManager.class);
+
+    private final IndexJobProperties jobProperties;
+    private final ExecutorService executor;
+    // pushes snapshots of running jobs to watchers
+    private final ScheduledExecutorService watchScheduler;
+    // jobs in submission order, guarded by this
+    private final Map<String, IndexJob> jobs = new LinkedHashMap<>();
+    // the queued or running job of each key, guarded by this
+    private final Map<String, IndexJob> activeJobs = new HashMap<>();
+    // the jobs waiting for the active job of each key to finish, at most one per type, guarded by this
+    private final Map<String, List<FollowUp>> followUps = new HashMap<>();
+
+    @Autowired
+    public IndexJobManager(final IndexJobProperties jobProperties) {
+        this.jobProperties = jobProperties;
+        this.executor = Executors.newFixedThreadPool(
+                Math.max(1, jobProperties.getThreads()),
+                Thread.ofPlatform().name("index-job-", 1).factory());
+        this.watchScheduler = Executors.newSingleThreadScheduledExecutor(
+                Thread.ofPlatform().name("index-job-watch").daemon().factory());
+    }
+
+    /**
+     * The work of a job, which reports to and checks for cancellation on the progress it is given
+     */
+    @FunctionalInterface
+    public interface IndexTask {
+        /**
+         * @param progress counters of the job
+         * @return the number of indexed documents
+         * @throws CancellationException if the task stopped because the job was cancelled
+         */
+        int run(IndexProgress progress);
+    }
+
+    /**
+     * Queue a job
+     *
+     * @param type the kind of run, like products
+     * @param parameters the parameters of the run, shown in its status
+     * @param task the work to run
+     * @return the queued job
+     */
+    public IndexJob submit(final String type, final Map<String, Object> parameters, final IndexTask task) {
+        return submit(type, null, parameters, task);
+    }
+
+    /**
+     * Queue a job, or attach to the job already queued or running for its key
+     *
+     * @param type the kind of run, like products
+     * @param key what the job writes to, like the alias it rebuilds, or null to never coalesce
+     * @param parameters the parameters of the run, shown in its status and compared to coalesce
+     * @param task the work to run
+     * @return the new job or the job the submission was attached to
+     */
+    public synchronized IndexJob submit(
+            final String type,
+            @Nullable final String key,
+            final Map<String, Object> parameters,
+            final IndexTask task) {
+        if (key != null) {
+            final IndexJob active = activeJobs.get(key);
+            if (active != null) {
+                return submitFollowUp(type, key, parameters, task, active);
+            }
+        }
+        final IndexJob job = newJob(type, key, parameters);
+        start(job, task);
+        logger.info("Submitted {} index job {} with {}", type, job.getId(), parameters);
+        return job;
+    }
+
+    /**
+     * Queue a job only if no job is queued or running for its key. For work that cannot wait behind
+     * another job or be superseded as a follow-up, like a build reading a request body while it is
+     * uploaded.
+     *
+     * @param type the kind of run, like products
+     * @param key what the job writes to, like the alias it rebuilds
+     * @param parameters the parameters of the run, shown in its status
+     * @param task the work to run
+     * @return the new job or null if a job for the key is in flight
+     */
+    @Nullable
+    public synchronized IndexJob submitIfIdle(
+            final String type,
+            final String key,
+            final Map<String, Object> parameters,
+            final IndexTask task) {
+        if (activeJobs.containsKey(key)) {
+            logger.info("Rejected {} index request with {}, job {} is in flight for {}",
+                    type, parameters, activeJobs.get(key).getId(), key);
+            return null;
+        }
+        return submit(type, key, parameters, task);
+    }
+
+    /**
+     * @param id the job id
+     * @return the job or null if it is unknown or was evicted
+     */
+    @Nullable
+    public synchronized IndexJob getJob(final String id) {
+        return jobs.get(id);
+    }
+
+    /**
+     * @return every known job, the most recently submitted first
+     */
+    public synchronized List<IndexJob> getJobs() {
+        final List<IndexJob> result = new ArrayList<>(jobs.values());
+        Collections.reverse(result);
+        return result;
+    }
+
+    /**
+     * Cancel a job. A queued job never starts, a running one stops before its next record and
+     * deletes its partial index. A job past the point of moving the alias runs to completion.
+     *
+     * @param id the job id
+     * @return the job or null if it is unknown
+     */
+    @Nullable
+    public synchronized IndexJob cancel(final String id) {
+        final IndexJob job = jobs.get(id);
+        if (job == null || job.isFinished()) {
+            return job;
+        }
+        job.getProgress().cancel();
+        final List<FollowUp> queued = job.getKey() == null ? null : followUps.get(job.getKey());
+        if (queued != null && queued.removeIf(followUp -> followUp.job() == job)) {
+            if (queued.isEmpty()) {
+                followUps.remove(job.getKey());
+            }
+            job.cancelled();
+        } else if (job.getFuture() != null && job.getFuture().cancel(false)) {
+            // the job never started, so it will not hand its key to the follow-up itself
+            job.cancelled();
+            finished(job);
+        }
+        logger.info("Cancellation of index job {} requested", id);
+        return job;
+    }
+
+    /**
+     * Wait for a job to finish
+     *
+     * @param job the job to wait for
+     * @return the finished job
+     * @throws InterruptedException if the waiting thread was interrupted, the job keeps running
+     */
+    public IndexJob await(final IndexJob job) throws InterruptedException {
+        try {
+            return job.getCompletion().get();
+        } catch (ExecutionException e) {
+            // the job records its own outcome and never completes exceptionally
+            return job;
+        }
+    }
+
+    /**
+     * Call a listener with a snapshot of a job right away and then at the configured interval until
+     * the job finishes. The snapshot of the finished job is the last one.
+     *
+     * @param job the job to watch
+     * @param listener receives each snapshot, throwing stops the watch
+     * @param onFinished called once after the last snapshot
+     * @return a handle to stop the watch early
+     */
+    public Future<?> watch(final IndexJob job, final Consumer<IndexJob.View> listener, final Runnable onFinished) {
+        final Watch watch = new Watch(job, listener, onFinished);
+        final ScheduledFuture<?> future = watchScheduler.scheduleAtFixedRate(
+                watch, 0, Math.max(1, jobProperties.getProgressIntervalMillis()), TimeUnit.MILLISECONDS);
+        watch.setFuture(future);
+        return future;
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        getJobs().forEach(job -> job.getProgress().cancel());
+        watchScheduler.shutdownNow();
+        executor.shutdownNow();
+    }
+
+    private IndexJob submitFollowUp(
+            final String type,
+            final String key,
+            final Map<String, Object> parameters,
+            final IndexTask task,
+            final IndexJob active) {
+        if (!active.getProgress().isCancelled() && isSameRequest(active, type, parameters)) {
+            logger.info("Attached {} index request with {} to in-flight job {}", type, parameters, active.getId());
+            return active;
+        }
+        final List<FollowUp> queued = followUps.computeIfAbsent(key, k -> new ArrayList<>());
+        for (int i = 0; i < queued.size(); i++) {
+            final IndexJob followUp = queued.get(i).job();
+            if (!followUp.getType().equals(type)) {
+                continue;
+            }
+            if (isSameRequest(followUp, type, parameters)) {
+                logger.info("Attached {} index request with {} to queued follow-up job {}",
+                        type, parameters, followUp.getId());
+                return followUp;
+            }
+            logger.info("Follow-up index job {} superseded by a request with {}", followUp.getId(), parameters);
+            followUp.getProgress().cancel();
+            followUp.cancelled();
+            final IndexJob job = newJob(type, key, parameters);
+            queued.set(i, new FollowUp(job, task));
+            logger.info("Queued {} index job {} with {} in its place", type, job.getId(), parameters);
+            return job;
+        }
+        final IndexJob job = newJob(type, key, parameters);
+        queued.add(new FollowUp(job, task));
+        logger.info("Queued {} index job {} with {} to run after job {}",
+                type, job.getId(), parameters, active.getId());
+        return job;
+    }
+
+    private static boolean isSameRequest(final IndexJob job, final String type, final Map<String, Object> parameters) {
+        return job.getType().equals(type) && job.getParameters().equals(parameters);
+    }
+
+    private IndexJob newJob(final String type, @Nullable final String key, final Map<String, Object> parameters) {
+        final IndexJob job = new IndexJob(UUID.randomUUID().toString(), type, key, parameters);
+        jobs.put(job.getId(), job);
+        evictFinished();
+        return job;
+    }
+
+    private void start(final IndexJob job, final IndexTask task) {
+        if (job.getKey() != null) {
+            activeJobs.put(job.getKey(), job);
+        }
+        job.setFuture(executor.submit(() -> run(job, task)));
+    }
+
+    /**
+     * Release the key of a finished job and start the first follow-up waiting for it
+     */
+    private synchronized void finished(final IndexJob job) {
+        final String key = job.getKey();
+        if (key == null || activeJobs.get(key) != job) {
+            return;
+        }
+        activeJobs.remove(key);
+        final List<FollowUp> queued = followUps.get(key);
+        final FollowUp followUp = queued == null ? null : queued.removeFirst();
+        if (queued != null && queued.isEmpty()) {
+            followUps.remove(key);
+        }
+        if (followUp != null && !executor.isShutdown()) {
+            logger.info("Starting follow-up index job {} after job {}", followUp.job().getId(), job.getId());
+            start(followUp.job(), followUp.task());
+        }
+    }
+
+    private void run(final IndexJob job, final IndexTask task) {
+        Runnable outcome = null;
+        try {
+            if (job.getProgress().isCancelled()) {
+                outcome = job::cancelled;
+                return;
+            }
+            job.started();
+            final int indexed = task.run(job.getProgress());
+            logger.info("Index job {} indexed {} documents", job.getId(), indexed);
+            outcome = () -> job.succeeded(indexed);
+        } catch (CancellationException e) {
+            logger.info("Index job {} was cancelled", job.getId());
+            outcome = job::cancelled;
+        } catch (RuntimeException e) {
+            logger.error("Index job {} failed: {}", job.getId(), e.getMessage(), e);
+            outcome = () -> job.failed(e.getMessage());
+        } finally {
+            // release the key before recording the outcome, so whoever sees the job finish can submit for it
+            finished(job);
+            if (outcome != null) {
+                outcome.run();
+            }
+        }
+    }
+
+    private record FollowUp(IndexJob job, IndexTask task) {
+    }
+
+    private static final class Watch implements Runnable {
+        private final IndexJob job;
+        private final Consumer<IndexJob.View> listener;
+        private final Runnable onFinished;
+        private volatile boolean done;
+        private volatile ScheduledFuture<?> future;
+
+        private Watch(final IndexJob job, final Consumer<IndexJob.View> listener, final Runnable onFinished) {
+            this.job = job;
+            this.listener = listener;
+            this.onFinished = onFinished;
+        }
+
+        private void setFuture(final ScheduledFuture<?> future) {
+            this.future = future;
+            // the first run may have seen the job finish before the future was known
+            if (done) {
+                future.cancel(false);
+            }
+        }
+
+        @Override
+        public void run() {
+            if (done) {
+                return;
+            }
+            // read the status before the snapshot so a finished job always sends its final counters
+            final boolean finished = job.isFinished();
+            try {
+                listener.accept(job.view());
+                if (finished) {
+                    onFinished.run();
+                }
+            } catch (RuntimeException e) {
+                logger.debug("Stopped watching index job {}: {}", job.getId(), e.getMessage());
+                stop();
+                return;
+            }
+            if (finished) {
+                stop();
+            }
+        }
+
+        private void stop() {
+            done = true;
+            if (future != null) {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private void evictFinished() {
+        int finished = (int) jobs.values().stream().filter(IndexJob::isFinished).count();
+        final Iterator<IndexJob> iterator = jobs.values().iterator();
+        while (finished > jobProperties.getHistory() && iterator.hasNext()) {
+            if (iterator.next().isFinished()) {
+                iterator.remove();
+                finished--;
+            }
+        }
+    }
+}
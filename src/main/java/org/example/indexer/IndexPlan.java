@@ -0,0 +1,29 @@
+package org.example.indexer;
+
+/**
+ * Shard count and HNSW graph parameters recommended for an indexing run, along with the
+ * estimates they were derived from.
+ *
+ * @param sampledDocs number of documents read from the input file
+ * @param estimatedDocs estimated number of documents that will be indexed
+ * @param avgSourceBytes average size of a document _source in bytes
+ * @param vectorDimension dimension of the embedding field
+ * @param estimatedVectorBytes estimated size of the raw embedding vectors in bytes
+ * @param estimatedIndexBytes estimated size of the primary shards in bytes
+ * @param estimatedGraphBytes estimated native memory used by the HNSW graphs in bytes
+ * @param shards recommended number of primary shards
+ * @param m recommended number of bidirectional links per graph node
+ * @param efConstruction recommended size of the candidate list used while building the graph
+ */
+public record IndexPlan(
+        int sampledDocs,
+        long estimatedDocs,
+        long avgSourceBytes,
+        int vectorDimension,
+        long estimatedVectorBytes,
+        long estimatedIndexBytes,
+        long estimatedGraphBytes,
+        int shards,
+        int m,
+        int efConstruction) {
+}
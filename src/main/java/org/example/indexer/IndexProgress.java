@@ -0,0 +1,233 @@
+package org.example.indexer;
+
+import javax.annotation.Nullable;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Live counters of one indexing run, written by the indexer and read by status requests from other
+ * threads. Read throughput is measured over wall time, embedding and bulk throughput over the time
+ * spent in each call, so a slow stage shows up with the lowest rate. Latency percentiles cover the
+ * most recent calls only. Also carries the cancellation request of the run, which the indexer checks
+ * between records.
+ */
+public class IndexProgress {
+    public enum Stage { QUEUED, PLANNING, INDEXING, FINALIZING, DONE }
+
+    // calls kept per latency window
+    private static final int LATENCY_SAMPLES = 1024;
+
+    private volatile Stage stage = Stage.QUEUED;
+    private volatile String indexName;
+    private volatile boolean cancelled;
+    private volatile long indexingStartNanos;
+    private volatile long indexingEndNanos;
+    // bytes of the input left when indexing started, the denominator of the completed fraction
+    private volatile long bytesToRead;
+    private volatile long startOffset;
+    private volatile long limit;
+    private final AtomicLong bytesRead = new AtomicLong();
+    private final AtomicLong linesRead = new AtomicLong();
+    private final AtomicLong embeddedDocuments = new AtomicLong();
+    private final AtomicLong embeddingNanos = new AtomicLong();
+    private final AtomicLong indexedDocuments = new AtomicLong();
+    private final AtomicLong bulkNanos = new AtomicLong();
+    private final AtomicLong rejectedDocuments = new AtomicLong();
+    private final AtomicLong failedBatches = new AtomicLong();
+    private final AtomicLong bufferedDocuments = new AtomicLong();
+    private final LatencyWindow embeddingLatencies = new LatencyWindow(LATENCY_SAMPLES);
+    private final LatencyWindow bulkLatencies = new LatencyWindow(LATENCY_SAMPLES);
+    // records read from each input file of a run over several files
+    private volatile Map<String, Integer> fileRecords = Map.of();
+
+    public void setStage(final Stage stage) {
+        if (stage == Stage.DONE && indexingStartNanos != 0 && indexingEndNanos == 0) {
+            indexingEndNanos = System.nanoTime();
+        }
+        this.stage = stage;
+    }
+
+    public Stage getStage() {
+        return stage;
+    }
+
+    @Nullable
+    public String getIndexName() {
+        return indexName;
+    }
+
+    /**
+     * Mark the start of writing documents
+     *
+     * @param indexName the index documents are written to
+     * @param fileBytes size of the input file
+     * @param startOffset byte offset reading starts from, past the records a resumed run already indexed
+     * @param limit maximum number of records or null for the whole file
+     */
+    public void startIndexing(
+            final String indexName,
+            final long fileBytes,
+            final long startOffset,
+            @Nullable final Integer limit) {
+        this.indexName = indexName;
+        this.startOffset = startOffset;
+        this.bytesToRead = Math.max(0, fileBytes - startOffset);
+        this.limit = limit == null ? 0 : limit;
+        this.indexingStartNanos = System.nanoTime();
+        this.stage = Stage.INDEXING;
+    }
+
+    /**
+     * @param lines records read so far, including any a resumed run started after
+     * @param offset byte offset of the reader in the input file
+     */
+    public void recordRead(final long lines, final long offset) {
+        linesRead.set(lines);
+        bytesRead.set(Math.max(0, offset - startOffset));
+    }
+
+    /**
+     * @param documents records read and held in memory waiting for the next flush
+     */
+    public void recordBuffered(final int documents) {
+        bufferedDocuments.set(documents);
+    }
+
+    /**
+     * @param records records read so far from each input file of a run over several files
+     */
+    public void recordFiles(final Map<String, Integer> records) {
+        fileRecords = Collections.unmodifiableMap(new LinkedHashMap<>(records));
+    }
+
+    public void recordEmbedding(final int documents, final long nanos) {
+        embeddedDocuments.addAndGet(documents);
+        embeddingNanos.addAndGet(nanos);
+        embeddingLatencies.add(nanos);
+    }
+
+    public void recordBulk(final int documents, final int rejected, final long nanos) {
+        indexedDocuments.addAndGet(documents - rejected);
+        rejectedDocuments.addAndGet(rejected);
+        bulkNanos.addAndGet(nanos);
+        bulkLatencies.add(nanos);
+    }
+
+    public void recordFailedBatch() {
+        failedBatches.incrementAndGet();
+    }
+
+    /**
+     * Ask the run to stop, the indexer notices before its next record
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled;
+    }
+
+    /**
+     * @throws CancellationException if the run was cancelled
+     */
+    public void checkCancelled() {
+        if (cancelled) {
+            throw new CancellationException("Indexing run was cancelled");
+        }
+    }
+
+    /**
+     * @return a consistent enough copy of the counters with rates and the remaining time derived from them
+     */
+    public Snapshot snapshot() {
+        final long start = indexingStartNanos;
+        final long end = indexingEndNanos == 0 ? System.nanoTime() : indexingEndNanos;
+        final long elapsedNanos = start == 0 ? 0 : end - start;
+        final long lines = linesRead.get();
+        final long indexed = indexedDocuments.get();
+
+        // the further along of bytes read and records against the limit
+        double completed = bytesToRead == 0 ? 0 : (double) bytesRead.get() / bytesToRead;
+        if (limit > 0) {
+            completed = Math.max(completed, (double) lines / limit);
+        }
+        completed = Math.min(1, completed);
+        final Long etaSeconds = completed <= 0 || stage != Stage.INDEXING
+                ? null
+                : Math.round(elapsedNanos * (1 - completed) / completed / 1_000_000_000.0);
+        final long[] embedding = embeddingLatencies.sorted();
+        final long[] bulk = bulkLatencies.sorted();
+
+        return new Snapshot(
+                stage,
+                indexName,
+                elapsedNanos / 1_000_000,
+                lines,
+                embeddedDocuments.get(),
+                indexed,
+                rejectedDocuments.get(),
+                failedBatches.get(),
+                Math.round(completed * 1000) / 10.0,
+                etaSeconds,
+                perSecond(lines, elapsedNanos),
+                perSecond(embeddedDocuments.get(), embeddingNanos.get()),
+                perSecond(indexed, bulkNanos.get()),
+                bufferedDocuments.get(),
+                LatencyWindow.percentileMillis(embedding, 0.5),
+                LatencyWindow.percentileMillis(embedding, 0.99),
+                LatencyWindow.percentileMillis(bulk, 0.5),
+                LatencyWindow.percentileMillis(bulk, 0.99),
+                fileRecords);
+    }
+
+    private static double perSecond(final long count, final long nanos) {
+        return nanos <= 0 ? 0 : Math.round(count * 1_000_000_000.0 / nanos * 10) / 10.0;
+    }
+
+    /**
+     * @param stage the step the run is in
+     * @param indexName the index documents are written to or null before it is created
+     * @param elapsedMillis time since documents started to be written
+     * @param linesRead records read from the input
+     * @param embeddedDocuments documents that were embedded
+     * @param indexedDocuments documents the cluster accepted
+     * @param rejectedDocuments documents the cluster rejected in otherwise successful bulk requests
+     * @param failedBatches bulk batches that failed as a whole
+     * @param percentComplete share of the input read
+     * @param etaSeconds estimated seconds until every record is written or null if unknown
+     * @param readDocsPerSecond records read per second of wall time
+     * @param embedDocsPerSecond documents embedded per second spent embedding
+     * @param bulkDocsPerSecond documents indexed per second spent in bulk requests
+     * @param bufferedDocuments records read and waiting in memory for the next flush
+     * @param embedP50Millis median embedding request latency of recent batches
+     * @param embedP99Millis 99th percentile embedding request latency of recent batches
+     * @param bulkP50Millis median bulk request latency of recent batches
+     * @param bulkP99Millis 99th percentile bulk request latency of recent batches
+     * @param fileRecords records read from each input file, empty unless the run reads several files
+     */
+    public record Snapshot(
+            Stage stage,
+            String indexName,
+            long elapsedMillis,
+            long linesRead,
+            long embeddedDocuments,
+            long indexedDocuments,
+            long rejectedDocuments,
+            long failedBatches,
+            double percentComplete,
+            Long etaSeconds,
+            double readDocsPerSecond,
+            double embedDocsPerSecond,
+            double bulkDocsPerSecond,
+            long bufferedDocuments,
+            double embedP50Millis,
+            double embedP99Millis,
+            double bulkP50Millis,
+            double bulkP99Millis,
+            Map<String, Integer> fileRecords) {
+    }
+}
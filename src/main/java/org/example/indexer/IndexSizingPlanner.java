@@ -0,0 +1,200 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.IndexSizingProperties;
+import org.example.config.ProductIndexProperties;
+import org.example.model.Product;
+import org.example.service.OpenSearchService;
+import org.example.util.OffsetLineReader;
+import org.opensearch.client.opensearch._types.mapping.Property;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Samples an input file before an indexing run to estimate the size of the new index and
+ * recommend a primary shard count and HNSW graph parameters for it.
+ */
+@Component
+public class IndexSizingPlanner {
+    private static final Logger logger = LoggerFactory.getLogger(IndexSizingPlanner.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String VECTOR_FIELD = "fts_embedding";
+    private static final int[] M_CANDIDATES = {32, 24, 16, 8};
+    // k-NN plugin estimate of HNSW memory: 1.1 * (bytes per element * dimension + 8 * m) bytes per vector
+    private static final double GRAPH_OVERHEAD = 1.1;
+
+    private final IndexSizingProperties sizingProperties;
+    private final ProductIndexProperties indexProperties;
+    private final OpenSearchService openSearchService;
+
+    @Autowired
+    public IndexSizingPlanner(
+            final IndexSizingProperties sizingProperties,
+            final ProductIndexProperties indexProperties,
+            final OpenSearchService openSearchService) {
+        this.sizingProperties = sizingProperties;
+        this.indexProperties = indexProperties;
+        this.openSearchService = openSearchService;
+    }
+
+    /**
+     * @return TRUE when plans should be applied to new indexes instead of only being logged
+     */
+    public boolean shouldApply() {
+        return sizingProperties.getMode() == IndexSizingProperties.Mode.APPLY;
+    }
+
+    /**
+     * Sample an input file and recommend index sizing for it
+     *
+     * @param filePath path to the documents file
+     * @param limit maximum number of documents that will be indexed
+     * @return the sizing plan or null when planning is disabled or the file cannot be sampled
+     */
+    @Nullable
+    public IndexPlan plan(final String filePath, @Nullable final Integer limit) {
+        return plan(filePath, -1, limit);
+    }
+
+    /**
+     * Sample an input file and recommend index sizing for an input it is part of
+     *
+     * @param filePath path to the documents file to sample
+     * @param inputBytes total size of the input the file is part of or -1 if the file is the whole input
+     * @param limit maximum number of documents that will be indexed
+     * @return the sizing plan or null when planning is disabled or the file cannot be sampled
+     */
+    @Nullable
+    public IndexPlan plan(final String filePath, final long inputBytes, @Nullable final Integer limit) {
+        if (sizingProperties.getMode() == IndexSizingProperties.Mode.OFF) {
+            return null;
+        }
+
+        final Path path = Paths.get(filePath);
+        int sampledDocs = 0;
+        long sampledLineBytes = 0;
+        long sampledSourceBytes = 0;
+        boolean reachedEnd = true;
+        int malformedLines = 0;
+        try (OffsetLineReader reader = OffsetLineReader.openInput(path, 0)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (sampledDocs >= sizingProperties.getSampleSize()) {
+                    reachedEnd = false;
+                    break;
+                }
+                sampledLineBytes += line.getBytes(StandardCharsets.UTF_8).length + 1;
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                final Product product;
+                try {
+                    product = objectMapper.readValue(line, Product.class);
+                } catch (JsonProcessingException e) {
+                    // skipped like the indexer skips it, its bytes still spread over the sampled documents
+                    malformedLines++;
+                    continue;
+                }
+                sampledSourceBytes += objectMapper.writeValueAsBytes(product).length;
+                sampledDocs++;
+            }
+            if (malformedLines > 0) {
+                logger.warn("Skipped {} malformed lines while sampling {}", malformedLines, filePath);
+            }
+            // a compressed input holds more line bytes than it takes on disk, scale by the ratio seen so far
+            final long storedBytes = inputBytes >= 0 ? inputBytes : Files.size(path);
+            final long sourcePosition = reader.getSourcePosition();
+            final long fileBytes = inputBytes < 0 && reachedEnd
+                    ? sampledLineBytes
+                    : sourcePosition <= 0
+                            ? storedBytes
+                            : Math.round((double) storedBytes * reader.getOffset() / sourcePosition);
+            final IndexPlan plan = plan(sampledDocs, sampledLineBytes, sampledSourceBytes, fileBytes,
+                    limit, getVectorDimension());
+            logger.info("Index plan for {} ({}): {}", filePath, sizingProperties.getMode(), plan);
+            return plan;
+        } catch (IOException e) {
+            logger.error("Unable to sample {} for index sizing: {}", filePath, e.getMessage(), e);
+            return null;
+        }
+    }
+
+    /**
+     * Derive a sizing plan from the numbers gathered while sampling
+     *
+     * @param sampledDocs number of documents sampled
+     * @param sampledLineBytes bytes of input read while sampling
+     * @param sampledSourceBytes serialized size of the sampled documents
+     * @param fileBytes total size of the input file
+     * @param limit maximum number of documents that will be indexed
+     * @param vectorDimension dimension of the embedding field
+     * @return the sizing plan
+     */
+    protected IndexPlan plan(
+            final int sampledDocs,
+            final long sampledLineBytes,
+            final long sampledSourceBytes,
+            final long fileBytes,
+            @Nullable final Integer limit,
+            final int vectorDimension) {
+        final long avgLineBytes = sampledDocs == 0 ? 1 : Math.max(1, sampledLineBytes / sampledDocs);
+        final long avgSourceBytes = sampledDocs == 0 ? 0 : sampledSourceBytes / sampledDocs;
+        long estimatedDocs = fileBytes / avgLineBytes;
+        if (limit != null) {
+            estimatedDocs = Math.min(estimatedDocs, limit);
+        }
+
+        // int8 quantized vectors take one byte per dimension in the graph and in the vector data
+        final int elementBytes = indexProperties.isQuantizeVectors() ? Byte.BYTES : Float.BYTES;
+        final long vectorBytes = estimatedDocs * vectorDimension * elementBytes;
+        final long indexBytes = estimatedDocs * avgSourceBytes + vectorBytes;
+        final long targetShardBytes = sizingProperties.getTargetShardSize().toBytes();
+        final int shards = Math.clamp((indexBytes + targetShardBytes - 1) / targetShardBytes,
+                1, Math.max(1, sizingProperties.getMaxShards()));
+
+        // use the densest graph that still fits in the memory budget
+        final long budgetBytes = sizingProperties.getGraphMemoryBudget().toBytes();
+        int m = M_CANDIDATES[M_CANDIDATES.length - 1];
+        for (int candidate : M_CANDIDATES) {
+            if (getGraphBytes(estimatedDocs, vectorDimension, elementBytes, candidate) <= budgetBytes) {
+                m = candidate;
+                break;
+            }
+        }
+        final int efConstruction = Math.clamp(8L * m, 128, 512);
+
+        return new IndexPlan(
+                sampledDocs,
+                estimatedDocs,
+                avgSourceBytes,
+                vectorDimension,
+                vectorBytes,
+                indexBytes,
+                getGraphBytes(estimatedDocs, vectorDimension, elementBytes, m),
+                shards,
+                m,
+                efConstruction);
+    }
+
+    protected static long getGraphBytes(final long docs, final int dimension, final int elementBytes, final int m) {
+        return (long) (GRAPH_OVERHEAD * ((long) elementBytes * dimension + 8L * m) * docs);
+    }
+
+    private int getVectorDimension() {
+        final Property property = openSearchService.readMapping(indexProperties.getMapping())
+                .properties()
+                .get(VECTOR_FIELD);
+        return property != null && property.isKnnVector() ? property.knnVector().dimension() : 0;
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.indexer;
+
+import java.util.Arrays;
+
+/**
+ * Ring buffer of the most recent call latencies
+ */
+final class LatencyWindow {
+    private final long[] samples;
+    private int count;
+    private int next;
+
+    LatencyWindow(final int size) {
+        this.samples = new long[size];
+    }
+
+    synchronized void add(final long nanos) {
+        samples[next] = nanos;
+        next = (next + 1) % samples.length;
+        count = Math.min(count + 1, samples.length);
+    }
+
+    synchronized long[] sorted() {
+        final long[] result = Arrays.copyOf(samples, count);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @param sorted latencies in nanoseconds, sorted ascending
+     * @param percentile the percentile as a fraction, like 0.99
+     * @return the latency at the percentile in milliseconds rounded to a tenth, 0 without samples
+     */
+    static double percentileMillis(final long[] sorted, final double percentile) {
+        return sorted.length == 0
+                ? 0
+                : Math.round(sorted[(int) (sorted.length * percentile)] / 100_000.0) / 10.0;
+    }
+}
@@ -0,0 +1,385 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.ProductIndexProperties;
+import org.example.model.Product;
+import org.example.service.OpenSearchService;
+import org.example.util.IndexUtils;
+import org.example.util.OffsetLineReader;
+import org.example.util.ScalarQuantizer;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.Semaphore;
+import java.util.stream.Collectors;
+
+/**
+ * Indexes products into one dated index per top level category. Partitions are written
+ * concurrently and attached to the product alias in a single alias update, so a single
+ * category can be rebuilt without touching the others.
+ */
+@Component
+public class PartitionedProductIndexer implements Indexer {
+    private static final Logger logger = LoggerFactory.getLogger(PartitionedProductIndexer.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final FullProductIndexer fullProductIndexer;
+    private final OpenSearchService openSearchService;
+    private final ProductIndexProperties indexProperties;
+
+    @Autowired
+    public PartitionedProductIndexer(
+            final FullProductIndexer fullProductIndexer,
+            final OpenSearchService openSearchService,
+            final ProductIndexProperties indexProperties) {
+        this.fullProductIndexer = fullProductIndexer;
+        this.openSearchService = openSearchService;
+        this.indexProperties = indexProperties;
+    }
+
+    @Override
+    public int indexFromFile(final String filePath) {
+        return indexFromFile(filePath, null);
+    }
+
+    @Override
+    public int indexFromFile(final String filePath, @Nullable final Integer limit) {
+        return indexFromFile(filePath, limit, null);
+    }
+
+    public int indexFromFile(final String filePath, @Nullable final Integer limit, @Nullable final String category) {
+        return indexFromFile(filePath, limit, category, new IndexProgress());
+    }
+
+    /**
+     * Index products from a local file into per category indexes
+     *
+     * @param filePath path to the documents file
+     * @param limit maximum number of documents to read
+     * @param category the only top level category to rebuild or null to rebuild every partition
+     * @param progress counters of the run to update, cancelling it deletes the new partition indexes
+     * @return the number of indexed documents
+     * @throws CancellationException if the run was cancelled before the alias moved
+     */
+    public int indexFromFile(
+            final String filePath,
+            @Nullable final Integer limit,
+            @Nullable final String category,
+            final IndexProgress progress) {
+        progress.setStage(IndexProgress.Stage.PLANNING);
+        final String onlyPartition = category == null
+                ? null
+                : IndexUtils.getPartitionRootName(indexProperties.getAlias(), category);
+        final SampleEmbeddings samples = new SampleEmbeddings();
+        final ScalarQuantizer quantizer = indexProperties.isQuantizeVectors()
+                ? getQuantizer(filePath, limit, onlyPartition != null, samples)
+                : null;
+        progress.checkCancelled();
+
+        final int threads = Math.max(1, indexProperties.getPartitionThreads());
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // bound the batches held in memory while the reader runs ahead of the writers
+        final Semaphore inFlight = new Semaphore(threads * 2);
+        final Map<String, Partition> partitions = new LinkedHashMap<>();
+        final List<Future<Integer>> batches = new ArrayList<>();
+        final int maxRecords = limit == null ? Integer.MAX_VALUE : limit;
+        int lineCount = 0;
+        int malformedLines = 0;
+        boolean attached = false;
+        final Path path = Paths.get(filePath);
+        try (OffsetLineReader reader = OffsetLineReader.openInput(path, 0)) {
+            // partitions are written side by side, the run reports under the alias they are attached to
+            progress.startIndexing(indexProperties.getAlias(), Files.size(path), 0, limit);
+            String line;
+            while (!progress.isCancelled() && (line = reader.readLine()) != null && lineCount < maxRecords) {
+                line = line.trim();
+                if (line.isEmpty()) {
+                    continue;
+                }
+                lineCount++;
+
+                final Product product;
+                try {
+                    product = objectMapper.readValue(line, Product.class);
+                } catch (JsonProcessingException e) {
+                    logger.error("Skipping malformed line {}: {}", lineCount, e.getOriginalMessage());
+                    malformedLines++;
+                    continue;
+                }
+                final String rootName = IndexUtils.getPartitionRootName(
+                        indexProperties.getAlias(), product.getTopLevelCategory());
+                if (onlyPartition != null && !onlyPartition.equals(rootName)) {
+                    continue;
+                }
+                final Partition partition =
+                        partitions.computeIfAbsent(rootName, name -> createPartition(name, quantizer));
+                partition.products().add(product);
+                if (partition.products().size() >= indexProperties.getBatchSize()) {
+                    batches.add(submit(executor, inFlight, partition, progress, samples));
+                    progress.recordRead(lineCount, reader.getSourcePosition());
+                }
+            }
+
+            // submit any remaining partial batches
+            if (!progress.isCancelled()) {
+                partitions.values().stream()
+                        .filter(partition -> !partition.products().isEmpty())
+                        .forEach(partition -> batches.add(submit(executor, inFlight, partition, progress, samples)));
+            }
+            progress.recordRead(lineCount, reader.getSourcePosition());
+
+            if (malformedLines > 0) {
+                logger.warn("Skipped {} malformed lines of {}", malformedLines, filePath);
+            }
+            // let the batches already sent finish before the partitions are deleted
+            final int indexed = await(batches);
+            if (progress.isCancelled()) {
+                throw new CancellationException(String.format(
+                        "Partitioned indexing of %s was cancelled", filePath));
+            }
+            progress.setStage(IndexProgress.Stage.FINALIZING);
+            if (indexed >= 0) {
+                attached = finalizer(
+                        partitions.values().stream().map(Partition::indexName).toList(),
+                        onlyPartition == null,
+                        executor);
+            }
+            progress.setStage(IndexProgress.Stage.DONE);
+            return attached ? indexed : 0;
+        } catch (IOException e) {
+            logger.error(e.getMessage(), e);
+            return 0;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            logger.error("Partitioned indexing of {} was interrupted", filePath);
+            return 0;
+        } finally {
+            executor.shutdownNow();
+            if (!attached) {
+                discard(partitions.values());
+            }
+        }
+    }
+
+    @Override
+    public int bulkIndexRecords(final List<JsonNode> nodeList, final String indexName) {
+        return fullProductIndexer.bulkIndexRecords(nodeList, indexName);
+    }
+
+    @Override
+    public void finalizer(final String newIndexName) {
+        final ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            finalizer(List.of(newIndexName), false, executor);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    /**
+     * Bring every new partition index to its serving settings and attach them all to the alias in a
+     * single update. Nothing is attached unless every partition turns green.
+     *
+     * @param newIndexNames the names of the new partition indexes
+     * @param replaceAll true to detach every index currently behind the alias, false to only detach
+     *                   older versions of the new partitions
+     * @param executor the executor to finalize partitions on
+     * @return true if the new partitions are behind the alias
+     */
+    protected boolean finalizer(
+            final List<String> newIndexNames,
+            final boolean replaceAll,
+            final ExecutorService executor) throws InterruptedException {
+        if (newIndexNames.isEmpty()) {
+            logger.warn("No partitions were indexed");
+            return false;
+        }
+
+        final List<Future<Boolean>> results = newIndexNames.stream()
+                .map(indexName -> executor.submit(() -> finalizePartition(indexName)))
+                .toList();
+        boolean isGreen = true;
+        for (int i = 0; i < results.size(); i++) {
+            try {
+                isGreen &= results.get(i).get();
+            } catch (ExecutionException e) {
+                logger.error("Partition {} could not be finalized", newIndexNames.get(i), e.getCause());
+                isGreen = false;
+            }
+        }
+        if (!isGreen) {
+            logger.error("Partitions {} have been created but are not all in a good state", newIndexNames);
+            return false;
+        }
+
+        // attach the new partitions and detach the ones they replace in one alias update
+        final Set<String> rootNames = newIndexNames.stream()
+                .map(IndexUtils::getRootName)
+                .collect(Collectors.toSet());
+        final Collection<String> currentIndexNames = getIndexesByAlias(indexProperties.getAlias());
+        final List<String> replacedIndexNames = currentIndexNames.stream()
+                .filter(indexName -> !newIndexNames.contains(indexName))
+                .filter(indexName -> replaceAll || rootNames.contains(IndexUtils.getRootName(indexName)))
+                .toList();
+        if (!openSearchService.swapAliases(
+                indexProperties.getAlias(),
+                indexProperties.getOldAlias(),
+                newIndexNames,
+                replacedIndexNames)) {
+            logger.error("Alias {} could not be moved to partitions {}", indexProperties.getAlias(), newIndexNames);
+            return false;
+        }
+        fullProductIndexer.forgetQuantizers(replacedIndexNames);
+
+        // clean up old indexes
+        getIndexesByAlias(indexProperties.getOldAlias()).forEach(indexName -> {
+            if (IndexUtils.shouldDeleteIndex(indexName, indexProperties.getOldIndexKeepDays())) {
+                openSearchService.deleteIndex(indexName);
+                fullProductIndexer.forgetQuantizers(List.of(indexName));
+            }
+        });
+        return true;
+    }
+
+    private boolean finalizePartition(final String indexName) {
+        openSearchService.flushIndex(indexName);
+        openSearchService.updateSettings(
+                indexName,
+                indexProperties.getReplicas(),
+                indexProperties.getRefreshSeconds());
+        return openSearchService.waitForGreenStatus(indexName, indexProperties.getStatusWaitSeconds());
+    }
+
+    /**
+     * Partitions behind one alias are searched with one query vector, so they must share a quantizer.
+     * A single category rebuild reuses the quantizer of the live partitions and only a full rebuild,
+     * or one without quantized partitions to match, calibrates a new one.
+     *
+     * @param samples receives the float embeddings of the sample when a new quantizer is calibrated
+     */
+    @Nullable
+    private ScalarQuantizer getQuantizer(
+            final String filePath,
+            @Nullable final Integer limit,
+            final boolean reuse,
+            final SampleEmbeddings samples) {
+        if (reuse) {
+            for (String indexName : getIndexesByAlias(indexProperties.getAlias())) {
+                final ScalarQuantizer quantizer = fullProductIndexer.getQuantizer(indexName);
+                if (quantizer != null) {
+                    return quantizer;
+                }
+            }
+        }
+        return fullProductIndexer.calibrateQuantizer(filePath, limit, samples);
+    }
+
+    /**
+     * Partitions get the index sort and vector mapping of a full build. They keep the shard count of
+     * the settings file: a sizing plan samples the whole input, so its shard count and HNSW parameters
+     * would oversize every partition, and each partition holds too few documents for a build shard
+     * count and shrink to pay off.
+     */
+    private Partition createPartition(final String rootName, @Nullable final ScalarQuantizer quantizer) {
+        final String indexName = IndexUtils.getIndexName(rootName);
+        final String vectorProfile = fullProductIndexer.resolveVectorProfile(null);
+        final List<ProductSortComparator.SortField> indexSort =
+                ProductSortComparator.parse(indexProperties.getIndexSort());
+        if (!indexSort.isEmpty() || indexProperties.isNormalizeVectors() || quantizer != null
+                || vectorProfile != null) {
+            openSearchService.createIndex(indexName, indexProperties.getSettings(), indexProperties.getMapping(),
+                    settings -> fullProductIndexer.customizeSettings(settings, null, indexSort),
+                    mapping -> fullProductIndexer.customizeMapping(mapping, null, quantizer, vectorProfile));
+        } else {
+            openSearchService.createIndex(indexName, indexProperties.getSettings(), indexProperties.getMapping());
+        }
+        logger.info("Created partition index {}", indexName);
+        return new Partition(indexName, new ArrayList<>());
+    }
+
+    private Future<Integer> submit(
+            final ExecutorService executor,
+            final Semaphore inFlight,
+            final Partition partition,
+            final IndexProgress progress,
+            final SampleEmbeddings samples) {
+        final List<Product> products = new ArrayList<>(partition.products());
+        partition.products().clear();
+        inFlight.acquireUninterruptibly();
+        return executor.submit(() -> {
+            try {
+                // the partitions of a cancelled run are deleted, batches still queued are not worth sending
+                if (progress.isCancelled()) {
+                    return 0;
+                }
+                final List<String> rejected =
+                        fullProductIndexer.bulkIndexProducts(products, partition.indexName(), progress, samples);
+                if (!rejected.isEmpty()) {
+                    logger.warn("{} rejected {} of {} products: {}",
+                            partition.indexName(), rejected.size(), products.size(), rejected);
+                }
+                return products.size() - rejected.size();
+            } finally {
+                inFlight.release();
+            }
+        });
+    }
+
+    /**
+     * @return the number of indexed documents or -1 if any batch failed
+     */
+    private int await(final List<Future<Integer>> batches) throws InterruptedException {
+        int indexed = 0;
+        boolean failed = false;
+        for (Future<Integer> batch : batches) {
+            try {
+                indexed += batch.get();
+            } catch (ExecutionException e) {
+                logger.error("Partition batch failed", e.getCause());
+                failed = true;
+            }
+        }
+        return failed ? -1 : indexed;
+    }
+
+    /**
+     * Delete the partition indexes of a run that did not reach the alias, nothing else would clean them up
+     */
+    private void discard(final Collection<Partition> partitions) {
+        partitions.forEach(partition -> {
+            logger.info("Deleting partition index {}", partition.indexName());
+            openSearchService.deleteIndex(partition.indexName());
+        });
+        fullProductIndexer.forgetQuantizers(partitions.stream().map(Partition::indexName).toList());
+    }
+
+    private Collection<String> getIndexesByAlias(final String aliasName) {
+        final Set<String> indexNames = openSearchService.getIndexesByAlias(aliasName);
+        return indexNames == null ? Set.of() : indexNames;
+    }
+
+    private record Partition(String indexName, List<Product> products) {
+    }
+}
@@ -0,0 +1,186 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Product;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HashMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * Product id to content hash of the documents in an index, persisted between delta indexing runs.
+ * The file starts with the name of the index it describes followed by one tab separated
+ * id, hash, routing and text hash line per product.
+ */
+public class ProductManifest {
+    private static final String INDEX_HEADER = "#index\t";
+    private static final String SEPARATOR = "\t";
+    // 128 bits of SHA-256 is plenty to detect changed content
+    private static final int HASH_BYTES = 16;
+
+    private final String indexName;
+    private final Map<String, Entry> entries;
+
+    /**
+     * @param hash hash of the indexed content
+     * @param routing routing value of the document or null for the default routing
+     * @param ftsHash hash of the text the embedding was generated from or null if unknown
+     */
+    public record Entry(String hash, @Nullable String routing, @Nullable String ftsHash) {
+        public Entry(final String hash, @Nullable final String routing) {
+            this(hash, routing, null);
+        }
+    }
+
+    public ProductManifest(final String indexName) {
+        this(indexName, new HashMap<>());
+    }
+
+    private ProductManifest(final String indexName, final Map<String, Entry> entries) {
+        this.indexName = indexName;
+        this.entries = entries;
+    }
+
+    public String getIndexName() {
+        return indexName;
+    }
+
+    @Nullable
+    public Entry get(final String id) {
+        return entries.get(id);
+    }
+
+    public void put(final String id, final String hash, @Nullable final String routing) {
+        put(id, new Entry(hash, routing));
+    }
+
+    public void put(final String id, final String hash, @Nullable final String routing, final String ftsHash) {
+        put(id, new Entry(hash, routing, ftsHash));
+    }
+
+    public void put(final String id, final Entry entry) {
+        entries.put(id, entry);
+    }
+
+    public void remove(final String id) {
+        entries.remove(id);
+    }
+
+    public Set<String> ids() {
+        return entries.keySet();
+    }
+
+    public int size() {
+        return entries.size();
+    }
+
+    /**
+     * Load a manifest written by a previous run
+     *
+     * @param path the manifest file
+     * @return the manifest or null if the file does not exist
+     */
+    @Nullable
+    public static ProductManifest read(final Path path) throws IOException {
+        if (!Files.exists(path)) {
+            return null;
+        }
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            final String header = reader.readLine();
+            if (header == null || !header.startsWith(INDEX_HEADER)) {
+                throw new IOException("Manifest " + path + " has no index header");
+            }
+            final Map<String, Entry> entries = new HashMap<>();
+            String line;
+            while ((line = reader.readLine()) != null) {
+                final String[] fields = line.split(SEPARATOR, -1);
+                if (fields.length < 2) {
+                    continue;
+                }
+                final String routing = fields.length > 2 && !fields[2].isEmpty() ? fields[2] : null;
+                // manifests written before text hashes were recorded have three columns
+                final String ftsHash = fields.length > 3 && !fields[3].isEmpty() ? fields[3] : null;
+                entries.put(fields[0], new Entry(fields[1], routing, ftsHash));
+            }
+            return new ProductManifest(header.substring(INDEX_HEADER.length()), entries);
+        }
+    }
+
+    /**
+     * Write the manifest to a temporary file and move it over the previous one, so a failed write
+     * never leaves a truncated manifest behind
+     *
+     * @param path the manifest file
+     */
+    public void write(final Path path) throws IOException {
+        final Path absolute = path.toAbsolutePath();
+        Files.createDirectories(absolute.getParent());
+        final Path temp = Files.createTempFile(absolute.getParent(), absolute.getFileName().toString(), ".tmp");
+        try (BufferedWriter writer = Files.newBufferedWriter(temp)) {
+            writer.write(INDEX_HEADER + indexName);
+            writer.newLine();
+            for (Map.Entry<String, Entry> entry : entries.entrySet()) {
+                writer.write(entry.getKey());
+                writer.write(SEPARATOR);
+                writer.write(entry.getValue().hash());
+                writer.write(SEPARATOR);
+                writer.write(entry.getValue().routing() == null ? "" : entry.getValue().routing());
+                writer.write(SEPARATOR);
+                writer.write(entry.getValue().ftsHash() == null ? "" : entry.getValue().ftsHash());
+                writer.newLine();
+            }
+        }
+        Files.move(temp, absolute, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Hash the indexed content of a product. Embeddings are derived from the content and are
+     * excluded, so the hash can be computed before embedding.
+     *
+     * @param product the product to hash
+     * @param objectMapper mapper used to serialize the product
+     * @return hex encoded content hash
+     */
+    public static String hash(final Product product, final ObjectMapper objectMapper) throws JsonProcessingException {
+        final float[] embedding = product.getFtsEmbedding();
+        product.setFtsEmbedding(null);
+        try {
+            final byte[] digest = sha256().digest(objectMapper.writeValueAsBytes(product));
+            return HexFormat.of().formatHex(digest, 0, HASH_BYTES);
+        } finally {
+            product.setFtsEmbedding(embedding);
+        }
+    }
+
+    /**
+     * Hash the text a product's embedding is generated from. Products with the same text hash share
+     * their embedding, so a change to other fields can be sent without embedding again.
+     *
+     * @param product the product to hash
+     * @return hex encoded hash of the embedding text
+     */
+    public static String ftsHash(final Product product) {
+        final byte[] digest = sha256().digest(product.generateFts().getBytes(StandardCharsets.UTF_8));
+        return HexFormat.of().formatHex(digest, 0, HASH_BYTES);
+    }
+
+    private static MessageDigest sha256() {
+        try {
+            return MessageDigest.getInstance("SHA-256");
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package org.example.indexer;
+
+import org.example.model.Product;
+
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+
+/**
+ * Orders products the same way an index sort on the same fields orders documents, so bulk requests
+ * can be submitted in near-sorted order. Keyword values are lowercased and ascii folded like the
+ * simple_normalizer, multi-valued fields sort by their minimum value and missing values sort last.
+ */
+public class ProductSortComparator implements Comparator<Product> {
+    private static final Pattern DIACRITICS = Pattern.compile("\\p{M}+");
+
+    /**
+     * A single index sort entry parsed from a "field:order" string like price:desc
+     *
+     * @param field the name of the sort field
+     * @param ascending TRUE for ascending order
+     */
+    public record SortField(String field, boolean ascending) {
+        public static SortField parse(final String spec) {
+            final int separator = spec.indexOf(':');
+            if (separator < 0) {
+                return new SortField(spec.trim(), true);
+            }
+            final String order = spec.substring(separator + 1).trim();
+            if (!order.equalsIgnoreCase("asc") && !order.equalsIgnoreCase("desc")) {
+                throw new IllegalArgumentException("Invalid sort order in " + spec);
+            }
+            return new SortField(spec.substring(0, separator).trim(), order.equalsIgnoreCase("asc"));
+        }
+    }
+
+    private record Keyed(Product product, Comparable<?>[] keys) {
+    }
+
+    private final List<Function<Product, Comparable<?>>> keyExtractors = new ArrayList<>();
+    private final List<Comparator<Comparable<?>>> keyComparators = new ArrayList<>();
+
+    public ProductSortComparator(final List<SortField> sortFields) {
+        for (SortField sortField : sortFields) {
+            keyExtractors.add(getKeyExtractor(sortField.field()));
+            keyComparators.add(nullsLast(sortField.ascending()));
+        }
+    }
+
+    /**
+     * Parse index sort entries like category.keyword:asc
+     *
+     * @param specs list of "field:order" strings, the order defaults to asc
+     * @return the parsed sort fields
+     */
+    public static List<SortField> parse(final List<String> specs) {
+        return specs == null ? List.of() : specs.stream().map(SortField::parse).toList();
+    }
+
+    @Override
+    public int compare(final Product a, final Product b) {
+        for (int i = 0; i < keyExtractors.size(); i++) {
+            final Function<Product, Comparable<?>> extractor = keyExtractors.get(i);
+            final int result = keyComparators.get(i).compare(extractor.apply(a), extractor.apply(b));
+            if (result != 0) {
+                return result;
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Sort products, computing each sort key once per product instead of once per comparison
+     *
+     * @param products the products to sort
+     * @return a new sorted list
+     */
+    public List<Product> sort(final List<Product> products) {
+        final List<Keyed> keyed = new ArrayList<>(products.size());
+        for (Product product : products) {
+            final Comparable<?>[] keys = new Comparable<?>[keyExtractors.size()];
+            for (int i = 0; i < keys.length; i++) {
+                keys[i] = keyExtractors.get(i).apply(product);
+            }
+            keyed.add(new Keyed(product, keys));
+        }
+        keyed.sort((a, b) -> {
+            for (int i = 0; i < a.keys().length; i++) {
+                final int result = keyComparators.get(i).compare(a.keys()[i], b.keys()[i]);
+                if (result != 0) {
+                    return result;
+                }
+            }
+            return 0;
+        });
+        return keyed.stream().map(Keyed::product).toList();
+    }
+
+    private static Function<Product, Comparable<?>> getKeyExtractor(final String field) {
+        return switch (field) {
+            case "id", "asin" -> Product::getId;
+            case "brand", "brand.keyword" -> product -> normalize(product.getBrand());
+            case "category", "category.keyword" -> product -> minNormalized(product.getCategory());
+            case "price" -> Product::getPriceCents;
+            default -> throw new IllegalArgumentException("Unsupported sort field " + field);
+        };
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Comparator<Comparable<?>> nullsLast(final boolean ascending) {
+        final Comparator<Comparable> natural = Comparator.naturalOrder();
+        final Comparator<Comparable> ordered = ascending ? natural : natural.reversed();
+        return (Comparator) Comparator.nullsLast(ordered);
+    }
+
+    private static String minNormalized(final List<String> values) {
+        if (values == null) {
+            return null;
+        }
+        String min = null;
+        for (String value : values) {
+            final String normalized = normalize(value);
+            if (normalized != null && (min == null || normalized.compareTo(min) < 0)) {
+                min = normalized;
+            }
+        }
+        return min;
+    }
+
+    private static String normalize(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final String folded = DIACRITICS.matcher(Normalizer.normalize(value, Normalizer.Form.NFD)).replaceAll("");
+        return folded.toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,375 @@
+package org.example.indexer;
+
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import org.apache.commons.lang3.StringUtils;
+import org.example.config.ProductIndexProperties;
+import org.example.config.RealtimeIndexProperties;
+import org.example.model.Product;
+import org.example.service.OpenSearchService;
+import org.example.util.IndexUtils;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Writes single products to the live index between full rebuilds. Calls are queued and one writer
+ * thread takes them in micro-batches, closed when a batch reaches the maximum size or its oldest write
+ * has waited the maximum delay, so concurrent calls share one embedding request and one bulk request.
+ * Every call gets the outcome of its own operation back. With wait for refresh a bulk request returns
+ * once its batch is searchable, and the time from a call to its result is tracked as the request to
+ * visible latency.
+ * <p>
+ * A batch is written to the index behind the alias when it is sent. A rebuild running at the same time
+ * does not pick the write up, so it is lost when the alias moves to the rebuilt index.
+ */
+@Component
+public class RealtimeProductIndexer {
+    private static final Logger logger = LoggerFactory.getLogger(RealtimeProductIndexer.class);
+    // writes kept in the latency window
+    private static final int LATENCY_SAMPLES = 1024;
+
+    private final FullProductIndexer fullProductIndexer;
+    private final OpenSearchService openSearchService;
+    private final ProductIndexProperties indexProperties;
+    private final RealtimeIndexProperties realtimeProperties;
+    private final BlockingQueue<PendingWrite> queue;
+    private final ExecutorService writer;
+    private final LatencyWindow latencies = new LatencyWindow(LATENCY_SAMPLES);
+    private final AtomicLong writes = new AtomicLong();
+    private final AtomicLong failures = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+
+    @Autowired
+    public RealtimeProductIndexer(
+            final FullProductIndexer fullProductIndexer,
+            final OpenSearchService openSearchService,
+            final ProductIndexProperties indexProperties,
+            final RealtimeIndexProperties realtimeProperties) {
+        this.fullProductIndexer = fullProductIndexer;
+        this.openSearchService = openSearchService;
+        this.indexProperties = indexProperties;
+        this.realtimeProperties = realtimeProperties;
+        this.queue = new LinkedBlockingQueue<>(Math.max(1, realtimeProperties.getQueueCapacity()));
+        this.writer = Executors.newSingleThreadExecutor(
+                Thread.ofPlatform().name("realtime-product-writer").daemon().factory());
+    }
+
+    /**
+     * Start the writer thread
+     */
+    @PostConstruct
+    public void start() {
+        writer.execute(this::run);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        writer.shutdownNow();
+        final List<PendingWrite> pending = new ArrayList<>();
+        queue.drainTo(pending);
+        pending.forEach(write -> write.result().completeExceptionally(
+                new CancellationException("Realtime product writer is shutting down")));
+    }
+
+    /**
+     * Queue a product to be embedded and indexed, replacing the document with the same id
+     *
+     * @param product the product in the input file format
+     * @return the outcome of the write, failed with an IllegalStateException if the cluster rejected it
+     * @throws IllegalArgumentException if the product has no id
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<Result> upsert(final Product product) {
+        return upsert(product, null);
+    }
+
+    /**
+     * Queue a product to be embedded and indexed, replacing the document with the same id. When
+     * documents are routed by category and the top level category changed, the copy on the shard of the
+     * previous category is deleted in the same batch.
+     *
+     * @param product the product in the input file format
+     * @param previousCategory the top level category the product was indexed under or null if unchanged
+     * @return the outcome of the write, failed with an IllegalStateException if the cluster rejected it
+     * @throws IllegalArgumentException if the product has no id
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<Result> upsert(final Product product, @Nullable final String previousCategory) {
+        if (product == null || StringUtils.isBlank(product.getId())) {
+            throw new IllegalArgumentException("product id cannot be blank");
+        }
+        String routing = null;
+        String previousRouting = null;
+        if (indexProperties.isRouteByCategory()) {
+            routing = IndexUtils.getCategoryRouting(product.getTopLevelCategory());
+            final String oldRouting = IndexUtils.getCategoryRouting(previousCategory);
+            if (oldRouting != null && !oldRouting.equals(routing)) {
+                previousRouting = oldRouting;
+            }
+        }
+        return enqueue(product, product.getId(), routing, previousRouting);
+    }
+
+    /**
+     * Queue the delete of a product
+     *
+     * @param id the product id
+     * @param category the top level category of the product, needed when documents are routed by category
+     * @return the outcome of the delete, with result not_found if there was no such document
+     * @throws IllegalArgumentException if the id is blank or the category is missing but needed
+     * @throws RejectedExecutionException if the queue is full
+     */
+    public CompletableFuture<Result> delete(final String id, @Nullable final String category) {
+        if (StringUtils.isBlank(id)) {
+            throw new IllegalArgumentException("product id cannot be blank");
+        }
+        String routing = null;
+        if (indexProperties.isRouteByCategory()) {
+            routing = IndexUtils.getCategoryRouting(category);
+            if (routing == null) {
+                throw new IllegalArgumentException("category is required to delete from an index routed by category");
+            }
+        }
+        return enqueue(null, id, routing, null);
+    }
+
+    /**
+     * @return counters of the writes so far and latency percentiles of the most recent ones
+     */
+    public Stats getStats() {
+        final long batchCount = batches.get();
+        final long total = writes.get() + failures.get();
+        final long[] sorted = latencies.sorted();
+        return new Stats(
+                writes.get(),
+                failures.get(),
+                batchCount,
+                batchCount == 0 ? 0 : Math.round((double) total / batchCount * 10) / 10.0,
+                queue.size(),
+                realtimeProperties.isWaitForRefresh(),
+                LatencyWindow.percentileMillis(sorted, 0.5),
+                LatencyWindow.percentileMillis(sorted, 0.99));
+    }
+
+    private CompletableFuture<Result> enqueue(
+            @Nullable final Product product,
+            final String id,
+            @Nullable final String routing,
+            @Nullable final String previousRouting) {
+        final PendingWrite write = new PendingWrite(
+                product, id, routing, previousRouting, System.nanoTime(), new CompletableFuture<>());
+        if (!queue.offer(write)) {
+            throw new RejectedExecutionException(String.format(
+                    "%d product writes are already waiting, try again later", queue.size()));
+        }
+        return write.result();
+    }
+
+    private void run() {
+        final List<PendingWrite> batch = new ArrayList<>();
+        while (!Thread.currentThread().isInterrupted()) {
+            try {
+                collect(batch);
+                write(batch);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                batch.forEach(write -> fail(write, new CancellationException(
+                        "Realtime product writer is shutting down")));
+            } catch (RuntimeException e) {
+                logger.error("Realtime product batch failed: {}", e.getMessage(), e);
+                batch.forEach(write -> fail(write, e));
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * Wait for a write, then add more until the batch is full or the first write has waited the
+     * maximum delay. Writes that queued up while the previous batch was sent are taken right away.
+     */
+    private void collect(final List<PendingWrite> batch) throws InterruptedException {
+        final PendingWrite first = queue.take();
+        batch.add(first);
+        final int maxBatchSize = Math.max(1, realtimeProperties.getMaxBatchSize());
+        final long deadline = first.enqueuedNanos()
+                + TimeUnit.MILLISECONDS.toNanos(realtimeProperties.getMaxDelayMillis());
+        while (batch.size() < maxBatchSize) {
+            final long wait = deadline - System.nanoTime();
+            final PendingWrite next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+            if (next == null) {
+                return;
+            }
+            batch.add(next);
+        }
+    }
+
+    /**
+     * Embed the products of a batch in one request and send all of its operations in one bulk request,
+     * in the order they were queued so a later write of an id wins
+     */
+    private void write(final List<PendingWrite> batch) {
+        batches.incrementAndGet();
+        final String indexName = getLiveIndexName();
+        List<PendingWrite> sendable = batch;
+        final List<Product> products = batch.stream()
+                .map(PendingWrite::product)
+                .filter(Objects::nonNull)
+                .toList();
+        if (!products.isEmpty()) {
+            try {
+                fullProductIndexer.embedProducts(products, indexName);
+            } catch (RuntimeException e) {
+                // the deletes of the batch do not need embeddings
+                logger.error("Embedding of {} realtime products failed: {}", products.size(), e.getMessage());
+                sendable = new ArrayList<>();
+                for (PendingWrite write : batch) {
+                    if (write.product() == null) {
+                        sendable.add(write);
+                    } else {
+                        fail(write, e);
+                    }
+                }
+            }
+        }
+        if (sendable.isEmpty()) {
+            return;
+        }
+
+        // a product that moved to another category shard drops its old copy ahead of its new one
+        final List<BulkOperation> operations = new ArrayList<>();
+        final int[] positions = new int[sendable.size()];
+        for (int i = 0; i < sendable.size(); i++) {
+            final PendingWrite write = sendable.get(i);
+            if (write.previousRouting() != null) {
+                operations.add(toDelete(write.id(), write.previousRouting(), indexName));
+            }
+            positions[i] = operations.size();
+            operations.add(toOperation(write, indexName));
+        }
+        final List<BulkResponseItem> items = openSearchService.bulk(operations, realtimeProperties.isWaitForRefresh());
+        for (int i = 0; i < sendable.size(); i++) {
+            final PendingWrite write = sendable.get(i);
+            final BulkResponseItem item = positions[i] < items.size() ? items.get(positions[i]) : null;
+            final BulkResponseItem moved = write.previousRouting() != null && positions[i] - 1 < items.size()
+                    ? items.get(positions[i] - 1)
+                    : null;
+            if (item == null) {
+                fail(write, new IllegalStateException("Bulk response has no item for product " + write.id()));
+            } else if (item.error() != null) {
+                fail(write, new IllegalStateException(String.format(
+                        "Product %s was rejected: %s", write.id(), item.error().reason())));
+            } else if (moved != null && moved.error() != null) {
+                // the new copy is written, a retry deletes the old one again
+                fail(write, new IllegalStateException(String.format(
+                        "Old copy of product %s on routing %s was not deleted: %s",
+                        write.id(), write.previousRouting(), moved.error().reason())));
+            } else {
+                final long nanos = System.nanoTime() - write.enqueuedNanos();
+                latencies.add(nanos);
+                writes.incrementAndGet();
+                write.result().complete(new Result(
+                        write.id(),
+                        write.product() == null ? "delete" : "index",
+                        item.result(),
+                        indexName,
+                        Math.round(nanos / 100_000.0) / 10.0));
+            }
+        }
+        logger.debug("Wrote realtime batch of {} operations to {}", sendable.size(), indexName);
+    }
+
+    private static BulkOperation toOperation(final PendingWrite write, final String indexName) {
+        if (write.product() == null) {
+            return toDelete(write.id(), write.routing(), indexName);
+        }
+        return BulkOperation.of(op -> op.index(i -> i
+                .index(indexName)
+                .id(write.id())
+                .routing(write.routing())
+                .document(write.product())));
+    }
+
+    private static BulkOperation toDelete(final String id, @Nullable final String routing, final String indexName) {
+        return BulkOperation.of(op -> op.delete(d -> d
+                .index(indexName)
+                .id(id)
+                .routing(routing)));
+    }
+
+    private void fail(final PendingWrite write, final Throwable error) {
+        if (write.result().completeExceptionally(error)) {
+            failures.incrementAndGet();
+        }
+    }
+
+    /**
+     * @return the single index behind the product alias, which the batch is written to and quantized for
+     */
+    private String getLiveIndexName() {
+        return IndexUtils.requireSingleIndex(
+                openSearchService.getIndexesByAlias(indexProperties.getAlias()), indexProperties.getAlias(),
+                "realtime writing");
+    }
+
+    /**
+     * @param previousRouting routing of a copy of an upserted product to delete or null if it did not move
+     */
+    private record PendingWrite(
+            @Nullable Product product,
+            String id,
+            @Nullable String routing,
+            @Nullable String previousRouting,
+            long enqueuedNanos,
+            CompletableFuture<Result> result) {
+    }
+
+    /**
+     * @param id the product id
+     * @param operation index or delete
+     * @param result what the cluster did, like created, updated, deleted or not_found
+     * @param indexName the index the write went to
+     * @param latencyMillis time from the call to its result
+     */
+    public record Result(String id, String operation, String result, String indexName, double latencyMillis) {
+    }
+
+    /**
+     * @param writes writes that succeeded
+     * @param failures writes that failed
+     * @param batches micro-batches sent
+     * @param averageBatchSize writes per batch
+     * @param queued writes waiting for a batch
+     * @param waitForRefresh true if the latencies run until the writes were visible to search
+     * @param latencyP50Millis median time from a call to its result over recent writes
+     * @param latencyP99Millis 99th percentile time from a call to its result over recent writes
+     */
+    public record Stats(
+            long writes,
+            long failures,
+            long batches,
+            double averageBatchSize,
+            int queued,
+            boolean waitForRefresh,
+            double latencyP50Millis,
+            double latencyP99Millis) {
+    }
+}
@@ -0,0 +1,27 @@
+package org.example.indexer;
+
+import javax.annotation.Nullable;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Float embeddings of the quantization sample of one run by embedding text. Calibration embeds the
+ * first records of the input, and indexing them takes their embedding from here instead of asking the
+ * embedding service again. Each embedding is taken once, partition writers may take them concurrently.
+ */
+final class SampleEmbeddings {
+    private final Map<String, float[]> embeddings = new ConcurrentHashMap<>();
+
+    void put(final String text, final float[] embedding) {
+        embeddings.put(text, embedding);
+    }
+
+    /**
+     * @param text the embedding text of a record
+     * @return the sampled embedding of the text or null if it was not sampled or was already taken
+     */
+    @Nullable
+    float[] take(final String text) {
+        return embeddings.isEmpty() ? null : embeddings.remove(text);
+    }
+}
@@ -0,0 +1,35 @@
+package org.example.indexer;
+
+/**
+ * Recall and latency of k-NN search on one index, measured with a fixed query set, so engine and
+ * compression profiles can be compared across builds.
+ *
+ * @param timestamp when the report was taken
+ * @param indexName the index that was measured
+ * @param profile the vector profile the index was built with or null for the mapping file as is
+ * @param engine the k-NN engine of the profile or null
+ * @param mode the vector mode of the profile or null
+ * @param compressionLevel the compression level of the profile or null
+ * @param quantized true if the index stores int8 quantized vectors
+ * @param queries the number of queries run
+ * @param k the number of neighbours asked for per query
+ * @param recall mean recall@k of k-NN search against exact scoring of every document
+ * @param p50Millis median k-NN search latency in milliseconds
+ * @param p99Millis 99th percentile k-NN search latency in milliseconds
+ * @param storeBytes size on disk of the primary shards
+ */
+public record VectorIndexReport(
+        String timestamp,
+        String indexName,
+        String profile,
+        String engine,
+        String mode,
+        String compressionLevel,
+        boolean quantized,
+        int queries,
+        int k,
+        double recall,
+        double p50Millis,
+        double p99Millis,
+        long storeBytes) {
+}
@@ -0,0 +1,234 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.lang3.StringUtils;
+import org.example.config.ProductIndexProperties;
+import org.example.config.VectorIndexProperties;
+import org.example.model.Product;
+import org.example.service.EmbeddingService;
+import org.example.service.OpenSearchService;
+import org.example.util.ScalarQuantizer;
+import org.example.util.VectorUtils;
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.Nullable;
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * Measures k-NN search on a built index with a fixed query set. Every query is run once as an exact
+ * script_score over all documents and once as an approximate k-NN search for recall@k, then the
+ * k-NN search is repeated for latency percentiles. Reports are logged and appended to a JSON lines
+ * file so memory and latency trade-offs of different vector profiles can be compared.
+ */
+@Component
+public class VectorIndexReporter {
+    private static final Logger logger = LoggerFactory.getLogger(VectorIndexReporter.class);
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final String VECTOR_FIELD = "fts_embedding";
+    // exact scoring script of the k-NN plugin
+    private static final String KNN_SCRIPT_LANG = "knn";
+    private static final String KNN_SCRIPT = "knn_score";
+
+    private final EmbeddingService embeddingService;
+    private final OpenSearchService openSearchService;
+    private final ProductIndexProperties indexProperties;
+    private final VectorIndexProperties vectorProperties;
+
+    @Autowired
+    public VectorIndexReporter(
+            final EmbeddingService embeddingService,
+            final OpenSearchService openSearchService,
+            final ProductIndexProperties indexProperties,
+            final VectorIndexProperties vectorProperties) {
+        this.embeddingService = embeddingService;
+        this.openSearchService = openSearchService;
+        this.indexProperties = indexProperties;
+        this.vectorProperties = vectorProperties;
+    }
+
+    /**
+     * Run the query set against an index and record recall, latency and size
+     *
+     * @param indexName the index to measure
+     * @param profileName the vector profile the index was built with or null
+     * @param spaceType the space type of the embedding field, used for exact scoring
+     * @param quantizer the int8 quantizer of the index or null if it stores float vectors
+     * @return the report or null if there are no queries to run
+     */
+    @Nullable
+    public VectorIndexReport report(
+            final String indexName,
+            @Nullable final String profileName,
+            final String spaceType,
+            @Nullable final ScalarQuantizer quantizer) {
+        final VectorIndexProperties.Report settings = vectorProperties.getReport();
+        final List<String> queries = readQueries(settings.getQueryFile());
+        if (queries.isEmpty()) {
+            logger.warn("No queries in {}, vector report skipped", settings.getQueryFile());
+            return null;
+        }
+        final List<List<Float>> vectors = embeddingService.getEmbeddings(queries).stream()
+                .map(embedding -> toQueryVector(embedding, quantizer))
+                .toList();
+
+        openSearchService.refreshIndex(indexName);
+        final int k = settings.getK();
+        final int repetitions = Math.max(1, settings.getRepetitions());
+        final long[] latencies = new long[vectors.size() * repetitions];
+        int timed = 0;
+        double recall = 0;
+        for (List<Float> vector : vectors) {
+            final Set<String> exact = getHitIds(openSearchService.search(
+                    getExactRequest(indexName, vector, k, spaceType), Product.class));
+            // the first k-NN search loads the graphs, it counts for recall but not for latency
+            final SearchRequest knnRequest = getKnnRequest(indexName, vector, k);
+            final Set<String> approximate = getHitIds(openSearchService.search(knnRequest, Product.class));
+            recall += exact.isEmpty()
+                    ? 1
+                    : (double) approximate.stream().filter(exact::contains).count() / exact.size();
+            for (int i = 0; i < repetitions; i++) {
+                final long start = System.nanoTime();
+                openSearchService.search(knnRequest, Product.class);
+                latencies[timed++] = System.nanoTime() - start;
+            }
+        }
+        Arrays.sort(latencies);
+
+        final VectorIndexProperties.Profile profile = profileName == null
+                ? null
+                : vectorProperties.getProfiles().get(profileName);
+        final VectorIndexReport report = new VectorIndexReport(
+                Instant.now().toString(),
+                indexName,
+                profileName,
+                profile == null ? null : profile.getEngine(),
+                profile == null ? null : profile.getMode(),
+                profile == null ? null : profile.getCompressionLevel(),
+                quantizer != null,
+                vectors.size(),
+                k,
+                recall / vectors.size(),
+                latencies[latencies.length / 2] / 1_000_000.0,
+                latencies[(int) (latencies.length * 0.99)] / 1_000_000.0,
+                openSearchService.getStoreSizeBytes(indexName));
+        logger.info("Vector report for {} ({}): recall@{} {}, p50 {}ms, p99 {}ms, {} store bytes over {} queries",
+                indexName, profileName, k, String.format("%.4f", report.recall()),
+                String.format("%.2f", report.p50Millis()), String.format("%.2f", report.p99Millis()),
+                report.storeBytes(), report.queries());
+        write(report, settings.getPath());
+        return report;
+    }
+
+    /**
+     * Prepare a query embedding the way the indexer prepared the document embeddings
+     */
+    private List<Float> toQueryVector(final List<Float> embedding, @Nullable final ScalarQuantizer quantizer) {
+        final float[] vector = new float[embedding.size()];
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] = embedding.get(i);
+        }
+        if (indexProperties.isNormalizeVectors()) {
+            VectorUtils.normalize(vector);
+        }
+        final List<Float> result = new ArrayList<>(vector.length);
+        if (quantizer != null) {
+            for (byte value : quantizer.quantize(vector)) {
+                result.add((float) value);
+            }
+        } else {
+            for (float value : vector) {
+                result.add(value);
+            }
+        }
+        return result;
+    }
+
+    private static SearchRequest getExactRequest(
+            final String indexName,
+            final List<Float> vector,
+            final int k,
+            final String spaceType) {
+        return new SearchRequest.Builder()
+                .index(indexName)
+                .size(k)
+                .source(s -> s.fetch(false))
+                .query(q -> q.scriptScore(s -> s
+                        .query(m -> m.matchAll(a -> a))
+                        .script(script -> script.inline(i -> i
+                                .lang(l -> l.custom(KNN_SCRIPT_LANG))
+                                .source(KNN_SCRIPT)
+                                .params("field", JsonData.of(VECTOR_FIELD))
+                                .params("query_value", JsonData.of(vector))
+                                .params("space_type", JsonData.of(spaceType))))))
+                .build();
+    }
+
+    private static SearchRequest getKnnRequest(final String indexName, final List<Float> vector, final int k) {
+        return new SearchRequest.Builder()
+                .index(indexName)
+                .size(k)
+                .source(s -> s.fetch(false))
+                .query(q -> q.knn(n -> n.field(VECTOR_FIELD).vector(vector).k(k)))
+                .build();
+    }
+
+    private static Set<String> getHitIds(@Nullable final SearchResponse<Product> response) {
+        if (response == null || response.hits() == null) {
+            return Set.of();
+        }
+        return response.hits().hits().stream()
+                .map(Hit::id)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toSet());
+    }
+
+    private List<String> readQueries(final String queryFile) {
+        final InputStream stream = this.getClass().getResourceAsStream(queryFile);
+        if (stream == null) {
+            logger.error("Vector report query file {} not found", queryFile);
+            return List.of();
+        }
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(stream, StandardCharsets.UTF_8))) {
+            return reader.lines()
+                    .map(String::trim)
+                    .filter(line -> !line.isEmpty())
+                    .toList();
+        } catch (IOException e) {
+            logger.error("Vector report query file {} could not be read: {}", queryFile, e.getMessage());
+            return List.of();
+        }
+    }
+
+    private void write(final VectorIndexReport report, final String path) {
+        if (StringUtils.isBlank(path)) {
+            return;
+        }
+        try {
+            Files.writeString(Paths.get(path), objectMapper.writeValueAsString(report) + System.lineSeparator(),
+                    StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+        } catch (IOException e) {
+            logger.error("Vector report could not be written to {}: {}", path, e.getMessage());
+        }
+    }
+}
@@ -1,18 +1,33 @@
 package org.example.model;
 
 import com.fasterxml.jackson.annotation.JsonAlias;
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
 import com.fasterxml.jackson.annotation.JsonProperty;
 import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import jakarta.json.stream.JsonGenerationException;
+import jakarta.json.stream.JsonGenerator;
 import lombok.Data;
-import org.example.deserializer.PriceDeserializer;
+import org.example.deserializer.CentsPriceDeserializer;
+import org.example.serializer.CentsPriceSerializer;
+import org.example.serializer.ProductJsonWriter;
+import org.example.util.StringInterner;
+import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.json.JsonpSerializable;
+import org.opensearch.client.json.jackson.JacksonJsonpGenerator;
 
-import java.math.BigDecimal;
+import java.io.IOException;
 import java.util.List;
+import java.util.Objects;
 
 @Data
 @JsonIgnoreProperties(ignoreUnknown = true)
-public class Product implements IndexableDocument {
+public class Product implements IndexableDocument, JsonpSerializable {
+    // brands and categories repeat across the catalog, share their instances between products
+    private static final StringInterner BRANDS = new StringInterner(1 << 14);
+    private static final StringInterner CATEGORIES = new StringInterner(1 << 12);
+
     @JsonProperty("id")
     @JsonAlias("asin")
     private String id;
@@ -23,10 +38,17 @@ public class Product implements IndexableDocument {
     private List<String> category;
 
     @JsonProperty("fts_embedding")
-    private List<Float> ftsEmbedding;
+    private float[] ftsEmbedding;
+
+    // int8 quantized embedding written as fts_embedding in place of the floats when the index maps byte vectors
+    @JsonIgnore
+    private byte[] quantizedEmbedding;
     
-    @JsonDeserialize(using = PriceDeserializer.class)
-    private BigDecimal price;
+    // whole cents, the mapping stores price as a scaled_float with a scaling factor of 100
+    @JsonProperty("price")
+    @JsonDeserialize(using = CentsPriceDeserializer.class)
+    @JsonSerialize(using = CentsPriceSerializer.class)
+    private Long priceCents;
 
     @JsonProperty("image")
     @JsonAlias("imageURLHighRes")
@@ -39,16 +61,69 @@ public class Product implements IndexableDocument {
         }
     }
 
+    public void setBrand(String brand) {
+        this.brand = BRANDS.intern(brand);
+    }
+
     @JsonProperty("category")
     public void setCategory(List<String> category) {
         if (category == null || category.isEmpty()) {
             this.category = null;
         } else {
+            // copy rather than keep a subList view, which would pin the whole source list
             final int catSize = Math.min(5, category.size());
-            this.category = category.subList(1, catSize);
+            this.category = category.subList(1, catSize).stream()
+                    .map(CATEGORIES::intern)
+                    .toList();
         }
     }
 
+    @JsonProperty("image")
+    public void setImage(List<String> image) {
+        this.image = image == null ? null : image.stream().filter(Objects::nonNull).toList();
+    }
+
+    /**
+     * @return the first category after the root category or null
+     */
+    @JsonIgnore
+    public String getTopLevelCategory() {
+        return getCategory() == null || getCategory().isEmpty() ? null : getCategory().getFirst();
+    }
+
+    /**
+     * Bulk requests write products through {@link ProductJsonWriter} instead of the mapper's bean
+     * serializer
+     */
+    @Override
+    public void serialize(final JsonGenerator generator, final JsonpMapper mapper) {
+        write(generator, ProductJsonWriter::write);
+    }
+
+    /**
+     * @return the partial update document of this product, every field but the embedding, for updates
+     *         that keep the embedding already in the index
+     */
+    public JsonpSerializable toPartialUpdate() {
+        return (generator, mapper) -> write(generator, ProductJsonWriter::writeWithoutEmbedding);
+    }
+
+    private void write(final JsonGenerator generator, final Writer writer) {
+        if (!(generator instanceof JacksonJsonpGenerator jacksonGenerator)) {
+            throw new IllegalArgumentException("Products can only be written with the JacksonJsonpProvider");
+        }
+        try {
+            writer.write(this, jacksonGenerator.jacksonGenerator());
+        } catch (IOException e) {
+            throw new JsonGenerationException(e.getMessage(), e);
+        }
+    }
+
+    @FunctionalInterface
+    private interface Writer {
+        void write(Product product, com.fasterxml.jackson.core.JsonGenerator gen) throws IOException;
+    }
+
     public String generateFts() {
         final StringBuilder builder = new StringBuilder();
 
@@ -0,0 +1,51 @@
+package org.example.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonSerializer;
+import com.fasterxml.jackson.databind.SerializerProvider;
+
+import java.io.IOException;
+
+/**
+ * Writes a price held as whole cents as a decimal number of dollars, formatting the digits into a
+ * reused buffer instead of going through a string or BigDecimal
+ */
+public class CentsPriceSerializer extends JsonSerializer<Long> {
+    // sign, 17 dollar digits, point and 2 cent digits
+    private static final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[21]);
+
+    @Override
+    public void serialize(final Long value, final JsonGenerator gen, final SerializerProvider serializers)
+            throws IOException {
+        writeCents(value, gen);
+    }
+
+    /**
+     * Write whole cents as a decimal number of dollars
+     *
+     * @param cents the price in cents
+     * @param gen the generator to write to
+     */
+    public static void writeCents(final long cents, final JsonGenerator gen) throws IOException {
+        if (cents % 100 == 0) {
+            gen.writeNumber(cents / 100);
+            return;
+        }
+        final char[] buffer = buffers.get();
+        long remaining = Math.abs(cents);
+        int position = buffer.length;
+        buffer[--position] = (char) ('0' + remaining % 10);
+        remaining /= 10;
+        buffer[--position] = (char) ('0' + remaining % 10);
+        remaining /= 10;
+        buffer[--position] = '.';
+        do {
+            buffer[--position] = (char) ('0' + remaining % 10);
+            remaining /= 10;
+        } while (remaining > 0);
+        if (cents < 0) {
+            buffer[--position] = '-';
+        }
+        gen.writeNumber(buffer, position, buffer.length - position);
+    }
+}
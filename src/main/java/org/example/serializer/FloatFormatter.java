@@ -0,0 +1,283 @@
+package org.example.serializer;
+
+import java.math.BigInteger;
+
+/**
+ * Formats a float as the shortest decimal that parses back to the same float, using the Ryu
+ * algorithm, straight into a char buffer without creating a String. The layout follows
+ * Float.toString: plain notation from 10^-3 up to 10^7 and computerized scientific notation
+ * outside of it, both valid JSON numbers.
+ */
+public final class FloatFormatter {
+    /**
+     * The most characters written for one float, like -1.2345678E-38
+     */
+    public static final int MAX_LENGTH = 16;
+
+    private static final int MANTISSA_BITS = 23;
+    private static final int EXPONENT_BITS = 8;
+    private static final int EXPONENT_BIAS = 127;
+    private static final int POW5_INV_BITCOUNT = 59;
+    private static final int POW5_BITCOUNT = 61;
+    private static final long[] POW5_INV_SPLIT = new long[32];
+    private static final long[] POW5_SPLIT = new long[48];
+
+    static {
+        for (int i = 0; i < POW5_SPLIT.length; i++) {
+            final BigInteger pow = BigInteger.valueOf(5).pow(i);
+            final int pow5Length = pow.bitLength();
+            POW5_SPLIT[i] = pow.shiftRight(pow5Length - POW5_BITCOUNT).longValueExact();
+            if (i < POW5_INV_SPLIT.length) {
+                POW5_INV_SPLIT[i] = BigInteger.ONE.shiftLeft(pow5Length - 1 + POW5_INV_BITCOUNT)
+                        .divide(pow)
+                        .add(BigInteger.ONE)
+                        .longValueExact();
+            }
+        }
+    }
+
+    private FloatFormatter() {
+    }
+
+    /**
+     * Write the shortest round trip representation of a finite float
+     *
+     * @param value the value to format
+     * @param buffer the buffer to write to, with at least MAX_LENGTH chars from offset
+     * @param offset the position of the first char
+     * @return the position after the last char written
+     * @throws IllegalArgumentException if the value is NaN or infinite
+     */
+    public static int format(final float value, final char[] buffer, final int offset) {
+        final int bits = Float.floatToRawIntBits(value);
+        final int ieeeMantissa = bits & ((1 << MANTISSA_BITS) - 1);
+        final int ieeeExponent = (bits >>> MANTISSA_BITS) & ((1 << EXPONENT_BITS) - 1);
+        if (ieeeExponent == (1 << EXPONENT_BITS) - 1) {
+            throw new IllegalArgumentException("Cannot format non-finite float " + value);
+        }
+        int position = offset;
+        if (bits < 0) {
+            buffer[position++] = '-';
+        }
+        if (ieeeExponent == 0 && ieeeMantissa == 0) {
+            buffer[position++] = '0';
+            buffer[position++] = '.';
+            buffer[position++] = '0';
+            return position;
+        }
+
+        final int e2;
+        final int m2;
+        if (ieeeExponent == 0) {
+            e2 = 1 - EXPONENT_BIAS - MANTISSA_BITS - 2;
+            m2 = ieeeMantissa;
+        } else {
+            e2 = ieeeExponent - EXPONENT_BIAS - MANTISSA_BITS - 2;
+            m2 = (1 << MANTISSA_BITS) | ieeeMantissa;
+        }
+        final boolean acceptBounds = (m2 & 1) == 0;
+
+        // the value and the halfway points to its neighbours, scaled by 4
+        final int mv = 4 * m2;
+        final int mp = 4 * m2 + 2;
+        final int mmShift = ieeeMantissa != 0 || ieeeExponent <= 1 ? 1 : 0;
+        final int mm = 4 * m2 - 1 - mmShift;
+
+        // convert to a decimal power base
+        long vr;
+        long vp;
+        long vm;
+        final int e10;
+        boolean vmIsTrailingZeros = false;
+        boolean vrIsTrailingZeros = false;
+        int lastRemovedDigit = 0;
+        if (e2 >= 0) {
+            final int q = log10Pow2(e2);
+            e10 = q;
+            final int k = POW5_INV_BITCOUNT + pow5Bits(q) - 1;
+            final int i = -e2 + q + k;
+            vr = mulShift32(mv, POW5_INV_SPLIT[q], i);
+            vp = mulShift32(mp, POW5_INV_SPLIT[q], i);
+            vm = mulShift32(mm, POW5_INV_SPLIT[q], i);
+            if (q != 0 && (vp - 1) / 10 <= vm / 10) {
+                final int l = POW5_INV_BITCOUNT + pow5Bits(q - 1) - 1;
+                lastRemovedDigit = (int) (mulShift32(mv, POW5_INV_SPLIT[q - 1], -e2 + q - 1 + l) % 10);
+            }
+            if (q <= 9) {
+                if (mv % 5 == 0) {
+                    vrIsTrailingZeros = multipleOfPowerOf5(mv, q);
+                } else if (acceptBounds) {
+                    vmIsTrailingZeros = multipleOfPowerOf5(mm, q);
+                } else if (multipleOfPowerOf5(mp, q)) {
+                    vp--;
+                }
+            }
+        } else {
+            final int q = log10Pow5(-e2);
+            e10 = q + e2;
+            final int i = -e2 - q;
+            final int k = pow5Bits(i) - POW5_BITCOUNT;
+            final int j = q - k;
+            vr = mulShift32(mv, POW5_SPLIT[i], j);
+            vp = mulShift32(mp, POW5_SPLIT[i], j);
+            vm = mulShift32(mm, POW5_SPLIT[i], j);
+            if (q != 0 && (vp - 1) / 10 <= vm / 10) {
+                final int shift = q - 1 - (pow5Bits(i + 1) - POW5_BITCOUNT);
+                lastRemovedDigit = (int) (mulShift32(mv, POW5_SPLIT[i + 1], shift) % 10);
+            }
+            if (q <= 1) {
+                vrIsTrailingZeros = true;
+                if (acceptBounds) {
+                    vmIsTrailingZeros = mmShift == 1;
+                } else {
+                    vp--;
+                }
+            } else if (q < 31) {
+                vrIsTrailingZeros = (mv & ((1 << (q - 1)) - 1)) == 0;
+            }
+        }
+
+        // drop digits while the interval still holds a shorter decimal
+        int removed = 0;
+        final long output;
+        if (vmIsTrailingZeros || vrIsTrailingZeros) {
+            while (vp / 10 > vm / 10) {
+                vmIsTrailingZeros &= vm % 10 == 0;
+                vrIsTrailingZeros &= lastRemovedDigit == 0;
+                lastRemovedDigit = (int) (vr % 10);
+                vr /= 10;
+                vp /= 10;
+                vm /= 10;
+                removed++;
+            }
+            if (vmIsTrailingZeros) {
+                while (vm % 10 == 0) {
+                    vrIsTrailingZeros &= lastRemovedDigit == 0;
+                    lastRemovedDigit = (int) (vr % 10);
+                    vr /= 10;
+                    vp /= 10;
+                    vm /= 10;
+                    removed++;
+                }
+            }
+            if (vrIsTrailingZeros && lastRemovedDigit == 5 && vr % 2 == 0) {
+                // round half to even
+                lastRemovedDigit = 4;
+            }
+            output = vr + ((vr == vm && (!acceptBounds || !vmIsTrailingZeros)) || lastRemovedDigit >= 5 ? 1 : 0);
+        } else {
+            while (vp / 10 > vm / 10) {
+                lastRemovedDigit = (int) (vr % 10);
+                vr /= 10;
+                vp /= 10;
+                vm /= 10;
+                removed++;
+            }
+            output = vr + (vr == vm || lastRemovedDigit >= 5 ? 1 : 0);
+        }
+        return write(output, e10 + removed, buffer, position);
+    }
+
+    /**
+     * Lay out the digits of output * 10^exponent
+     */
+    private static int write(final long output, final int exponent, final char[] buffer, int position) {
+        final int length = decimalLength(output);
+        final int scientificExponent = exponent + length - 1;
+        if (scientificExponent >= -3 && scientificExponent < 7) {
+            if (scientificExponent < 0) {
+                buffer[position++] = '0';
+                buffer[position++] = '.';
+                for (int i = -1; i > scientificExponent; i--) {
+                    buffer[position++] = '0';
+                }
+                writeDigits(output, buffer, position, length);
+                return position + length;
+            }
+            final int integerDigits = scientificExponent + 1;
+            writeDigits(output, buffer, position, length);
+            if (length <= integerDigits) {
+                position += length;
+                for (int i = length; i < integerDigits; i++) {
+                    buffer[position++] = '0';
+                }
+                buffer[position++] = '.';
+                buffer[position++] = '0';
+                return position;
+            }
+            return insertPoint(buffer, position, length, integerDigits);
+        }
+
+        writeDigits(output, buffer, position, length);
+        if (length == 1) {
+            position++;
+            buffer[position++] = '.';
+            buffer[position++] = '0';
+        } else {
+            position = insertPoint(buffer, position, length, 1);
+        }
+        buffer[position++] = 'E';
+        int remaining = scientificExponent;
+        if (remaining < 0) {
+            buffer[position++] = '-';
+            remaining = -remaining;
+        }
+        if (remaining >= 10) {
+            buffer[position++] = (char) ('0' + remaining / 10);
+        }
+        buffer[position++] = (char) ('0' + remaining % 10);
+        return position;
+    }
+
+    private static int insertPoint(final char[] buffer, final int position, final int length, final int before) {
+        System.arraycopy(buffer, position + before, buffer, position + before + 1, length - before);
+        buffer[position + before] = '.';
+        return position + length + 1;
+    }
+
+    private static void writeDigits(long value, final char[] buffer, final int position, final int length) {
+        for (int i = position + length - 1; i >= position; i--) {
+            buffer[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static int decimalLength(final long value) {
+        int length = 1;
+        for (long bound = 10; value >= bound && length < 10; bound *= 10) {
+            length++;
+        }
+        return length;
+    }
+
+    private static long mulShift32(final int m, final long factor, final int shift) {
+        final long factorLow = factor & 0xffffffffL;
+        final long factorHigh = factor >>> 32;
+        final long sum = ((m * factorLow) >>> 32) + m * factorHigh;
+        return (sum >>> (shift - 32)) & 0xffffffffL;
+    }
+
+    private static boolean multipleOfPowerOf5(int value, final int power) {
+        int count = 0;
+        while (value % 5 == 0) {
+            value /= 5;
+            count++;
+        }
+        return count >= power;
+    }
+
+    // ceil(log2(5^e)) for e > 0, 1 for e = 0
+    private static int pow5Bits(final int e) {
+        return ((e * 1217359) >>> 19) + 1;
+    }
+
+    // floor(log10(2^e))
+    private static int log10Pow2(final int e) {
+        return (e * 78913) >>> 18;
+    }
+
+    // floor(log10(5^e))
+    private static int log10Pow5(final int e) {
+        return (e * 732923) >>> 20;
+    }
+}
@@ -0,0 +1,192 @@
+package org.example.serializer;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.SerializableString;
+import com.fasterxml.jackson.core.io.SerializedString;
+import org.example.model.Product;
+
+import java.io.IOException;
+import java.util.List;
+
+/**
+ * Writes a product bulk document straight to a Jackson generator in a fixed field order, without
+ * bean introspection. Field names are pre-encoded once, null fields are left out like the client's
+ * mapper does, and embeddings are formatted with {@link FloatFormatter}, or as integers when the
+ * product carries a quantized embedding.
+ */
+public final class ProductJsonWriter {
+    private static final SerializableString ID = new SerializedString("id");
+    private static final SerializableString TITLE = new SerializedString("title");
+    private static final SerializableString DESCRIPTION = new SerializedString("description");
+    private static final SerializableString BRAND = new SerializedString("brand");
+    private static final SerializableString CATEGORY = new SerializedString("category");
+    private static final SerializableString FTS_EMBEDDING = new SerializedString("fts_embedding");
+    private static final SerializableString PRICE = new SerializedString("price");
+    private static final SerializableString IMAGE = new SerializedString("image");
+
+    private static final ThreadLocal<char[]> buffers = ThreadLocal.withInitial(() -> new char[8192]);
+
+    private ProductJsonWriter() {
+    }
+
+    /**
+     * Write a product as a JSON object
+     *
+     * @param product the product to write
+     * @param gen the generator to write to
+     */
+    public static void write(final Product product, final JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        writeString(gen, ID, product.getId());
+        writeString(gen, TITLE, product.getTitle());
+        writeString(gen, DESCRIPTION, product.getDescription());
+        writeString(gen, BRAND, product.getBrand());
+        writeStrings(gen, CATEGORY, product.getCategory());
+
+        final byte[] quantizedEmbedding = product.getQuantizedEmbedding();
+        final float[] embedding = product.getFtsEmbedding();
+        if (quantizedEmbedding != null) {
+            gen.writeFieldName(FTS_EMBEDDING);
+            writeEmbedding(gen, quantizedEmbedding);
+        } else if (embedding != null) {
+            gen.writeFieldName(FTS_EMBEDDING);
+            writeEmbedding(gen, embedding);
+        }
+
+        final Long priceCents = product.getPriceCents();
+        if (priceCents != null) {
+            gen.writeFieldName(PRICE);
+            CentsPriceSerializer.writeCents(priceCents, gen);
+        }
+
+        writeStrings(gen, IMAGE, product.getImage());
+        gen.writeEndObject();
+    }
+
+    /**
+     * Write the fields of a product that a partial update replaces, everything but the embedding.
+     * Null fields are written as null so a value removed from the product is cleared in the index.
+     *
+     * @param product the product to write
+     * @param gen the generator to write to
+     */
+    public static void writeWithoutEmbedding(final Product product, final JsonGenerator gen) throws IOException {
+        gen.writeStartObject();
+        gen.writeFieldName(ID);
+        gen.writeString(product.getId());
+        gen.writeFieldName(TITLE);
+        gen.writeString(product.getTitle());
+        gen.writeFieldName(DESCRIPTION);
+        gen.writeString(product.getDescription());
+        gen.writeFieldName(BRAND);
+        gen.writeString(product.getBrand());
+        writeStringsOrNull(gen, CATEGORY, product.getCategory());
+
+        gen.writeFieldName(PRICE);
+        final Long priceCents = product.getPriceCents();
+        if (priceCents != null) {
+            CentsPriceSerializer.writeCents(priceCents, gen);
+        } else {
+            gen.writeNull();
+        }
+
+        writeStringsOrNull(gen, IMAGE, product.getImage());
+        gen.writeEndObject();
+    }
+
+    /**
+     * Format the whole vector into a reused buffer and hand it to the generator as one raw value,
+     * instead of one formatted String and one generator call per float
+     */
+    private static void writeEmbedding(final JsonGenerator gen, final float[] embedding) throws IOException {
+        final char[] buffer = getBuffer(2 + embedding.length * (FloatFormatter.MAX_LENGTH + 1));
+        int position = 0;
+        buffer[position++] = '[';
+        for (int i = 0; i < embedding.length; i++) {
+            if (i > 0) {
+                buffer[position++] = ',';
+            }
+            final float value = embedding[i];
+            if (Float.isFinite(value)) {
+                position = FloatFormatter.format(value, buffer, position);
+            } else {
+                // not valid JSON either way, write what the bean serializer writes and let the item fail
+                final String text = Float.toString(value);
+                text.getChars(0, text.length(), buffer, position);
+                position += text.length();
+            }
+        }
+        buffer[position++] = ']';
+        gen.writeRawValue(buffer, 0, position);
+    }
+
+    /**
+     * Write a quantized vector as one raw array of integers
+     */
+    private static void writeEmbedding(final JsonGenerator gen, final byte[] embedding) throws IOException {
+        // a sign, three digits and a separator per component
+        final char[] buffer = getBuffer(2 + embedding.length * 5);
+        int position = 0;
+        buffer[position++] = '[';
+        for (int i = 0; i < embedding.length; i++) {
+            if (i > 0) {
+                buffer[position++] = ',';
+            }
+            int value = embedding[i];
+            if (value < 0) {
+                buffer[position++] = '-';
+                value = -value;
+            }
+            if (value >= 100) {
+                buffer[position++] = (char) ('0' + value / 100);
+            }
+            if (value >= 10) {
+                buffer[position++] = (char) ('0' + value / 10 % 10);
+            }
+            buffer[position++] = (char) ('0' + value % 10);
+        }
+        buffer[position++] = ']';
+        gen.writeRawValue(buffer, 0, position);
+    }
+
+    private static char[] getBuffer(final int capacity) {
+        char[] buffer = buffers.get();
+        if (buffer.length < capacity) {
+            buffer = new char[capacity];
+            buffers.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static void writeString(final JsonGenerator gen, final SerializableString name, final String value)
+            throws IOException {
+        if (value != null) {
+            gen.writeFieldName(name);
+            gen.writeString(value);
+        }
+    }
+
+    private static void writeStringsOrNull(
+            final JsonGenerator gen,
+            final SerializableString name,
+            final List<String> values) throws IOException {
+        if (values == null) {
+            gen.writeFieldName(name);
+            gen.writeNull();
+        } else {
+            writeStrings(gen, name, values);
+        }
+    }
+
+    private static void writeStrings(final JsonGenerator gen, final SerializableString name, final List<String> values)
+            throws IOException {
+        if (values != null) {
+            gen.writeFieldName(name);
+            gen.writeStartArray(values, values.size());
+            for (String value : values) {
+                gen.writeString(value);
+            }
+            gen.writeEndArray();
+        }
+    }
+}
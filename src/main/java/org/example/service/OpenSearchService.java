@@ -1,17 +1,29 @@
 package org.example.service;
 
+import jakarta.json.JsonValue;
 import jakarta.json.stream.JsonParser;
 import org.apache.commons.lang3.StringUtils;
 import org.example.model.IndexableDocument;
+import org.example.util.ScalarQuantizer;
+import org.opensearch.client.json.JsonData;
 import org.opensearch.client.json.JsonpMapper;
 import org.opensearch.client.opensearch.OpenSearchClient;
 import org.opensearch.client.opensearch._types.HealthStatus;
+import org.opensearch.client.opensearch._types.Refresh;
 import org.opensearch.client.opensearch._types.Time;
+import org.opensearch.client.opensearch._types.mapping.KnnVectorMethod;
+import org.opensearch.client.opensearch._types.mapping.KnnVectorProperty;
+import org.opensearch.client.opensearch._types.mapping.Property;
 import org.opensearch.client.opensearch._types.mapping.TypeMapping;
+import org.opensearch.client.opensearch.cat.ShardsRequest;
+import org.opensearch.client.opensearch.cat.shards.ShardsRecord;
 import org.opensearch.client.opensearch.cluster.HealthRequest;
 import org.opensearch.client.opensearch.cluster.HealthResponse;
 import org.opensearch.client.opensearch.core.BulkRequest;
 import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
 import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
 import org.opensearch.client.opensearch.indices.CreateIndexRequest;
 import org.opensearch.client.opensearch.indices.CreateIndexResponse;
@@ -19,30 +31,62 @@ import org.opensearch.client.opensearch.indices.DeleteAliasRequest;
 import org.opensearch.client.opensearch.indices.DeleteAliasResponse;
 import org.opensearch.client.opensearch.indices.DeleteIndexRequest;
 import org.opensearch.client.opensearch.indices.DeleteIndexResponse;
+import org.opensearch.client.opensearch.indices.ExistsRequest;
 import org.opensearch.client.opensearch.indices.FlushRequest;
 import org.opensearch.client.opensearch.indices.FlushResponse;
 import org.opensearch.client.opensearch.indices.GetAliasRequest;
 import org.opensearch.client.opensearch.indices.GetAliasResponse;
+import org.opensearch.client.opensearch.indices.GetMappingRequest;
+import org.opensearch.client.opensearch.indices.GetMappingResponse;
+import org.opensearch.client.opensearch.indices.IndexSegmentSort;
 import org.opensearch.client.opensearch.indices.IndexSettings;
+import org.opensearch.client.opensearch.indices.IndicesStatsRequest;
+import org.opensearch.client.opensearch.indices.IndicesStatsResponse;
 import org.opensearch.client.opensearch.indices.PutAliasRequest;
 import org.opensearch.client.opensearch.indices.PutAliasResponse;
 import org.opensearch.client.opensearch.indices.PutIndicesSettingsRequest;
 import org.opensearch.client.opensearch.indices.PutIndicesSettingsResponse;
+import org.opensearch.client.opensearch.indices.RefreshRequest;
+import org.opensearch.client.opensearch.indices.ShrinkRequest;
+import org.opensearch.client.opensearch.indices.SegmentSortMissing;
+import org.opensearch.client.opensearch.indices.SegmentSortMode;
+import org.opensearch.client.opensearch.indices.SegmentSortOrder;
+import org.opensearch.client.opensearch.indices.ShrinkResponse;
+import org.opensearch.client.opensearch.indices.UpdateAliasesRequest;
+import org.opensearch.client.opensearch.indices.UpdateAliasesResponse;
+import org.opensearch.client.opensearch.indices.get_mapping.IndexMappingRecord;
+import org.opensearch.client.opensearch.indices.stats.IndicesStats;
+import org.opensearch.client.opensearch.indices.stats.IndicesStatsMetric;
+import org.opensearch.client.opensearch.indices.update_aliases.Action;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
+import javax.annotation.Nullable;
 import java.io.IOException;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
 import java.util.Objects;
 import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
 
 @Service
 public class OpenSearchService implements SearchService {
     private static final Logger logger = LoggerFactory.getLogger(OpenSearchService.class);
+    private static final String ALLOCATION_REQUIRE_NAME = "index.routing.allocation.require._name";
+    private static final String BLOCKS_WRITE = "index.blocks.write";
+    // appended to a vector field name for the _meta key of its int8 scale
+    private static final String QUANTIZER_SCALE_SUFFIX = "_scale";
     private final OpenSearchClient client;
 
     @Autowired
@@ -64,6 +108,215 @@ public class OpenSearchService implements SearchService {
         return TypeMapping._DESERIALIZER.deserialize(parser, mapper);
     }
 
+    /**
+     * Load an index mapping from a resource file
+     *
+     * @param mappingPath path to the index mapping file
+     * @return the deserialized mapping
+     */
+    public TypeMapping readMapping(final String mappingPath) {
+        try (Reader reader = new InputStreamReader(
+                Objects.requireNonNull(this.getClass().getResourceAsStream(mappingPath)))) {
+            return deserializeMapping(reader, getJsonpMapper());
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    /**
+     * Override the primary shard count of settings loaded from a resource file. Settings files may
+     * nest their values under an "index" object, in which case the nested value is replaced so the
+     * request does not carry two conflicting shard counts.
+     *
+     * @param settings the settings to modify
+     * @param numberOfShards the number of primary shards
+     * @return a copy of the settings with the new shard count
+     */
+    public static IndexSettings withNumberOfShards(final IndexSettings settings, final int numberOfShards) {
+        if (settings.index() != null) {
+            return settings.toBuilder()
+                    .index(settings.index().toBuilder().numberOfShards(numberOfShards).build())
+                    .build();
+        }
+        return settings.toBuilder().numberOfShards(numberOfShards).build();
+    }
+
+    /**
+     * Add an index sort to settings loaded from a resource file. Multi-valued fields sort by their
+     * minimum value and documents missing a value sort last.
+     *
+     * @param settings the settings to modify
+     * @param fields the fields to sort segments by
+     * @param orders the sort order of each field
+     * @return a copy of the settings with the index sort
+     */
+    public static IndexSettings withIndexSort(
+            final IndexSettings settings,
+            final List<String> fields,
+            final List<SegmentSortOrder> orders) {
+        if (fields.size() != orders.size()) {
+            throw new IllegalArgumentException("Each index sort field requires an order");
+        }
+        final IndexSegmentSort sort = new IndexSegmentSort.Builder()
+                .field(fields)
+                .order(orders)
+                .mode(Collections.nCopies(fields.size(), SegmentSortMode.Min))
+                .missing(Collections.nCopies(fields.size(), SegmentSortMissing.Last))
+                .build();
+        if (settings.index() != null) {
+            return settings.toBuilder()
+                    .index(settings.index().toBuilder().sort(sort).build())
+                    .build();
+        }
+        return settings.toBuilder().sort(sort).build();
+    }
+
+    /**
+     * Override the HNSW graph parameters of a knn_vector field in a mapping loaded from a resource file
+     *
+     * @param mapping the mapping to modify
+     * @param fieldName the name of the knn_vector field
+     * @param m the number of bidirectional links per graph node
+     * @param efConstruction the size of the candidate list used while building the graph
+     * @return a copy of the mapping with the new graph parameters
+     */
+    public static TypeMapping withHnswParameters(
+            final TypeMapping mapping,
+            final String fieldName,
+            final int m,
+            final int efConstruction) {
+        final KnnVectorProperty knnVector = getKnnVectorWithMethod(mapping, fieldName);
+        final KnnVectorMethod method = knnVector.method().toBuilder()
+                .parameters("m", JsonData.of(m))
+                .parameters("ef_construction", JsonData.of(efConstruction))
+                .build();
+        return mapping.toBuilder()
+                .properties(fieldName, knnVector.toBuilder().method(method).build().toProperty())
+                .build();
+    }
+
+    /**
+     * Override the space type of a knn_vector field in a mapping loaded from a resource file
+     *
+     * @param mapping the mapping to modify
+     * @param fieldName the name of the knn_vector field
+     * @param spaceType the vector space like cosinesimil or innerproduct
+     * @return a copy of the mapping with the new space type
+     */
+    public static TypeMapping withSpaceType(
+            final TypeMapping mapping,
+            final String fieldName,
+            final String spaceType) {
+        final KnnVectorProperty knnVector = getKnnVectorWithMethod(mapping, fieldName);
+        final KnnVectorMethod method = knnVector.method().toBuilder()
+                .spaceType(spaceType)
+                .build();
+        return mapping.toBuilder()
+                .properties(fieldName, knnVector.toBuilder().method(method).build().toProperty())
+                .build();
+    }
+
+    /**
+     * Override the element type of a knn_vector field in a mapping loaded from a resource file
+     *
+     * @param mapping the mapping to modify
+     * @param fieldName the name of the knn_vector field
+     * @param dataType the vector element type like float or byte
+     * @return a copy of the mapping with the new data type
+     */
+    public static TypeMapping withDataType(
+            final TypeMapping mapping,
+            final String fieldName,
+            final String dataType) {
+        final KnnVectorProperty knnVector = getKnnVectorWithMethod(mapping, fieldName);
+        return mapping.toBuilder()
+                .properties(fieldName, knnVector.toBuilder().dataType(dataType).build().toProperty())
+                .build();
+    }
+
+    /**
+     * Override the k-NN engine, mode and compression level of a knn_vector field in a mapping loaded
+     * from a resource file. Blank values keep what the mapping has.
+     *
+     * @param mapping the mapping to modify
+     * @param fieldName the name of the knn_vector field
+     * @param engine the k-NN engine like lucene or faiss
+     * @param mode in_memory or on_disk
+     * @param compressionLevel the vector compression like 1x to 32x
+     * @return a copy of the mapping with the new engine settings
+     */
+    public static TypeMapping withVectorEngine(
+            final TypeMapping mapping,
+            final String fieldName,
+            final String engine,
+            final String mode,
+            final String compressionLevel) {
+        final KnnVectorProperty knnVector = getKnnVectorWithMethod(mapping, fieldName);
+        final KnnVectorProperty.Builder builder = knnVector.toBuilder();
+        if (StringUtils.isNotBlank(engine)) {
+            builder.method(knnVector.method().toBuilder().engine(engine).build());
+        }
+        if (StringUtils.isNotBlank(mode)) {
+            builder.mode(mode);
+        }
+        if (StringUtils.isNotBlank(compressionLevel)) {
+            builder.compressionLevel(compressionLevel);
+        }
+        return mapping.toBuilder()
+                .properties(fieldName, builder.build().toProperty())
+                .build();
+    }
+
+    /**
+     * Add an entry to the _meta of a mapping, which the cluster stores with the index without
+     * interpreting it
+     *
+     * @param mapping the mapping to modify
+     * @param key the _meta key
+     * @param value the value to store
+     * @return a copy of the mapping with the _meta entry
+     */
+    public static TypeMapping withMeta(final TypeMapping mapping, final String key, final Object value) {
+        return mapping.toBuilder()
+                .meta(key, JsonData.of(value))
+                .build();
+    }
+
+    /**
+     * Store the int8 scale of a quantized vector field in the _meta of a mapping, so writers and
+     * searches of the index quantize with the same scale
+     *
+     * @param mapping the mapping to modify
+     * @param fieldName the quantized vector field
+     * @param quantizer the quantizer of the field
+     * @return a copy of the mapping with the scale
+     */
+    public static TypeMapping withQuantizer(
+            final TypeMapping mapping, final String fieldName, final ScalarQuantizer quantizer) {
+        return withMeta(mapping, fieldName + QUANTIZER_SCALE_SUFFIX, quantizer.getScale());
+    }
+
+    /**
+     * Read back the quantizer stored by {@link #withQuantizer}
+     *
+     * @param meta the _meta of an index mapping, null if it has none
+     * @param fieldName the vector field
+     * @return the quantizer or null if the field stores float vectors
+     */
+    @Nullable
+    public static ScalarQuantizer getQuantizer(@Nullable final Map<String, JsonData> meta, final String fieldName) {
+        final JsonData scale = meta == null ? null : meta.get(fieldName + QUANTIZER_SCALE_SUFFIX);
+        return scale == null ? null : new ScalarQuantizer(scale.to(Float.class));
+    }
+
+    private static KnnVectorProperty getKnnVectorWithMethod(final TypeMapping mapping, final String fieldName) {
+        final Property property = mapping.properties().get(fieldName);
+        if (property == null || !property.isKnnVector() || property.knnVector().method() == null) {
+            throw new IllegalArgumentException(fieldName + " is not a knn_vector field with a method");
+        }
+        return property.knnVector();
+    }
+
     protected Time getTimeInSeconds(final int seconds) {
         return new Time.Builder()
                 .time(String.format("%ss", seconds))
@@ -82,10 +335,18 @@ public class OpenSearchService implements SearchService {
     }
 
     @Override
-    public <T extends IndexableDocument> void bulkIndex(final List<T> documents, final String indexName) {
+    public <T extends IndexableDocument> List<String> bulkIndex(final List<T> documents, final String indexName) {
+        return bulkIndex(documents, indexName, document -> null);
+    }
+
+    @Override
+    public <T extends IndexableDocument> List<String> bulkIndex(
+            final List<T> documents,
+            final String indexName,
+            final Function<T, String> routing) {
         if (documents == null || documents.isEmpty()) {
             logger.warn("Attempted to bulk index null or empty list");
-            return;
+            return List.of();
         }
 
         logger.debug("Starting bulk index of {} documents", documents.size());
@@ -97,22 +358,26 @@ public class OpenSearchService implements SearchService {
                         .index(idx -> idx
                                 .index(indexName)
                                 .id(document.getId())
+                                .routing(routing.apply(document))
                                 .document(document)
                         )
                 );
             }
             BulkResponse result = client.bulk(bulkBuilder.build());
 
+            final List<String> rejected = new ArrayList<>();
             if (result.errors()) {
                 logger.error("Bulk had errors");
                 for (BulkResponseItem item : result.items()) {
                     if (item.error() != null) {
                         logger.error(item.error().reason());
+                        rejected.add(item.id());
                     }
                 }
             } else {
                 logger.info("Bulk indexing completed in {}ms", result.took());
             }
+            return rejected;
         } catch (Exception e) {
             final String message = String.format("Bulk indexing failed for %s documents: %s",
                     documents.size(),
@@ -122,8 +387,83 @@ public class OpenSearchService implements SearchService {
         }
     }
 
+    @Override
+    public void bulkDelete(
+            final Collection<String> ids,
+            final String indexName,
+            final Function<String, String> routing) {
+        if (ids == null || ids.isEmpty()) {
+            logger.warn("Attempted to bulk delete null or empty list");
+            return;
+        }
+
+        logger.debug("Starting bulk delete of {} documents", ids.size());
+
+        try {
+            final BulkRequest.Builder bulkBuilder = new BulkRequest.Builder();
+            for (String id : ids) {
+                bulkBuilder.operations(op -> op
+                        .delete(del -> del
+                                .index(indexName)
+                                .id(id)
+                                .routing(routing.apply(id))
+                        )
+                );
+            }
+            BulkResponse result = client.bulk(bulkBuilder.build());
+
+            if (result.errors()) {
+                logger.error("Bulk delete had errors");
+                for (BulkResponseItem item : result.items()) {
+                    if (item.error() != null) {
+                        logger.error(item.error().reason());
+                    }
+                }
+            } else {
+                logger.info("Bulk delete completed in {}ms", result.took());
+            }
+        } catch (Exception e) {
+            final String message = String.format("Bulk delete failed for %s documents: %s",
+                    ids.size(),
+                    e.getMessage());
+            logger.error(message, e);
+            throw new RuntimeException(message, e);
+        }
+    }
+
+    @Override
+    public List<BulkResponseItem> bulk(final List<BulkOperation> operations, final boolean waitForRefresh) {
+        if (operations == null || operations.isEmpty()) {
+            return List.of();
+        }
+        try {
+            final BulkResponse result = client.bulk(BulkRequest.of(b -> b
+                    .operations(operations)
+                    .refresh(waitForRefresh ? Refresh.WaitFor : Refresh.False)));
+            logger.debug("Bulk of {} operations completed in {}ms with errors: {}",
+                    operations.size(), result.took(), result.errors());
+            return result.items();
+        } catch (Exception e) {
+            final String message = String.format("Bulk request failed for %s operations: %s",
+                    operations.size(),
+                    e.getMessage());
+            logger.error(message, e);
+            throw new RuntimeException(message, e);
+        }
+    }
+
     @Override
     public void createIndex(final String indexName, final String settingsPath, final String mappingPath) {
+        createIndex(indexName, settingsPath, mappingPath, UnaryOperator.identity(), UnaryOperator.identity());
+    }
+
+    @Override
+    public void createIndex(
+            final String indexName,
+            final String settingsPath,
+            final String mappingPath,
+            final UnaryOperator<IndexSettings> settingsCustomizer,
+            final UnaryOperator<TypeMapping> mappingCustomizer) {
         if (StringUtils.isBlank(indexName)) {
             throw new IllegalArgumentException("indexName cannot be blank");
         }
@@ -134,8 +474,8 @@ public class OpenSearchService implements SearchService {
              Reader readerMapping = new InputStreamReader(
                      Objects.requireNonNull(this.getClass().getResourceAsStream(mappingPath)))
         ) {
-            final IndexSettings settings = deserializeSettings(readerSettings, mapper);
-            final TypeMapping mapping = deserializeMapping(readerMapping, mapper);
+            final IndexSettings settings = settingsCustomizer.apply(deserializeSettings(readerSettings, mapper));
+            final TypeMapping mapping = mappingCustomizer.apply(deserializeMapping(readerMapping, mapper));
 
             final CreateIndexRequest createIndexRequest = new CreateIndexRequest.Builder()
                     .index(indexName)
@@ -165,6 +505,18 @@ public class OpenSearchService implements SearchService {
         }
     }
 
+    @Override
+    public boolean indexExists(final String indexName) {
+        if (StringUtils.isBlank(indexName)) {
+            throw new IllegalArgumentException("indexName cannot be blank");
+        }
+        try {
+            return client.indices().exists(ExistsRequest.of(r -> r.index(indexName))).value();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public void flushIndex(final String indexName) {
         if (StringUtils.isBlank(indexName)) {
@@ -181,6 +533,83 @@ public class OpenSearchService implements SearchService {
         }
     }
 
+    @Override
+    public void refreshIndex(final String indexName) {
+        if (StringUtils.isBlank(indexName)) {
+            throw new IllegalArgumentException("indexName cannot be blank");
+        }
+        try {
+            client.indices().refresh(RefreshRequest.of(r -> r.index(indexName)));
+            logger.info("Refreshed index: {}", indexName);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Map<String, Long> getPrimaryShardDocCounts(final String indexName) {
+        if (StringUtils.isBlank(indexName)) {
+            throw new IllegalArgumentException("indexName cannot be blank");
+        }
+        try {
+            return client.cat().shards(ShardsRequest.of(r -> r.index(indexName))).valueBody().stream()
+                    .filter(shard -> "p".equals(shard.prirep()))
+                    .collect(Collectors.toMap(
+                            ShardsRecord::shard,
+                            shard -> StringUtils.isNumeric(shard.docs()) ? Long.parseLong(shard.docs()) : 0L,
+                            Long::sum,
+                            TreeMap::new));
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public long getStoreSizeBytes(final String indexName) {
+        if (StringUtils.isBlank(indexName)) {
+            throw new IllegalArgumentException("indexName cannot be blank");
+        }
+        try {
+            final IndicesStatsResponse response = client.indices().stats(IndicesStatsRequest.of(r -> r
+                    .index(indexName)
+                    .metric(IndicesStatsMetric.Store)));
+            final IndicesStats stats = response.indices().get(indexName);
+            if (stats == null || stats.primaries() == null || stats.primaries().store() == null) {
+                return 0;
+            }
+            return stats.primaries().store().sizeInBytes();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public Map<String, JsonData> getMappingMeta(final String indexName) {
+        if (StringUtils.isBlank(indexName)) {
+            throw new IllegalArgumentException("indexName cannot be blank");
+        }
+        try {
+            final GetMappingResponse response =
+                    client.indices().getMapping(GetMappingRequest.of(r -> r.index(indexName)));
+            final IndexMappingRecord record = response.result().get(indexName);
+            if (record == null || record.mappings() == null) {
+                return Map.of();
+            }
+            return record.mappings().meta();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public <T> SearchResponse<T> search(final SearchRequest request, final Class<T> documentClass) {
+        try {
+            return client.search(request, documentClass);
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public void updateSettings(
             final String indexName,
@@ -205,6 +634,88 @@ public class OpenSearchService implements SearchService {
         }
     }
 
+    @Override
+    public boolean prepareForShrink(final String indexName, final int waitSeconds) {
+        if (StringUtils.isBlank(indexName)) {
+            throw new IllegalArgumentException("indexName cannot be blank");
+        }
+        try {
+            // gather all primaries on the node that already holds the most of them
+            final List<ShardsRecord> shards = client.cat().shards(ShardsRequest.of(r -> r.index(indexName))).valueBody();
+            final String nodeName = shards.stream()
+                    .filter(shard -> "p".equals(shard.prirep()) && shard.node() != null)
+                    .collect(Collectors.groupingBy(ShardsRecord::node, Collectors.counting()))
+                    .entrySet().stream()
+                    .max(Map.Entry.comparingByValue(Comparator.naturalOrder()))
+                    .map(Map.Entry::getKey)
+                    .orElseThrow(() -> new IllegalStateException("No assigned primary shards for " + indexName));
+
+            final IndexSettings settings = new IndexSettings.Builder()
+                    .customSettings(ALLOCATION_REQUIRE_NAME, JsonData.of(nodeName))
+                    .customSettings(BLOCKS_WRITE, JsonData.of(true))
+                    .build();
+            client.indices().putSettings(new PutIndicesSettingsRequest.Builder()
+                    .index(indexName)
+                    .settings(settings)
+                    .build());
+            logger.info("Relocating primaries of {} to node {} and blocking writes", indexName, nodeName);
+
+            final HealthResponse response = client.cluster().health(new HealthRequest.Builder()
+                    .index(indexName)
+                    .waitForNoRelocatingShards(true)
+                    .timeout(getTimeInSeconds(waitSeconds))
+                    .build());
+            if (response.timedOut()) {
+                logger.info("Shards of {} still relocating after waiting for {} seconds", indexName, waitSeconds);
+                return false;
+            }
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    @Override
+    public boolean shrinkIndex(
+            final String sourceIndexName,
+            final String targetIndexName,
+            final int numberOfShards,
+            final int waitSeconds) {
+        if (StringUtils.isBlank(sourceIndexName)) {
+            throw new IllegalArgumentException("sourceIndexName cannot be blank");
+        }
+        if (StringUtils.isBlank(targetIndexName)) {
+            throw new IllegalArgumentException("targetIndexName cannot be blank");
+        }
+        try {
+            // the target inherits the source allocation filter and write block, so clear both
+            final ShrinkRequest request = new ShrinkRequest.Builder()
+                    .index(sourceIndexName)
+                    .target(targetIndexName)
+                    .settings("index.number_of_shards", JsonData.of(numberOfShards))
+                    .settings(ALLOCATION_REQUIRE_NAME, JsonData.of(JsonValue.NULL))
+                    .settings(BLOCKS_WRITE, JsonData.of(JsonValue.NULL))
+                    // an acknowledged shrink only created the target, its primaries may still be recovering
+                    .waitForActiveShards(w -> w.count(1))
+                    .timeout(getTimeInSeconds(waitSeconds))
+                    .build();
+            final ShrinkResponse response = client.indices().shrink(request);
+            if (!response.acknowledged()) {
+                logger.error("Shrink of index {} into {} was not acknowledged", sourceIndexName, targetIndexName);
+                return false;
+            }
+            if (!response.shardsAcknowledged()) {
+                logger.error("Primaries of {} shrunk from {} were not active after waiting for {} seconds",
+                        targetIndexName, sourceIndexName, waitSeconds);
+                return false;
+            }
+            logger.info("Shrunk index {} into {} with {} shards", sourceIndexName, targetIndexName, numberOfShards);
+            return true;
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
     @Override
     public boolean waitForGreenStatus(final String indexName, final int waitSeconds) {
         if (StringUtils.isBlank(indexName)) {
@@ -318,4 +829,40 @@ public class OpenSearchService implements SearchService {
         }
         return null;
     }
+
+    @Override
+    public boolean swapAliases(
+            final String aliasName,
+            final String oldAliasName,
+            final Collection<String> addIndexNames,
+            final Collection<String> removeIndexNames) {
+        if (StringUtils.isBlank(aliasName)) {
+            throw new IllegalArgumentException("aliasName cannot be blank");
+        }
+        final List<Action> actions = new ArrayList<>();
+        addIndexNames.forEach(indexName -> actions.add(Action.of(a -> a.add(add -> add
+                .index(indexName)
+                .alias(aliasName)))));
+        removeIndexNames.forEach(indexName -> {
+            actions.add(Action.of(a -> a.remove(remove -> remove
+                    .index(indexName)
+                    .alias(aliasName))));
+            if (StringUtils.isNotBlank(oldAliasName)) {
+                actions.add(Action.of(a -> a.add(add -> add
+                        .index(indexName)
+                        .alias(oldAliasName))));
+            }
+        });
+        if (actions.isEmpty()) {
+            return true;
+        }
+        try {
+            final UpdateAliasesResponse response = client.indices().updateAliases(
+                    UpdateAliasesRequest.of(r -> r.actions(actions)));
+            logger.info("Moved alias {} to indexes {} from indexes {}", aliasName, addIndexNames, removeIndexNames);
+            return response.acknowledged();
+        } catch (IOException e) {
+            throw new RuntimeException(e);
+        }
+    }
 }
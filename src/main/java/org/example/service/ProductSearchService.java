@@ -0,0 +1,121 @@
+package org.example.service;
+
+import org.example.config.ProductIndexProperties;
+import org.example.model.Product;
+import org.example.util.IndexUtils;
+import org.example.util.ScalarQuantizer;
+import org.example.util.VectorUtils;
+import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch._types.query_dsl.Query;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import javax.annotation.Nullable;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+@Service
+public class ProductSearchService {
+    private static final String CATEGORY_FIELD = "category.keyword";
+    private static final String VECTOR_FIELD = "fts_embedding";
+
+    private final OpenSearchService openSearchService;
+    private final ProductIndexProperties indexProperties;
+    // quantizer of each index searched, empty for indexes that store float vectors
+    private final Map<String, Optional<ScalarQuantizer>> quantizers = new ConcurrentHashMap<>();
+
+    @Autowired
+    public ProductSearchService(
+            final OpenSearchService openSearchService,
+            final ProductIndexProperties indexProperties) {
+        this.openSearchService = openSearchService;
+        this.indexProperties = indexProperties;
+    }
+
+    /**
+     * Search the products of a single top level category. When the index is routed by category the
+     * request carries the same routing value used at index time, so only the shard holding the
+     * category is searched.
+     *
+     * @param category the top level category to search within
+     * @param query the query to run within the category
+     * @param size the number of hits to return
+     * @return the search response
+     */
+    public SearchResponse<Product> searchCategory(final String category, final Query query, final int size) {
+        final SearchRequest.Builder builder = new SearchRequest.Builder()
+                .index(indexProperties.getAlias())
+                .size(size)
+                .query(q -> q.bool(b -> b
+                        .must(query)
+                        .filter(f -> f.term(t -> t.field(CATEGORY_FIELD).value(FieldValue.of(category))))));
+        if (indexProperties.isRouteByCategory()) {
+            builder.routing(IndexUtils.getCategoryRouting(category));
+        }
+        return openSearchService.search(builder.build(), Product.class);
+    }
+
+    /**
+     * Find the products nearest to an embedding. The query vector goes through the same steps as the
+     * indexed vectors: it is normalized when the index stores unit vectors and quantized with the
+     * scale of the live index when the index stores int8 vectors.
+     *
+     * @param embedding the embedding of the query text
+     * @param k the number of nearest products to return
+     * @return the search response
+     */
+    public SearchResponse<Product> searchSimilar(final float[] embedding, final int k) {
+        if (embedding == null || embedding.length == 0) {
+            throw new IllegalArgumentException("embedding cannot be empty");
+        }
+        final float[] vector = embedding.clone();
+        if (indexProperties.isNormalizeVectors()) {
+            VectorUtils.normalize(vector);
+        }
+        final ScalarQuantizer quantizer = getQuantizer();
+        final List<Float> queryVector = new ArrayList<>(vector.length);
+        if (quantizer != null) {
+            for (byte value : quantizer.quantize(vector)) {
+                queryVector.add((float) value);
+            }
+        } else {
+            for (float value : vector) {
+                queryVector.add(value);
+            }
+        }
+        final SearchRequest request = new SearchRequest.Builder()
+                .index(indexProperties.getAlias())
+                .size(k)
+                .query(q -> q.knn(n -> n.field(VECTOR_FIELD).vector(queryVector).k(k)))
+                .build();
+        return openSearchService.search(request, Product.class);
+    }
+
+    /**
+     * Partitions behind the alias share one quantizer, so the first index that has one is used
+     *
+     * @return the quantizer of the live index or null if it stores float vectors
+     */
+    @Nullable
+    private ScalarQuantizer getQuantizer() {
+        final Set<String> indexNames = openSearchService.getIndexesByAlias(indexProperties.getAlias());
+        if (indexNames == null) {
+            return null;
+        }
+        for (String indexName : indexNames) {
+            final Optional<ScalarQuantizer> quantizer = quantizers.computeIfAbsent(indexName,
+                    name -> Optional.ofNullable(
+                            OpenSearchService.getQuantizer(openSearchService.getMappingMeta(name), VECTOR_FIELD)));
+            if (quantizer.isPresent()) {
+                return quantizer.get();
+            }
+        }
+        return null;
+    }
+}
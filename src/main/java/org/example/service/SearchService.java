@@ -1,9 +1,20 @@
 package org.example.service;
 
 import org.example.model.IndexableDocument;
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.opensearch._types.mapping.TypeMapping;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.indices.IndexSettings;
 
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
 
 public interface SearchService {
     /**
@@ -19,8 +30,41 @@ public interface SearchService {
      * @param documents list of documents to index in bulk
      * @param indexName name of the destination index for documents
      * @param <T> document model
+     * @return the ids of the documents the cluster rejected
      */
-    <T extends IndexableDocument> void bulkIndex(final List<T> documents, final String indexName);
+    <T extends IndexableDocument> List<String> bulkIndex(final List<T> documents, final String indexName);
+
+    /**
+     * Indexes a list of documents in bulk to a specified index with a custom routing value per document
+     *
+     * @param documents list of documents to index in bulk
+     * @param indexName name of the destination index for documents
+     * @param routing function returning the routing value of a document or null for the default routing
+     * @param <T> document model
+     * @return the ids of the documents the cluster rejected
+     */
+    <T extends IndexableDocument> List<String> bulkIndex(
+            final List<T> documents,
+            final String indexName,
+            final Function<T, String> routing);
+
+    /**
+     * Deletes a collection of documents in bulk from a specified index
+     *
+     * @param ids ids of the documents to delete
+     * @param indexName name of the index to delete documents from
+     * @param routing function returning the routing value of a document id or null for the default routing
+     */
+    void bulkDelete(final Collection<String> ids, final String indexName, final Function<String, String> routing);
+
+    /**
+     * Sends a mix of index and delete operations in one bulk request and reports the outcome of each
+     *
+     * @param operations the operations in the order they have to be applied
+     * @param waitForRefresh true to return only once the operations are visible to search
+     * @return one response item per operation in the order of the operations
+     */
+    List<BulkResponseItem> bulk(final List<BulkOperation> operations, final boolean waitForRefresh);
 
     /**
      * Create a new index
@@ -31,6 +75,22 @@ public interface SearchService {
      */
     void createIndex(final String indexName, final String settingsPath, final String mappingPath);
 
+    /**
+     * Create a new index, adjusting the settings and mapping loaded from file before the index is created
+     *
+     * @param indexName name of the index to create
+     * @param settingsPath path to the index settings file
+     * @param mappingPath path to the index mapping file
+     * @param settingsCustomizer function applied to the settings loaded from settingsPath
+     * @param mappingCustomizer function applied to the mapping loaded from mappingPath
+     */
+    void createIndex(
+            final String indexName,
+            final String settingsPath,
+            final String mappingPath,
+            final UnaryOperator<IndexSettings> settingsCustomizer,
+            final UnaryOperator<TypeMapping> mappingCustomizer);
+
     /**
      * Delete an index by name
      *
@@ -38,6 +98,14 @@ public interface SearchService {
      */
     void deleteIndex(final String indexName);
 
+    /**
+     * Determine if an index exists
+     *
+     * @param indexName name of the index
+     * @return true if the index exists
+     */
+    boolean indexExists(final String indexName);
+
     /**
      * Flush/commit all modification to an index
      *
@@ -45,6 +113,31 @@ public interface SearchService {
      */
     void flushIndex(final String indexName);
 
+    /**
+     * Refresh an index so recent modifications are visible to searches and stats
+     *
+     * @param indexName name of the index to refresh
+     */
+    void refreshIndex(final String indexName);
+
+    /**
+     * Return the number of documents in each primary shard of an index
+     *
+     * @param indexName name of the index
+     * @return map of shard number to document count
+     */
+    Map<String, Long> getPrimaryShardDocCounts(final String indexName);
+
+    /**
+     * Run a search request
+     *
+     * @param request the search request
+     * @param documentClass class the document sources are deserialized to
+     * @param <T> document model
+     * @return the search response
+     */
+    <T> SearchResponse<T> search(final SearchRequest request, final Class<T> documentClass);
+
     /**
      * Update index settings for a specified index. The common use case is to
      * modify index settings before or after periods of heavy indexing activity.
@@ -55,6 +148,33 @@ public interface SearchService {
      */
     void updateSettings(final String indexName, final int numReplicas, final int refreshSeconds);
 
+    /**
+     * Prepare an index to be shrunk. A copy of every primary shard is moved to a single node and
+     * writes to the index are blocked, both of which are required by the shrink API.
+     *
+     * @param indexName the name of the index to prepare
+     * @param waitSeconds max wait time for shard relocation to finish
+     * @return boolean TRUE when all shards finished relocating within waitSeconds
+     */
+    boolean prepareForShrink(final String indexName, final int waitSeconds);
+
+    /**
+     * Shrink an index into a new index with fewer primary shards. The source index must have been
+     * prepared with {@link #prepareForShrink(String, int)} and the new shard count must be a factor
+     * of the source shard count.
+     *
+     * @param sourceIndexName the name of the index to shrink
+     * @param targetIndexName the name of the index to create
+     * @param numberOfShards number of primary shards in the target index
+     * @param waitSeconds max wait time for the primary shards of the target index to become active
+     * @return boolean TRUE when the shrink was acknowledged and every primary of the target is active
+     */
+    boolean shrinkIndex(
+            final String sourceIndexName,
+            final String targetIndexName,
+            final int numberOfShards,
+            final int waitSeconds);
+
     /**
      * Wait for the status of an index to reach GREEN status. The common use case is to wait for
      * document flushing and replica balancing across nodes to finish before use the index for reads.
@@ -65,6 +185,22 @@ public interface SearchService {
      */
     boolean waitForGreenStatus(final String indexName, final int waitSeconds);
 
+    /**
+     * Return the size on disk of the primary shards of an index
+     *
+     * @param indexName the name of the index
+     * @return store size in bytes
+     */
+    long getStoreSizeBytes(final String indexName);
+
+    /**
+     * Return the _meta entries stored with the mapping of an index
+     *
+     * @param indexName the name of the index
+     * @return map of _meta keys to values, empty if the mapping has none
+     */
+    Map<String, JsonData> getMappingMeta(final String indexName);
+
     /**
      * Return a set of index names for a given index alias name
      *
@@ -105,4 +241,20 @@ public interface SearchService {
      * @return String the name of the index the alias was removed from or null
      */
     String moveAlias(final String indexName, final String aliasName);
+
+    /**
+     * Atomically attach an alias to a set of indexes and detach it from another set, marking the
+     * detached indexes with a second alias in the same request
+     *
+     * @param aliasName the name of the alias
+     * @param oldAliasName the alias to add to the detached indexes or null
+     * @param addIndexNames the names of the indexes to add the alias to
+     * @param removeIndexNames the names of the indexes to remove the alias from
+     * @return true if the alias update was acknowledged
+     */
+    boolean swapAliases(
+            final String aliasName,
+            final String oldAliasName,
+            final Collection<String> addIndexNames,
+            final Collection<String> removeIndexNames);
 }
@@ -0,0 +1,220 @@
+package org.example.util;
+
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.zip.GZIPInputStream;
+
+/**
+ * Decompresses a gzip stream on its own thread ahead of the reader, so inflating overlaps with
+ * parsing instead of adding to it. Decompressed chunks are handed over through a bounded queue and
+ * their buffers are reused, so the read ahead is capped at a few chunks. Concatenated gzip members
+ * are read as one stream.
+ */
+public final class DecompressingInputStream extends InputStream {
+    private static final int CHUNK_SIZE = 256 * 1024;
+    private static final int CHUNKS_AHEAD = 4;
+    private static final int GZIP_BUFFER_SIZE = 64 * 1024;
+    // handed over after the last chunk, compared by identity
+    private static final Chunk END = new Chunk(new byte[0], 0);
+
+    private final InputStream source;
+    private final BlockingQueue<Chunk> chunks = new ArrayBlockingQueue<>(CHUNKS_AHEAD);
+    // one buffer per queued chunk, one being filled and one being read
+    private final BlockingQueue<byte[]> buffers = new ArrayBlockingQueue<>(CHUNKS_AHEAD + 2);
+    private final Thread decompressor;
+    // written by the decompressor thread only
+    private volatile long compressedBytes;
+    private volatile long decompressedBytes;
+    private volatile IOException failure;
+    private Chunk chunk;
+    private int position;
+    private boolean ended;
+    private volatile boolean closed;
+
+    private DecompressingInputStream(final InputStream compressed) {
+        this.source = new FilterInputStream(compressed) {
+            @Override
+            public int read() throws IOException {
+                final int b = super.read();
+                if (b >= 0) {
+                    compressedBytes++;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(final byte[] b, final int off, final int len) throws IOException {
+                final int n = super.read(b, off, len);
+                if (n > 0) {
+                    compressedBytes += n;
+                }
+                return n;
+            }
+        };
+        for (int i = 0; i < CHUNKS_AHEAD + 2; i++) {
+            buffers.add(new byte[CHUNK_SIZE]);
+        }
+        this.decompressor = Thread.ofPlatform().name("gzip-decompressor").daemon().unstarted(this::decompress);
+    }
+
+    /**
+     * Start decompressing a gzip stream
+     *
+     * @param compressed the gzip stream, closed with the returned stream
+     * @return the decompressed stream
+     */
+    public static DecompressingInputStream start(final InputStream compressed) {
+        final DecompressingInputStream stream = new DecompressingInputStream(compressed);
+        stream.decompressor.start();
+        return stream;
+    }
+
+    /**
+     * @return true if the file starts with the gzip magic bytes
+     */
+    public static boolean isGzip(final Path path) throws IOException {
+        try (InputStream input = Files.newInputStream(path)) {
+            return isGzip(input.readNBytes(2));
+        }
+    }
+
+    /**
+     * @param magic the first bytes of a stream
+     * @return true if they are the gzip magic bytes
+     */
+    public static boolean isGzip(final byte[] magic) {
+        return magic.length >= 2 && (magic[0] & 0xff) == 0x1f && (magic[1] & 0xff) == 0x8b;
+    }
+
+    /**
+     * @return compressed bytes the decompressor has read from the source
+     */
+    public long getCompressedBytes() {
+        return compressedBytes;
+    }
+
+    /**
+     * @return bytes the decompressor has produced, including those not read yet
+     */
+    public long getDecompressedBytes() {
+        return decompressedBytes;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return chunk.data()[position++] & 0xff;
+    }
+
+    @Override
+    public int read(final byte[] b, final int off, final int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        final int n = Math.min(len, chunk.length() - position);
+        System.arraycopy(chunk.data(), position, b, off, n);
+        position += n;
+        return n;
+    }
+
+    @Override
+    public long skip(final long n) throws IOException {
+        long skipped = 0;
+        while (skipped < n && fill()) {
+            final int step = (int) Math.min(n - skipped, chunk.length() - position);
+            position += step;
+            skipped += step;
+        }
+        return skipped;
+    }
+
+    @Override
+    public int available() {
+        return chunk == null ? 0 : chunk.length() - position;
+    }
+
+    @Override
+    public void close() throws IOException {
+        closed = true;
+        decompressor.interrupt();
+        source.close();
+    }
+
+    /**
+     * Make sure the current chunk has unread bytes, taking the next one from the decompressor
+     *
+     * @return false at the end of the stream
+     */
+    private boolean fill() throws IOException {
+        if (closed) {
+            throw new IOException("Stream closed");
+        }
+        while (chunk == null || position == chunk.length()) {
+            if (chunk != null) {
+                buffers.offer(chunk.data());
+                chunk = null;
+            }
+            if (ended) {
+                return false;
+            }
+            final Chunk next;
+            try {
+                next = chunks.take();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new InterruptedIOException("Interrupted while waiting for decompressed data");
+            }
+            if (next == END) {
+                ended = true;
+                if (failure != null) {
+                    throw new IOException("Decompression failed: " + failure.getMessage(), failure);
+                }
+                return false;
+            }
+            chunk = next;
+            position = 0;
+        }
+        return true;
+    }
+
+    private void decompress() {
+        try (GZIPInputStream gzip = new GZIPInputStream(source, GZIP_BUFFER_SIZE)) {
+            while (true) {
+                final byte[] buffer = buffers.take();
+                final int length = gzip.readNBytes(buffer, 0, buffer.length);
+                if (length == 0) {
+                    break;
+                }
+                decompressedBytes += length;
+                chunks.put(new Chunk(buffer, length));
+            }
+        } catch (IOException e) {
+            if (closed) {
+                return;
+            }
+            failure = e;
+        } catch (InterruptedException e) {
+            // the reader closed the stream
+            return;
+        }
+        try {
+            chunks.put(END);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private record Chunk(byte[] data, int length) {
+    }
+}
@@ -1,13 +1,20 @@
 package org.example.util;
 
+import javax.annotation.Nullable;
 import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.Period;
 import java.time.ZoneId;
 import java.time.format.DateTimeFormatter;
+import java.util.Locale;
+import java.util.Set;
+import java.util.regex.Pattern;
 
 public final class IndexUtils {
     private static final String INDEX_SUFFIX_PATTERN = "yyyy.MM.dd.HHmmss";
+    private static final String BUILD_INFIX = "-build-";
+    private static final String UNCATEGORIZED_PARTITION = "uncategorized";
+    private static final Pattern PARTITION_INVALID_CHARS = Pattern.compile("[^a-z0-9]+");
 
     /**
      * Return an index name encoded with the current date and time like coupons-2026.02.22.165241
@@ -21,6 +28,33 @@ public final class IndexUtils {
         return rootName + "-" + timestamp;
     }
 
+    /**
+     * Return the name of the temporary index used to build an index before it is shrunk,
+     * like coupons-2026.02.22.165241 to coupons-build-2026.02.22.165241
+     *
+     * @param indexName the encoded index name that will be served
+     * @return the build index name
+     */
+    public static String getBuildIndexName(final String indexName) {
+        final int separator = indexName.lastIndexOf("-");
+        return indexName.substring(0, separator) + BUILD_INFIX + indexName.substring(separator + 1);
+    }
+
+    /**
+     * Return the name of the served index for a build index name, like coupons-build-2026.02.22.165241
+     * to coupons-2026.02.22.165241. Names that are not build index names are returned unchanged.
+     *
+     * @param indexName the build index name
+     * @return the served index name
+     */
+    public static String getServingIndexName(final String indexName) {
+        final int infix = indexName.lastIndexOf(BUILD_INFIX);
+        if (infix < 0) {
+            return indexName;
+        }
+        return indexName.substring(0, infix) + "-" + indexName.substring(infix + BUILD_INFIX.length());
+    }
+
     /**
      * Extract the LocalDateTime from an index name like coupons-2026.02.22.165241
      *
@@ -46,4 +80,80 @@ public final class IndexUtils {
         final Period period = Period.between(LocalDate.from(indexDate), today);
         return period.getDays() > maxDays;
     }
+
+    /**
+     * Return the index behind an alias that a writer updates in place
+     *
+     * @param indexNames the indexes behind the alias, null if it has none
+     * @param alias the alias, for the error message
+     * @param writer what writes to the index, like delta indexing, for the error message
+     * @return the single index or null if the alias has none
+     * @throws IllegalStateException if the alias spans several indexes
+     */
+    @Nullable
+    public static String getSingleIndex(
+            @Nullable final Set<String> indexNames, final String alias, final String writer) {
+        if (indexNames == null || indexNames.isEmpty()) {
+            return null;
+        }
+        if (indexNames.size() > 1) {
+            throw new IllegalStateException(String.format(
+                    "Alias %s spans indexes %s, %s needs a single index", alias, indexNames, writer));
+        }
+        return indexNames.iterator().next();
+    }
+
+    /**
+     * Like {@link #getSingleIndex} for writers that cannot run without an index
+     *
+     * @throws IllegalStateException if the alias has no index or spans several
+     */
+    public static String requireSingleIndex(
+            @Nullable final Set<String> indexNames, final String alias, final String writer) {
+        final String indexName = getSingleIndex(indexNames, alias, writer);
+        if (indexName == null) {
+            throw new IllegalStateException("No index behind alias " + alias);
+        }
+        return indexName;
+    }
+
+    /**
+     * Return the routing value for documents of a top level category. Indexing and category scoped
+     * searches must derive routing the same way for searches to reach the shard holding the documents.
+     *
+     * @param category the top level category name
+     * @return the routing value or null for blank categories
+     */
+    public static String getCategoryRouting(final String category) {
+        if (category == null || category.isBlank()) {
+            return null;
+        }
+        return category.trim().toLowerCase(Locale.ROOT);
+    }
+
+    /**
+     * Return the root name of a per category partition index, like coupons and Home & Kitchen to
+     * coupons-home_kitchen. Blank categories share an uncategorized partition.
+     *
+     * @param rootName the root index name
+     * @param category the top level category of the partition
+     * @return the root name to pass to getIndexName
+     */
+    public static String getPartitionRootName(final String rootName, final String category) {
+        final String routing = getCategoryRouting(category);
+        final String partition = routing == null
+                ? UNCATEGORIZED_PARTITION
+                : PARTITION_INVALID_CHARS.matcher(routing).replaceAll("_").replaceAll("^_+|_+$", "");
+        return rootName + "-" + (partition.isEmpty() ? UNCATEGORIZED_PARTITION : partition);
+    }
+
+    /**
+     * Strip the timestamp from an index name like coupons-2026.02.22.165241
+     *
+     * @param indexName the encoded index name
+     * @return the root name the index was created from
+     */
+    public static String getRootName(final String indexName) {
+        return indexName.substring(0, indexName.lastIndexOf("-"));
+    }
 }
@@ -0,0 +1,166 @@
+package org.example.util;
+
+import java.lang.foreign.Arena;
+import java.lang.foreign.MemorySegment;
+import java.lang.foreign.ValueLayout;
+
+/**
+ * Open addressing hash map from non-zero long keys to int values, stored off-heap so tens of
+ * millions of entries cost 16 bytes each outside the Java heap instead of boxed objects on it.
+ * Not thread safe.
+ */
+public final class OffHeapLongIntMap implements AutoCloseable {
+    public static final int NO_VALUE = -1;
+
+    private static final long EMPTY = 0L;
+    private static final double MAX_LOAD = 0.75;
+    private static final int MIN_CAPACITY = 1024;
+
+    private Arena arena;
+    private MemorySegment keys;
+    private MemorySegment values;
+    private long capacity;
+    private long mask;
+    private long size;
+
+    /**
+     * @param expectedSize the number of entries to size the table for before it has to grow
+     */
+    public OffHeapLongIntMap(final long expectedSize) {
+        allocate(tableSizeFor(expectedSize));
+    }
+
+    /**
+     * Associate a value with a key
+     *
+     * @param key the key, must not be 0
+     * @param value the value
+     * @return the previous value or NO_VALUE if the key was not present
+     */
+    public int put(final long key, final int value) {
+        return put(key, value, true);
+    }
+
+    /**
+     * Associate a value with a key unless it is already present
+     *
+     * @param key the key, must not be 0
+     * @param value the value
+     * @return the existing value or NO_VALUE if the key was added
+     */
+    public int putIfAbsent(final long key, final int value) {
+        return put(key, value, false);
+    }
+
+    /**
+     * @return the value of a key or NO_VALUE if it is not present
+     */
+    public int get(final long key) {
+        checkKey(key);
+        long slot = mix(key) & mask;
+        while (true) {
+            final long current = keys.getAtIndex(ValueLayout.JAVA_LONG, slot);
+            if (current == EMPTY) {
+                return NO_VALUE;
+            }
+            if (current == key) {
+                return values.getAtIndex(ValueLayout.JAVA_INT, slot);
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    public long size() {
+        return size;
+    }
+
+    /**
+     * @return the off-heap bytes held by the table
+     */
+    public long byteSize() {
+        return keys.byteSize() + values.byteSize();
+    }
+
+    @Override
+    public void close() {
+        if (arena != null) {
+            arena.close();
+            arena = null;
+        }
+    }
+
+    private int put(final long key, final int value, final boolean replace) {
+        checkKey(key);
+        if (size + 1 > capacity * MAX_LOAD) {
+            grow();
+        }
+        long slot = mix(key) & mask;
+        while (true) {
+            final long current = keys.getAtIndex(ValueLayout.JAVA_LONG, slot);
+            if (current == EMPTY) {
+                keys.setAtIndex(ValueLayout.JAVA_LONG, slot, key);
+                values.setAtIndex(ValueLayout.JAVA_INT, slot, value);
+                size++;
+                return NO_VALUE;
+            }
+            if (current == key) {
+                final int previous = values.getAtIndex(ValueLayout.JAVA_INT, slot);
+                if (replace) {
+                    values.setAtIndex(ValueLayout.JAVA_INT, slot, value);
+                }
+                return previous;
+            }
+            slot = (slot + 1) & mask;
+        }
+    }
+
+    private void grow() {
+        final Arena oldArena = arena;
+        final MemorySegment oldKeys = keys;
+        final MemorySegment oldValues = values;
+        final long oldCapacity = capacity;
+        allocate(capacity * 2);
+        for (long slot = 0; slot < oldCapacity; slot++) {
+            final long key = oldKeys.getAtIndex(ValueLayout.JAVA_LONG, slot);
+            if (key != EMPTY) {
+                long target = mix(key) & mask;
+                while (keys.getAtIndex(ValueLayout.JAVA_LONG, target) != EMPTY) {
+                    target = (target + 1) & mask;
+                }
+                keys.setAtIndex(ValueLayout.JAVA_LONG, target, key);
+                values.setAtIndex(ValueLayout.JAVA_INT, target, oldValues.getAtIndex(ValueLayout.JAVA_INT, slot));
+            }
+        }
+        oldArena.close();
+    }
+
+    private void allocate(final long newCapacity) {
+        arena = Arena.ofShared();
+        keys = arena.allocate(newCapacity * Long.BYTES, Long.BYTES);
+        values = arena.allocate(newCapacity * Integer.BYTES, Integer.BYTES);
+        keys.fill((byte) 0);
+        capacity = newCapacity;
+        mask = newCapacity - 1;
+    }
+
+    private static long tableSizeFor(final long expectedSize) {
+        final long needed = Math.max(MIN_CAPACITY, (long) Math.ceil(expectedSize / MAX_LOAD));
+        return Long.highestOneBit(needed - 1) << 1;
+    }
+
+    private static void checkKey(final long key) {
+        if (key == EMPTY) {
+            throw new IllegalArgumentException("key cannot be 0");
+        }
+    }
+
+    // murmur3 finalizer, spreads sequential keys over the table
+    private static long mix(long key) {
+        key ^= key >>> 33;
+        key *= 0xff51afd7ed558ccdL;
+        key ^= key >>> 33;
+        key *= 0xc4ceb3fe1a85ec53L;
+        key ^= key >>> 33;
+        return key;
+    }
+}
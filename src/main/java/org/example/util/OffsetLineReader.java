@@ -0,0 +1,168 @@
+package org.example.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.channels.Channels;
+import java.nio.channels.SeekableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * Reads UTF-8 lines from a file while tracking the byte offset of the next unread line, so a
+ * reader can be reopened at a previously recorded position. Input files may be gzip compressed.
+ */
+public final class OffsetLineReader implements Closeable {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final InputStream input;
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+    private byte[] line = new byte[1024];
+    private int position;
+    private int limit;
+    private long offset;
+
+    private OffsetLineReader(final InputStream input, final long offset) {
+        this.input = input;
+        this.offset = offset;
+    }
+
+    /**
+     * Open a file for reading from a byte offset
+     *
+     * @param path the file to read
+     * @param offset the byte offset of the first line to read, 0 for the start of the file
+     * @return the reader
+     */
+    public static OffsetLineReader open(final Path path, final long offset) throws IOException {
+        final SeekableByteChannel channel = Files.newByteChannel(path);
+        try {
+            channel.position(offset);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return new OffsetLineReader(Channels.newInputStream(channel), offset);
+    }
+
+    /**
+     * Open an input file for reading from a byte offset, decompressing it on another thread if it is
+     * gzip compressed. Offsets of a compressed file count decompressed bytes, so a reader opened at an
+     * offset decompresses and skips everything before it.
+     *
+     * @param path the file to read, plain or gzip compressed
+     * @param offset the byte offset of the first line to read, 0 for the start of the file
+     * @return the reader
+     */
+    public static OffsetLineReader openInput(final Path path, final long offset) throws IOException {
+        if (!DecompressingInputStream.isGzip(path)) {
+            return open(path, offset);
+        }
+        final DecompressingInputStream input = DecompressingInputStream.start(Files.newInputStream(path));
+        try {
+            input.skipNBytes(offset);
+        } catch (IOException e) {
+            input.close();
+            throw e;
+        }
+        return new OffsetLineReader(input, offset);
+    }
+
+    /**
+     * Read a stream from its current position, offsets count the bytes read from it
+     *
+     * @param input the stream to read, closed with the reader
+     * @return the reader
+     */
+    public static OffsetLineReader of(final InputStream input) {
+        return new OffsetLineReader(input, 0);
+    }
+
+    /**
+     * @return the next line without its line terminator or null at the end of the file
+     */
+    public String readLine() throws IOException {
+        return readLine(false);
+    }
+
+    /**
+     * Read the next line only if it ends with a line feed, for files another process is still appending
+     * to. A partial last line is left unread and the offset stays at its start, the file has to be
+     * reopened at that offset to read it once it is complete.
+     *
+     * @return the next terminated line without its line terminator or null if there is none yet
+     */
+    public String readCompleteLine() throws IOException {
+        return readLine(true);
+    }
+
+    private String readLine(final boolean complete) throws IOException {
+        int length = 0;
+        while (true) {
+            if (position == limit) {
+                limit = input.read(buffer);
+                position = 0;
+                if (limit <= 0) {
+                    limit = 0;
+                    if (complete && length > 0) {
+                        offset -= length;
+                        return null;
+                    }
+                    return length == 0 ? null : decode(length);
+                }
+            }
+            final int start = position;
+            while (position < limit && buffer[position] != '\n') {
+                position++;
+            }
+            final int chunk = position - start;
+            if (length + chunk > line.length) {
+                line = Arrays.copyOf(line, Math.max(line.length * 2, length + chunk));
+            }
+            System.arraycopy(buffer, start, line, length, chunk);
+            length += chunk;
+            offset += chunk;
+            if (position < limit) {
+                // consume the line feed
+                position++;
+                offset++;
+                return decode(length);
+            }
+        }
+    }
+
+    /**
+     * @return the byte offset of the next unread line
+     */
+    public long getOffset() {
+        return offset;
+    }
+
+    /**
+     * @return the position of the next unread line in the file as stored, estimated from the compression
+     *         ratio so far for a compressed input, so it can be compared with the file size
+     */
+    public long getSourcePosition() {
+        if (input instanceof DecompressingInputStream decompressing) {
+            final long decompressed = decompressing.getDecompressedBytes();
+            return decompressed == 0
+                    ? 0
+                    : Math.round((double) offset * decompressing.getCompressedBytes() / decompressed);
+        }
+        return offset;
+    }
+
+    private String decode(int length) {
+        if (length > 0 && line[length - 1] == '\r') {
+            length--;
+        }
+        return new String(line, 0, length, StandardCharsets.UTF_8);
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
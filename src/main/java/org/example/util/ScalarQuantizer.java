@@ -0,0 +1,81 @@
+package org.example.util;
+
+import java.util.Collection;
+
+/**
+ * Quantizes float vectors to signed bytes. The range of every dimension is calibrated from a sample
+ * and the widest one is mapped onto [-MAX_LEVEL, MAX_LEVEL], symmetric around zero so a value of 0
+ * stays 0. All dimensions share that one scale because the cluster scores the raw bytes: a scale per
+ * dimension would weight dimensions differently in every inner product and reorder neighbours.
+ * Values past the calibrated range are clamped.
+ */
+public final class ScalarQuantizer {
+    /**
+     * The largest magnitude of a quantized component, -128 is left unused so the range is symmetric
+     */
+    public static final int MAX_LEVEL = 127;
+
+    private final float scale;
+
+    /**
+     * @param scale the factor every component is multiplied by before rounding
+     * @throws IllegalArgumentException if the scale is not a positive finite number
+     */
+    public ScalarQuantizer(final float scale) {
+        if (!(scale > 0) || !Float.isFinite(scale)) {
+            throw new IllegalArgumentException("scale must be positive and finite, got " + scale);
+        }
+        this.scale = scale;
+    }
+
+    /**
+     * Calibrate the range of each dimension from a sample of vectors and scale the widest of them to
+     * MAX_LEVEL
+     *
+     * @param sample vectors of the same dimension
+     * @return the quantizer for the sample
+     * @throws IllegalArgumentException if the sample is empty, the dimensions differ or every value is zero
+     */
+    public static ScalarQuantizer calibrate(final Collection<float[]> sample) {
+        if (sample == null || sample.isEmpty()) {
+            throw new IllegalArgumentException("sample cannot be empty");
+        }
+        final int dimension = sample.iterator().next().length;
+        final float[] ranges = new float[dimension];
+        for (float[] vector : sample) {
+            if (vector.length != dimension) {
+                throw new IllegalArgumentException(String.format(
+                        "sample vectors have dimensions %s and %s", dimension, vector.length));
+            }
+            for (int i = 0; i < dimension; i++) {
+                if (Float.isFinite(vector[i])) {
+                    ranges[i] = Math.max(ranges[i], Math.abs(vector[i]));
+                }
+            }
+        }
+        float widest = 0;
+        for (float range : ranges) {
+            widest = Math.max(widest, range);
+        }
+        if (widest == 0) {
+            throw new IllegalArgumentException("sample has no non-zero values");
+        }
+        return new ScalarQuantizer(MAX_LEVEL / widest);
+    }
+
+    /**
+     * @param vector the vector to quantize
+     * @return the vector as bytes in [-MAX_LEVEL, MAX_LEVEL]
+     */
+    public byte[] quantize(final float[] vector) {
+        final byte[] result = new byte[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = (byte) Math.clamp(Math.round(vector[i] * scale), -MAX_LEVEL, MAX_LEVEL);
+        }
+        return result;
+    }
+
+    public float getScale() {
+        return scale;
+    }
+}
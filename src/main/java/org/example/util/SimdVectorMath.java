@@ -0,0 +1,42 @@
+package org.example.util;
+
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Vector API kernels, only loaded by {@link VectorUtils} when the jdk.incubator.vector module is
+ * present at runtime
+ */
+final class SimdVectorMath {
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+
+    private SimdVectorMath() {
+    }
+
+    static void normalize(final float[] vector) {
+        final int bound = SPECIES.loopBound(vector.length);
+        FloatVector squares = FloatVector.zero(SPECIES);
+        int i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            final FloatVector lanes = FloatVector.fromArray(SPECIES, vector, i);
+            squares = lanes.fma(lanes, squares);
+        }
+        float sum = squares.reduceLanes(VectorOperators.ADD);
+        for (; i < vector.length; i++) {
+            sum += vector[i] * vector[i];
+        }
+        if (sum == 0 || !Float.isFinite(sum)) {
+            return;
+        }
+
+        final float scale = (float) (1 / Math.sqrt(sum));
+        i = 0;
+        for (; i < bound; i += SPECIES.length()) {
+            FloatVector.fromArray(SPECIES, vector, i).mul(scale).intoArray(vector, i);
+        }
+        for (; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+}
@@ -0,0 +1,39 @@
+package org.example.util;
+
+/**
+ * Bounded, lossy intern table for low cardinality strings like brands and categories. Each value
+ * hashes to one slot; a hit returns the cached instance and a miss replaces the slot, so memory
+ * stays fixed while the values that repeat most end up shared. Races between threads can only
+ * cost a missed share, never a wrong value.
+ */
+public final class StringInterner {
+    private final String[] table;
+    private final int mask;
+
+    /**
+     * @param capacity the number of slots, rounded up to a power of two
+     */
+    public StringInterner(final int capacity) {
+        final int size = Integer.highestOneBit(Math.max(2, capacity) - 1) << 1;
+        this.table = new String[size];
+        this.mask = size - 1;
+    }
+
+    /**
+     * @param value the string to share
+     * @return an equal cached instance or value itself
+     */
+    public String intern(final String value) {
+        if (value == null) {
+            return null;
+        }
+        final int hash = value.hashCode();
+        final int slot = (hash ^ (hash >>> 16)) & mask;
+        final String cached = table[slot];
+        if (value.equals(cached)) {
+            return cached;
+        }
+        table[slot] = value;
+        return value;
+    }
+}
@@ -0,0 +1,148 @@
+package org.example.util;
+
+import java.util.PriorityQueue;
+
+public final class VectorUtils {
+    // a float round trips with 9 significant digits, more can never change it
+    public static final int MAX_SIGNIFICANT_DIGITS = 9;
+
+    // the Vector API is an incubator module that has to be added to the runtime with --add-modules
+    private static final boolean SIMD = ModuleLayer.boot().findModule("jdk.incubator.vector").isPresent();
+    private static final int POWER_OFFSET = 64;
+    private static final double[] POWERS_OF_TEN = new double[2 * POWER_OFFSET + 1];
+
+    static {
+        for (int i = 0; i < POWERS_OF_TEN.length; i++) {
+            POWERS_OF_TEN[i] = Double.parseDouble("1e" + (i - POWER_OFFSET));
+        }
+    }
+
+    /**
+     * Round each component of a vector in place to a number of significant digits, so it is
+     * written with at most that many digits
+     *
+     * @param vector the vector to round
+     * @param digits the significant digits to keep, 0 or MAX_SIGNIFICANT_DIGITS and above keep full precision
+     */
+    public static void roundToSignificantDigits(final float[] vector, final int digits) {
+        if (digits <= 0 || digits >= MAX_SIGNIFICANT_DIGITS) {
+            return;
+        }
+        for (int i = 0; i < vector.length; i++) {
+            final float value = vector[i];
+            if (value == 0 || !Float.isFinite(value)) {
+                continue;
+            }
+            final int magnitude = (int) Math.floor(Math.log10(Math.abs(value)));
+            final double scale = POWERS_OF_TEN[POWER_OFFSET + digits - 1 - magnitude];
+            vector[i] = (float) (Math.rint(value * scale) / scale);
+        }
+    }
+
+    /**
+     * Scale a vector in place to unit L2 length, so the inner product of two normalized vectors is
+     * their cosine similarity. All zero vectors are left as they are.
+     *
+     * @param vector the vector to normalize
+     */
+    public static void normalize(final float[] vector) {
+        if (SIMD) {
+            SimdVectorMath.normalize(vector);
+        } else {
+            normalizeScalar(vector);
+        }
+    }
+
+    /**
+     * Normalize without the Vector API, the fallback of {@link #normalize} and its benchmark baseline
+     *
+     * @param vector the vector to normalize
+     */
+    public static void normalizeScalar(final float[] vector) {
+        float sum = 0;
+        for (float value : vector) {
+            sum += value * value;
+        }
+        if (sum == 0 || !Float.isFinite(sum)) {
+            return;
+        }
+        final float scale = (float) (1 / Math.sqrt(sum));
+        for (int i = 0; i < vector.length; i++) {
+            vector[i] *= scale;
+        }
+    }
+
+    /**
+     * @return true if normalize runs on the Vector API
+     */
+    public static boolean isSimdEnabled() {
+        return SIMD;
+    }
+
+    /**
+     * @return the dot product of two vectors of the same length
+     */
+    public static double dot(final float[] a, final float[] b) {
+        double sum = 0;
+        for (int i = 0; i < a.length; i++) {
+            sum += a[i] * b[i];
+        }
+        return sum;
+    }
+
+    /**
+     * @return the cosine similarity of two vectors of the same length, 0 if either is all zeros
+     */
+    public static double cosine(final float[] a, final float[] b) {
+        final double norms = Math.sqrt(dot(a, a) * dot(b, b));
+        return norms == 0 ? 0 : dot(a, b) / norms;
+    }
+
+    /**
+     * Find the nearest vectors to a query by brute force cosine similarity
+     *
+     * @param query the query vector
+     * @param vectors the vectors to search
+     * @param k the number of neighbours to return
+     * @return the positions of the k most similar vectors, most similar first
+     */
+    public static int[] exactTopK(final float[] query, final float[][] vectors, final int k) {
+        // min heap of the best k so far, ordered by similarity then position
+        final PriorityQueue<double[]> best = new PriorityQueue<>((x, y) -> x[0] != y[0]
+                ? Double.compare(x[0], y[0])
+                : Double.compare(y[1], x[1]));
+        for (int i = 0; i < vectors.length; i++) {
+            final double similarity = cosine(query, vectors[i]);
+            if (best.size() < k) {
+                best.add(new double[]{similarity, i});
+            } else if (similarity > best.peek()[0]) {
+                best.poll();
+                best.add(new double[]{similarity, i});
+            }
+        }
+        final int[] result = new int[best.size()];
+        for (int i = result.length - 1; i >= 0; i--) {
+            result[i] = (int) best.poll()[1];
+        }
+        return result;
+    }
+
+    /**
+     * @return the fraction of the expected neighbours found in the actual neighbours
+     */
+    public static double recall(final int[] expected, final int[] actual) {
+        if (expected.length == 0) {
+            return 1;
+        }
+        int found = 0;
+        for (int e : expected) {
+            for (int a : actual) {
+                if (a == e) {
+                    found++;
+                    break;
+                }
+            }
+        }
+        return (double) found / expected.length;
+    }
+}
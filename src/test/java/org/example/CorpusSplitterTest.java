@@ -0,0 +1,123 @@
+package org.example;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CorpusSplitterTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void split_WithSeveralRoutes_WritesEachLineToEveryMatchingOutputInOrder() throws IOException {
+        // Arrange - a chunk size this small puts most lines on a chunk boundary
+        Path input = tempDir.resolve("products.json");
+        Files.writeString(input, String.join("\n",
+                product("1", "[\"Clothing\", \"Men\"]"),
+                product("2", "[\"Toys\"]"),
+                "",
+                product("3", "[\"Men\", \"Toys\"]"),
+                product("4", "[\"Women\"]"),
+                product("5", "[\"Games\"]")));
+        Path men = tempDir.resolve("men.json");
+        Path toys = tempDir.resolve("toys.json");
+        CorpusSplitter splitter = new CorpusSplitter(List.of(
+                new CorpusSplitter.Route(men, Set.of("Men")),
+                new CorpusSplitter.Route(toys, Set.of("Toys", "Games"))), 3, 16);
+
+        // Act
+        CorpusSplitter.Result result = splitter.split(input);
+
+        // Assert
+        assertEquals(5, result.lines());
+        assertEquals(List.of("1", "3"), ids(men));
+        assertEquals(List.of("2", "3", "5"), ids(toys));
+        assertEquals(2, result.routedLines().get(men.toString()));
+        assertEquals(3, result.routedLines().get(toys.toString()));
+    }
+
+    @Test
+    void split_WithCategoryNameOutsideCategories_PrefiltersButDoesNotRoute() throws IOException {
+        // Arrange - the title matches the byte prefilter, the parse rules it out
+        Path input = tempDir.resolve("products.json");
+        Files.writeString(input, String.join("\n",
+                "{\"asin\": \"1\", \"title\": \"Men\", \"category\": [\"Women\"]}",
+                "{\"asin\": \"2\", \"category\": [\"Menswear\"]}",
+                "{\"asin\": \"3\", \"title\": \"Men\"",
+                product("4", "[\"Men\"]")));
+        Path men = tempDir.resolve("men.json");
+        CorpusSplitter splitter = new CorpusSplitter(
+                List.of(new CorpusSplitter.Route(men, Set.of("Men"))), 2, 1 << 20);
+
+        // Act
+        CorpusSplitter.Result result = splitter.split(input);
+
+        // Assert
+        assertEquals(List.of("4"), ids(men));
+        assertEquals(4, result.lines());
+        assertEquals(3, result.parsedLines());
+        assertEquals(1, result.malformedLines());
+    }
+
+    @Test
+    void split_WithGzipInput_RoutesDecompressedLines() throws IOException {
+        // Arrange
+        Path input = tempDir.resolve("products.json.gz");
+        try (GZIPOutputStream gzip = new GZIPOutputStream(Files.newOutputStream(input))) {
+            for (int i = 0; i < 1000; i++) {
+                gzip.write((product(String.valueOf(i), i % 2 == 0 ? "[\"Men\"]" : "[\"Women\"]") + "\n")
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        Path men = tempDir.resolve("men.json");
+        CorpusSplitter splitter = new CorpusSplitter(
+                List.of(new CorpusSplitter.Route(men, Set.of("Men"))), 4, 4096);
+
+        // Act
+        CorpusSplitter.Result result = splitter.split(input);
+
+        // Assert
+        assertEquals(1000, result.lines());
+        List<String> ids = ids(men);
+        assertEquals(500, ids.size());
+        assertEquals("0", ids.getFirst());
+        assertEquals("998", ids.getLast());
+    }
+
+    @Test
+    void parse_WithOutputAndCategories_ReturnsRoute() {
+        // Act
+        CorpusSplitter.Route route = CorpusSplitter.Route.parse("toys.json=Toys, Games");
+        CorpusSplitter.Route single = CorpusSplitter.Route.parse("Home & Kitchen");
+
+        // Assert
+        assertEquals(Path.of("toys.json"), route.output());
+        assertEquals(Set.of("Toys", "Games"), route.categories());
+        assertEquals(Path.of("products-home-kitchen.json"), single.output());
+        assertEquals(Set.of("Home & Kitchen"), single.categories());
+        assertThrows(IllegalArgumentException.class, () -> CorpusSplitter.Route.parse("toys.json="));
+    }
+
+    private static String product(String asin, String categories) {
+        return String.format("{\"asin\": \"%s\", \"title\": \"Product %s\", \"category\": %s}", asin, asin, categories);
+    }
+
+    private static List<String> ids(Path output) throws IOException {
+        List<String> ids = new ArrayList<>();
+        for (String line : Files.readAllLines(output)) {
+            ids.add(line.substring(line.indexOf(':') + 3, line.indexOf(',') - 1));
+        }
+        return ids;
+    }
+}
@@ -0,0 +1,147 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.OpenSearchConfig;
+import org.example.config.OpenSearchProperties;
+import org.example.indexer.ProductSortComparator;
+import org.example.model.Product;
+import org.example.service.OpenSearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.FieldValue;
+import org.opensearch.client.opensearch._types.SortMode;
+import org.opensearch.client.opensearch._types.SortOrder;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.indices.IndexSettings;
+import org.opensearch.client.opensearch.indices.SegmentSortOrder;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Objects;
+import java.util.function.UnaryOperator;
+
+/**
+ * Compares category-filtered queries sorted by category.keyword, brand.keyword and price against an
+ * index built in file order without an index sort and an index built with a matching index sort from
+ * presorted bulk requests. The sorted index can terminate collection early once it has the top hits.
+ * <p>
+ * Run with ./gradlew benchmark --tests IndexSortQueryBenchmark -Dbenchmark.file=path/to/products.json
+ */
+@Tag("benchmark")
+class IndexSortQueryBenchmark {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final List<String> SORT_FIELDS = List.of("category.keyword", "brand.keyword", "price");
+    private static final String UNSORTED_INDEX = "benchmark-unsorted";
+    private static final String SORTED_INDEX = "benchmark-sorted";
+    private static final int BATCH_SIZE = 500;
+    private static final int ITERATIONS = Integer.getInteger("benchmark.iterations", 200);
+
+    private OpenSearchClient client;
+    private OpenSearchService openSearchService;
+
+    @BeforeEach
+    void setUp() {
+        final OpenSearchProperties properties = new OpenSearchProperties();
+        properties.setProtocol("http");
+        properties.setHost(System.getProperty("benchmark.host", "localhost"));
+        properties.setPort(Integer.getInteger("benchmark.port", 9200));
+        client = new OpenSearchConfig().openSearchClient(properties);
+        openSearchService = new OpenSearchService(client);
+    }
+
+    @AfterEach
+    void tearDown() {
+        openSearchService.deleteIndex(UNSORTED_INDEX);
+        openSearchService.deleteIndex(SORTED_INDEX);
+    }
+
+    @Test
+    void sortedIndex_TerminatesFilteredSortedQueriesEarly() throws IOException {
+        final List<Product> products = readProducts(System.getProperty(
+                "benchmark.file", "src/main/resources/products-men-min.json"));
+        final List<String> categories = products.stream()
+                .map(Product::getCategory)
+                .filter(Objects::nonNull)
+                .map(List::getFirst)
+                .distinct()
+                .toList();
+
+        build(UNSORTED_INDEX, products, UnaryOperator.identity());
+        build(SORTED_INDEX,
+                new ProductSortComparator(ProductSortComparator.parse(SORT_FIELDS)).sort(products),
+                settings -> OpenSearchService.withIndexSort(settings, SORT_FIELDS,
+                        List.of(SegmentSortOrder.Asc, SegmentSortOrder.Asc, SegmentSortOrder.Asc)));
+
+        System.out.printf("%d documents, %d categories, %d queries per index%n",
+                products.size(), categories.size(), ITERATIONS);
+        System.out.printf("%-20s %10s %10s %10s %16s%n", "index", "p50 ms", "p99 ms", "took ms", "terminated early");
+        for (String indexName : List.of(UNSORTED_INDEX, SORTED_INDEX)) {
+            run(indexName, categories);
+        }
+    }
+
+    private void build(
+            final String indexName,
+            final List<Product> products,
+            final UnaryOperator<IndexSettings> settingsCustomizer)
+            throws IOException {
+        openSearchService.createIndex(indexName, "/products-settings.json", "/products-mapping.json",
+                settingsCustomizer, UnaryOperator.identity());
+        for (int start = 0; start < products.size(); start += BATCH_SIZE) {
+            openSearchService.bulkIndex(products.subList(start, Math.min(start + BATCH_SIZE, products.size())),
+                    indexName);
+        }
+        client.indices().refresh(r -> r.index(indexName));
+    }
+
+    private void run(final String indexName, final List<String> categories) throws IOException {
+        final long[] latencies = new long[ITERATIONS];
+        long took = 0;
+        int terminatedEarly = 0;
+        for (int i = 0; i < ITERATIONS; i++) {
+            final String category = categories.get(i % categories.size());
+            final long start = System.nanoTime();
+            final SearchResponse<Product> response = client.search(s -> s
+                    .index(indexName)
+                    .size(10)
+                    .trackTotalHits(t -> t.enabled(false))
+                    .query(q -> q.term(t -> t.field("category.keyword").value(FieldValue.of(category))))
+                    .sort(o -> o.field(f -> f.field("category.keyword").order(SortOrder.Asc).mode(SortMode.Min)))
+                    .sort(o -> o.field(f -> f.field("brand.keyword").order(SortOrder.Asc)))
+                    .sort(o -> o.field(f -> f.field("price").order(SortOrder.Asc))), Product.class);
+            latencies[i] = System.nanoTime() - start;
+            took += response.took();
+            if (Boolean.TRUE.equals(response.terminatedEarly())) {
+                terminatedEarly++;
+            }
+        }
+        Arrays.sort(latencies);
+        System.out.printf("%-20s %10.2f %10.2f %10.2f %15d%%%n",
+                indexName,
+                latencies[ITERATIONS / 2] / 1_000_000.0,
+                latencies[(int) (ITERATIONS * 0.99)] / 1_000_000.0,
+                (double) took / ITERATIONS,
+                terminatedEarly * 100 / ITERATIONS);
+    }
+
+    private static List<Product> readProducts(final String filePath) throws IOException {
+        final List<Product> products = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    products.add(objectMapper.readValue(line, Product.class));
+                }
+            }
+        }
+        return products;
+    }
+}
@@ -0,0 +1,133 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Product;
+import org.example.util.OffsetLineReader;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.BufferedReader;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * Compares reading and binding an NDJSON input end to end when it is stored plain, gzip compressed
+ * and inflated on the parsing thread, and gzip compressed and inflated ahead on its own thread the way
+ * input files are read. Needs no cluster.
+ * <p>
+ * Run with ./gradlew benchmark --tests InputDecompressionBenchmark -Dbenchmark.file=path/to/products.json
+ */
+@Tag("benchmark")
+class InputDecompressionBenchmark {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    // the input is repeated so a round reads enough to keep the decompressor busy
+    private static final int COPIES = Integer.getInteger("benchmark.copies", 10);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 5);
+    private static final int WARMUP_ROUNDS = 2;
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void prefetchedDecompression_ReadsCompressedInputNearPlainSpeed() throws IOException {
+        final byte[] input = Files.readAllBytes(Paths.get(System.getProperty(
+                "benchmark.file", "src/main/resources/products-men-min.json")));
+        final Path plain = tempDir.resolve("products.json");
+        final Path compressed = tempDir.resolve("products.json.gz");
+        try (OutputStream out = Files.newOutputStream(plain);
+             GZIPOutputStream gzip = new GZIPOutputStream(Files.newOutputStream(compressed))) {
+            for (int i = 0; i < COPIES; i++) {
+                out.write(input);
+                gzip.write(input);
+            }
+        }
+
+        final Reader[] readers = {
+                () -> lines(OffsetLineReader.open(plain, 0)),
+                () -> inlineGzip(compressed),
+                () -> lines(OffsetLineReader.openInput(compressed, 0))};
+        final String[] names = {"plain", "gzip inline", "gzip prefetched"};
+        final long[] elapsed = new long[readers.length];
+        long records = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            for (int r = 0; r < readers.length; r++) {
+                final long start = System.nanoTime();
+                records = read(readers[r]);
+                if (round >= WARMUP_ROUNDS) {
+                    elapsed[r] += System.nanoTime() - start;
+                }
+            }
+        }
+
+        final long plainBytes = Files.size(plain);
+        System.out.printf("%d records, %.1f MB plain, %.1f MB gzip, %d rounds%n",
+                records, plainBytes / 1e6, Files.size(compressed) / 1e6, ROUNDS);
+        System.out.printf("%-20s %14s %16s%n", "input", "records/s", "plain MB/s");
+        for (int r = 0; r < readers.length; r++) {
+            final double seconds = elapsed[r] / 1e9 / ROUNDS;
+            System.out.printf("%-20s %14.0f %16.1f%n", names[r], records / seconds, plainBytes / 1e6 / seconds);
+        }
+    }
+
+    private static long read(final Reader reader) throws IOException {
+        long records = 0;
+        try (LineSource lines = reader.open()) {
+            String line;
+            while ((line = lines.readLine()) != null) {
+                if (!line.isBlank()) {
+                    objectMapper.readValue(line, Product.class);
+                    records++;
+                }
+            }
+        }
+        return records;
+    }
+
+    private static LineSource lines(final OffsetLineReader reader) {
+        return new LineSource() {
+            @Override
+            public String readLine() throws IOException {
+                return reader.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    private static LineSource inlineGzip(final Path compressed) throws IOException {
+        final BufferedReader reader = new BufferedReader(new InputStreamReader(
+                new GZIPInputStream(Files.newInputStream(compressed), 64 * 1024), StandardCharsets.UTF_8));
+        return new LineSource() {
+            @Override
+            public String readLine() throws IOException {
+                return reader.readLine();
+            }
+
+            @Override
+            public void close() throws IOException {
+                reader.close();
+            }
+        };
+    }
+
+    @FunctionalInterface
+    private interface Reader {
+        LineSource open() throws IOException;
+    }
+
+    private interface LineSource extends Closeable {
+        String readLine() throws IOException;
+    }
+}
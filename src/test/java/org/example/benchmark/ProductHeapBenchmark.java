@@ -0,0 +1,99 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Product;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Compares the heap retained per in-flight record between holding the parsed JSON tree with a boxed
+ * embedding list and holding the compact Product with a float array embedding. Needs no cluster.
+ * <p>
+ * Run with ./gradlew benchmark --tests ProductHeapBenchmark -Dbenchmark.file=path/to/products.json
+ */
+@Tag("benchmark")
+class ProductHeapBenchmark {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int DIMENSIONS = Integer.getInteger("benchmark.dimensions", 384);
+
+    @Test
+    void compactProduct_RetainsLessHeapThanJsonTree() throws IOException {
+        final List<String> lines = readLines(System.getProperty(
+                "benchmark.file", "src/main/resources/products-men-min.json"));
+
+        final long treeBytes = retainedBytes(lines, line -> {
+            final JsonNode node = objectMapper.readTree(line);
+            final List<Float> embedding = new ArrayList<>(DIMENSIONS);
+            for (int i = 0; i < DIMENSIONS; i++) {
+                embedding.add((float) Math.random());
+            }
+            return new Object[]{node, embedding};
+        });
+        final long productBytes = retainedBytes(lines, line -> {
+            final Product product = objectMapper.readValue(line, Product.class);
+            final float[] embedding = new float[DIMENSIONS];
+            for (int i = 0; i < DIMENSIONS; i++) {
+                embedding[i] = (float) Math.random();
+            }
+            product.setFtsEmbedding(embedding);
+            return product;
+        });
+
+        System.out.printf("%d records, %d dimensions%n", lines.size(), DIMENSIONS);
+        System.out.printf("%-28s %14s %14s%n", "in-flight record", "total KB", "bytes/record");
+        System.out.printf("%-28s %14d %14d%n", "JsonNode + List<Float>", treeBytes / 1024, treeBytes / lines.size());
+        System.out.printf("%-28s %14d %14d%n", "Product + float[]", productBytes / 1024, productBytes / lines.size());
+    }
+
+    /**
+     * @return the heap still in use after the records are built and a GC, minus the baseline
+     */
+    private static long retainedBytes(final List<String> lines, final LineParser parser) throws IOException {
+        final MemoryMXBean memory = ManagementFactory.getMemoryMXBean();
+        final List<Object> records = new ArrayList<>(lines.size());
+        final long before = usedAfterGc(memory);
+        for (String line : lines) {
+            records.add(parser.parse(line));
+        }
+        final long after = usedAfterGc(memory);
+        if (records.size() != lines.size()) {
+            throw new IllegalStateException("records were not retained");
+        }
+        return after - before;
+    }
+
+    private static long usedAfterGc(final MemoryMXBean memory) {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return memory.getHeapMemoryUsage().getUsed();
+    }
+
+    private static List<String> readLines(final String filePath) throws IOException {
+        final List<String> lines = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    lines.add(line);
+                }
+            }
+        }
+        return lines;
+    }
+
+    @FunctionalInterface
+    private interface LineParser {
+        Object parse(String line) throws IOException;
+    }
+}
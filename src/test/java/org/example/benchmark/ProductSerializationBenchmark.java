@@ -0,0 +1,110 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Product;
+import org.example.serializer.ProductJsonWriter;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
+
+import java.io.BufferedReader;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * Compares single threaded bulk document serialization of products with embeddings between the
+ * client mapper's reflective bean serializer and ProductJsonWriter. Needs no cluster.
+ * <p>
+ * Run with ./gradlew benchmark --tests ProductSerializationBenchmark -Dbenchmark.file=path/to/products.json
+ */
+@Tag("benchmark")
+class ProductSerializationBenchmark {
+    private static final ObjectMapper readMapper = new ObjectMapper();
+    private static final int DIMENSIONS = Integer.getInteger("benchmark.dimensions", 384);
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 20);
+    private static final int WARMUP_ROUNDS = 5;
+
+    @Test
+    void productJsonWriter_SerializesMoreDocumentsPerSecond() throws IOException {
+        final List<Product> products = readProducts(System.getProperty(
+                "benchmark.file", "src/main/resources/products-men-min.json"));
+        // the mapper the client writes bulk documents with
+        final ObjectMapper beanMapper = new JacksonJsonpMapper().objectMapper();
+
+        final double[] rates = run(products, beanMapper,
+                (product, gen) -> beanMapper.writeValue(gen, product),
+                ProductJsonWriter::write);
+        final double beanRate = rates[0];
+        final double writerRate = rates[1];
+
+        System.out.printf("%d documents, %d dimensions, %d rounds on one thread%n",
+                products.size(), DIMENSIONS, ROUNDS);
+        System.out.printf("%-20s %14s%n", "serializer", "docs/s/core");
+        System.out.printf("%-20s %14.0f%n", "bean serializer", beanRate);
+        System.out.printf("%-20s %14.0f%n", "ProductJsonWriter", writerRate);
+        System.out.printf("speedup %.2fx%n", writerRate / beanRate);
+    }
+
+    /**
+     * Warm up both serializers, then time them in alternating rounds so neither is favoured by JIT
+     * state or heap growth
+     *
+     * @return documents written per second for each serializer
+     */
+    private static double[] run(final List<Product> products, final ObjectMapper mapper, final DocumentWriter... writers)
+            throws IOException {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream(1 << 20);
+        final long[] elapsed = new long[writers.length];
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            for (int w = 0; w < writers.length; w++) {
+                out.reset();
+                final long start = System.nanoTime();
+                try (JsonGenerator gen = mapper.getFactory().createGenerator(out)) {
+                    for (Product product : products) {
+                        writers[w].write(product, gen);
+                        gen.writeRaw('\n');
+                    }
+                }
+                if (round >= WARMUP_ROUNDS) {
+                    elapsed[w] += System.nanoTime() - start;
+                }
+            }
+        }
+        final double[] rates = new double[writers.length];
+        for (int w = 0; w < writers.length; w++) {
+            rates[w] = (double) products.size() * ROUNDS / (elapsed[w] / 1_000_000_000.0);
+        }
+        return rates;
+    }
+
+    private static List<Product> readProducts(final String filePath) throws IOException {
+        final Random random = new Random(42);
+        final List<Product> products = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.isBlank()) {
+                    final Product product = readMapper.readValue(line, Product.class);
+                    final float[] embedding = new float[DIMENSIONS];
+                    for (int i = 0; i < DIMENSIONS; i++) {
+                        embedding[i] = (float) random.nextGaussian() * 0.05f;
+                    }
+                    product.setFtsEmbedding(embedding);
+                    products.add(product);
+                }
+            }
+        }
+        return products;
+    }
+
+    @FunctionalInterface
+    private interface DocumentWriter {
+        void write(Product product, JsonGenerator gen) throws IOException;
+    }
+}
@@ -0,0 +1,61 @@
+package org.example.benchmark;
+
+import org.example.util.VectorUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.util.Random;
+import java.util.function.Consumer;
+
+/**
+ * Compares L2 normalization throughput of the Vector API kernel against the scalar loop. Needs no
+ * cluster.
+ * <p>
+ * Run with ./gradlew benchmark --tests VectorNormalizeBenchmark -Dbenchmark.dimensions=384
+ */
+@Tag("benchmark")
+class VectorNormalizeBenchmark {
+    private static final int DIMENSIONS = Integer.getInteger("benchmark.dimensions", 384);
+    private static final int VECTORS = 10_000;
+    private static final int ROUNDS = Integer.getInteger("benchmark.rounds", 50);
+    private static final int WARMUP_ROUNDS = 10;
+
+    @Test
+    void simdNormalize_NormalizesMoreVectorsPerSecond() {
+        final Random random = new Random(5);
+        final float[][] source = new float[VECTORS][DIMENSIONS];
+        for (float[] vector : source) {
+            for (int i = 0; i < DIMENSIONS; i++) {
+                vector[i] = (float) random.nextGaussian();
+            }
+        }
+
+        final double scalarRate = run(source, VectorUtils::normalizeScalar);
+        final double simdRate = run(source, VectorUtils::normalize);
+
+        System.out.printf("%d vectors of %d dimensions, Vector API %s%n",
+                VECTORS, DIMENSIONS, VectorUtils.isSimdEnabled() ? "enabled" : "not available");
+        System.out.printf("%-12s %16s%n", "normalizer", "vectors/s");
+        System.out.printf("%-12s %16.0f%n", "scalar", scalarRate);
+        System.out.printf("%-12s %16.0f%n", "vector api", simdRate);
+        System.out.printf("speedup %.2fx%n", simdRate / scalarRate);
+    }
+
+    private static double run(final float[][] source, final Consumer<float[]> normalizer) {
+        final float[][] work = new float[source.length][];
+        long elapsed = 0;
+        for (int round = 0; round < WARMUP_ROUNDS + ROUNDS; round++) {
+            for (int i = 0; i < source.length; i++) {
+                work[i] = source[i].clone();
+            }
+            final long start = System.nanoTime();
+            for (float[] vector : work) {
+                normalizer.accept(vector);
+            }
+            if (round >= WARMUP_ROUNDS) {
+                elapsed += System.nanoTime() - start;
+            }
+        }
+        return (double) source.length * ROUNDS / (elapsed / 1_000_000_000.0);
+    }
+}
@@ -0,0 +1,129 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.EmbeddingProperties;
+import org.example.model.Product;
+import org.example.serializer.FloatFormatter;
+import org.example.service.EmbeddingService;
+import org.example.util.VectorUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recall check for vector-digits. Embeds a sample of products with the embedding service, rounds
+ * the document vectors to each candidate precision and compares brute force recall@k of title
+ * queries against the full precision vectors, along with the JSON bytes of one embedding.
+ * <p>
+ * Run with ./gradlew benchmark --tests VectorPrecisionBenchmark -Dbenchmark.file=path/to/products.json
+ * -Dbenchmark.embedding.host=localhost -Dbenchmark.embedding.port=8000 -Dbenchmark.digits=3,4,5,6
+ */
+@Tag("benchmark")
+class VectorPrecisionBenchmark {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int SAMPLE_SIZE = Integer.getInteger("benchmark.sample", 1000);
+    private static final int QUERIES = Integer.getInteger("benchmark.queries", 100);
+    private static final int K = Integer.getInteger("benchmark.k", 10);
+    private static final int EMBEDDING_BATCH = 100;
+
+    @Test
+    void roundedVectors_KeepRecallWithSmallerBodies() throws IOException {
+        final EmbeddingService embeddingService = new EmbeddingService(embeddingProperties());
+        final List<Product> products = readProducts(System.getProperty(
+                "benchmark.file", "src/main/resources/products-men-min.json"));
+        final float[][] documents = embed(embeddingService, products.stream().map(Product::generateFts).toList());
+        final float[][] queries = embed(embeddingService, products.stream()
+                .limit(QUERIES)
+                .map(product -> product.getTitle() == null ? "" : product.getTitle())
+                .toList());
+
+        final int[][] expected = new int[queries.length][];
+        for (int q = 0; q < queries.length; q++) {
+            expected[q] = VectorUtils.exactTopK(queries[q], documents, K);
+        }
+
+        System.out.printf("%d documents, %d queries, recall@%d against full precision%n",
+                documents.length, queries.length, K);
+        System.out.printf("%-8s %16s %10s%n", "digits", "bytes/embedding", "recall");
+        System.out.printf("%-8s %16.0f %10.4f%n", "full", averageJsonBytes(documents), 1.0);
+        for (String digits : System.getProperty("benchmark.digits", "3,4,5,6").split(",")) {
+            final int significantDigits = Integer.parseInt(digits.trim());
+            final float[][] rounded = new float[documents.length][];
+            for (int i = 0; i < documents.length; i++) {
+                rounded[i] = documents[i].clone();
+                VectorUtils.roundToSignificantDigits(rounded[i], significantDigits);
+            }
+            double recall = 0;
+            for (int q = 0; q < queries.length; q++) {
+                recall += VectorUtils.recall(expected[q], VectorUtils.exactTopK(queries[q], rounded, K));
+            }
+            System.out.printf("%-8d %16.0f %10.4f%n",
+                    significantDigits, averageJsonBytes(rounded), recall / queries.length);
+        }
+    }
+
+    private static EmbeddingProperties embeddingProperties() {
+        final EmbeddingProperties properties = new EmbeddingProperties();
+        properties.setProtocol("http");
+        properties.setHost(System.getProperty("benchmark.embedding.host", "localhost"));
+        properties.setPort(Integer.getInteger("benchmark.embedding.port", 8000));
+        properties.setPath(System.getProperty("benchmark.embedding.path", "embed"));
+        properties.setCharLimit(2500);
+        return properties;
+    }
+
+    private static float[][] embed(final EmbeddingService embeddingService, final List<String> texts) {
+        final List<float[]> vectors = new ArrayList<>();
+        for (int start = 0; start < texts.size(); start += EMBEDDING_BATCH) {
+            final List<String> batch = texts.subList(start, Math.min(start + EMBEDDING_BATCH, texts.size()));
+            final List<List<Float>> embeddings = embeddingService.getEmbeddings(batch);
+            if (embeddings.size() != batch.size()) {
+                throw new IllegalStateException("Embedding service returned " + embeddings.size()
+                        + " vectors for " + batch.size() + " texts");
+            }
+            for (List<Float> embedding : embeddings) {
+                final float[] vector = new float[embedding.size()];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = embedding.get(i);
+                }
+                vectors.add(vector);
+            }
+        }
+        return vectors.toArray(new float[0][]);
+    }
+
+    /**
+     * @return the average length of the JSON array text the writer produces for each vector
+     */
+    private static double averageJsonBytes(final float[][] vectors) {
+        final char[] buffer = new char[FloatFormatter.MAX_LENGTH];
+        long total = 0;
+        for (float[] vector : vectors) {
+            // brackets and separating commas
+            total += 1 + vector.length;
+            for (float value : vector) {
+                total += FloatFormatter.format(value, buffer, 0);
+            }
+        }
+        return (double) total / vectors.length;
+    }
+
+    private static List<Product> readProducts(final String filePath) throws IOException {
+        final List<Product> products = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null && products.size() < SAMPLE_SIZE) {
+                if (!line.isBlank()) {
+                    products.add(objectMapper.readValue(line, Product.class));
+                }
+            }
+        }
+        return products;
+    }
+}
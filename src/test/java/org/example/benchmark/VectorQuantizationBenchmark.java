@@ -0,0 +1,129 @@
+package org.example.benchmark;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.EmbeddingProperties;
+import org.example.model.Product;
+import org.example.service.EmbeddingService;
+import org.example.util.ScalarQuantizer;
+import org.example.util.VectorUtils;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Recall and memory check for quantize-vectors. Embeds a sample of products with the embedding
+ * service, calibrates the int8 quantizer on the first records like an indexing run does, and compares
+ * brute force recall@k of quantized title queries over quantized documents against float vectors,
+ * along with the k-NN plugin estimate of HNSW native memory per vector.
+ * <p>
+ * Run with ./gradlew benchmark --tests VectorQuantizationBenchmark -Dbenchmark.file=path/to/products.json
+ * -Dbenchmark.embedding.host=localhost -Dbenchmark.embedding.port=8000
+ */
+@Tag("benchmark")
+class VectorQuantizationBenchmark {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final int SAMPLE_SIZE = Integer.getInteger("benchmark.sample", 5000);
+    private static final int CALIBRATION_SIZE = Integer.getInteger("benchmark.calibration", 1000);
+    private static final int QUERIES = Integer.getInteger("benchmark.queries", 100);
+    private static final int K = Integer.getInteger("benchmark.k", 10);
+    private static final int M = Integer.getInteger("benchmark.m", 24);
+    private static final int EMBEDDING_BATCH = 100;
+    // k-NN plugin estimate of HNSW memory: 1.1 * (bytes per element * dimension + 8 * m) bytes per vector
+    private static final double GRAPH_OVERHEAD = 1.1;
+
+    @Test
+    void quantizedVectors_KeepRecallInLessMemory() throws IOException {
+        final EmbeddingService embeddingService = new EmbeddingService(embeddingProperties());
+        final List<Product> products = readProducts(System.getProperty(
+                "benchmark.file", "src/main/resources/products-men-min.json"));
+        final float[][] documents = embed(embeddingService, products.stream().map(Product::generateFts).toList());
+        final float[][] queries = embed(embeddingService, products.stream()
+                .limit(QUERIES)
+                .map(product -> product.getTitle() == null ? "" : product.getTitle())
+                .toList());
+
+        final ScalarQuantizer quantizer = ScalarQuantizer.calibrate(
+                List.of(documents).subList(0, Math.min(CALIBRATION_SIZE, documents.length)));
+        final float[][] quantized = new float[documents.length][];
+        for (int i = 0; i < documents.length; i++) {
+            quantized[i] = toFloats(quantizer.quantize(documents[i]));
+        }
+
+        double recall = 0;
+        for (float[] query : queries) {
+            recall += VectorUtils.recall(
+                    VectorUtils.exactTopK(query, documents, K),
+                    VectorUtils.exactTopK(toFloats(quantizer.quantize(query)), quantized, K));
+        }
+
+        final int dimension = documents[0].length;
+        final double floatGraphBytes = GRAPH_OVERHEAD * (Float.BYTES * dimension + 8.0 * M);
+        final double byteGraphBytes = GRAPH_OVERHEAD * (Byte.BYTES * dimension + 8.0 * M);
+        System.out.printf("%d documents, %d queries, %d dimensions, calibrated on %d, scale %.2f%n",
+                documents.length, queries.length, dimension, Math.min(CALIBRATION_SIZE, documents.length),
+                quantizer.getScale());
+        System.out.printf("%-8s %14s %18s %12s%n", "vectors", "vector bytes", "graph bytes (m=" + M + ")", "recall@" + K);
+        System.out.printf("%-8s %14d %18.0f %12.4f%n", "float", Float.BYTES * dimension, floatGraphBytes, 1.0);
+        System.out.printf("%-8s %14d %18.0f %12.4f%n", "int8", Byte.BYTES * dimension, byteGraphBytes,
+                recall / queries.length);
+        System.out.printf("graph memory saved %.1f%%, %.0f MB per million documents%n",
+                100 * (1 - byteGraphBytes / floatGraphBytes), (floatGraphBytes - byteGraphBytes) * 1_000_000 / 1_048_576);
+    }
+
+    private static EmbeddingProperties embeddingProperties() {
+        final EmbeddingProperties properties = new EmbeddingProperties();
+        properties.setProtocol("http");
+        properties.setHost(System.getProperty("benchmark.embedding.host", "localhost"));
+        properties.setPort(Integer.getInteger("benchmark.embedding.port", 8000));
+        properties.setPath(System.getProperty("benchmark.embedding.path", "embed"));
+        properties.setCharLimit(2500);
+        return properties;
+    }
+
+    private static float[][] embed(final EmbeddingService embeddingService, final List<String> texts) {
+        final List<float[]> vectors = new ArrayList<>();
+        for (int start = 0; start < texts.size(); start += EMBEDDING_BATCH) {
+            final List<String> batch = texts.subList(start, Math.min(start + EMBEDDING_BATCH, texts.size()));
+            final List<List<Float>> embeddings = embeddingService.getEmbeddings(batch);
+            if (embeddings.size() != batch.size()) {
+                throw new IllegalStateException("Embedding service returned " + embeddings.size()
+                        + " vectors for " + batch.size() + " texts");
+            }
+            for (List<Float> embedding : embeddings) {
+                final float[] vector = new float[embedding.size()];
+                for (int i = 0; i < vector.length; i++) {
+                    vector[i] = embedding.get(i);
+                }
+                vectors.add(vector);
+            }
+        }
+        return vectors.toArray(new float[0][]);
+    }
+
+    private static float[] toFloats(final byte[] vector) {
+        final float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = vector[i];
+        }
+        return result;
+    }
+
+    private static List<Product> readProducts(final String filePath) throws IOException {
+        final List<Product> products = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(Paths.get(filePath))) {
+            String line;
+            while ((line = reader.readLine()) != null && products.size() < SAMPLE_SIZE) {
+                if (!line.isBlank()) {
+                    products.add(objectMapper.readValue(line, Product.class));
+                }
+            }
+        }
+        return products;
+    }
+}
@@ -0,0 +1,73 @@
+package org.example.deserializer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.Arguments;
+import org.junit.jupiter.params.provider.MethodSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PriceParserTest {
+
+    static Stream<Arguments> provideValidPriceInputs() {
+        return Stream.of(
+            Arguments.of("$12.99", 1299L, "Price with dollar sign"),
+            Arguments.of("€25.50", 2550L, "Price with euro symbol"),
+            Arguments.of("£15.75", 1575L, "Price with pound symbol"),
+            Arguments.of("15.75", 1575L, "Price without currency symbol"),
+            Arguments.of("  $  18.99  ", 1899L, "Price with whitespace"),
+            Arguments.of("¥1000.00", 100000L, "Price with yen symbol"),
+            Arguments.of("$0.99", 99L, "Price under one dollar"),
+            Arguments.of("$1000000.00", 100000000L, "Large price amount"),
+            Arguments.of("$9.39 - $49.33", 939L, "Price range - first value"),
+            Arguments.of("$7", 700L, "Whole dollars"),
+            Arguments.of("$7.5", 750L, "Single fraction digit"),
+            Arguments.of("$.5", 50L, "No integer digits"),
+            Arguments.of("$1.005", 101L, "Fraction rounded half up"),
+            Arguments.of("$1.9949", 199L, "Fraction rounded down"),
+            Arguments.of("$1 - $2 - $3", 1200L, "Only the text after the last dollar sign is dropped")
+        );
+    }
+
+    @ParameterizedTest(name = "{2}: should parse {0} to {1}")
+    @MethodSource("provideValidPriceInputs")
+    void parseCents_WithValidPrice_ReturnsCents(String input, long expected, String description) throws IOException {
+        assertEquals(expected, parse(input), description);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "   ", "\t\n"})
+    void parseCents_WithBlankText_ReturnsNoPrice(String input) throws IOException {
+        assertEquals(PriceParser.NO_PRICE, parse(input));
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"$abc.def", "not-a-price", "$", "12.34.56", "$12.34.56", "$99999999999999999999"})
+    void parseCents_WithInvalidPrice_ThrowsIOException(String input) {
+        final IOException exception = assertThrows(IOException.class, () -> parse(input));
+
+        assertTrue(exception.getMessage().contains("Unable to parse price"));
+    }
+
+    @Test
+    void parseCents_WithOffset_ParsesOnlyTheRange() throws IOException {
+        // Arrange
+        final char[] chars = "xx$4.20yy".toCharArray();
+
+        // Act
+        final long result = PriceParser.parseCents(chars, 2, 5);
+
+        // Assert
+        assertEquals(420L, result);
+    }
+
+    private static long parse(String input) throws IOException {
+        return PriceParser.parseCents(input.toCharArray(), 0, input.length());
+    }
+}
@@ -0,0 +1,116 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.ProductIndexProperties.DedupMode;
+import org.example.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ConcurrentFileReaderTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final Function<String, Product> PARSER = line -> {
+        try {
+            return objectMapper.readValue(line, Product.class);
+        } catch (IOException e) {
+            return null;
+        }
+    };
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void next_WithSeveralFiles_ReturnsEveryRecordAndCountsPerFile() throws Exception {
+        // Arrange
+        Path first = write("part-1.json", "A1", "A2", "A3");
+        Path second = write("part-2.json", "B1", "B2");
+
+        // Act
+        List<String> ids;
+        Map<String, Integer> fileRecords;
+        try (ConcurrentFileReader reader = new ConcurrentFileReader(
+                List.of(first, second), 2, 2, null, DedupMode.OFF, PARSER)) {
+            reader.start();
+            ids = readAll(reader);
+            fileRecords = reader.getFileRecords();
+            assertEquals(5, reader.getLineCount());
+            assertEquals(Files.size(first) + Files.size(second), reader.getBytesRead());
+        }
+
+        // Assert
+        assertEquals(List.of("A1", "A2", "A3", "B1", "B2"), ids.stream().sorted().toList());
+        assertEquals(Map.of(first.toString(), 3, second.toString(), 2), fileRecords);
+    }
+
+    @Test
+    void next_WithFirstWinsAcrossFiles_DropsRepeatedIds() throws Exception {
+        // Arrange
+        Path first = write("part-1.json", "A1", "A2");
+        Path second = write("part-2.json", "A2", "B1");
+
+        // Act & Assert
+        try (ConcurrentFileReader reader = new ConcurrentFileReader(
+                List.of(first, second), 2, 10, null, DedupMode.FIRST_WINS, PARSER)) {
+            reader.start();
+            assertEquals(List.of("A1", "A2", "B1"), readAll(reader).stream().sorted().toList());
+            assertEquals(1, reader.getDuplicates());
+        }
+    }
+
+    @Test
+    void next_WithMissingFile_ThrowsIOException() throws Exception {
+        // Arrange
+        Path first = write("part-1.json", "A1");
+
+        // Act & Assert
+        try (ConcurrentFileReader reader = new ConcurrentFileReader(
+                List.of(first, tempDir.resolve("missing.json")), 1, 10, null, DedupMode.OFF, PARSER)) {
+            reader.start();
+            assertThrows(IOException.class, () -> readAll(reader));
+        }
+    }
+
+    @Test
+    void resolve_WithDirectoryOrGlob_ReturnsMatchingFilesInNameOrder() throws IOException {
+        // Arrange
+        Path second = write("part-2.json", "B1");
+        Path first = write("part-1.json", "A1");
+        Path other = write("notes.txt", "C1");
+
+        // Act & Assert
+        assertEquals(List.of(other, first, second), ConcurrentFileReader.resolve(tempDir.toString()));
+        assertEquals(List.of(first, second), ConcurrentFileReader.resolve(tempDir.resolve("part-*.json").toString()));
+        assertEquals(List.of(first), ConcurrentFileReader.resolve(first.toString()));
+        assertThrows(IllegalArgumentException.class,
+                () -> ConcurrentFileReader.resolve(tempDir.resolve("*.ndjson").toString()));
+    }
+
+    private static List<String> readAll(ConcurrentFileReader reader) throws Exception {
+        List<String> ids = new ArrayList<>();
+        List<Product> batch;
+        while ((batch = reader.next()) != null) {
+            batch.forEach(product -> ids.add(product.getId()));
+        }
+        return ids;
+    }
+
+    private Path write(String name, String... ids) throws IOException {
+        Path file = tempDir.resolve(name);
+        StringBuilder sb = new StringBuilder();
+        for (String id : ids) {
+            sb.append(String.format("{\"id\": \"%s\", \"title\": \"Product %s\"}%n", id, id));
+        }
+        Files.writeString(file, sb.toString());
+        return file;
+    }
+}
@@ -0,0 +1,344 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.ProductIndexProperties;
+import org.example.model.Product;
+import org.example.service.OpenSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DeltaProductIndexerTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private FullProductIndexer mockFullProductIndexer;
+
+    @Mock
+    private OpenSearchService mockOpenSearchService;
+
+    @Mock
+    private ProductIndexProperties mockIndexProperties;
+
+    @InjectMocks
+    private DeltaProductIndexer deltaProductIndexer;
+
+    @Captor
+    private ArgumentCaptor<Collection<String>> idsCaptor;
+
+    @Captor
+    private ArgumentCaptor<Function<String, String>> routingCaptor;
+
+    @TempDir
+    Path tempDir;
+
+    private static final String TEST_ALIAS = "products";
+    private static final String LIVE_INDEX = "products-2026.02.23.120000";
+    private static final String UNCHANGED = "{\"id\": \"prod-1\", \"title\": \"Shirt\", \"category\": [\"Root\", \"Men\"]}";
+    private static final String CHANGED = "{\"id\": \"prod-2\", \"title\": \"New Jacket\", \"category\": [\"Root\", \"Men\"]}";
+    private static final String ADDED = "{\"id\": \"prod-4\", \"title\": \"Hat\", \"category\": [\"Root\", \"Men\"]}";
+
+    private Path manifestPath;
+    private final List<String> sentIds = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        manifestPath = tempDir.resolve("manifest.tsv");
+        when(mockIndexProperties.getAlias()).thenReturn(TEST_ALIAS);
+        when(mockIndexProperties.getBatchSize()).thenReturn(500);
+        when(mockIndexProperties.getManifestPath()).thenReturn(manifestPath.toString());
+        when(mockOpenSearchService.getIndexesByAlias(TEST_ALIAS)).thenReturn(Set.of(LIVE_INDEX));
+        // record ids at call time, the indexer reuses its batch list
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            products.forEach(product -> sentIds.add(product.getId()));
+            return List.of();
+        }).when(mockFullProductIndexer).bulkIndexProducts(anyList(), anyString(), any());
+    }
+
+    private void writePreviousManifest(String routing) throws IOException {
+        ProductManifest manifest = new ProductManifest(LIVE_INDEX);
+        manifest.put("prod-1", hash(UNCHANGED), routing);
+        manifest.put("prod-2", hash("{\"id\": \"prod-2\", \"title\": \"Jacket\", \"category\": [\"Root\", \"Men\"]}"), routing);
+        manifest.put("prod-3", hash("{\"id\": \"prod-3\", \"title\": \"Scarf\"}"), routing);
+        manifest.write(manifestPath);
+    }
+
+    private static String hash(String line) throws IOException {
+        return ProductManifest.hash(objectMapper.readValue(line, Product.class), objectMapper);
+    }
+
+    private Path writeInput() throws IOException {
+        Path file = tempDir.resolve("products.json");
+        Files.writeString(file, String.join("\n", UNCHANGED, CHANGED, ADDED));
+        return file;
+    }
+
+    @Test
+    void indexFromFile_WithManifest_SendsOnlyChangesAndDeletesRemovedProducts() throws IOException {
+        // Arrange
+        writePreviousManifest(null);
+
+        // Act
+        int result = deltaProductIndexer.indexFromFile(writeInput().toString());
+
+        // Assert
+        assertEquals(2, result);
+        assertEquals(List.of("prod-2", "prod-4"), sentIds);
+        verify(mockOpenSearchService).bulkDelete(idsCaptor.capture(), eq(LIVE_INDEX), any());
+        assertEquals(Set.of("prod-3"), Set.copyOf(idsCaptor.getValue()));
+        verify(mockOpenSearchService).refreshIndex(LIVE_INDEX);
+        verify(mockFullProductIndexer, never()).indexFromFile(anyString(), any(), anyBoolean(), any(), any());
+
+        ProductManifest written = ProductManifest.read(manifestPath);
+        assertEquals(Set.of("prod-1", "prod-2", "prod-4"), written.ids());
+        assertEquals(hash(CHANGED), written.get("prod-2").hash());
+    }
+
+    @Test
+    void indexFromFile_WhenCancelled_StopsReadingAndLeavesTheManifest() throws IOException {
+        // Arrange - the run is cancelled while its first batch is sent
+        writePreviousManifest(null);
+        String before = Files.readString(manifestPath);
+        when(mockIndexProperties.getBatchSize()).thenReturn(1);
+        IndexProgress progress = new IndexProgress();
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            products.forEach(product -> sentIds.add(product.getId()));
+            progress.cancel();
+            return List.of();
+        }).when(mockFullProductIndexer).bulkIndexProducts(anyList(), anyString(), any());
+        String file = writeInput().toString();
+
+        // Act & Assert
+        assertThrows(CancellationException.class, () -> deltaProductIndexer.indexFromFile(file, null, progress));
+        assertEquals(List.of("prod-2"), sentIds);
+        verify(mockOpenSearchService, never()).bulkDelete(any(), anyString(), any());
+        assertEquals(before, Files.readString(manifestPath));
+    }
+
+    @Test
+    void indexFromFile_WithRejectedChanges_KeepsTheirPreviousManifestEntries() throws IOException {
+        // Arrange
+        writePreviousManifest(null);
+        when(mockFullProductIndexer.bulkIndexProducts(anyList(), anyString(), any()))
+                .thenReturn(List.of("prod-2", "prod-4"));
+
+        // Act
+        int result = deltaProductIndexer.indexFromFile(writeInput().toString());
+
+        // Assert
+        assertEquals(0, result);
+        ProductManifest written = ProductManifest.read(manifestPath);
+        assertEquals(Set.of("prod-1", "prod-2"), written.ids());
+        assertNotEquals(hash(CHANGED), written.get("prod-2").hash());
+    }
+
+    @Test
+    void indexFromFile_WithOnlyPriceAndImageChanged_SendsPartialUpdateWithoutEmbedding() throws IOException {
+        // Arrange
+        String before = "{\"id\": \"prod-1\", \"title\": \"Shirt\", \"price\": \"$10.00\"}";
+        String after = "{\"id\": \"prod-1\", \"title\": \"Shirt\", \"price\": \"$8.00\", "
+                + "\"imageURLHighRes\": [\"https://example.com/shirt.jpg\"]}";
+        Product previous = objectMapper.readValue(before, Product.class);
+        ProductManifest manifest = new ProductManifest(LIVE_INDEX);
+        manifest.put("prod-1", hash(before), null, ProductManifest.ftsHash(previous));
+        manifest.write(manifestPath);
+        Path file = tempDir.resolve("products.json");
+        Files.writeString(file, String.join("\n", after, ADDED));
+        List<String> updatedIds = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            products.forEach(product -> updatedIds.add(product.getId()));
+            return List.of();
+        }).when(mockFullProductIndexer).bulkUpdateProducts(anyList(), anyString(), any());
+
+        // Act
+        int result = deltaProductIndexer.indexFromFile(file.toString());
+
+        // Assert
+        assertEquals(2, result);
+        assertEquals(List.of("prod-1"), updatedIds);
+        assertEquals(List.of("prod-4"), sentIds);
+        verify(mockFullProductIndexer).bulkUpdateProducts(anyList(), eq(LIVE_INDEX), any());
+        ProductManifest written = ProductManifest.read(manifestPath);
+        assertEquals(hash(after), written.get("prod-1").hash());
+        assertEquals(ProductManifest.ftsHash(previous), written.get("prod-1").ftsHash());
+    }
+
+    @Test
+    void indexFromFile_WithRejectedPartialUpdate_DoesNotCountItAsEmbedSkipped() throws IOException {
+        // Arrange
+        String before = "{\"id\": \"prod-1\", \"title\": \"Shirt\", \"price\": \"$10.00\"}";
+        String after = "{\"id\": \"prod-1\", \"title\": \"Shirt\", \"price\": \"$8.00\"}";
+        Product previous = objectMapper.readValue(before, Product.class);
+        ProductManifest manifest = new ProductManifest(LIVE_INDEX);
+        manifest.put("prod-1", hash(before), null, ProductManifest.ftsHash(previous));
+        manifest.write(manifestPath);
+        Path file = tempDir.resolve("products.json");
+        Files.writeString(file, after);
+        when(mockFullProductIndexer.bulkUpdateProducts(anyList(), anyString(), any())).thenReturn(List.of("prod-1"));
+
+        // Act
+        int result = deltaProductIndexer.indexFromFile(file.toString());
+
+        // Assert
+        assertEquals(0, result);
+        assertEquals(hash(before), ProductManifest.read(manifestPath).get("prod-1").hash());
+    }
+
+    @Test
+    void indexFromFile_WithUnchangedInput_SendsNothing() throws IOException {
+        // Arrange
+        writePreviousManifest(null);
+        Path file = tempDir.resolve("products.json");
+        Files.writeString(file, UNCHANGED);
+        ProductManifest manifest = new ProductManifest(LIVE_INDEX);
+        manifest.put("prod-1", hash(UNCHANGED), null);
+        manifest.write(manifestPath);
+
+        // Act
+        int result = deltaProductIndexer.indexFromFile(file.toString());
+
+        // Assert
+        assertEquals(0, result);
+        verify(mockFullProductIndexer, never()).bulkIndexProducts(anyList(), anyString(), any());
+        verify(mockOpenSearchService, never()).bulkDelete(any(), anyString(), any());
+    }
+
+    @Test
+    void indexFromFile_WithLimit_SkipsDeletesAndKeepsUnreadEntries() throws IOException {
+        // Arrange
+        writePreviousManifest(null);
+
+        // Act
+        deltaProductIndexer.indexFromFile(writeInput().toString(), 1);
+
+        // Assert
+        verify(mockOpenSearchService, never()).bulkDelete(any(), anyString(), any());
+        assertEquals(Set.of("prod-1", "prod-2", "prod-3"), ProductManifest.read(manifestPath).ids());
+    }
+
+    @Test
+    void indexFromFile_WithMalformedLine_SkipsItAndKeepsUnreadEntries() throws IOException {
+        // Arrange
+        writePreviousManifest(null);
+        Path file = tempDir.resolve("products.json");
+        Files.writeString(file, String.join("\n", UNCHANGED, "{\"id\": \"prod-3\", \"title\":", CHANGED));
+
+        // Act
+        int result = deltaProductIndexer.indexFromFile(file.toString());
+
+        // Assert
+        assertEquals(1, result);
+        assertEquals(List.of("prod-2"), sentIds);
+        // the id on the malformed line is unknown, nothing may be deleted as removed
+        verify(mockOpenSearchService, never()).bulkDelete(any(), anyString(), any());
+        ProductManifest written = ProductManifest.read(manifestPath);
+        assertEquals(Set.of("prod-1", "prod-2", "prod-3"), written.ids());
+        assertEquals(hash(CHANGED), written.get("prod-2").hash());
+    }
+
+    @Test
+    void indexFromFile_WithChangedRouting_DeletesOldCopyWithOldRouting() throws IOException {
+        // Arrange
+        writePreviousManifest(null);
+        when(mockIndexProperties.isRouteByCategory()).thenReturn(true);
+
+        // Act
+        deltaProductIndexer.indexFromFile(writeInput().toString());
+
+        // Assert
+        var inOrder = inOrder(mockOpenSearchService, mockFullProductIndexer);
+        inOrder.verify(mockOpenSearchService).bulkDelete(idsCaptor.capture(), eq(LIVE_INDEX), routingCaptor.capture());
+        inOrder.verify(mockFullProductIndexer).bulkIndexProducts(anyList(), eq(LIVE_INDEX), any());
+        // prod-1 is unchanged but has to move to its category shard too
+        assertEquals(Set.of("prod-1", "prod-2"), Set.copyOf(idsCaptor.getValue()));
+        assertNull(routingCaptor.getValue().apply("prod-2"));
+        assertEquals("men", ProductManifest.read(manifestPath).get("prod-2").routing());
+    }
+
+    @Test
+    void indexFromFile_WithoutManifest_RunsFullRebuildAndWritesManifest() throws IOException {
+        // Arrange
+        String newIndex = "products-2026.02.24.120000";
+        when(mockOpenSearchService.getIndexesByAlias(TEST_ALIAS))
+                .thenReturn(Set.of(LIVE_INDEX))
+                .thenReturn(Set.of(newIndex));
+        when(mockFullProductIndexer.indexFromFile(anyString(), any(), anyBoolean(), any(), any())).thenReturn(3);
+
+        // Act
+        int result = deltaProductIndexer.indexFromFile(writeInput().toString());
+
+        // Assert
+        assertEquals(3, result);
+        ProductManifest written = ProductManifest.read(manifestPath);
+        assertEquals(newIndex, written.getIndexName());
+        assertEquals(Set.of("prod-1", "prod-2", "prod-4"), written.ids());
+    }
+
+    @Test
+    void indexFromFile_WithoutManifestAndMalformedLine_WritesManifestOfTheOtherProducts() throws IOException {
+        // Arrange
+        String newIndex = "products-2026.02.24.120000";
+        when(mockOpenSearchService.getIndexesByAlias(TEST_ALIAS))
+                .thenReturn(Set.of(LIVE_INDEX))
+                .thenReturn(Set.of(newIndex));
+        when(mockFullProductIndexer.indexFromFile(anyString(), any(), anyBoolean(), any(), any())).thenReturn(2);
+        Path file = tempDir.resolve("products.json");
+        Files.writeString(file, String.join("\n", UNCHANGED, "not json", ADDED));
+
+        // Act
+        deltaProductIndexer.indexFromFile(file.toString());
+
+        // Assert
+        assertEquals(Set.of("prod-1", "prod-4"), ProductManifest.read(manifestPath).ids());
+    }
+
+    @Test
+    void indexFromFile_WhenRebuildDoesNotMoveAlias_DoesNotWriteManifest() throws IOException {
+        // Arrange
+        when(mockFullProductIndexer.indexFromFile(anyString(), any(), anyBoolean(), any(), any())).thenReturn(3);
+
+        // Act
+        deltaProductIndexer.indexFromFile(writeInput().toString());
+
+        // Assert
+        assertFalse(Files.exists(manifestPath));
+    }
+
+    @Test
+    void indexFromFile_WithAliasOverSeveralIndexes_ThrowsIllegalStateException() throws IOException {
+        // Arrange
+        when(mockOpenSearchService.getIndexesByAlias(TEST_ALIAS))
+                .thenReturn(Set.of("products-men-2026.02.23.120000", "products-toys-2026.02.23.120000"));
+        Path file = writeInput();
+
+        // Act & Assert
+        assertThrows(IllegalStateException.class, () -> deltaProductIndexer.indexFromFile(file.toString()));
+    }
+}
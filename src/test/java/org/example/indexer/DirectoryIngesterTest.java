@@ -0,0 +1,262 @@
+package org.example.indexer;
+
+import org.example.config.IngestProperties;
+import org.example.config.ProductIndexProperties;
+import org.example.model.Product;
+import org.example.service.OpenSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DirectoryIngesterTest {
+    private static final String LIVE_INDEX = "products-2026.10.19.120000";
+
+    @Mock
+    private FullProductIndexer mockFullProductIndexer;
+
+    @Mock
+    private OpenSearchService mockOpenSearchService;
+
+    @Mock
+    private ProductIndexProperties mockIndexProperties;
+
+    @TempDir
+    Path tempDir;
+
+    private Path incoming;
+    private IngestProperties ingestProperties;
+    private List<String> sentIds;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        incoming = Files.createDirectory(tempDir.resolve("incoming"));
+        ingestProperties = new IngestProperties();
+        ingestProperties.setDirectory(incoming.toString());
+        ingestProperties.setOffsetsPath(tempDir.resolve("ingest-offsets.json").toString());
+        ingestProperties.setDeadLetterPath(tempDir.resolve("ingest-dead-letters.ndjson").toString());
+        when(mockIndexProperties.getAlias()).thenReturn("products");
+        when(mockOpenSearchService.getIndexesByAlias("products")).thenReturn(Set.of(LIVE_INDEX));
+        sentIds = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            products.forEach(product -> sentIds.add(product.getId()));
+            return List.of();
+        }).when(mockFullProductIndexer).bulkIndexProducts(anyList(), eq(LIVE_INDEX), any(IndexProgress.class));
+    }
+
+    @Test
+    void ingest_WithGrowingFile_SendsOnlyTerminatedLines() throws IOException {
+        // Arrange
+        Path file = incoming.resolve("part-1.json");
+        Files.writeString(file, record("P1") + "\n" + record("P2") + "\n{\"id\": \"P3\", \"ti");
+        DirectoryIngester ingester = newIngester();
+
+        // Act
+        int first = ingester.ingest();
+        Files.writeString(file, "tle\": \"Product P3\"}\n", StandardOpenOption.APPEND);
+        int second = ingester.ingest();
+
+        // Assert
+        assertEquals(2, first);
+        assertEquals(1, second);
+        assertEquals(List.of("P1", "P2", "P3"), sentIds);
+        assertEquals(0, ingester.getStatus().backlogBytes());
+    }
+
+    @Test
+    void ingest_AfterRestart_ContinuesFromSavedOffsets() throws IOException {
+        // Arrange
+        Path file = incoming.resolve("part-1.json");
+        Files.writeString(file, record("P1") + "\n");
+        newIngester().ingest();
+        Files.writeString(file, record("P2") + "\n", StandardOpenOption.APPEND);
+        Files.writeString(incoming.resolve("part-2.ndjson"), record("P3") + "\n");
+
+        // Act
+        int sent = newIngester().ingest();
+
+        // Assert
+        assertEquals(2, sent);
+        assertEquals(List.of("P1", "P2", "P3"), sentIds);
+    }
+
+    @Test
+    void ingest_WhenBulkFails_RetriesSameRecordsOnNextPass() throws IOException {
+        // Arrange
+        Files.writeString(incoming.resolve("part-1.json"), record("P1") + "\n" + record("P2") + "\n");
+        doThrow(new RuntimeException("cluster unavailable"))
+                .doAnswer(invocation -> {
+                    List<Product> products = invocation.getArgument(0);
+                    products.forEach(product -> sentIds.add(product.getId()));
+                    return List.of();
+                })
+                .when(mockFullProductIndexer).bulkIndexProducts(anyList(), eq(LIVE_INDEX), any(IndexProgress.class));
+        DirectoryIngester ingester = newIngester();
+
+        // Act
+        assertThrows(RuntimeException.class, ingester::ingest);
+        DirectoryIngester.Status failed = ingester.getStatus();
+        int sent = ingester.ingest();
+
+        // Assert
+        assertEquals(1, failed.backlogFiles());
+        assertTrue(failed.backlogBytes() > 0);
+        assertEquals(2, sent);
+        assertEquals(List.of("P1", "P2"), sentIds);
+        assertEquals(0, ingester.getStatus().backlogFiles());
+    }
+
+    @Test
+    void ingest_WhenRecordsAreRejected_DoesNotMoveOffsetsPastTheBatch() throws IOException {
+        // Arrange
+        Files.writeString(incoming.resolve("part-1.json"), record("P1") + "\n" + record("P2") + "\n");
+        when(mockFullProductIndexer.bulkIndexProducts(anyList(), eq(LIVE_INDEX), any(IndexProgress.class)))
+                .thenReturn(List.of("P2"))
+                .thenReturn(List.of());
+        DirectoryIngester ingester = newIngester();
+
+        // Act
+        assertThrows(IllegalStateException.class, ingester::ingest);
+        DirectoryIngester.Status failed = ingester.getStatus();
+        int sent = ingester.ingest();
+
+        // Assert
+        assertEquals(1, failed.backlogFiles());
+        assertEquals(0, failed.records());
+        assertEquals(2, sent);
+        assertEquals(0, ingester.getStatus().backlogFiles());
+        verify(mockFullProductIndexer, times(2))
+                .bulkIndexProducts(anyList(), eq(LIVE_INDEX), any(IndexProgress.class));
+    }
+
+    @Test
+    void ingest_WhenRecordIsRejectedUpToTheCap_DeadLettersItAndMovesOffsets() throws IOException {
+        // Arrange
+        ingestProperties.setMaxBatchAttempts(2);
+        Files.writeString(incoming.resolve("part-1.json"), record("P1") + "\n" + record("P2") + "\n");
+        when(mockFullProductIndexer.bulkIndexProducts(anyList(), eq(LIVE_INDEX), any(IndexProgress.class)))
+                .thenReturn(List.of("P2"));
+        DirectoryIngester ingester = newIngester();
+
+        // Act
+        assertThrows(IllegalStateException.class, ingester::ingest);
+        ingester.ingest();
+        int sentAfterCap = ingester.ingest();
+
+        // Assert
+        assertEquals(0, sentAfterCap);
+        assertEquals(List.of(record("P2")), Files.readAllLines(tempDir.resolve("ingest-dead-letters.ndjson")));
+        DirectoryIngester.Status status = ingester.getStatus();
+        assertEquals(0, status.backlogFiles());
+        assertEquals(1, status.records());
+        assertEquals(1, status.deadLetterRecords());
+        verify(mockFullProductIndexer, times(2))
+                .bulkIndexProducts(anyList(), eq(LIVE_INDEX), any(IndexProgress.class));
+    }
+
+    @Test
+    void ingest_WithReplacedFile_ReadsItFromStart() throws IOException {
+        // Arrange
+        Path file = incoming.resolve("part-1.json");
+        Files.writeString(file, record("P1") + "\n" + record("P2") + "\n");
+        DirectoryIngester ingester = newIngester();
+        ingester.ingest();
+
+        // Act - a shorter file under the same name
+        Files.delete(file);
+        Files.writeString(file, record("P9") + "\n");
+        int sent = ingester.ingest();
+
+        // Assert
+        assertEquals(1, sent);
+        assertEquals(List.of("P1", "P2", "P9"), sentIds);
+    }
+
+    @Test
+    void ingest_WithMalformedLineAndOtherFiles_SkipsItAndIgnoresUnmatchedFiles() throws IOException {
+        // Arrange
+        ingestProperties.setBatchSize(1);
+        Files.writeString(incoming.resolve("part-1.json"), record("P1") + "\nnot json\n" + record("P2") + "\n");
+        Files.writeString(incoming.resolve("part-1.json.tmp"), record("P3") + "\n");
+        DirectoryIngester ingester = newIngester();
+
+        // Act
+        int sent = ingester.ingest();
+
+        // Assert
+        assertEquals(2, sent);
+        assertEquals(List.of("P1", "P2"), sentIds);
+        DirectoryIngester.Status status = ingester.getStatus();
+        assertEquals(1, status.files());
+        assertEquals(1, status.malformedRecords());
+        assertEquals(2, status.records());
+    }
+
+    @Test
+    void start_WhenRoutedByCategory_RefusesToIngest() throws IOException {
+        // Arrange
+        ingestProperties.setEnabled(true);
+        when(mockIndexProperties.isRouteByCategory()).thenReturn(true);
+        Files.writeString(incoming.resolve("part-1.json"), record("P1") + "\n");
+        DirectoryIngester ingester = newIngester();
+
+        // Act
+        ingester.start();
+
+        // Assert
+        DirectoryIngester.Status status = ingester.getStatus();
+        assertFalse(status.running());
+        assertNotNull(status.lastError());
+        assertEquals(1, status.backlogFiles());
+        assertThrows(IllegalStateException.class, ingester::ingest);
+        verify(mockFullProductIndexer, never()).bulkIndexProducts(anyList(), anyString(), any(IndexProgress.class));
+        ingester.shutdown();
+    }
+
+    @Test
+    void getStatus_WithUnreadFile_ReportsBacklogAndLag() throws IOException, InterruptedException {
+        // Arrange
+        when(mockOpenSearchService.getIndexesByAlias("products")).thenReturn(null);
+        Files.writeString(incoming.resolve("part-1.json"), record("P1") + "\n");
+        DirectoryIngester ingester = newIngester();
+        assertThrows(IllegalStateException.class, ingester::ingest);
+        Thread.sleep(20);
+
+        // Act
+        DirectoryIngester.Status status = ingester.getStatus();
+
+        // Assert
+        assertEquals(1, status.backlogFiles());
+        assertEquals(Files.size(incoming.resolve("part-1.json")), status.backlogBytes());
+        assertTrue(status.lagMillis() >= 20);
+        verify(mockFullProductIndexer, never()).bulkIndexProducts(anyList(), anyString(), any(IndexProgress.class));
+    }
+
+    private DirectoryIngester newIngester() {
+        return new DirectoryIngester(
+                mockFullProductIndexer, mockOpenSearchService, mockIndexProperties, ingestProperties);
+    }
+
+    private static String record(String id) {
+        return String.format("{\"id\": \"%s\", \"title\": \"Product %s\"}", id, id);
+    }
+}
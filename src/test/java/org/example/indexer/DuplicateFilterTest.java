@@ -0,0 +1,138 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.config.ProductIndexProperties.DedupMode;
+import org.example.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DuplicateFilterTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+    private static final List<String> LINES = List.of(
+            "{\"asin\": \"B000000001\", \"title\": \"first\"}",
+            "{\"id\": \"not-an-asin\", \"title\": \"first\"}",
+            "",
+            "{\"asin\": \"B000000001\", \"title\": \"second\"}",
+            "{\"asin\": \"B000000002\", \"title\": \"only\"}",
+            "{\"id\": \"not-an-asin\", \"title\": \"second\"}");
+
+    @TempDir
+    Path tempDir;
+
+    private Path writeLines() throws IOException {
+        Path file = tempDir.resolve("products.json");
+        Files.writeString(file, String.join("\n", LINES));
+        return file;
+    }
+
+    private List<String> acceptedTitles(DuplicateFilter filter) throws IOException {
+        List<String> titles = new ArrayList<>();
+        int ordinal = 0;
+        for (String line : LINES) {
+            if (line.isEmpty()) {
+                continue;
+            }
+            Product product = objectMapper.readValue(line, Product.class);
+            if (filter.accept(product.getId(), ++ordinal)) {
+                titles.add(product.getId() + ":" + product.getTitle());
+            }
+        }
+        return titles;
+    }
+
+    @Test
+    void estimateRecords_FromSampledRecordSize_IsCloseToRecordCount() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("large.json");
+        List<String> lines = new ArrayList<>();
+        for (int i = 0; i < 5000; i++) {
+            lines.add(String.format("{\"asin\": \"B%09d\", \"title\": \"product %d\"}", i, i));
+        }
+        Files.writeString(file, String.join("\n", lines) + "\n");
+
+        // Act
+        long estimated = DuplicateFilter.estimateRecords(file, Integer.MAX_VALUE);
+
+        // Assert
+        assertTrue(estimated >= 4500 && estimated <= 5500, "estimated " + estimated);
+        assertEquals(5, DuplicateFilter.estimateRecords(writeLines(), Integer.MAX_VALUE));
+        assertEquals(2000, DuplicateFilter.estimateRecords(file, 2000));
+    }
+
+    @Test
+    void openStream_WithFirstWins_KeepsFirstCopyWithoutScan() throws IOException {
+        try (DuplicateFilter filter = DuplicateFilter.openStream(DedupMode.FIRST_WINS, 1)) {
+            // Act
+            List<String> titles = acceptedTitles(filter);
+
+            // Assert
+            assertEquals(List.of("B000000001:first", "not-an-asin:first", "B000000002:only"), titles);
+        }
+    }
+
+    @Test
+    void openStream_WithLastWinsOrOff_ReturnsNoFilter() {
+        // Act & Assert - later copies overwrite earlier ones by id in the bulk requests
+        assertNull(DuplicateFilter.openStream(DedupMode.LAST_WINS, 1));
+        assertNull(DuplicateFilter.openStream(DedupMode.OFF, 1));
+        assertNull(DuplicateFilter.openStream(null, 1));
+    }
+
+    @Test
+    void accept_WithFirstWins_KeepsFirstCopy() throws IOException {
+        try (DuplicateFilter filter = DuplicateFilter.open(DedupMode.FIRST_WINS, writeLines(), 0, Integer.MAX_VALUE)) {
+            // Act
+            List<String> titles = acceptedTitles(filter);
+
+            // Assert
+            assertEquals(List.of("B000000001:first", "not-an-asin:first", "B000000002:only"), titles);
+            assertEquals(2, filter.getDuplicates());
+            assertEquals(3, filter.getDistinctIds());
+        }
+    }
+
+    @Test
+    void accept_WithLastWins_KeepsLastCopy() throws IOException {
+        try (DuplicateFilter filter = DuplicateFilter.open(DedupMode.LAST_WINS, writeLines(), 0, Integer.MAX_VALUE)) {
+            // Act
+            List<String> titles = acceptedTitles(filter);
+
+            // Assert
+            assertEquals(List.of("B000000001:second", "B000000002:only", "not-an-asin:second"), titles);
+            assertEquals(2, filter.getDuplicates());
+        }
+    }
+
+    @Test
+    void accept_WithLastWinsAndLimit_OnlyConsidersRecordsWithinLimit() throws IOException {
+        try (DuplicateFilter filter = DuplicateFilter.open(DedupMode.LAST_WINS, writeLines(), 0, 2)) {
+            // Act & Assert
+            assertTrue(filter.accept("B000000001", 1));
+        }
+    }
+
+    @Test
+    void open_WithOff_ReturnsNull() throws IOException {
+        // Act & Assert
+        assertNull(DuplicateFilter.open(DedupMode.OFF, writeLines(), 0, Integer.MAX_VALUE));
+        assertNull(DuplicateFilter.open(null, writeLines(), 0, Integer.MAX_VALUE));
+    }
+
+    @Test
+    void encodeAsin_PacksAsinsAndRejectsOtherIds() {
+        // Act & Assert
+        assertEquals(1, DuplicateFilter.encodeAsin("0000000000"));
+        assertNotEquals(DuplicateFilter.encodeAsin("B000000001"), DuplicateFilter.encodeAsin("B000000002"));
+        assertTrue(DuplicateFilter.encodeAsin("ZZZZZZZZZZ") > 0);
+        assertEquals(0, DuplicateFilter.encodeAsin("b000000001"));
+        assertEquals(0, DuplicateFilter.encodeAsin("B00000001"));
+    }
+}
@@ -2,9 +2,11 @@ package org.example.indexer;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import org.example.config.ProductIndexProperties;
+import org.example.config.VectorIndexProperties;
 import org.example.model.Product;
 import org.example.service.EmbeddingService;
 import org.example.service.OpenSearchService;
+import org.example.util.ScalarQuantizer;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -13,16 +15,35 @@ import org.mockito.ArgumentCaptor;
 import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mockito.junit.jupiter.MockitoSettings;
 import org.mockito.quality.Strictness;
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.opensearch._types.mapping.TypeMapping;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.core.bulk.OperationType;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CancellationException;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+import java.util.stream.Collectors;
+import java.util.zip.GZIPOutputStream;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.ArgumentMatchers.*;
@@ -41,12 +62,27 @@ class FullProductIndexerTest {
     @Mock
     private ProductIndexProperties mockIndexProperties;
 
+    @Mock
+    private IndexSizingPlanner mockSizingPlanner;
+
+    @Spy
+    private VectorIndexProperties vectorProperties = new VectorIndexProperties();
+
+    @Mock
+    private VectorIndexReporter mockVectorReporter;
+
     @InjectMocks
     private FullProductIndexer fullProductIndexer;
 
     @Captor
     private ArgumentCaptor<List<Product>> productsCaptor;
 
+    @Captor
+    private ArgumentCaptor<UnaryOperator<TypeMapping>> mappingCaptor;
+
+    @Captor
+    private ArgumentCaptor<Function<Product, String>> routingCaptor;
+
     @TempDir
     Path tempDir;
 
@@ -72,6 +108,7 @@ class FullProductIndexerTest {
         when(mockIndexProperties.getRefreshSeconds()).thenReturn(TEST_REFRESH_SECONDS);
         when(mockIndexProperties.getStatusWaitSeconds()).thenReturn(TEST_STATUS_WAIT_SECONDS);
         when(mockIndexProperties.getOldIndexKeepDays()).thenReturn(TEST_OLD_INDEX_KEEP_DAYS);
+        when(mockOpenSearchService.swapAliases(anyString(), any(), anyCollection(), anyCollection())).thenReturn(true);
     }
 
     @Test
@@ -89,6 +126,138 @@ class FullProductIndexerTest {
         verify(mockOpenSearchService).createIndex(eq(result), eq(TEST_SETTINGS), eq(TEST_MAPPING));
     }
 
+    @Test
+    void init_WithBuildShards_CreatesBuildIndexWithMoreShards() {
+        // Arrange
+        when(mockIndexProperties.getBuildShards()).thenReturn(4);
+        when(mockIndexProperties.getServingShards()).thenReturn(1);
+
+        // Act
+        String result = fullProductIndexer.init();
+
+        // Assert
+        assertTrue(result.matches(TEST_ALIAS + "-build-\\d{4}\\.\\d{2}\\.\\d{2}\\.\\d{6}"));
+        verify(mockOpenSearchService).createIndex(eq(result), eq(TEST_SETTINGS), eq(TEST_MAPPING), any(), any());
+        verify(mockOpenSearchService, never()).createIndex(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void init_WithAppliedPlan_CreatesIndexWithCustomizedSettingsAndMapping() {
+        // Arrange
+        IndexPlan plan = new IndexPlan(10, 1000, 500, 384, 1536000, 2036000, 1900000, 3, 16, 128);
+
+        // Act
+        String result = fullProductIndexer.init(plan);
+
+        // Assert
+        assertTrue(result.matches(TEST_ALIAS + "-\\d{4}\\.\\d{2}\\.\\d{2}\\.\\d{6}"));
+        verify(mockOpenSearchService).createIndex(eq(result), eq(TEST_SETTINGS), eq(TEST_MAPPING), any(), any());
+        assertEquals(3, fullProductIndexer.getServingShards(plan));
+    }
+
+    @Test
+    void getServingShards_WithPlanAndBuildShards_ReturnsFactorOfBuildShards() {
+        // Arrange
+        when(mockIndexProperties.getBuildShards()).thenReturn(8);
+        IndexPlan plan = new IndexPlan(10, 1000, 500, 384, 1536000, 2036000, 1900000, 3, 16, 128);
+
+        // Act & Assert
+        assertEquals(2, fullProductIndexer.getServingShards(plan));
+    }
+
+    @Test
+    void indexFromFile_WithAppliedPlan_PassesPlanToInit() throws IOException {
+        // Arrange
+        Path testFile = createTempFile(createTestJsonLines(2));
+        IndexPlan plan = new IndexPlan(2, 2, 50, 384, 3072, 3172, 3000, 1, 32, 256);
+        when(mockSizingPlanner.plan(anyString(), any())).thenReturn(plan);
+        when(mockSizingPlanner.shouldApply()).thenReturn(true);
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+
+        // Act
+        int indexed = fullProductIndexer.indexFromFile(testFile.toString());
+
+        // Assert
+        assertEquals(2, indexed);
+        verify(mockSizingPlanner).plan(eq(testFile.toString()), isNull());
+        verify(mockOpenSearchService).createIndex(anyString(), eq(TEST_SETTINGS), eq(TEST_MAPPING), any(), any());
+    }
+
+    @Test
+    void init_WithServingShardsNotAFactor_ThrowsIllegalArgumentException() {
+        // Arrange
+        when(mockIndexProperties.getBuildShards()).thenReturn(4);
+        when(mockIndexProperties.getServingShards()).thenReturn(3);
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> fullProductIndexer.init());
+    }
+
+    @Test
+    void finalizer_WithBuildIndex_ShrinksAndMovesAliasToShrunkIndex() {
+        // Arrange
+        String buildIndexName = "products-build-2026.02.23.120000";
+        String servingIndexName = "products-2026.02.23.120000";
+        when(mockIndexProperties.getBuildShards()).thenReturn(4);
+        when(mockIndexProperties.getServingShards()).thenReturn(1);
+        when(mockOpenSearchService.prepareForShrink(eq(buildIndexName), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.shrinkIndex(eq(buildIndexName), eq(servingIndexName), eq(1), anyInt()))
+            .thenReturn(true);
+        when(mockOpenSearchService.waitForGreenStatus(eq(servingIndexName), eq(TEST_STATUS_WAIT_SECONDS)))
+            .thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(eq(TEST_OLD_ALIAS))).thenReturn(Set.of());
+
+        // Act
+        fullProductIndexer.finalizer(buildIndexName);
+
+        // Assert - the build index goes only once the alias points at the shrunk index
+        verify(mockOpenSearchService).flushIndex(buildIndexName);
+        verify(mockOpenSearchService).updateSettings(eq(servingIndexName), eq(TEST_REPLICAS), eq(TEST_REFRESH_SECONDS));
+        var inOrder = inOrder(mockOpenSearchService);
+        inOrder.verify(mockOpenSearchService).swapAliases(
+                eq(TEST_ALIAS), eq(TEST_OLD_ALIAS), eq(List.of(servingIndexName)), anyCollection());
+        inOrder.verify(mockOpenSearchService).deleteIndex(buildIndexName);
+    }
+
+    @Test
+    void finalizer_WithShrunkIndexNotGreen_KeepsBuildIndexAndAlias() {
+        // Arrange
+        String buildIndexName = "products-build-2026.02.23.120000";
+        String servingIndexName = "products-2026.02.23.120000";
+        when(mockIndexProperties.getBuildShards()).thenReturn(4);
+        when(mockIndexProperties.getServingShards()).thenReturn(1);
+        when(mockOpenSearchService.prepareForShrink(eq(buildIndexName), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.shrinkIndex(eq(buildIndexName), eq(servingIndexName), eq(1), anyInt()))
+            .thenReturn(true);
+        when(mockOpenSearchService.waitForGreenStatus(eq(servingIndexName), anyInt())).thenReturn(false);
+        when(mockOpenSearchService.getIndexesByAlias(eq(TEST_OLD_ALIAS))).thenReturn(Set.of());
+
+        // Act
+        fullProductIndexer.finalizer(buildIndexName);
+
+        // Assert
+        verify(mockOpenSearchService, never()).swapAliases(anyString(), any(), anyCollection(), anyCollection());
+        verify(mockOpenSearchService, never()).deleteIndex(buildIndexName);
+    }
+
+    @Test
+    void finalizer_WithFailedShrink_DoesNotMoveAlias() {
+        // Arrange
+        String buildIndexName = "products-build-2026.02.23.120000";
+        when(mockIndexProperties.getBuildShards()).thenReturn(4);
+        when(mockIndexProperties.getServingShards()).thenReturn(1);
+        when(mockOpenSearchService.prepareForShrink(eq(buildIndexName), anyInt())).thenReturn(false);
+
+        // Act
+        fullProductIndexer.finalizer(buildIndexName);
+
+        // Assert
+        verify(mockOpenSearchService, never()).shrinkIndex(anyString(), anyString(), anyInt(), anyInt());
+        verify(mockOpenSearchService, never()).deleteIndex(anyString());
+        verify(mockOpenSearchService, never()).swapAliases(anyString(), any(), anyCollection(), anyCollection());
+    }
+
     @Test
     void finalizer_WithGreenStatus_MovesAliasAndCleansUp() {
         // Arrange
@@ -97,8 +266,8 @@ class FullProductIndexerTest {
         
         when(mockOpenSearchService.waitForGreenStatus(eq(newIndexName), eq(TEST_STATUS_WAIT_SECONDS)))
             .thenReturn(true);
-        when(mockOpenSearchService.moveAlias(eq(newIndexName), eq(TEST_ALIAS)))
-            .thenReturn(oldIndexName);
+        when(mockOpenSearchService.getIndexesByAlias(eq(TEST_ALIAS)))
+            .thenReturn(Set.of(oldIndexName));
         when(mockOpenSearchService.getIndexesByAlias(eq(TEST_OLD_ALIAS)))
             .thenReturn(Set.of(oldIndexName));
 
@@ -109,8 +278,32 @@ class FullProductIndexerTest {
         verify(mockOpenSearchService).flushIndex(newIndexName);
         verify(mockOpenSearchService).updateSettings(eq(newIndexName), eq(TEST_REPLICAS), eq(TEST_REFRESH_SECONDS));
         verify(mockOpenSearchService).waitForGreenStatus(eq(newIndexName), eq(TEST_STATUS_WAIT_SECONDS));
-        verify(mockOpenSearchService).moveAlias(eq(newIndexName), eq(TEST_ALIAS));
-        verify(mockOpenSearchService).addAlias(eq(oldIndexName), eq(TEST_OLD_ALIAS));
+        verify(mockOpenSearchService).swapAliases(
+                eq(TEST_ALIAS), eq(TEST_OLD_ALIAS), eq(List.of(newIndexName)), anyCollection());
+        verify(mockOpenSearchService).swapAliases(
+                eq(TEST_ALIAS), eq(TEST_OLD_ALIAS), eq(List.of(newIndexName)), eq(List.of(oldIndexName)));
+    }
+
+    @Test
+    void finalizer_WithAliasOverPartitions_DetachesEveryPartitionAtOnce() {
+        // Arrange - a partitioned build left one index per category behind the alias
+        String newIndexName = "products-2026.02.23.120000";
+        when(mockOpenSearchService.waitForGreenStatus(eq(newIndexName), eq(TEST_STATUS_WAIT_SECONDS)))
+            .thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(eq(TEST_ALIAS)))
+            .thenReturn(Set.of("products-men-2026.02.20.120000", "products-toys-2026.02.20.120000"));
+        when(mockOpenSearchService.getIndexesByAlias(eq(TEST_OLD_ALIAS))).thenReturn(Set.of());
+
+        // Act
+        fullProductIndexer.finalizer(newIndexName);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> detachedCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(mockOpenSearchService).swapAliases(
+                eq(TEST_ALIAS), eq(TEST_OLD_ALIAS), eq(List.of(newIndexName)), detachedCaptor.capture());
+        assertEquals(Set.of("products-men-2026.02.20.120000", "products-toys-2026.02.20.120000"),
+                Set.copyOf(detachedCaptor.getValue()));
     }
 
     @Test
@@ -128,26 +321,28 @@ class FullProductIndexerTest {
         verify(mockOpenSearchService).flushIndex(newIndexName);
         verify(mockOpenSearchService).updateSettings(eq(newIndexName), eq(TEST_REPLICAS), eq(TEST_REFRESH_SECONDS));
         verify(mockOpenSearchService).waitForGreenStatus(eq(newIndexName), eq(TEST_STATUS_WAIT_SECONDS));
-        verify(mockOpenSearchService, never()).moveAlias(anyString(), anyString());
+        verify(mockOpenSearchService, never()).swapAliases(anyString(), any(), anyCollection(), anyCollection());
         verify(mockOpenSearchService, never()).addAlias(anyString(), anyString());
     }
 
     @Test
-    void finalizer_WithNoOldIndex_DoesNotCallAddAlias() {
+    void finalizer_WithNoOldIndex_DetachesNothing() {
         // Arrange
         String newIndexName = "products-2026.02.23.120000";
         
         when(mockOpenSearchService.waitForGreenStatus(eq(newIndexName), eq(TEST_STATUS_WAIT_SECONDS)))
             .thenReturn(true);
-        when(mockOpenSearchService.moveAlias(eq(newIndexName), eq(TEST_ALIAS)))
-            .thenReturn(null); // No old index
+        when(mockOpenSearchService.getIndexesByAlias(eq(TEST_ALIAS)))
+            .thenReturn(Set.of()); // No old index
 
         // Act
         fullProductIndexer.finalizer(newIndexName);
 
         // Assert
-        verify(mockOpenSearchService).moveAlias(eq(newIndexName), eq(TEST_ALIAS));
-        verify(mockOpenSearchService, never()).addAlias(anyString(), eq(TEST_OLD_ALIAS));
+        verify(mockOpenSearchService).swapAliases(
+                eq(TEST_ALIAS), eq(TEST_OLD_ALIAS), eq(List.of(newIndexName)), anyCollection());
+        verify(mockOpenSearchService).swapAliases(
+                eq(TEST_ALIAS), eq(TEST_OLD_ALIAS), eq(List.of(newIndexName)), eq(List.of()));
     }
 
     @Test
@@ -159,7 +354,6 @@ class FullProductIndexerTest {
         // Mock init to return a specific index name
         doNothing().when(mockOpenSearchService).createIndex(anyString(), anyString(), anyString());
         when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
-        when(mockOpenSearchService.moveAlias(anyString(), anyString())).thenReturn(null);
         when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
         when(mockEmbeddingService.getEmbeddings(anyList()))
                 .thenReturn(List.of(List.of(1f),List.of(2f),List.of(3f),List.of(4f),List.of(5f)));
@@ -172,6 +366,30 @@ class FullProductIndexerTest {
         verify(mockOpenSearchService, times(3)).bulkIndex(any(), anyString());
     }
 
+    @Test
+    void indexFromFile_WithGzipFile_IndexesDecompressedRecords() throws IOException {
+        // Arrange
+        Path testFile = tempDir.resolve("test-products.json.gz");
+        try (GZIPOutputStream gzip = new GZIPOutputStream(Files.newOutputStream(testFile))) {
+            gzip.write(createTestJsonLines(5).getBytes(StandardCharsets.UTF_8));
+        }
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList()))
+                .thenReturn(List.of(List.of(1f),List.of(2f),List.of(3f),List.of(4f),List.of(5f)));
+        IndexProgress progress = new IndexProgress();
+
+        // Act
+        int indexed = fullProductIndexer.indexFromFile(testFile.toString(), null, false, null, progress);
+
+        // Assert - progress compares the position in the compressed file with its size
+        assertEquals(5, indexed);
+        verify(mockOpenSearchService, times(3)).bulkIndex(any(), anyString());
+        IndexProgress.Snapshot snapshot = progress.snapshot();
+        assertEquals(5, snapshot.linesRead());
+        assertEquals(100.0, snapshot.percentComplete());
+    }
+
     @Test
     void indexFromFile_WithLimitParameter_RespectsLimit() throws IOException {
         // Arrange
@@ -180,7 +398,6 @@ class FullProductIndexerTest {
         
         doNothing().when(mockOpenSearchService).createIndex(anyString(), anyString(), anyString());
         when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
-        when(mockOpenSearchService.moveAlias(anyString(), anyString())).thenReturn(null);
         when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
         when(mockEmbeddingService.getEmbeddings(anyList()))
                 .thenReturn(List.of(List.of(1f),List.of(2f),List.of(3f)));
@@ -200,7 +417,6 @@ class FullProductIndexerTest {
         
         doNothing().when(mockOpenSearchService).createIndex(anyString(), anyString(), anyString());
         when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
-        when(mockOpenSearchService.moveAlias(anyString(), anyString())).thenReturn(null);
         when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
 
         // Act
@@ -225,7 +441,6 @@ class FullProductIndexerTest {
         
         doNothing().when(mockOpenSearchService).createIndex(anyString(), anyString(), anyString());
         when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
-        when(mockOpenSearchService.moveAlias(anyString(), anyString())).thenReturn(null);
         when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
         when(mockEmbeddingService.getEmbeddings(anyList()))
                 .thenReturn(List.of(List.of(1f),List.of(2f),List.of(3f)));
@@ -246,7 +461,6 @@ class FullProductIndexerTest {
         
         doNothing().when(mockOpenSearchService).createIndex(anyString(), anyString(), anyString());
         when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
-        when(mockOpenSearchService.moveAlias(anyString(), anyString())).thenReturn(null);
         when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
         when(mockEmbeddingService.getEmbeddings(anyList()))
                 .thenReturn(List.of(List.of(1f),List.of(2f),List.of(3f),List.of(4f)));
@@ -272,7 +486,6 @@ class FullProductIndexerTest {
         
         doNothing().when(mockOpenSearchService).createIndex(anyString(), anyString(), anyString());
         when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
-        when(mockOpenSearchService.moveAlias(anyString(), anyString())).thenReturn(null);
         when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
         when(mockEmbeddingService.getEmbeddings(anyList()))
                 .thenReturn(List.of(List.of(1f),List.of(2f),List.of(3f),List.of(4f),List.of(5f)));
@@ -301,7 +514,6 @@ class FullProductIndexerTest {
         
         doNothing().when(mockOpenSearchService).createIndex(anyString(), anyString(), anyString());
         when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
-        when(mockOpenSearchService.moveAlias(anyString(), anyString())).thenReturn(null);
         when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
         when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f)));
 
@@ -317,6 +529,591 @@ class FullProductIndexerTest {
         assertEquals("single", capturedProducts.get(0).getId());
     }
 
+    @Test
+    void indexFromFile_WithVectorDigits_RoundsEmbeddings() throws IOException {
+        // Arrange
+        String testJson = """
+            {"id": "single", "title": "Single Product"}
+            """;
+        Path testFile = createTempFile(testJson);
+        when(mockIndexProperties.getVectorDigits()).thenReturn(3);
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList()))
+                .thenReturn(List.of(List.of(0.123456f, -0.0098765f, 12.3456f)));
+
+        // Act
+        fullProductIndexer.indexFromFile(testFile.toString());
+
+        // Assert
+        verify(mockOpenSearchService).bulkIndex(productsCaptor.capture(), anyString());
+        assertArrayEquals(new float[]{0.123f, -0.00988f, 12.3f}, productsCaptor.getValue().getFirst().getFtsEmbedding());
+    }
+
+    @Test
+    void indexFromFile_WithNormalizeVectors_IndexesUnitVectorsInInnerProductSpace() throws IOException {
+        // Arrange
+        String testJson = """
+            {"id": "single", "title": "Single Product"}
+            """;
+        Path testFile = createTempFile(testJson);
+        when(mockIndexProperties.isNormalizeVectors()).thenReturn(true);
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(3f, 4f)));
+        TypeMapping mapping = TypeMapping.of(m -> m.properties("fts_embedding", p -> p.knnVector(k -> k
+                .dimension(2)
+                .method(v -> v.name("hnsw").spaceType("cosinesimil").engine("lucene")))));
+
+        // Act
+        fullProductIndexer.indexFromFile(testFile.toString());
+
+        // Assert
+        verify(mockOpenSearchService).createIndex(anyString(), any(), any(), any(), mappingCaptor.capture());
+        assertEquals("innerproduct", mappingCaptor.getValue().apply(mapping)
+                .properties().get("fts_embedding").knnVector().method().spaceType());
+        verify(mockOpenSearchService).bulkIndex(productsCaptor.capture(), anyString());
+        assertArrayEquals(new float[]{0.6f, 0.8f}, productsCaptor.getValue().getFirst().getFtsEmbedding(), 1e-6f);
+    }
+
+    @Test
+    void indexFromFile_WithQuantizeVectors_MapsByteVectorsAndSendsQuantizedEmbeddings() throws IOException {
+        // Arrange
+        String testJson = """
+            {"id": "first", "title": "First Product"}
+            {"id": "second", "title": "Second Product"}
+            """;
+        Path testFile = createTempFile(testJson);
+        when(mockIndexProperties.isQuantizeVectors()).thenReturn(true);
+        when(mockIndexProperties.getQuantizationSample()).thenReturn(2);
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList()))
+                .thenReturn(List.of(List.of(0.5f, -0.2f), List.of(-0.3f, 0.12f)));
+        TypeMapping mapping = TypeMapping.of(m -> m.properties("fts_embedding", p -> p.knnVector(k -> k
+                .dimension(2)
+                .method(v -> v.name("hnsw").spaceType("cosinesimil").engine("lucene")))));
+
+        // Act
+        fullProductIndexer.indexFromFile(testFile.toString());
+
+        // Assert
+        verify(mockOpenSearchService).createIndex(anyString(), any(), any(), any(), mappingCaptor.capture());
+        TypeMapping result = mappingCaptor.getValue().apply(mapping);
+        assertEquals("byte", result.properties().get("fts_embedding").knnVector().dataType());
+        assertEquals(254f, result.meta().get("fts_embedding_scale").to(Float.class));
+        // the index name the scales were registered under is reused, the mapping is not read back
+        verify(mockOpenSearchService, never()).getMappingMeta(anyString());
+        // the sample embedded for calibration is indexed without embedding it again
+        verify(mockEmbeddingService, times(1)).getEmbeddings(anyList());
+        verify(mockOpenSearchService).bulkIndex(productsCaptor.capture(), anyString());
+        Product first = productsCaptor.getValue().getFirst();
+        assertArrayEquals(new byte[]{127, -51}, first.getQuantizedEmbedding());
+        assertNull(first.getFtsEmbedding());
+        assertArrayEquals(new byte[]{-76, 30}, productsCaptor.getValue().get(1).getQuantizedEmbedding());
+    }
+
+    @Test
+    void indexFromFile_WhenRunFailsWithSampleLeft_DoesNotLeaveItToLaterWrites() throws IOException {
+        // Arrange - one record per batch, the run fails on its first bulk request
+        String testJson = """
+            {"id": "first", "title": "First Product"}
+            {"id": "second", "title": "Second Product"}
+            """;
+        Path testFile = createTempFile(testJson);
+        when(mockIndexProperties.getBatchSize()).thenReturn(1);
+        when(mockIndexProperties.isQuantizeVectors()).thenReturn(true);
+        when(mockIndexProperties.getQuantizationSample()).thenReturn(2);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(0.5f, -0.2f)));
+        when(mockOpenSearchService.bulkIndex(anyList(), anyString())).thenThrow(new RuntimeException("bulk failed"));
+        JsonNode second = new com.fasterxml.jackson.databind.ObjectMapper()
+                .readTree("{\"id\": \"second\", \"title\": \"Second Product\"}");
+        assertThrows(RuntimeException.class, () -> fullProductIndexer.indexFromFile(testFile.toString()));
+        reset(mockOpenSearchService);
+
+        // Act
+        fullProductIndexer.bulkIndexRecords(List.of(second), "products-live");
+
+        // Assert - two calibration batches and the later write, the unused sample embedding went with the run
+        verify(mockEmbeddingService, times(3)).getEmbeddings(anyList());
+    }
+
+    @Test
+    void finalizer_WhenAliasMoves_ForgetsQuantizersOfDetachedIndexes() {
+        // Arrange
+        String oldIndexName = "products-2026.02.20.120000";
+        String newIndexName = "products-2026.02.23.120000";
+        when(mockOpenSearchService.getMappingMeta(oldIndexName))
+                .thenReturn(Map.of("fts_embedding_scale", JsonData.of(10f)));
+        when(mockOpenSearchService.waitForGreenStatus(eq(newIndexName), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(TEST_ALIAS)).thenReturn(Set.of(oldIndexName, newIndexName));
+        when(mockOpenSearchService.getIndexesByAlias(TEST_OLD_ALIAS)).thenReturn(Set.of());
+        fullProductIndexer.getQuantizer(oldIndexName);
+
+        // Act
+        fullProductIndexer.finalizer(newIndexName, 1, false);
+        fullProductIndexer.getQuantizer(oldIndexName);
+
+        // Assert - the detached index is read again instead of staying cached
+        verify(mockOpenSearchService, times(2)).getMappingMeta(oldIndexName);
+    }
+
+    @Test
+    void bulkIndexRecords_IntoQuantizedIndex_QuantizesWithScalesFromMapping() throws IOException {
+        // Arrange
+        when(mockOpenSearchService.getMappingMeta("products-live"))
+                .thenReturn(Map.of("fts_embedding_scale", JsonData.of(10f)));
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(0.5f, -2f)));
+        JsonNode node = new com.fasterxml.jackson.databind.ObjectMapper().readTree("{\"id\": \"1\", \"title\": \"Product\"}");
+
+        // Act
+        fullProductIndexer.bulkIndexRecords(List.of(node), "products-live");
+        fullProductIndexer.bulkIndexRecords(List.of(node), "products-live");
+
+        // Assert
+        verify(mockOpenSearchService, times(2)).bulkIndex(productsCaptor.capture(), eq("products-live"));
+        assertArrayEquals(new byte[]{5, -20}, productsCaptor.getValue().getFirst().getQuantizedEmbedding());
+        verify(mockOpenSearchService, times(1)).getMappingMeta("products-live");
+    }
+
+    @Test
+    void indexFromFile_WithVectorProfile_MapsEngineModeAndCompression() throws IOException {
+        // Arrange
+        Path testFile = createTempFile("{\"id\": \"single\", \"title\": \"Single Product\"}\n");
+        VectorIndexProperties.Profile profile = new VectorIndexProperties.Profile();
+        profile.setEngine("faiss");
+        profile.setMode("on_disk");
+        profile.setCompressionLevel("32x");
+        vectorProperties.getProfiles().put("faiss-on-disk", profile);
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(0.6f, 0.8f)));
+        TypeMapping mapping = TypeMapping.of(m -> m.properties("fts_embedding", p -> p.knnVector(k -> k
+                .dimension(2)
+                .method(v -> v.name("hnsw").spaceType("cosinesimil").engine("lucene")))));
+
+        // Act
+        fullProductIndexer.indexFromFile(testFile.toString(), null, false, "faiss-on-disk");
+
+        // Assert
+        verify(mockOpenSearchService).createIndex(anyString(), any(), any(), any(), mappingCaptor.capture());
+        var knnVector = mappingCaptor.getValue().apply(mapping).properties().get("fts_embedding").knnVector();
+        assertEquals("faiss", knnVector.method().engine());
+        assertEquals("cosinesimil", knnVector.method().spaceType());
+        assertEquals("on_disk", knnVector.mode());
+        assertEquals("32x", knnVector.compressionLevel());
+        verify(mockVectorReporter, never()).report(anyString(), any(), anyString(), any());
+    }
+
+    @Test
+    void indexFromFile_WithUnknownVectorProfile_ThrowsIllegalArgumentException() throws IOException {
+        // Arrange
+        Path testFile = createTempFile("{\"id\": \"single\", \"title\": \"Single Product\"}\n");
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> fullProductIndexer.indexFromFile(testFile.toString(), null, false, "missing"));
+        verify(mockOpenSearchService, never()).createIndex(anyString(), any(), any(), any(), any());
+        verify(mockOpenSearchService, never()).createIndex(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void customizeMapping_WithCompressingProfileAndQuantizer_ThrowsIllegalArgumentException() {
+        // Arrange
+        VectorIndexProperties.Profile profile = new VectorIndexProperties.Profile();
+        profile.setEngine("faiss");
+        profile.setCompressionLevel("2x");
+        vectorProperties.getProfiles().put("faiss-fp16", profile);
+        TypeMapping mapping = TypeMapping.of(m -> m.properties("fts_embedding", p -> p.knnVector(k -> k
+                .dimension(2)
+                .method(v -> v.name("hnsw").spaceType("cosinesimil").engine("lucene")))));
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> fullProductIndexer.customizeMapping(
+                mapping, null, new ScalarQuantizer(10f), "faiss-fp16"));
+    }
+
+    @Test
+    void indexFromFile_WithVectorReportEnabled_ReportsServingIndex() throws IOException {
+        // Arrange
+        Path testFile = createTempFile("{\"id\": \"single\", \"title\": \"Single Product\"}\n");
+        vectorProperties.getReport().setEnabled(true);
+        when(mockIndexProperties.isNormalizeVectors()).thenReturn(true);
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(0.6f, 0.8f)));
+        when(mockVectorReporter.report(anyString(), any(), anyString(), any()))
+                .thenThrow(new RuntimeException("Cluster unavailable"));
+
+        // Act
+        int result = fullProductIndexer.indexFromFile(testFile.toString());
+
+        // Assert
+        // a failed report does not fail the run
+        assertEquals(1, result);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<Collection<String>> indexCaptor = ArgumentCaptor.forClass(Collection.class);
+        verify(mockOpenSearchService).swapAliases(eq(TEST_ALIAS), any(), indexCaptor.capture(), anyCollection());
+        verify(mockVectorReporter).report(
+                eq(indexCaptor.getValue().iterator().next()), isNull(), eq("innerproduct"), isNull());
+    }
+
+    @Test
+    void indexFromFile_WithProgress_CountsReadEmbeddedIndexedAndRejectedDocuments() throws IOException {
+        // Arrange
+        Path testFile = createTempFile(createTestJsonLines(5));
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+        when(mockOpenSearchService.bulkIndex(anyList(), anyString()))
+                .thenReturn(List.of("test-1"))
+                .thenReturn(List.of());
+        IndexProgress progress = new IndexProgress();
+
+        // Act
+        int result = fullProductIndexer.indexFromFile(testFile.toString(), null, false, null, progress);
+
+        // Assert
+        assertEquals(5, result);
+        IndexProgress.Snapshot snapshot = progress.snapshot();
+        assertEquals(IndexProgress.Stage.DONE, snapshot.stage());
+        assertEquals(5, snapshot.linesRead());
+        assertEquals(5, snapshot.embeddedDocuments());
+        assertEquals(4, snapshot.indexedDocuments());
+        assertEquals(1, snapshot.rejectedDocuments());
+        assertEquals(0, snapshot.failedBatches());
+        assertEquals(100.0, snapshot.percentComplete());
+        assertNull(snapshot.etaSeconds());
+        assertTrue(snapshot.indexName().startsWith(TEST_ALIAS + "-"));
+    }
+
+    @Test
+    void indexFromFile_WhenCancelled_DeletesPartialIndexAndDoesNotMoveAlias() throws IOException {
+        // Arrange
+        Path testFile = createTempFile(createTestJsonLines(6));
+        Path checkpointPath = tempDir.resolve("checkpoint.json");
+        when(mockIndexProperties.getCheckpointPath()).thenReturn(checkpointPath.toString());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+        IndexProgress progress = new IndexProgress();
+        // cancelled while the first batch is in flight
+        when(mockOpenSearchService.bulkIndex(anyList(), anyString())).thenAnswer(invocation -> {
+            progress.cancel();
+            return List.of();
+        });
+
+        // Act & Assert
+        assertThrows(CancellationException.class,
+                () -> fullProductIndexer.indexFromFile(testFile.toString(), null, false, null, progress));
+        verify(mockOpenSearchService, times(1)).bulkIndex(anyList(), anyString());
+        ArgumentCaptor<String> indexCaptor = ArgumentCaptor.forClass(String.class);
+        verify(mockOpenSearchService).deleteIndex(indexCaptor.capture());
+        assertTrue(indexCaptor.getValue().startsWith(TEST_ALIAS + "-"));
+        verify(mockOpenSearchService, never()).swapAliases(anyString(), any(), anyCollection(), anyCollection());
+        verify(mockOpenSearchService, never()).flushIndex(anyString());
+        assertFalse(Files.exists(checkpointPath));
+    }
+
+    @Test
+    void indexFromFile_WithPresortWindow_SubmitsBatchesInIndexSortOrder() throws IOException {
+        // Arrange
+        String testJson = """
+            {"id": "c", "title": "Product C", "price": "$30.00"}
+            {"id": "a", "title": "Product A", "price": "$10.00"}
+            {"id": "d", "title": "Product D", "price": "$40.00"}
+            {"id": "b", "title": "Product B", "price": "$20.00"}
+            {"id": "e", "title": "Product E", "price": "$5.00"}
+            """;
+        Path testFile = createTempFile(testJson);
+        when(mockIndexProperties.getIndexSort()).thenReturn(List.of("price:asc"));
+        when(mockIndexProperties.getPresortWindow()).thenReturn(4);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+
+        // Act
+        int indexed = fullProductIndexer.indexFromFile(testFile.toString());
+
+        // Assert
+        assertEquals(5, indexed);
+        verify(mockOpenSearchService, times(3)).bulkIndex(productsCaptor.capture(), anyString());
+        List<String> submittedIds = productsCaptor.getAllValues().stream()
+                .flatMap(List::stream)
+                .map(Product::getId)
+                .toList();
+        assertEquals(List.of("a", "b", "c", "d", "e"), submittedIds);
+        verify(mockOpenSearchService).createIndex(anyString(), eq(TEST_SETTINGS), eq(TEST_MAPPING), any(), any());
+    }
+
+    @Test
+    void indexFromFile_AfterFailedBulk_ResumesFromLastCheckpoint() throws IOException {
+        // Arrange
+        Path testFile = createTempFile(createTestJsonLines(5));
+        Path checkpointPath = tempDir.resolve("checkpoint.json");
+        when(mockIndexProperties.getCheckpointPath()).thenReturn(checkpointPath.toString());
+        when(mockIndexProperties.getCheckpointInterval()).thenReturn(1);
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        List<String> submittedIds = new ArrayList<>();
+        doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            products.forEach(product -> submittedIds.add(product.getId()));
+            return List.of();
+        }).doThrow(new RuntimeException("Bulk indexing failed"))
+          .doAnswer(invocation -> {
+            List<Product> products = invocation.getArgument(0);
+            products.forEach(product -> submittedIds.add(product.getId()));
+            return List.of();
+        }).when(mockOpenSearchService).bulkIndex(anyList(), anyString());
+
+        // Act - the second batch fails after the first was checkpointed
+        assertThrows(RuntimeException.class, () -> fullProductIndexer.indexFromFile(testFile.toString()));
+        IndexCheckpoint checkpoint = IndexCheckpoint.read(checkpointPath);
+        when(mockOpenSearchService.indexExists(checkpoint.indexName())).thenReturn(true);
+        int indexed = fullProductIndexer.indexFromFile(testFile.toString(), null, true);
+
+        // Assert
+        assertEquals(2, checkpoint.indexed());
+        assertEquals(5, indexed);
+        verify(mockOpenSearchService, times(1)).createIndex(anyString(), anyString(), anyString());
+        assertEquals(List.of("prod-0", "prod-1", "prod-2", "prod-3", "prod-4"), submittedIds);
+        verify(mockOpenSearchService).flushIndex(checkpoint.indexName());
+        assertFalse(Files.exists(checkpointPath));
+    }
+
+    @Test
+    void indexFromFile_WithResumeAndChangedFile_StartsNewIndex() throws IOException {
+        // Arrange
+        Path testFile = createTempFile(createTestJsonLines(2));
+        Path checkpointPath = tempDir.resolve("checkpoint.json");
+        new IndexCheckpoint(testFile.toAbsolutePath().toString(), 1, 1, "products-2026.02.23.120000", 1, false,
+                10, 1, 1).write(checkpointPath);
+        when(mockIndexProperties.getCheckpointPath()).thenReturn(checkpointPath.toString());
+        when(mockOpenSearchService.indexExists(anyString())).thenReturn(true);
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+
+        // Act
+        int indexed = fullProductIndexer.indexFromFile(testFile.toString(), null, true);
+
+        // Assert
+        assertEquals(2, indexed);
+        verify(mockOpenSearchService).createIndex(anyString(), eq(TEST_SETTINGS), eq(TEST_MAPPING));
+    }
+
+    @Test
+    void indexFromFile_WithLastWinsDedup_IndexesLastCopyOfRepeatedIds() throws IOException {
+        // Arrange
+        Path testFile = createTempFile(String.join("\n",
+                "{\"asin\": \"B000000001\", \"title\": \"old\"}",
+                "{\"asin\": \"B000000002\", \"title\": \"only\"}",
+                "{\"asin\": \"B000000001\", \"title\": \"new\"}"));
+        when(mockIndexProperties.getDedup()).thenReturn(ProductIndexProperties.DedupMode.LAST_WINS);
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+
+        // Act
+        int indexed = fullProductIndexer.indexFromFile(testFile.toString());
+
+        // Assert
+        assertEquals(2, indexed);
+        verify(mockOpenSearchService).bulkIndex(productsCaptor.capture(), anyString());
+        assertEquals(List.of("only", "new"), productsCaptor.getValue().stream().map(Product::getTitle).toList());
+    }
+
+    @Test
+    void indexFromStream_WithNdjson_IndexesInBatchesAndMovesAlias() {
+        // Arrange
+        byte[] body = createTestJsonLines(5).getBytes(StandardCharsets.UTF_8);
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+        IndexProgress progress = new IndexProgress();
+
+        // Act
+        int indexed = fullProductIndexer.indexFromStream(
+                new ByteArrayInputStream(body), body.length, null, null, progress);
+
+        // Assert
+        assertEquals(5, indexed);
+        verify(mockOpenSearchService, times(3)).bulkIndex(anyList(), anyString());
+        verify(mockOpenSearchService).swapAliases(eq(TEST_ALIAS), any(), argThat(names ->
+                names.size() == 1 && names.iterator().next().startsWith(TEST_ALIAS + "-")), anyCollection());
+        assertEquals(IndexProgress.Stage.DONE, progress.snapshot().stage());
+        assertEquals(100.0, progress.snapshot().percentComplete());
+    }
+
+    @Test
+    void indexFromFiles_WithGlob_IndexesAllFilesIntoOneIndexAndFinalizesOnce() throws IOException {
+        // Arrange
+        Path parts = Files.createDirectory(tempDir.resolve("parts"));
+        Files.writeString(parts.resolve("part-1.json"), createTestJsonLines(3));
+        Files.writeString(parts.resolve("part-2.json"), createTestJsonLines(2).replace("prod-", "other-"));
+        Files.writeString(parts.resolve("readme.txt"), "not a part");
+        when(mockIndexProperties.getReaderThreads()).thenReturn(2);
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+        IndexProgress progress = new IndexProgress();
+
+        // Act
+        int indexed = fullProductIndexer.indexFromFiles(
+                parts.resolve("part-*.json").toString(), null, null, progress);
+
+        // Assert
+        assertEquals(5, indexed);
+        verify(mockOpenSearchService, times(1)).createIndex(anyString(), anyString(), anyString());
+        verify(mockOpenSearchService, atLeast(3)).bulkIndex(productsCaptor.capture(), anyString());
+        assertEquals(Set.of("prod-0", "prod-1", "prod-2", "other-0", "other-1"), productsCaptor.getAllValues()
+                .stream().flatMap(List::stream).map(Product::getId).collect(Collectors.toSet()));
+        verify(mockOpenSearchService, times(1)).swapAliases(eq(TEST_ALIAS), any(), argThat(names ->
+                names.size() == 1 && names.iterator().next().startsWith(TEST_ALIAS + "-")), anyCollection());
+        IndexProgress.Snapshot snapshot = progress.snapshot();
+        assertEquals(IndexProgress.Stage.DONE, snapshot.stage());
+        assertEquals(5, snapshot.linesRead());
+        assertEquals(Map.of(parts.resolve("part-1.json").toString(), 3, parts.resolve("part-2.json").toString(), 2),
+                snapshot.fileRecords());
+    }
+
+    @Test
+    void indexFromFiles_WithLimit_StopsAfterLimitOverAllFiles() throws IOException {
+        // Arrange
+        Path parts = Files.createDirectory(tempDir.resolve("parts"));
+        for (int i = 0; i < 3; i++) {
+            Files.writeString(parts.resolve("part-" + i + ".json"), createTestJsonLines(4));
+        }
+        when(mockIndexProperties.getReaderThreads()).thenReturn(3);
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+        IndexProgress progress = new IndexProgress();
+
+        // Act
+        int indexed = fullProductIndexer.indexFromFiles(parts.toString(), 5, null, progress);
+
+        // Assert
+        assertEquals(5, indexed);
+        assertEquals(5, progress.snapshot().fileRecords().values().stream().mapToInt(Integer::intValue).sum());
+    }
+
+    @Test
+    void indexFromFiles_WithNoMatchingFile_ThrowsWithoutCreatingIndex() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> fullProductIndexer.indexFromFiles(
+                tempDir.resolve("part-*.json").toString(), null, null, new IndexProgress()));
+        verify(mockOpenSearchService, never()).createIndex(anyString(), anyString(), anyString());
+    }
+
+    @Test
+    void indexFromFiles_WhenBulkFails_DeletesPartialIndex() throws IOException {
+        // Arrange
+        Path parts = Files.createDirectory(tempDir.resolve("parts"));
+        Files.writeString(parts.resolve("part-1.json"), createTestJsonLines(4));
+        when(mockIndexProperties.getReaderThreads()).thenReturn(2);
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+        when(mockOpenSearchService.bulkIndex(anyList(), anyString())).thenThrow(new RuntimeException("bulk failed"));
+
+        // Act & Assert
+        assertThrows(RuntimeException.class,
+                () -> fullProductIndexer.indexFromFiles(parts.toString(), null, null, new IndexProgress()));
+        verify(mockOpenSearchService).deleteIndex(startsWith(TEST_ALIAS + "-"));
+        verify(mockOpenSearchService, never()).swapAliases(anyString(), any(), anyCollection(), anyCollection());
+    }
+
+    @Test
+    void indexFromStream_WithGzipBody_DecompressesRecords() throws IOException {
+        // Arrange
+        ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(compressed)) {
+            gzip.write(createTestJsonLines(3).getBytes(StandardCharsets.UTF_8));
+        }
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+
+        // Act
+        int indexed = fullProductIndexer.indexFromStream(
+                new ByteArrayInputStream(compressed.toByteArray()), compressed.size(), null, null, new IndexProgress());
+
+        // Assert
+        assertEquals(3, indexed);
+        verify(mockOpenSearchService, times(2)).bulkIndex(productsCaptor.capture(), anyString());
+        assertEquals("Product 2", productsCaptor.getValue().getFirst().getTitle());
+    }
+
+    @Test
+    void indexFromStream_WithQuantizeVectors_CalibratesOnFirstRecordsAndIndexesThem() {
+        // Arrange
+        byte[] body = createTestJsonLines(3).getBytes(StandardCharsets.UTF_8);
+        when(mockIndexProperties.isQuantizeVectors()).thenReturn(true);
+        when(mockIndexProperties.getQuantizationSample()).thenReturn(2);
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(anyString())).thenReturn(Set.of());
+        when(mockEmbeddingService.getEmbeddings(anyList()))
+                .thenReturn(List.of(List.of(0.5f, -0.2f), List.of(-0.3f, 0.12f)));
+
+        // Act
+        int indexed = fullProductIndexer.indexFromStream(
+                new ByteArrayInputStream(body), body.length, null, null, new IndexProgress());
+
+        // Assert
+        assertEquals(3, indexed);
+        verify(mockOpenSearchService).createIndex(anyString(), any(), any(), any(), any());
+        verify(mockOpenSearchService, times(2)).bulkIndex(productsCaptor.capture(), anyString());
+        Product first = productsCaptor.getAllValues().getFirst().getFirst();
+        assertEquals("prod-0", first.getId());
+        assertArrayEquals(new byte[]{127, -51}, first.getQuantizedEmbedding());
+        assertNull(first.getFtsEmbedding());
+    }
+
+    @Test
+    void indexFromStream_WhenStreamFails_DeletesPartialIndexAndDoesNotMoveAlias() {
+        // Arrange - the upload breaks off after the first batch
+        byte[] body = createTestJsonLines(2).getBytes(StandardCharsets.UTF_8);
+        InputStream failing = new SequenceInputStream(new ByteArrayInputStream(body), new InputStream() {
+            @Override
+            public int read() throws IOException {
+                throw new IOException("connection reset");
+            }
+        });
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f), List.of(2f)));
+
+        // Act & Assert
+        assertThrows(UncheckedIOException.class,
+                () -> fullProductIndexer.indexFromStream(failing, -1, null, null, new IndexProgress()));
+        verify(mockOpenSearchService).deleteIndex(startsWith(TEST_ALIAS + "-"));
+        verify(mockOpenSearchService, never()).swapAliases(anyString(), any(), anyCollection(), anyCollection());
+    }
+
+    @Test
+    void bulkUpdateProducts_WithRouteByCategory_SendsPartialUpdatesWithoutEmbedding() {
+        // Arrange
+        when(mockIndexProperties.isRouteByCategory()).thenReturn(true);
+        Product product = new Product();
+        product.setId("prod-1");
+        product.setCategory(List.of("Root", "Clothing"));
+        product.setPriceCents(800L);
+        when(mockOpenSearchService.bulk(anyList(), anyBoolean())).thenReturn(List.of(BulkResponseItem.of(b -> b
+                .operationType(OperationType.Update)
+                .index("products-live")
+                .id("prod-1")
+                .status(404)
+                .error(e -> e.type("document_missing_exception").reason("document missing")))));
+
+        // Act
+        List<String> rejected = fullProductIndexer.bulkUpdateProducts(List.of(product), "products-live");
+
+        // Assert
+        assertEquals(List.of("prod-1"), rejected);
+        verify(mockEmbeddingService, never()).getEmbeddings(anyList());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BulkOperation>> operationsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockOpenSearchService).bulk(operationsCaptor.capture(), eq(false));
+        BulkOperation operation = operationsCaptor.getValue().getFirst();
+        assertTrue(operation.isUpdate());
+        assertEquals("prod-1", operation.update().id());
+        assertEquals("products-live", operation.update().index());
+        assertEquals("clothing", operation.update().routing());
+    }
+
     @Test
     void bulkIndexRecords_WithValidJsonNodes_CallsBulkIndex() throws IOException {
         // Arrange
@@ -339,6 +1136,47 @@ class FullProductIndexerTest {
         assertEquals(2, capturedProducts.size());
     }
 
+    @Test
+    void bulkIndexRecords_WithRouteByCategory_RoutesByTopLevelCategory() throws IOException {
+        // Arrange
+        com.fasterxml.jackson.databind.ObjectMapper mapper = new com.fasterxml.jackson.databind.ObjectMapper();
+        JsonNode node = mapper.readTree("{\"id\": \"prod-0\", \"category\": [\"Root\", \"Electronics\", \"Phones\"]}");
+        String indexName = "products-2026.02.23.120000";
+
+        when(mockIndexProperties.isRouteByCategory()).thenReturn(true);
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(List.of(List.of(1f)));
+
+        // Act
+        fullProductIndexer.bulkIndexRecords(List.of(node), indexName);
+
+        // Assert
+        verify(mockOpenSearchService).bulkIndex(productsCaptor.capture(), eq(indexName), routingCaptor.capture());
+        verify(mockOpenSearchService, never()).bulkIndex(any(), anyString());
+        assertEquals("electronics", routingCaptor.getValue().apply(productsCaptor.getValue().getFirst()));
+    }
+
+    @Test
+    void finalizer_WithRouteByCategory_ReportsShardSkewBeforeMovingAlias() {
+        // Arrange
+        String newIndexName = "products-2026.02.23.120000";
+
+        when(mockIndexProperties.isRouteByCategory()).thenReturn(true);
+        when(mockOpenSearchService.waitForGreenStatus(eq(newIndexName), eq(TEST_STATUS_WAIT_SECONDS)))
+            .thenReturn(true);
+        when(mockOpenSearchService.getPrimaryShardDocCounts(newIndexName))
+            .thenReturn(java.util.Map.of("0", 300L, "1", 100L));
+
+        // Act
+        fullProductIndexer.finalizer(newIndexName);
+
+        // Assert
+        var inOrder = inOrder(mockOpenSearchService);
+        inOrder.verify(mockOpenSearchService).refreshIndex(newIndexName);
+        inOrder.verify(mockOpenSearchService).getPrimaryShardDocCounts(newIndexName);
+        inOrder.verify(mockOpenSearchService).swapAliases(
+                eq(TEST_ALIAS), eq(TEST_OLD_ALIAS), eq(List.of(newIndexName)), anyCollection());
+    }
+
     @Test
     void bulkIndexRecords_WithEmptyList_CallsBulkIndexWithEmptyList() {
         when(mockEmbeddingService.getEmbeddings(anyList())).thenReturn(new ArrayList<>());
@@ -0,0 +1,404 @@
+package org.example.indexer;
+
+import org.example.config.IndexJobProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexJobManagerTest {
+
+    private IndexJobManager indexJobManager;
+
+    @BeforeEach
+    void setUp() {
+        IndexJobProperties properties = new IndexJobProperties();
+        properties.setThreads(1);
+        properties.setHistory(2);
+        properties.setProgressIntervalMillis(10);
+        indexJobManager = new IndexJobManager(properties);
+    }
+
+    @AfterEach
+    void tearDown() {
+        indexJobManager.shutdown();
+    }
+
+    @Test
+    void submit_WithSuccessfulTask_RunsOnJobThreadAndRecordsIndexed() throws InterruptedException {
+        // Arrange
+        String[] threadName = new String[1];
+
+        // Act
+        IndexJob job = indexJobManager.submit("products", Map.of("limit", 10), progress -> {
+            threadName[0] = Thread.currentThread().getName();
+            return 10;
+        });
+        indexJobManager.await(job);
+
+        // Assert
+        assertEquals(IndexJob.Status.SUCCEEDED, job.getStatus());
+        assertEquals(10, job.getIndexed());
+        assertTrue(threadName[0].startsWith("index-job-"), threadName[0]);
+        IndexJob.View view = job.view();
+        assertNotNull(view.startedAt());
+        assertNotNull(view.finishedAt());
+        assertEquals(IndexProgress.Stage.DONE, view.progress().stage());
+        assertSame(job, indexJobManager.getJob(job.getId()));
+    }
+
+    @Test
+    void submit_WithFailingTask_RecordsError() throws InterruptedException {
+        // Act
+        IndexJob job = indexJobManager.submit("products", Map.of(), progress -> {
+            throw new IllegalArgumentException("Unknown vector profile missing");
+        });
+        indexJobManager.await(job);
+
+        // Assert
+        assertEquals(IndexJob.Status.FAILED, job.getStatus());
+        assertEquals("Unknown vector profile missing", job.getError());
+        assertNull(job.getIndexed());
+    }
+
+    @Test
+    void cancel_WithRunningJob_StopsTaskAtNextCheck() throws InterruptedException {
+        // Arrange
+        CountDownLatch started = new CountDownLatch(1);
+        IndexJob job = indexJobManager.submit("products", Map.of(), progress -> {
+            started.countDown();
+            while (true) {
+                progress.checkCancelled();
+                Thread.onSpinWait();
+            }
+        });
+        assertTrue(started.await(5, TimeUnit.SECONDS));
+
+        // Act
+        indexJobManager.cancel(job.getId());
+        indexJobManager.await(job);
+
+        // Assert
+        assertEquals(IndexJob.Status.CANCELLED, job.getStatus());
+        assertTrue(job.getProgress().isCancelled());
+    }
+
+    @Test
+    void cancel_WithQueuedJob_NeverStartsIt() throws InterruptedException {
+        // Arrange - the only job thread is busy
+        CountDownLatch release = new CountDownLatch(1);
+        IndexJob running = indexJobManager.submit("products", Map.of(), progress -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        boolean[] ran = new boolean[1];
+        IndexJob queued = indexJobManager.submit("products", Map.of(), progress -> {
+            ran[0] = true;
+            return 1;
+        });
+
+        // Act
+        indexJobManager.cancel(queued.getId());
+        release.countDown();
+        indexJobManager.await(running);
+        indexJobManager.await(queued);
+
+        // Assert
+        assertEquals(IndexJob.Status.CANCELLED, queued.getStatus());
+        assertNull(queued.view().startedAt());
+        assertFalse(ran[0]);
+        assertEquals(IndexJob.Status.SUCCEEDED, running.getStatus());
+    }
+
+    @Test
+    void watch_WithRunningJob_SendsSnapshotsUntilFinished() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        IndexJob job = indexJobManager.submit("products", Map.of(), progress -> {
+            progress.startIndexing("products-2026.02.23.120000", 100, 0, null);
+            progress.recordEmbedding(10, 20_000_000);
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 10;
+        });
+        List<IndexJob.View> views = new CopyOnWriteArrayList<>();
+        CountDownLatch finished = new CountDownLatch(1);
+
+        // Act
+        Future<?> watch = indexJobManager.watch(job, views::add, finished::countDown);
+        Thread.sleep(50);
+        release.countDown();
+
+        // Assert
+        assertTrue(finished.await(5, TimeUnit.SECONDS));
+        assertTrue(views.size() > 1, "expected snapshots while the job ran");
+        assertEquals(IndexJob.Status.SUCCEEDED, views.getLast().status());
+        assertEquals(10, views.getLast().indexed());
+        assertEquals(20.0, views.getLast().progress().embedP50Millis());
+        int sent = views.size();
+        Thread.sleep(50);
+        assertEquals(sent, views.size());
+        assertTrue(watch.isDone());
+    }
+
+    @Test
+    void watch_WhenListenerThrows_StopsWatching() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        IndexJob job = indexJobManager.submit("products", Map.of(), progress -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        int[] calls = new int[1];
+        boolean[] finished = new boolean[1];
+
+        // Act
+        Future<?> watch = indexJobManager.watch(job, view -> {
+            calls[0]++;
+            throw new IllegalStateException("client disconnected");
+        }, () -> finished[0] = true);
+        Thread.sleep(50);
+        release.countDown();
+        indexJobManager.await(job);
+
+        // Assert
+        assertEquals(1, calls[0]);
+        assertFalse(finished[0]);
+        assertTrue(watch.isDone());
+    }
+
+    @Test
+    void submit_WithSameKeyAndParameters_AttachesToInFlightJob() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger runs = new AtomicInteger();
+        IndexJobManager.IndexTask task = progress -> {
+            runs.incrementAndGet();
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 5;
+        };
+        IndexJob first = indexJobManager.submit("products", "products:products", Map.of("limit", 5), task);
+
+        // Act
+        IndexJob second = indexJobManager.submit("products", "products:products", Map.of("limit", 5), task);
+        release.countDown();
+        indexJobManager.await(second);
+
+        // Assert
+        assertSame(first, second);
+        assertEquals(1, runs.get());
+        assertEquals(IndexJob.Status.SUCCEEDED, second.getStatus());
+        assertEquals(1, indexJobManager.getJobs().size());
+    }
+
+    @Test
+    void submit_WithSameKeyAndOtherParameters_QueuesOneFollowUpAfterInFlightJob() throws InterruptedException {
+        // Arrange - two job threads, so only the key keeps the follow-up from running alongside
+        IndexJobProperties properties = new IndexJobProperties();
+        properties.setThreads(2);
+        IndexJobManager manager = new IndexJobManager(properties);
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger concurrent = new AtomicInteger();
+        AtomicInteger maxConcurrent = new AtomicInteger();
+        List<Object> limits = new CopyOnWriteArrayList<>();
+        try {
+            IndexJob first = manager.submit("products", "products:products", Map.of("limit", 1),
+                    runTracked(release, concurrent, maxConcurrent, limits, 1));
+
+            // Act
+            IndexJob superseded = manager.submit("products", "products:products", Map.of("limit", 2),
+                    runTracked(release, concurrent, maxConcurrent, limits, 2));
+            IndexJob followUp = manager.submit("products", "products:products", Map.of("limit", 3),
+                    runTracked(release, concurrent, maxConcurrent, limits, 3));
+            IndexJob attached = manager.submit("products", "products:products", Map.of("limit", 3),
+                    runTracked(release, concurrent, maxConcurrent, limits, 3));
+            // the other key has to start while the first job holds its thread
+            while (concurrent.get() == 0) {
+                Thread.sleep(1);
+            }
+            IndexJob otherKey = manager.submit("products", "products:other", Map.of("limit", 4),
+                    runTracked(null, concurrent, maxConcurrent, limits, 4));
+            manager.await(otherKey);
+            release.countDown();
+            manager.await(first);
+            manager.await(followUp);
+
+            // Assert
+            assertSame(followUp, attached);
+            assertEquals(IndexJob.Status.CANCELLED, superseded.getStatus());
+            assertEquals(IndexJob.Status.SUCCEEDED, first.getStatus());
+            assertEquals(IndexJob.Status.SUCCEEDED, followUp.getStatus());
+            assertEquals(IndexJob.Status.SUCCEEDED, otherKey.getStatus());
+            // the other key ran alongside the first job, the follow-up only after it
+            assertEquals(3, limits.size());
+            assertTrue(limits.containsAll(List.of(1, 4)));
+            assertEquals(3, limits.getLast());
+            assertEquals(2, maxConcurrent.get());
+        } finally {
+            manager.shutdown();
+        }
+    }
+
+    @Test
+    void submit_WithSameKeyAndOtherType_QueuesBehindFollowUpInsteadOfSupersedingIt() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        List<String> order = new CopyOnWriteArrayList<>();
+        IndexJob first = indexJobManager.submit("products", "products:products", Map.of(), progress -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+
+        // Act
+        IndexJob partitions = indexJobManager.submit("products-partitions", "products:products",
+                Map.of("category", "toys"), progress -> {
+                    order.add("partitions");
+                    return 2;
+                });
+        IndexJob changes = indexJobManager.submit("products-changes", "products:products", Map.of(), progress -> {
+            order.add("changes");
+            return 3;
+        });
+        release.countDown();
+        indexJobManager.await(first);
+        indexJobManager.await(partitions);
+        indexJobManager.await(changes);
+
+        // Assert - equal parameters of another type do not attach to the running job
+        assertNotSame(first, changes);
+        assertEquals(IndexJob.Status.SUCCEEDED, partitions.getStatus());
+        assertEquals(IndexJob.Status.SUCCEEDED, changes.getStatus());
+        assertEquals(List.of("partitions", "changes"), order);
+    }
+
+    @Test
+    void cancel_WithFollowUpJob_NeverStartsItAndFreesTheKey() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        IndexJob first = indexJobManager.submit("products", "products:products", Map.of("limit", 1), progress -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+        boolean[] ran = new boolean[1];
+        IndexJob followUp = indexJobManager.submit("products", "products:products", Map.of("limit", 2), progress -> {
+            ran[0] = true;
+            return 2;
+        });
+
+        // Act
+        indexJobManager.cancel(followUp.getId());
+        release.countDown();
+        indexJobManager.await(first);
+        IndexJob next = indexJobManager.await(
+                indexJobManager.submit("products", "products:products", Map.of("limit", 2), progress -> 3));
+
+        // Assert
+        assertEquals(IndexJob.Status.CANCELLED, indexJobManager.await(followUp).getStatus());
+        assertFalse(ran[0]);
+        assertNotSame(followUp, next);
+        assertEquals(3, next.getIndexed());
+    }
+
+    @Test
+    void submitIfIdle_WithJobInFlightForKey_RejectsAndNeverSupersedesIt() throws InterruptedException {
+        // Arrange
+        CountDownLatch release = new CountDownLatch(1);
+        IndexJob first = indexJobManager.submit("products", "products:products", Map.of("limit", 1), progress -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return 1;
+        });
+
+        // Act
+        IndexJob rejected = indexJobManager.submitIfIdle(
+                "products-upload", "products:products", Map.of("upload", "a"), progress -> 2);
+        release.countDown();
+        indexJobManager.await(first);
+        IndexJob upload = indexJobManager.submitIfIdle(
+                "products-upload", "products:products", Map.of("upload", "b"), progress -> 3);
+        IndexJob later = indexJobManager.submit("products", "products:products", Map.of("limit", 4), progress -> 4);
+        indexJobManager.await(later);
+
+        // Assert
+        assertNull(rejected);
+        assertNotNull(upload);
+        assertEquals(IndexJob.Status.SUCCEEDED, indexJobManager.await(upload).getStatus());
+        assertEquals(3, upload.getIndexed());
+    }
+
+    @Test
+    void submit_PastHistory_ForgetsOldestFinishedJobs() throws InterruptedException {
+        // Arrange
+        IndexJob first = indexJobManager.await(indexJobManager.submit("products", Map.of(), progress -> 1));
+        IndexJob second = indexJobManager.await(indexJobManager.submit("products", Map.of(), progress -> 2));
+        IndexJob third = indexJobManager.await(indexJobManager.submit("products", Map.of(), progress -> 3));
+
+        // Act
+        IndexJob fourth = indexJobManager.submit("products", Map.of(), progress -> 4);
+
+        // Assert
+        assertNull(indexJobManager.getJob(first.getId()));
+        assertEquals(3, indexJobManager.getJobs().size());
+        assertSame(fourth, indexJobManager.getJobs().getFirst());
+        assertNotNull(indexJobManager.getJob(second.getId()));
+        assertNotNull(indexJobManager.getJob(third.getId()));
+        assertNull(indexJobManager.cancel("unknown"));
+    }
+
+    private static IndexJobManager.IndexTask runTracked(
+            CountDownLatch release,
+            AtomicInteger concurrent,
+            AtomicInteger maxConcurrent,
+            List<Object> limits,
+            int limit) {
+        return progress -> {
+            limits.add(limit);
+            maxConcurrent.accumulateAndGet(concurrent.incrementAndGet(), Math::max);
+            try {
+                if (release != null) {
+                    release.await();
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                concurrent.decrementAndGet();
+            }
+            return limit;
+        };
+    }
+}
@@ -0,0 +1,82 @@
+package org.example.indexer;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class IndexProgressTest {
+
+    @Test
+    void snapshot_WhileIndexing_DerivesCompletionAndEta() throws InterruptedException {
+        // Arrange
+        IndexProgress progress = new IndexProgress();
+        progress.startIndexing("products-2026.02.23.120000", 1100, 100, null);
+        Thread.sleep(20);
+
+        // Act
+        progress.recordRead(40, 350);
+        IndexProgress.Snapshot snapshot = progress.snapshot();
+
+        // Assert - 250 of the 1000 bytes past the resume offset were read
+        assertEquals(IndexProgress.Stage.INDEXING, snapshot.stage());
+        assertEquals(25.0, snapshot.percentComplete());
+        assertNotNull(snapshot.etaSeconds());
+        assertTrue(snapshot.readDocsPerSecond() > 0);
+    }
+
+    @Test
+    void snapshot_WithLimit_UsesTheFurtherOfBytesAndRecords() {
+        // Arrange
+        IndexProgress progress = new IndexProgress();
+        progress.startIndexing("products-2026.02.23.120000", 10_000, 0, 50);
+
+        // Act
+        progress.recordRead(25, 1_000);
+
+        // Assert
+        assertEquals(50.0, progress.snapshot().percentComplete());
+    }
+
+    @Test
+    void snapshot_WithCallLatencies_ReportsRatesAndPercentiles() {
+        // Arrange
+        IndexProgress progress = new IndexProgress();
+        for (int i = 1; i <= 100; i++) {
+            progress.recordEmbedding(10, i * 1_000_000L);
+            progress.recordBulk(10, i == 100 ? 2 : 0, 5_000_000L);
+        }
+        progress.recordFailedBatch();
+
+        // Act
+        IndexProgress.Snapshot snapshot = progress.snapshot();
+
+        // Assert
+        assertEquals(1000, snapshot.embeddedDocuments());
+        assertEquals(998, snapshot.indexedDocuments());
+        assertEquals(2, snapshot.rejectedDocuments());
+        assertEquals(1, snapshot.failedBatches());
+        assertEquals(51.0, snapshot.embedP50Millis());
+        assertEquals(100.0, snapshot.embedP99Millis());
+        assertEquals(5.0, snapshot.bulkP50Millis());
+        assertEquals(1996.0, snapshot.bulkDocsPerSecond());
+        // 1000 documents over 5050ms of embedding calls
+        assertEquals(198.0, snapshot.embedDocsPerSecond());
+        assertNull(snapshot.etaSeconds());
+    }
+
+    @Test
+    void checkCancelled_AfterCancel_ThrowsCancellationException() {
+        // Arrange
+        IndexProgress progress = new IndexProgress();
+        progress.checkCancelled();
+
+        // Act
+        progress.cancel();
+
+        // Assert
+        assertTrue(progress.isCancelled());
+        assertThrows(CancellationException.class, progress::checkCancelled);
+    }
+}
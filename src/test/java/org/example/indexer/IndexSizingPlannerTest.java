@@ -0,0 +1,208 @@
+package org.example.indexer;
+
+import org.example.config.IndexSizingProperties;
+import org.example.config.ProductIndexProperties;
+import org.example.service.OpenSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.opensearch.client.opensearch._types.mapping.TypeMapping;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IndexSizingPlannerTest {
+
+    @Mock
+    private OpenSearchService mockOpenSearchService;
+
+    @Mock
+    private ProductIndexProperties mockIndexProperties;
+
+    @TempDir
+    Path tempDir;
+
+    private IndexSizingProperties sizingProperties;
+    private IndexSizingPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        sizingProperties = new IndexSizingProperties();
+        when(mockIndexProperties.getMapping()).thenReturn("/products-mapping.json");
+        when(mockOpenSearchService.readMapping(anyString())).thenReturn(TypeMapping.of(m -> m
+                .properties("fts_embedding", p -> p.knnVector(k -> k.dimension(384)))));
+        planner = new IndexSizingPlanner(sizingProperties, mockIndexProperties, mockOpenSearchService);
+    }
+
+    @Test
+    void plan_WithSmallFile_CountsEveryDocument() throws IOException {
+        // Arrange
+        Path testFile = tempDir.resolve("products.json");
+        Files.writeString(testFile, """
+            {"asin": "1", "title": "Product 1", "brand": "Brand"}
+            {"asin": "2", "title": "Product 2", "brand": "Brand"}
+
+            {"asin": "3", "title": "Product 3", "brand": "Brand"}
+            """);
+
+        // Act
+        IndexPlan plan = planner.plan(testFile.toString(), null);
+
+        // Assert
+        assertNotNull(plan);
+        assertEquals(3, plan.sampledDocs());
+        assertEquals(3, plan.estimatedDocs());
+        assertEquals(384, plan.vectorDimension());
+        assertEquals(3L * 384 * Float.BYTES, plan.estimatedVectorBytes());
+        assertEquals(1, plan.shards());
+        assertEquals(32, plan.m());
+        assertEquals(256, plan.efConstruction());
+    }
+
+    @Test
+    void plan_WithSampleSmallerThanFile_ExtrapolatesFromFileSize() throws IOException {
+        // Arrange
+        sizingProperties.setSampleSize(10);
+        Path testFile = tempDir.resolve("products.json");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 100; i++) {
+            sb.append(String.format("{\"asin\": \"%04d\", \"title\": \"Product\"}\n", i));
+        }
+        Files.writeString(testFile, sb.toString());
+
+        // Act
+        IndexPlan plan = planner.plan(testFile.toString(), 40);
+
+        // Assert
+        assertNotNull(plan);
+        assertEquals(10, plan.sampledDocs());
+        assertEquals(40, plan.estimatedDocs());
+    }
+
+    @Test
+    void plan_WithInputBytesOfSeveralFiles_ExtrapolatesFromTotalSize() throws IOException {
+        // Arrange - the sampled file is one of four parts of the same size
+        Path testFile = tempDir.resolve("part-1.json");
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 10; i++) {
+            sb.append(String.format("{\"asin\": \"%04d\", \"title\": \"Product\"}\n", i));
+        }
+        Files.writeString(testFile, sb.toString());
+
+        // Act
+        IndexPlan plan = planner.plan(testFile.toString(), Files.size(testFile) * 4, null);
+
+        // Assert
+        assertNotNull(plan);
+        assertEquals(10, plan.sampledDocs());
+        assertEquals(40, plan.estimatedDocs());
+    }
+
+    @Test
+    void plan_WithGzipFile_ExtrapolatesFromDecompressedSize() throws IOException {
+        // Arrange
+        sizingProperties.setSampleSize(10);
+        Path testFile = tempDir.resolve("products.json.gz");
+        try (GZIPOutputStream gzip = new GZIPOutputStream(Files.newOutputStream(testFile))) {
+            for (int i = 0; i < 100; i++) {
+                gzip.write(String.format("{\"asin\": \"%04d\", \"title\": \"Product\"}\n", i)
+                        .getBytes(StandardCharsets.UTF_8));
+            }
+        }
+
+        // Act
+        IndexPlan plan = planner.plan(testFile.toString(), null);
+
+        // Assert
+        assertNotNull(plan);
+        assertEquals(10, plan.sampledDocs());
+        // the position in the compressed file is estimated, which is coarse for a file this small
+        assertEquals(100, plan.estimatedDocs(), 5);
+    }
+
+    @Test
+    void plan_WithMalformedLine_SkipsItAndStillPlans() throws IOException {
+        // Arrange
+        Path testFile = tempDir.resolve("products.json");
+        Files.writeString(testFile, """
+            {"asin": "1", "title": "Product 1", "brand": "Brand"}
+            {"asin": "2", "title": "Product 2", "brand":
+            {"asin": "3", "title": "Product 3", "brand": "Brand"}
+            """);
+
+        // Act
+        IndexPlan plan = planner.plan(testFile.toString(), null);
+
+        // Assert
+        assertNotNull(plan);
+        assertEquals(2, plan.sampledDocs());
+        assertEquals(2, plan.estimatedDocs());
+    }
+
+    @Test
+    void plan_WithModeOff_ReturnsNullWithoutReadingMapping() {
+        // Arrange
+        sizingProperties.setMode(IndexSizingProperties.Mode.OFF);
+
+        // Act & Assert
+        assertNull(planner.plan("products.json", null));
+        assertFalse(planner.shouldApply());
+        verify(mockOpenSearchService, never()).readMapping(anyString());
+    }
+
+    @Test
+    void plan_WithMissingFile_ReturnsNull() {
+        assertNull(planner.plan(tempDir.resolve("missing.json").toString(), null));
+    }
+
+    @Test
+    void plan_WithLargeCatalog_SplitsShardsAndReducesGraphDensity() {
+        // Arrange
+        sizingProperties.setTargetShardSize(DataSize.ofGigabytes(10));
+        sizingProperties.setGraphMemoryBudget(DataSize.ofGigabytes(36));
+
+        // Act - 20M docs of 1KB source and 384 dim vectors
+        IndexPlan plan = planner.plan(1000, 1_000_000, 1_000_000, 20_000_000_000L, null, 384);
+
+        // Assert
+        assertEquals(20_000_000, plan.estimatedDocs());
+        assertEquals(5, plan.shards());
+        assertEquals(24, plan.m());
+        assertEquals(192, plan.efConstruction());
+        assertTrue(plan.estimatedGraphBytes() <= DataSize.ofGigabytes(36).toBytes());
+    }
+
+    @Test
+    void plan_WithQuantizeVectors_EstimatesOneBytePerDimension() {
+        // Arrange
+        when(mockIndexProperties.isQuantizeVectors()).thenReturn(true);
+        sizingProperties.setTargetShardSize(DataSize.ofGigabytes(10));
+        sizingProperties.setGraphMemoryBudget(DataSize.ofGigabytes(36));
+
+        // Act - the float catalog above needs m 24 to fit the budget
+        IndexPlan plan = planner.plan(1000, 1_000_000, 1_000_000, 20_000_000_000L, null, 384);
+
+        // Assert
+        assertEquals(20_000_000L * 384, plan.estimatedVectorBytes());
+        assertEquals(32, plan.m());
+        assertEquals(3, plan.shards());
+        assertEquals(IndexSizingPlanner.getGraphBytes(20_000_000, 384, Byte.BYTES, 32), plan.estimatedGraphBytes());
+    }
+}
@@ -0,0 +1,225 @@
+package org.example.indexer;
+
+import org.example.config.ProductIndexProperties;
+import org.example.model.Product;
+import org.example.service.OpenSearchService;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CancellationException;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class PartitionedProductIndexerTest {
+
+    @Mock
+    private FullProductIndexer mockFullProductIndexer;
+
+    @Mock
+    private OpenSearchService mockOpenSearchService;
+
+    @Mock
+    private ProductIndexProperties mockIndexProperties;
+
+    @InjectMocks
+    private PartitionedProductIndexer partitionedProductIndexer;
+
+    @Captor
+    private ArgumentCaptor<Collection<String>> addCaptor;
+
+    @Captor
+    private ArgumentCaptor<Collection<String>> removeCaptor;
+
+    @Captor
+    private ArgumentCaptor<List<Product>> productsCaptor;
+
+    @TempDir
+    Path tempDir;
+
+    private static final String TEST_ALIAS = "products";
+    private static final String TEST_OLD_ALIAS = "products-old";
+    private static final String OLD_ELECTRONICS = "products-electronics-2026.02.20.120000";
+    private static final String OLD_TOYS = "products-toys-2026.02.20.120000";
+
+    @BeforeEach
+    void setUp() {
+        when(mockIndexProperties.getAlias()).thenReturn(TEST_ALIAS);
+        when(mockIndexProperties.getOldAlias()).thenReturn(TEST_OLD_ALIAS);
+        when(mockIndexProperties.getBatchSize()).thenReturn(2);
+        when(mockIndexProperties.getSettings()).thenReturn("settings.json");
+        when(mockIndexProperties.getMapping()).thenReturn("mapping.json");
+        when(mockIndexProperties.getStatusWaitSeconds()).thenReturn(30);
+        when(mockIndexProperties.getOldIndexKeepDays()).thenReturn(7);
+        when(mockIndexProperties.getPartitionThreads()).thenReturn(2);
+        when(mockOpenSearchService.waitForGreenStatus(anyString(), anyInt())).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias(TEST_ALIAS)).thenReturn(Set.of(OLD_ELECTRONICS, OLD_TOYS));
+        when(mockOpenSearchService.swapAliases(anyString(), anyString(), anyCollection(), anyCollection()))
+                .thenReturn(true);
+    }
+
+    private Path writeProducts() throws IOException {
+        Path file = tempDir.resolve("products.json");
+        Files.writeString(file, String.join("\n",
+                "{\"id\": \"e-1\", \"category\": [\"Root\", \"Electronics\"]}",
+                "{\"id\": \"e-2\", \"category\": [\"Root\", \"Electronics\"]}",
+                "{\"id\": \"e-3\", \"category\": [\"Root\", \"Electronics\"]}",
+                "{\"id\": \"h-1\", \"category\": [\"Root\", \"Home & Kitchen\"]}",
+                "{\"id\": \"t-1\", \"category\": [\"Root\", \"Toys\"]}",
+                "{\"id\": \"u-1\"}"));
+        return file;
+    }
+
+    @Test
+    void indexFromFile_CreatesOneIndexPerCategoryAndSwapsAllAtOnce() throws IOException {
+        // Act
+        int result = partitionedProductIndexer.indexFromFile(writeProducts().toString());
+
+        // Assert
+        assertEquals(6, result);
+        verify(mockOpenSearchService).createIndex(startsWith("products-electronics-"), anyString(), anyString());
+        verify(mockOpenSearchService).createIndex(startsWith("products-home_kitchen-"), anyString(), anyString());
+        verify(mockOpenSearchService).createIndex(startsWith("products-toys-"), anyString(), anyString());
+        verify(mockOpenSearchService).createIndex(startsWith("products-uncategorized-"), anyString(), anyString());
+        // electronics is split into a full and a partial batch
+        verify(mockFullProductIndexer, times(5)).bulkIndexProducts(anyList(), anyString(), any(), any());
+
+        verify(mockOpenSearchService).swapAliases(
+                eq(TEST_ALIAS), eq(TEST_OLD_ALIAS), addCaptor.capture(), removeCaptor.capture());
+        assertEquals(4, addCaptor.getValue().size());
+        assertEquals(Set.of(OLD_ELECTRONICS, OLD_TOYS), Set.copyOf(removeCaptor.getValue()));
+    }
+
+    @Test
+    void indexFromFile_WithCategory_RebuildsOnlyThatPartition() throws IOException {
+        // Act
+        int result = partitionedProductIndexer.indexFromFile(writeProducts().toString(), null, "toys");
+
+        // Assert
+        assertEquals(1, result);
+        verify(mockOpenSearchService, times(1)).createIndex(anyString(), anyString(), anyString());
+        verify(mockFullProductIndexer)
+                .bulkIndexProducts(productsCaptor.capture(), startsWith("products-toys-"), any(), any());
+        assertEquals("t-1", productsCaptor.getValue().getFirst().getId());
+
+        verify(mockOpenSearchService).swapAliases(
+                eq(TEST_ALIAS), eq(TEST_OLD_ALIAS), addCaptor.capture(), removeCaptor.capture());
+        assertTrue(addCaptor.getValue().iterator().next().startsWith("products-toys-"));
+        assertEquals(List.of(OLD_TOYS), List.copyOf(removeCaptor.getValue()));
+    }
+
+    @Test
+    void indexFromFile_WithRejectedProducts_DoesNotCountThem() throws IOException {
+        // Arrange
+        when(mockFullProductIndexer.bulkIndexProducts(anyList(), startsWith("products-electronics-"), any(), any()))
+                .thenReturn(List.of("e-2"));
+
+        // Act
+        int result = partitionedProductIndexer.indexFromFile(writeProducts().toString());
+
+        // Assert - one product of each of the two electronics batches was rejected
+        assertEquals(4, result);
+        verify(mockOpenSearchService).swapAliases(anyString(), anyString(), anyCollection(), anyCollection());
+    }
+
+    @Test
+    void indexFromFile_WithPartitionNotGreen_DoesNotSwapAliases() throws IOException {
+        // Arrange
+        when(mockOpenSearchService.waitForGreenStatus(startsWith("products-toys-"), anyInt())).thenReturn(false);
+
+        // Act
+        partitionedProductIndexer.indexFromFile(writeProducts().toString());
+
+        // Assert
+        verify(mockOpenSearchService, times(4)).updateSettings(anyString(), anyInt(), anyInt());
+        verify(mockOpenSearchService, never()).swapAliases(anyString(), anyString(), any(), any());
+        verify(mockOpenSearchService, times(4)).deleteIndex(anyString());
+    }
+
+    @Test
+    void indexFromFile_WithFailedBatch_DoesNotSwapAliases() throws IOException {
+        // Arrange
+        doThrow(new RuntimeException("bulk failed"))
+                .when(mockFullProductIndexer).bulkIndexProducts(anyList(), startsWith("products-toys-"), any(), any());
+
+        // Act
+        int result = partitionedProductIndexer.indexFromFile(writeProducts().toString());
+
+        // Assert
+        assertEquals(0, result);
+        verify(mockOpenSearchService, never()).swapAliases(anyString(), anyString(), any(), any());
+    }
+
+    @Test
+    void indexFromFile_WithFailedBatch_DeletesEveryPartition() throws IOException {
+        // Arrange
+        doThrow(new RuntimeException("bulk failed"))
+                .when(mockFullProductIndexer).bulkIndexProducts(anyList(), startsWith("products-toys-"), any(), any());
+
+        // Act
+        partitionedProductIndexer.indexFromFile(writeProducts().toString());
+
+        // Assert
+        verify(mockOpenSearchService).deleteIndex(startsWith("products-electronics-"));
+        verify(mockOpenSearchService).deleteIndex(startsWith("products-home_kitchen-"));
+        verify(mockOpenSearchService).deleteIndex(startsWith("products-toys-"));
+        verify(mockOpenSearchService).deleteIndex(startsWith("products-uncategorized-"));
+        verify(mockOpenSearchService, never()).deleteIndex(OLD_ELECTRONICS);
+    }
+
+    @Test
+    void indexFromFile_WhenCancelled_DeletesEveryPartitionAndDoesNotSwapAliases() throws IOException {
+        // Arrange - the run is cancelled while its first batch is sent
+        IndexProgress progress = new IndexProgress();
+        doAnswer(invocation -> {
+            progress.cancel();
+            return List.of();
+        }).when(mockFullProductIndexer).bulkIndexProducts(anyList(), anyString(), any(), any());
+        String file = writeProducts().toString();
+
+        // Act & Assert
+        assertThrows(CancellationException.class,
+                () -> partitionedProductIndexer.indexFromFile(file, null, null, progress));
+        verify(mockOpenSearchService, never()).swapAliases(anyString(), anyString(), any(), any());
+        verify(mockOpenSearchService).deleteIndex(startsWith("products-electronics-"));
+        verify(mockOpenSearchService, never()).deleteIndex(OLD_ELECTRONICS);
+    }
+
+    @Test
+    void indexFromFile_WithMalformedLine_SkipsItAndSwapsAliases() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("malformed.json");
+        Files.writeString(file, String.join("\n",
+                "{\"id\": \"t-1\", \"category\": [\"Root\", \"Toys\"]}",
+                "{\"id\": \"t-2\", \"category\": [",
+                "{\"id\": \"t-3\", \"category\": [\"Root\", \"Toys\"]}"));
+
+        // Act
+        int result = partitionedProductIndexer.indexFromFile(file.toString());
+
+        // Assert
+        assertEquals(2, result);
+        verify(mockOpenSearchService).swapAliases(
+                eq(TEST_ALIAS), eq(TEST_OLD_ALIAS), addCaptor.capture(), removeCaptor.capture());
+        assertTrue(addCaptor.getValue().iterator().next().startsWith("products-toys-"));
+        verify(mockOpenSearchService, never()).deleteIndex(startsWith("products-toys-"));
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.indexer;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Product;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ProductManifestTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void write_ThenRead_RoundTripsEntries() throws IOException {
+        // Arrange
+        Path path = tempDir.resolve("manifest.tsv");
+        ProductManifest manifest = new ProductManifest("products-2026.02.23.120000");
+        manifest.put("prod-1", "abc", "electronics");
+        manifest.put("prod-2", "def", null);
+
+        // Act
+        manifest.write(path);
+        ProductManifest result = ProductManifest.read(path);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals("products-2026.02.23.120000", result.getIndexName());
+        assertEquals(new ProductManifest.Entry("abc", "electronics"), result.get("prod-1"));
+        assertEquals(new ProductManifest.Entry("def", null), result.get("prod-2"));
+        assertEquals(2, result.size());
+    }
+
+    @Test
+    void write_ThenRead_RoundTripsTextHashes() throws IOException {
+        // Arrange
+        Path path = tempDir.resolve("manifest.tsv");
+        ProductManifest manifest = new ProductManifest("products-2026.02.23.120000");
+        manifest.put("prod-1", "abc", null, "fts");
+
+        // Act
+        manifest.write(path);
+        ProductManifest result = ProductManifest.read(path);
+
+        // Assert
+        assertEquals(new ProductManifest.Entry("abc", null, "fts"), result.get("prod-1"));
+    }
+
+    @Test
+    void read_WithThreeColumnManifest_HasNoTextHash() throws IOException {
+        // Arrange
+        Path path = tempDir.resolve("manifest.tsv");
+        Files.writeString(path, "#index\tproducts-2026.02.23.120000\nprod-1\tabc\telectronics\n");
+
+        // Act
+        ProductManifest result = ProductManifest.read(path);
+
+        // Assert
+        assertEquals(new ProductManifest.Entry("abc", "electronics", null), result.get("prod-1"));
+    }
+
+    @Test
+    void ftsHash_ChangesWithEmbeddingTextOnly() throws IOException {
+        // Arrange
+        Product product = objectMapper.readValue(
+                "{\"id\": \"prod-1\", \"title\": \"Shirt\", \"price\": \"$10.00\"}", Product.class);
+        String original = ProductManifest.ftsHash(product);
+
+        // Act
+        product.setPriceCents(1500L);
+        product.setImage(List.of("https://example.com/shirt.jpg"));
+        String repriced = ProductManifest.ftsHash(product);
+        product.setBrand("Acme");
+        String rebranded = ProductManifest.ftsHash(product);
+
+        // Assert
+        assertEquals(original, repriced);
+        assertNotEquals(original, rebranded);
+    }
+
+    @Test
+    void read_WithMissingFile_ReturnsNull() throws IOException {
+        // Act & Assert
+        assertNull(ProductManifest.read(tempDir.resolve("missing.tsv")));
+    }
+
+    @Test
+    void read_WithoutHeader_ThrowsIOException() throws IOException {
+        // Arrange
+        Path path = tempDir.resolve("manifest.tsv");
+        Files.writeString(path, "prod-1\tabc\t\n");
+
+        // Act & Assert
+        assertThrows(IOException.class, () -> ProductManifest.read(path));
+    }
+
+    @Test
+    void hash_IgnoresEmbeddingAndDetectsContentChanges() throws IOException {
+        // Arrange
+        Product product = objectMapper.readValue("{\"id\": \"prod-1\", \"title\": \"Shirt\"}", Product.class);
+        String original = ProductManifest.hash(product, objectMapper);
+
+        // Act
+        product.setFtsEmbedding(new float[] {1f, 2f});
+        String embedded = ProductManifest.hash(product, objectMapper);
+        product.setTitle("Blue Shirt");
+        String changed = ProductManifest.hash(product, objectMapper);
+
+        // Assert
+        assertEquals(original, embedded);
+        assertNotEquals(original, changed);
+        assertArrayEquals(new float[] {1f, 2f}, product.getFtsEmbedding());
+    }
+}
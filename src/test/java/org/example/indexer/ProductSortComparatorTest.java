@@ -0,0 +1,80 @@
+package org.example.indexer;
+
+import org.example.model.Product;
+import org.junit.jupiter.api.Test;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductSortComparatorTest {
+
+    @Test
+    void parse_WithOrders_ReturnsSortFields() {
+        List<ProductSortComparator.SortField> result =
+                ProductSortComparator.parse(List.of("category.keyword:asc", "price:DESC", "brand.keyword"));
+
+        assertEquals(List.of(
+                new ProductSortComparator.SortField("category.keyword", true),
+                new ProductSortComparator.SortField("price", false),
+                new ProductSortComparator.SortField("brand.keyword", true)), result);
+    }
+
+    @Test
+    void parse_WithInvalidOrder_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> ProductSortComparator.parse(List.of("price:up")));
+    }
+
+    @Test
+    void constructor_WithUnsupportedField_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> new ProductSortComparator(
+                ProductSortComparator.parse(List.of("title"))));
+    }
+
+    @Test
+    void sort_ByNormalizedBrandThenPriceDesc_MatchesIndexSortOrder() {
+        // Arrange
+        ProductSortComparator comparator = new ProductSortComparator(
+                ProductSortComparator.parse(List.of("brand.keyword:asc", "price:desc")));
+        Product first = product("1", "acme", "20.00");
+        Product second = product("2", "Acme", "10.00");
+        Product third = product("3", "Ébano", "5.00");
+        Product missingBrand = product("4", null, "50.00");
+
+        // Act
+        List<Product> result = comparator.sort(List.of(missingBrand, third, second, first));
+
+        // Assert
+        assertEquals(List.of(first, second, third, missingBrand), result);
+        assertTrue(comparator.compare(first, second) < 0);
+    }
+
+    @Test
+    void sort_ByCategory_UsesMinimumValueAndMissingLast() {
+        // Arrange
+        ProductSortComparator comparator = new ProductSortComparator(
+                ProductSortComparator.parse(List.of("category.keyword:asc")));
+        Product shoes = product("1", null, null);
+        shoes.setCategory(List.of("Root", "Shoes", "Boots"));
+        Product accessories = product("2", null, null);
+        accessories.setCategory(List.of("Root", "Watches", "Accessories"));
+        Product uncategorized = product("3", null, null);
+
+        // Act
+        List<Product> result = comparator.sort(List.of(uncategorized, shoes, accessories));
+
+        // Assert
+        assertEquals(List.of(accessories, shoes, uncategorized), result);
+    }
+
+    private static Product product(String id, String brand, String price) {
+        Product product = new Product();
+        product.setId(id);
+        product.setBrand(brand);
+        product.setPriceCents(price == null ? null : new BigDecimal(price).movePointRight(2).longValueExact());
+        return product;
+    }
+}
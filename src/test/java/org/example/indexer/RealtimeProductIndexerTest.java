@@ -0,0 +1,296 @@
+package org.example.indexer;
+
+import org.example.config.ProductIndexProperties;
+import org.example.config.RealtimeIndexProperties;
+import org.example.model.Product;
+import org.example.service.OpenSearchService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.core.bulk.OperationType;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class RealtimeProductIndexerTest {
+    private static final String LIVE_INDEX = "products-2026.10.19.120000";
+
+    @Mock
+    private FullProductIndexer mockFullProductIndexer;
+
+    @Mock
+    private OpenSearchService mockOpenSearchService;
+
+    @Mock
+    private ProductIndexProperties mockIndexProperties;
+
+    private RealtimeIndexProperties realtimeProperties;
+
+    private RealtimeProductIndexer realtimeProductIndexer;
+
+    @BeforeEach
+    void setUp() {
+        when(mockIndexProperties.getAlias()).thenReturn("products");
+        when(mockOpenSearchService.getIndexesByAlias("products")).thenReturn(Set.of(LIVE_INDEX));
+        when(mockOpenSearchService.bulk(anyList(), anyBoolean()))
+                .thenAnswer(invocation -> successItems(invocation.getArgument(0)));
+        realtimeProperties = new RealtimeIndexProperties();
+        realtimeProperties.setMaxDelayMillis(50);
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (realtimeProductIndexer != null) {
+            realtimeProductIndexer.shutdown();
+        }
+    }
+
+    @Test
+    void upsert_WithConcurrentCalls_SharesOneEmbeddingAndOneBulkRequest() throws Exception {
+        // Arrange - every write is queued before the writer starts
+        realtimeProductIndexer = newIndexer();
+        CompletableFuture<RealtimeProductIndexer.Result> first = realtimeProductIndexer.upsert(product("P1"));
+        CompletableFuture<RealtimeProductIndexer.Result> second = realtimeProductIndexer.upsert(product("P2"));
+        CompletableFuture<RealtimeProductIndexer.Result> delete = realtimeProductIndexer.delete("P3", null);
+
+        // Act
+        realtimeProductIndexer.start();
+
+        // Assert
+        assertEquals("created", get(first).result());
+        assertEquals("index", get(second).operation());
+        assertEquals("deleted", get(delete).result());
+        assertEquals(LIVE_INDEX, get(delete).indexName());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<Product>> productsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockFullProductIndexer).embedProducts(productsCaptor.capture(), eq(LIVE_INDEX));
+        assertEquals(List.of("P1", "P2"), productsCaptor.getValue().stream().map(Product::getId).toList());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BulkOperation>> operationsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockOpenSearchService).bulk(operationsCaptor.capture(), eq(true));
+        List<BulkOperation> operations = operationsCaptor.getValue();
+        assertEquals(3, operations.size());
+        assertEquals("P1", operations.get(0).index().id());
+        assertEquals(LIVE_INDEX, operations.get(0).index().index());
+        assertEquals("P3", operations.get(2).delete().id());
+        RealtimeProductIndexer.Stats stats = realtimeProductIndexer.getStats();
+        assertEquals(3, stats.writes());
+        assertEquals(1, stats.batches());
+        assertEquals(3.0, stats.averageBatchSize());
+        assertTrue(stats.latencyP99Millis() >= stats.latencyP50Millis());
+    }
+
+    @Test
+    void upsert_WithMoreWritesThanBatchSize_SendsSeveralBatches() throws Exception {
+        // Arrange
+        realtimeProperties.setMaxBatchSize(2);
+        realtimeProductIndexer = newIndexer();
+        List<CompletableFuture<RealtimeProductIndexer.Result>> results = new ArrayList<>();
+        for (int i = 0; i < 3; i++) {
+            results.add(realtimeProductIndexer.upsert(product("P" + i)));
+        }
+
+        // Act
+        realtimeProductIndexer.start();
+        for (CompletableFuture<RealtimeProductIndexer.Result> result : results) {
+            get(result);
+        }
+
+        // Assert
+        verify(mockOpenSearchService, times(2)).bulk(anyList(), anyBoolean());
+        assertEquals(2, realtimeProductIndexer.getStats().batches());
+    }
+
+    @Test
+    void upsert_WithRejectedItem_FailsOnlyThatCall() throws Exception {
+        // Arrange
+        when(mockOpenSearchService.bulk(anyList(), anyBoolean())).thenAnswer(invocation -> {
+            List<BulkResponseItem> items = new ArrayList<>(successItems(invocation.getArgument(0)));
+            items.set(0, BulkResponseItem.of(b -> b
+                    .operationType(OperationType.Index)
+                    .index(LIVE_INDEX)
+                    .id("P1")
+                    .status(400)
+                    .error(e -> e.type("mapper_parsing_exception").reason("failed to parse field [price]"))));
+            return items;
+        });
+        realtimeProductIndexer = newIndexer();
+        CompletableFuture<RealtimeProductIndexer.Result> rejected = realtimeProductIndexer.upsert(product("P1"));
+        CompletableFuture<RealtimeProductIndexer.Result> accepted = realtimeProductIndexer.upsert(product("P2"));
+
+        // Act
+        realtimeProductIndexer.start();
+
+        // Assert
+        ExecutionException e = assertThrows(ExecutionException.class, () -> get(rejected));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        assertTrue(e.getCause().getMessage().contains("failed to parse field [price]"));
+        assertEquals("created", get(accepted).result());
+        assertEquals(1, realtimeProductIndexer.getStats().failures());
+    }
+
+    @Test
+    void upsert_WhenEmbeddingFails_FailsUpsertsAndStillSendsDeletes() throws Exception {
+        // Arrange
+        doThrow(new RuntimeException("embedding service down"))
+                .when(mockFullProductIndexer).embedProducts(anyList(), anyString());
+        realtimeProductIndexer = newIndexer();
+        CompletableFuture<RealtimeProductIndexer.Result> upsert = realtimeProductIndexer.upsert(product("P1"));
+        CompletableFuture<RealtimeProductIndexer.Result> delete = realtimeProductIndexer.delete("P2", null);
+
+        // Act
+        realtimeProductIndexer.start();
+
+        // Assert
+        assertThrows(ExecutionException.class, () -> get(upsert));
+        assertEquals("deleted", get(delete).result());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BulkOperation>> operationsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockOpenSearchService).bulk(operationsCaptor.capture(), anyBoolean());
+        assertEquals(1, operationsCaptor.getValue().size());
+    }
+
+    @Test
+    void delete_WithRouteByCategory_RequiresCategoryAndRoutesByIt() throws Exception {
+        // Arrange
+        when(mockIndexProperties.isRouteByCategory()).thenReturn(true);
+        realtimeProductIndexer = newIndexer();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> realtimeProductIndexer.delete("P1", null));
+        CompletableFuture<RealtimeProductIndexer.Result> delete = realtimeProductIndexer.delete("P1", "Clothing");
+        realtimeProductIndexer.start();
+        get(delete);
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BulkOperation>> operationsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockOpenSearchService).bulk(operationsCaptor.capture(), anyBoolean());
+        assertEquals("clothing", operationsCaptor.getValue().getFirst().delete().routing());
+    }
+
+    @Test
+    void upsert_WithChangedCategory_DeletesOldCopyInSameBatch() throws Exception {
+        // Arrange
+        when(mockIndexProperties.isRouteByCategory()).thenReturn(true);
+        realtimeProductIndexer = newIndexer();
+        Product product = product("P1");
+        product.setCategory(List.of("Root", "Women"));
+        CompletableFuture<RealtimeProductIndexer.Result> moved = realtimeProductIndexer.upsert(product, "Men");
+        CompletableFuture<RealtimeProductIndexer.Result> unchanged =
+                realtimeProductIndexer.upsert(product("P2"), null);
+
+        // Act
+        realtimeProductIndexer.start();
+
+        // Assert
+        assertEquals("index", get(moved).operation());
+        assertEquals("created", get(moved).result());
+        assertEquals("created", get(unchanged).result());
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BulkOperation>> operationsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockOpenSearchService).bulk(operationsCaptor.capture(), anyBoolean());
+        List<BulkOperation> operations = operationsCaptor.getValue();
+        assertEquals(3, operations.size());
+        assertEquals("P1", operations.get(0).delete().id());
+        assertEquals("men", operations.get(0).delete().routing());
+        assertEquals("women", operations.get(1).index().routing());
+        assertEquals("P2", operations.get(2).index().id());
+    }
+
+    @Test
+    void upsert_WithSameCategory_SendsNoDelete() throws Exception {
+        // Arrange
+        when(mockIndexProperties.isRouteByCategory()).thenReturn(true);
+        realtimeProductIndexer = newIndexer();
+        Product product = product("P1");
+        product.setCategory(List.of("Root", "Men"));
+        CompletableFuture<RealtimeProductIndexer.Result> upsert = realtimeProductIndexer.upsert(product, "men");
+
+        // Act
+        realtimeProductIndexer.start();
+        get(upsert);
+
+        // Assert
+        @SuppressWarnings("unchecked")
+        ArgumentCaptor<List<BulkOperation>> operationsCaptor = ArgumentCaptor.forClass(List.class);
+        verify(mockOpenSearchService).bulk(operationsCaptor.capture(), anyBoolean());
+        assertEquals(1, operationsCaptor.getValue().size());
+    }
+
+    @Test
+    void upsert_WithoutId_ThrowsIllegalArgumentException() {
+        // Arrange
+        realtimeProductIndexer = newIndexer();
+
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> realtimeProductIndexer.upsert(new Product()));
+    }
+
+    @Test
+    void upsert_WithNoLiveIndex_FailsWrite() {
+        // Arrange
+        when(mockOpenSearchService.getIndexesByAlias("products")).thenReturn(null);
+        realtimeProductIndexer = newIndexer();
+        CompletableFuture<RealtimeProductIndexer.Result> upsert = realtimeProductIndexer.upsert(product("P1"));
+
+        // Act
+        realtimeProductIndexer.start();
+
+        // Assert
+        ExecutionException e = assertThrows(ExecutionException.class, () -> get(upsert));
+        assertInstanceOf(IllegalStateException.class, e.getCause());
+        verify(mockOpenSearchService, never()).bulk(anyList(), anyBoolean());
+    }
+
+    private RealtimeProductIndexer newIndexer() {
+        return new RealtimeProductIndexer(
+                mockFullProductIndexer, mockOpenSearchService, mockIndexProperties, realtimeProperties);
+    }
+
+    private static Product product(String id) {
+        Product product = new Product();
+        product.setId(id);
+        product.setTitle("Product " + id);
+        return product;
+    }
+
+    private static RealtimeProductIndexer.Result get(CompletableFuture<RealtimeProductIndexer.Result> result)
+            throws Exception {
+        return result.get(5, TimeUnit.SECONDS);
+    }
+
+    private static List<BulkResponseItem> successItems(List<BulkOperation> operations) {
+        return operations.stream()
+                .map(operation -> operation.isDelete()
+                        ? BulkResponseItem.of(b -> b
+                                .operationType(OperationType.Delete)
+                                .index(LIVE_INDEX)
+                                .id(operation.delete().id())
+                                .status(200)
+                                .result("deleted"))
+                        : BulkResponseItem.of(b -> b
+                                .operationType(OperationType.Index)
+                                .index(LIVE_INDEX)
+                                .id(operation.index().id())
+                                .status(201)
+                                .result("created")))
+                .toList();
+    }
+}
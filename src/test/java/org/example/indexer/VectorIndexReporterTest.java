@@ -0,0 +1,159 @@
+package org.example.indexer;
+
+import org.example.config.ProductIndexProperties;
+import org.example.config.VectorIndexProperties;
+import org.example.model.Product;
+import org.example.service.EmbeddingService;
+import org.example.service.OpenSearchService;
+import org.example.util.ScalarQuantizer;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Spy;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.opensearch.client.opensearch.core.SearchRequest;
+import org.opensearch.client.opensearch.core.SearchResponse;
+import org.opensearch.client.opensearch.core.search.Hit;
+import org.opensearch.client.opensearch.core.search.HitsMetadata;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class VectorIndexReporterTest {
+
+    @Mock
+    private EmbeddingService mockEmbeddingService;
+
+    @Mock
+    private OpenSearchService mockOpenSearchService;
+
+    @Mock
+    private ProductIndexProperties mockIndexProperties;
+
+    @Spy
+    private VectorIndexProperties vectorProperties = new VectorIndexProperties();
+
+    @InjectMocks
+    private VectorIndexReporter vectorIndexReporter;
+
+    @TempDir
+    Path tempDir;
+
+    private static final String TEST_INDEX = "products-2026.02.23.120000";
+
+    @BeforeEach
+    void setUp() {
+        vectorProperties.getReport().setK(3);
+        vectorProperties.getReport().setRepetitions(2);
+        vectorProperties.getReport().setPath(tempDir.resolve("reports.jsonl").toString());
+        when(mockEmbeddingService.getEmbeddings(anyList())).thenAnswer(invocation -> {
+            List<String> texts = invocation.getArgument(0);
+            return texts.stream().map(text -> List.of(0.5f, -0.25f)).toList();
+        });
+        when(mockOpenSearchService.getStoreSizeBytes(TEST_INDEX)).thenReturn(2048L);
+    }
+
+    @Test
+    void report_ComparesKnnHitsWithExactHits() throws IOException {
+        // Arrange
+        VectorIndexProperties.Profile profile = new VectorIndexProperties.Profile();
+        profile.setEngine("faiss");
+        profile.setCompressionLevel("2x");
+        vectorProperties.getProfiles().put("faiss-fp16", profile);
+        when(mockOpenSearchService.search(any(SearchRequest.class), eq(Product.class))).thenAnswer(invocation -> {
+            SearchRequest request = invocation.getArgument(0);
+            // exact scoring finds a, b and c, the graph misses c
+            return request.query().isScriptScore() ? response("a", "b", "c") : response("a", "b", "d");
+        });
+
+        // Act
+        VectorIndexReport result = vectorIndexReporter.report(TEST_INDEX, "faiss-fp16", "cosinesimil", null);
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(40, result.queries());
+        assertEquals(3, result.k());
+        assertEquals(2.0 / 3, result.recall(), 1e-9);
+        assertEquals("faiss", result.engine());
+        assertEquals("2x", result.compressionLevel());
+        assertNull(result.mode());
+        assertFalse(result.quantized());
+        assertEquals(2048L, result.storeBytes());
+        assertTrue(result.p50Millis() <= result.p99Millis());
+        // one exact, one recall and two timed searches per query
+        verify(mockOpenSearchService, times(40 * 4)).search(any(SearchRequest.class), eq(Product.class));
+        verify(mockOpenSearchService).refreshIndex(TEST_INDEX);
+        List<String> lines = Files.readAllLines(tempDir.resolve("reports.jsonl"));
+        assertEquals(1, lines.size());
+        assertTrue(lines.getFirst().contains("\"profile\":\"faiss-fp16\""), lines.getFirst());
+    }
+
+    @Test
+    void report_WithQuantizer_SearchesWithQuantizedVectorsAndSpaceType() {
+        // Arrange
+        when(mockIndexProperties.isNormalizeVectors()).thenReturn(true);
+        when(mockOpenSearchService.search(any(SearchRequest.class), eq(Product.class)))
+                .thenAnswer(invocation -> response("a"));
+        ArgumentCaptor<SearchRequest> requestCaptor = ArgumentCaptor.forClass(SearchRequest.class);
+
+        // Act
+        VectorIndexReport result = vectorIndexReporter.report(
+                TEST_INDEX, null, "innerproduct", new ScalarQuantizer(100f));
+
+        // Assert
+        assertNotNull(result);
+        assertEquals(1.0, result.recall());
+        assertTrue(result.quantized());
+        assertNull(result.profile());
+        verify(mockOpenSearchService, atLeastOnce()).search(requestCaptor.capture(), eq(Product.class));
+        List<SearchRequest> requests = requestCaptor.getAllValues();
+        SearchRequest exact = requests.get(0);
+        SearchRequest knn = requests.get(1);
+        // (0.5, -0.25) normalized to (0.894, -0.447) and scaled by 100
+        assertEquals(List.of(89f, -45f), knn.query().knn().vector());
+        assertEquals(3, knn.query().knn().k());
+        assertEquals("innerproduct", exact.query().scriptScore().script().inline().params().get("space_type")
+                .to(String.class));
+        assertEquals("knn_score", exact.query().scriptScore().script().inline().source());
+    }
+
+    @Test
+    void report_WithMissingQueryFile_ReturnsNull() {
+        // Arrange
+        vectorProperties.getReport().setQueryFile("/missing-queries.txt");
+
+        // Act
+        VectorIndexReport result = vectorIndexReporter.report(TEST_INDEX, null, "cosinesimil", null);
+
+        // Assert
+        assertNull(result);
+        verify(mockOpenSearchService, never()).search(any(SearchRequest.class), eq(Product.class));
+        assertFalse(Files.exists(tempDir.resolve("reports.jsonl")));
+    }
+
+    @SuppressWarnings("unchecked")
+    private static SearchResponse<Product> response(final String... ids) {
+        SearchResponse<Product> response = mock(SearchResponse.class);
+        HitsMetadata<Product> hits = mock(HitsMetadata.class);
+        when(response.hits()).thenReturn(hits);
+        when(hits.hits()).thenReturn(Arrays.stream(ids)
+                .map(id -> Hit.<Product>of(h -> h.index(TEST_INDEX).id(id)))
+                .toList());
+        return response;
+    }
+}
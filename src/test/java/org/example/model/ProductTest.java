@@ -1,17 +1,24 @@
 package org.example.model;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.params.ParameterizedTest;
 import org.junit.jupiter.params.provider.Arguments;
 import org.junit.jupiter.params.provider.MethodSource;
 
+import java.io.IOException;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.stream.Stream;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class ProductTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper();
 
     static Stream<Arguments> provideDescriptionSettersInputs() {
         return Stream.of(
@@ -70,4 +77,68 @@ class ProductTest {
         // Test that we can create a product
         assertNotNull(product);
     }
-}
\ No newline at end of file
+
+    @Test
+    void getTopLevelCategory_ReturnsFirstCategoryAfterRoot() {
+        final Product product = new Product();
+        product.setCategory(List.of("Root", "Electronics", "Computers"));
+
+        assertEquals("Electronics", product.getTopLevelCategory());
+    }
+
+    @Test
+    void getTopLevelCategory_WithNoCategories_ReturnsNull() {
+        final Product product = new Product();
+
+        assertNull(product.getTopLevelCategory());
+    }
+
+    @Test
+    void setBrand_WithEqualBrands_SharesOneInstance() {
+        final Product first = new Product();
+        final Product second = new Product();
+
+        first.setBrand(new String("Acme"));
+        second.setBrand(new String("Acme"));
+
+        assertSame(first.getBrand(), second.getBrand());
+    }
+
+    @Test
+    void setCategory_CopiesAndSharesCategories() {
+        final List<String> source = new ArrayList<>(List.of("Root", "Electronics", "Computers"));
+        final Product first = new Product();
+        final Product second = new Product();
+
+        first.setCategory(source);
+        second.setCategory(List.of(new String("Root"), new String("Electronics"), new String("Computers")));
+        source.set(1, "Changed");
+
+        assertEquals(List.of("Electronics", "Computers"), first.getCategory());
+        assertSame(first.getCategory().getFirst(), second.getCategory().getFirst());
+    }
+
+    @ParameterizedTest(name = "{0} is written as {2}")
+    @MethodSource("providePriceJsonInputs")
+    void price_ReadsCentsAndWritesDollars(String json, Long expectedCents, String expectedJson) throws IOException {
+        // Act
+        final Product product = objectMapper.readValue(json, Product.class);
+        final String written = objectMapper.writeValueAsString(product);
+
+        // Assert
+        assertEquals(expectedCents, product.getPriceCents());
+        assertTrue(written.contains(expectedJson), written);
+        assertEquals(expectedCents, objectMapper.readValue(written, Product.class).getPriceCents());
+    }
+
+    static Stream<Arguments> providePriceJsonInputs() {
+        return Stream.of(
+            Arguments.of("{\"price\": \"$12.99\"}", 1299L, "\"price\":12.99"),
+            Arguments.of("{\"price\": \"$9.39 - $49.33\"}", 939L, "\"price\":9.39"),
+            Arguments.of("{\"price\": \"$0.05\"}", 5L, "\"price\":0.05"),
+            Arguments.of("{\"price\": \"$30.00\"}", 3000L, "\"price\":30"),
+            Arguments.of("{\"price\": 15.5}", 1550L, "\"price\":15.50"),
+            Arguments.of("{\"price\": \"\"}", null, "\"price\":null")
+        );
+    }
+}
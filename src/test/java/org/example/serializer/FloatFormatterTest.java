@@ -0,0 +1,79 @@
+package org.example.serializer;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class FloatFormatterTest {
+
+    @ParameterizedTest
+    @ValueSource(floats = {0f, -0f, 1f, -1f, 0.1f, 0.5f, 0.001f, 9.999999E-4f, 1.0E7f, 9999999f, 1.0E-5f,
+            123456.79f, 3.4028235E38f, 1.17549435E-38f, 0.3f, 2.5E-8f, 100f, 1.0E10f})
+    void format_WithKnownValues_MatchesFloatToString(float value) {
+        assertEquals(Float.toString(value), format(value));
+    }
+
+    @Test
+    void format_WithRandomBits_IsShortestRoundTrip() {
+        // Arrange
+        final Random random = new Random(7);
+
+        for (int i = 0; i < 1_000_000; i++) {
+            final float value = Float.intBitsToFloat(random.nextInt());
+            if (!Float.isFinite(value)) {
+                continue;
+            }
+
+            // Act
+            final String formatted = format(value);
+
+            // Assert
+            assertEquals(Float.floatToIntBits(value), Float.floatToIntBits(Float.parseFloat(formatted)), formatted);
+            final String expected = Float.toString(value);
+            // Float.toString may pick a closer two digit decimal where one digit is enough
+            if (significantDigits(formatted) > 1) {
+                assertEquals(expected, formatted);
+            } else {
+                assertTrue(significantDigits(expected) <= 2, formatted);
+            }
+        }
+    }
+
+    @Test
+    void format_WithNaN_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> format(Float.NaN));
+    }
+
+    @Test
+    void format_WritesAtOffset() {
+        // Arrange
+        final char[] buffer = new char[4 + FloatFormatter.MAX_LENGTH];
+
+        // Act
+        final int end = FloatFormatter.format(-1.2345678E-38f, buffer, 4);
+
+        // Assert
+        assertEquals("-1.2345678E-38", new String(buffer, 4, end - 4));
+    }
+
+    private static String format(float value) {
+        final char[] buffer = new char[FloatFormatter.MAX_LENGTH];
+        return new String(buffer, 0, FloatFormatter.format(value, buffer, 0));
+    }
+
+    private static int significantDigits(String formatted) {
+        final int exponent = formatted.indexOf('E');
+        final String digits = (exponent < 0 ? formatted : formatted.substring(0, exponent))
+                .replace("-", "")
+                .replace(".", "")
+                .replaceAll("^0+", "")
+                .replaceAll("0+$", "");
+        return Math.max(1, digits.length());
+    }
+}
@@ -0,0 +1,117 @@
+package org.example.serializer;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.example.model.Product;
+import org.junit.jupiter.api.Test;
+import org.opensearch.client.json.jackson.JacksonJsonpGenerator;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
+
+import java.io.IOException;
+import java.io.StringWriter;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProductJsonWriterTest {
+    private static final ObjectMapper objectMapper = new ObjectMapper()
+            .setDefaultPropertyInclusion(
+                    JsonInclude.Value.construct(JsonInclude.Include.NON_NULL, JsonInclude.Include.NON_NULL));
+
+    @Test
+    void write_WithAllFields_MatchesBeanSerialization() throws IOException {
+        // Arrange
+        final Product product = new Product();
+        product.setId("B000000001");
+        product.setTitle("Trail \"Runner\" Shoe");
+        product.setDescription(List.of("Light and grippy"));
+        product.setBrand("Acme");
+        product.setCategory(List.of("Root", "Shoes", "Running"));
+        product.setFtsEmbedding(new float[]{0.1f, -2.5e-8f, 1f, 1.17549435E-38f, 123456.79f});
+        product.setPriceCents(1299L);
+        product.setImage(List.of("https://example.com/a.jpg", "https://example.com/b.jpg"));
+
+        // Act
+        final String written = write(product);
+
+        // Assert
+        assertEquals(objectMapper.readTree(objectMapper.writeValueAsString(product)), objectMapper.readTree(written));
+        assertTrue(written.startsWith("{\"id\":\"B000000001\",\"title\""));
+    }
+
+    @Test
+    void write_WithNullFields_LeavesThemOut() throws IOException {
+        // Arrange
+        final Product product = new Product();
+        product.setId("1");
+        product.setPriceCents(3000L);
+
+        // Act
+        final String written = write(product);
+
+        // Assert
+        assertEquals("{\"id\":\"1\",\"price\":30}", written);
+    }
+
+    @Test
+    void write_WithQuantizedEmbedding_WritesIntegersInPlaceOfFloats() throws IOException {
+        // Arrange
+        final Product product = new Product();
+        product.setId("1");
+        product.setFtsEmbedding(new float[]{0.5f});
+        product.setQuantizedEmbedding(new byte[]{0, 7, -12, 127, -127, 100, -128});
+
+        // Act
+        final String written = write(product);
+
+        // Assert
+        assertEquals("{\"id\":\"1\",\"fts_embedding\":[0,7,-12,127,-127,100,-128]}", written);
+    }
+
+    @Test
+    void serialize_ThroughClientMapper_UsesWriter() throws IOException {
+        // Arrange
+        final Product product = new Product();
+        product.setId("1");
+        product.setFtsEmbedding(new float[]{0.5f});
+        final StringWriter out = new StringWriter();
+
+        // Act
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            new JacksonJsonpMapper().serialize(product, new JacksonJsonpGenerator(gen));
+        }
+
+        // Assert
+        assertEquals("{\"id\":\"1\",\"fts_embedding\":[0.5]}", out.toString());
+    }
+
+    @Test
+    void toPartialUpdate_ThroughClientMapper_WritesNullsAndLeavesOutEmbedding() throws IOException {
+        // Arrange
+        final Product product = new Product();
+        product.setId("1");
+        product.setTitle("Shirt");
+        product.setFtsEmbedding(new float[]{0.5f});
+        product.setPriceCents(1999L);
+        final StringWriter out = new StringWriter();
+
+        // Act
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            new JacksonJsonpMapper().serialize(product.toPartialUpdate(), new JacksonJsonpGenerator(gen));
+        }
+
+        // Assert - a field removed from the product is cleared in the index
+        assertEquals("{\"id\":\"1\",\"title\":\"Shirt\",\"description\":null,\"brand\":null,"
+                + "\"category\":null,\"price\":19.99,\"image\":null}", out.toString());
+    }
+
+    private static String write(Product product) throws IOException {
+        final StringWriter out = new StringWriter();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            ProductJsonWriter.write(product, gen);
+        }
+        return out.toString();
+    }
+}
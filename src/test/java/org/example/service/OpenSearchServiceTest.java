@@ -9,15 +9,27 @@ import org.mockito.Captor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.opensearch.client.json.JsonData;
 import org.opensearch.client.json.JsonpMapper;
+import org.opensearch.client.json.jackson.JacksonJsonpMapper;
 import org.opensearch.client.opensearch.OpenSearchClient;
+import org.opensearch.client.opensearch._types.ErrorCause;
 import org.opensearch.client.opensearch._types.HealthStatus;
+import org.opensearch.client.opensearch._types.Refresh;
+import org.opensearch.client.opensearch._types.StoreStats;
 import org.opensearch.client.opensearch._types.Time;
 import org.opensearch.client.opensearch._types.mapping.TypeMapping;
+import org.opensearch.client.opensearch.cat.OpenSearchCatClient;
+import org.opensearch.client.opensearch.cat.ShardsRequest;
+import org.opensearch.client.opensearch.cat.ShardsResponse;
+import org.opensearch.client.opensearch.cat.shards.ShardsRecord;
 import org.opensearch.client.opensearch.cluster.HealthResponse;
 import org.opensearch.client.opensearch.cluster.OpenSearchClusterClient;
 import org.opensearch.client.opensearch.core.BulkRequest;
 import org.opensearch.client.opensearch.core.BulkResponse;
+import org.opensearch.client.opensearch.core.bulk.BulkOperation;
+import org.opensearch.client.opensearch.core.bulk.BulkResponseItem;
+import org.opensearch.client.opensearch.core.bulk.OperationType;
 import org.opensearch.client.opensearch.indices.CreateIndexRequest;
 import org.opensearch.client.opensearch.indices.CreateIndexResponse;
 import org.opensearch.client.opensearch.indices.DeleteAliasRequest;
@@ -28,15 +40,31 @@ import org.opensearch.client.opensearch.indices.FlushRequest;
 import org.opensearch.client.opensearch.indices.FlushResponse;
 import org.opensearch.client.opensearch.indices.GetAliasRequest;
 import org.opensearch.client.opensearch.indices.GetAliasResponse;
+import org.opensearch.client.opensearch.indices.GetMappingRequest;
+import org.opensearch.client.opensearch.indices.GetMappingResponse;
 import org.opensearch.client.opensearch.indices.IndexSettings;
+import org.opensearch.client.opensearch.indices.IndicesStatsRequest;
+import org.opensearch.client.opensearch.indices.IndicesStatsResponse;
 import org.opensearch.client.opensearch.indices.PutAliasRequest;
 import org.opensearch.client.opensearch.indices.PutAliasResponse;
 import org.opensearch.client.opensearch.indices.PutIndicesSettingsRequest;
 import org.opensearch.client.opensearch.indices.PutIndicesSettingsResponse;
+import org.opensearch.client.opensearch.indices.SegmentSortMode;
+import org.opensearch.client.opensearch.indices.SegmentSortOrder;
+import org.opensearch.client.opensearch.indices.ShrinkRequest;
+import org.opensearch.client.opensearch.indices.ShrinkResponse;
+import org.opensearch.client.opensearch.indices.OpenSearchIndicesClient;
+import org.opensearch.client.opensearch.indices.get_mapping.IndexMappingRecord;
+import org.opensearch.client.opensearch.indices.stats.IndexStats;
+import org.opensearch.client.opensearch.indices.stats.IndicesStats;
+import org.opensearch.client.opensearch.indices.update_aliases.Action;
+import org.opensearch.client.opensearch.indices.UpdateAliasesResponse;
+import org.opensearch.client.opensearch.indices.UpdateAliasesRequest;
 
 import java.io.IOException;
 import java.io.Reader;
 import java.io.StringReader;
+import java.io.StringWriter;
 import java.lang.reflect.Method;
 import java.util.List;
 import java.util.Map;
@@ -190,6 +218,26 @@ class OpenSearchServiceTest {
         verify(mockClient).bulk(any(BulkRequest.class));
     }
 
+    @Test
+    void bulkIndex_WhenItemsFail_ReturnsRejectedIds() throws IOException {
+        // Arrange
+        BulkResponse mockBulkResponse = mock(BulkResponse.class);
+        BulkResponseItem accepted = mock(BulkResponseItem.class);
+        BulkResponseItem rejected = mock(BulkResponseItem.class);
+        when(rejected.error()).thenReturn(ErrorCause.of(e -> e.type("mapper_parsing_exception").reason("bad price")));
+        when(rejected.id()).thenReturn("doc-2");
+        when(mockBulkResponse.errors()).thenReturn(true);
+        when(mockBulkResponse.items()).thenReturn(List.of(accepted, rejected));
+        when(mockClient.bulk(any(BulkRequest.class))).thenReturn(mockBulkResponse);
+
+        // Act
+        List<String> result = openSearchService.bulkIndex(testDocs, "test-index");
+
+        // Assert
+        assertEquals(List.of("doc-2"), result);
+        assertEquals(List.of(), openSearchService.bulkIndex(List.of(), "test-index"));
+    }
+
     @Test
     void bulkIndex_WhenExceptionOccurs_ThrowsRuntimeException() throws IOException {
         // Arrange
@@ -250,6 +298,137 @@ class OpenSearchServiceTest {
         assertEquals("single-index", capturedRequest.operations().get(0).index().index());
     }
 
+    @Test
+    void bulkIndex_WithRouting_SetsRoutingPerDocument() throws IOException {
+        // Arrange
+        BulkResponse mockBulkResponse = mock(BulkResponse.class);
+        when(mockBulkResponse.errors()).thenReturn(false);
+        when(mockClient.bulk(any(BulkRequest.class))).thenReturn(mockBulkResponse);
+
+        // Act
+        openSearchService.bulkIndex(testDocs, "products-index",
+                doc -> "DOC-001".equals(doc.getId()) ? "electronics" : null);
+
+        // Assert
+        verify(mockClient).bulk(bulkRequestCaptor.capture());
+        BulkRequest capturedRequest = bulkRequestCaptor.getValue();
+        assertEquals("electronics", capturedRequest.operations().get(0).index().routing());
+        assertNull(capturedRequest.operations().get(1).index().routing());
+    }
+
+    @Test
+    void getPrimaryShardDocCounts_ReturnsDocCountsOfPrimaryShardsOnly() throws IOException {
+        // Arrange
+        OpenSearchCatClient mockCatClient = mock(OpenSearchCatClient.class);
+        ShardsResponse mockShardsResponse = mock(ShardsResponse.class);
+        when(mockClient.cat()).thenReturn(mockCatClient);
+        when(mockCatClient.shards(any(ShardsRequest.class))).thenReturn(mockShardsResponse);
+        when(mockShardsResponse.valueBody()).thenReturn(List.of(
+                ShardsRecord.of(s -> s.shard("0").prirep("p").docs("120")),
+                ShardsRecord.of(s -> s.shard("0").prirep("r").docs("120")),
+                ShardsRecord.of(s -> s.shard("1").prirep("p").docs("40"))));
+
+        // Act
+        Map<String, Long> result = openSearchService.getPrimaryShardDocCounts("products-index");
+
+        // Assert
+        assertEquals(Map.of("0", 120L, "1", 40L), result);
+    }
+
+    @Test
+    void getPrimaryShardDocCounts_WithBlankIndexName_ThrowsIllegalArgumentException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> openSearchService.getPrimaryShardDocCounts(" "));
+    }
+
+    @Test
+    void swapAliases_SendsAllActionsInOneRequest() throws IOException {
+        // Arrange
+        OpenSearchIndicesClient mockIndicesClient = mock(OpenSearchIndicesClient.class);
+        UpdateAliasesResponse mockResponse = mock(UpdateAliasesResponse.class);
+        when(mockClient.indices()).thenReturn(mockIndicesClient);
+        when(mockIndicesClient.updateAliases(any(UpdateAliasesRequest.class))).thenReturn(mockResponse);
+        when(mockResponse.acknowledged()).thenReturn(true);
+        ArgumentCaptor<UpdateAliasesRequest> requestCaptor = ArgumentCaptor.forClass(UpdateAliasesRequest.class);
+
+        // Act
+        boolean result = openSearchService.swapAliases("products", "old",
+                List.of("products-toys-2026.02.23.120000", "products-games-2026.02.23.120000"),
+                List.of("products-toys-2026.02.20.120000"));
+
+        // Assert
+        assertTrue(result);
+        verify(mockIndicesClient).updateAliases(requestCaptor.capture());
+        List<Action> actions = requestCaptor.getValue().actions();
+        assertEquals(4, actions.size());
+        assertEquals("products-toys-2026.02.23.120000", actions.get(0).add().index());
+        assertEquals("products-games-2026.02.23.120000", actions.get(1).add().index());
+        assertEquals("products-toys-2026.02.20.120000", actions.get(2).remove().index());
+        assertEquals("products", actions.get(2).remove().alias());
+        assertEquals("old", actions.get(3).add().alias());
+    }
+
+    @Test
+    void swapAliases_WithBlankAlias_ThrowsIllegalArgumentException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class,
+                () -> openSearchService.swapAliases(" ", "old", List.of("a"), List.of()));
+    }
+
+    @Test
+    void bulkDelete_WithIds_SendsDeleteOperationsWithRouting() throws IOException {
+        // Arrange
+        BulkResponse mockBulkResponse = mock(BulkResponse.class);
+        when(mockBulkResponse.errors()).thenReturn(false);
+        when(mockClient.bulk(any(BulkRequest.class))).thenReturn(mockBulkResponse);
+
+        // Act
+        openSearchService.bulkDelete(List.of("DOC-001", "DOC-002"), "products-index",
+                id -> "DOC-001".equals(id) ? "electronics" : null);
+
+        // Assert
+        verify(mockClient).bulk(bulkRequestCaptor.capture());
+        BulkRequest capturedRequest = bulkRequestCaptor.getValue();
+        assertEquals(2, capturedRequest.operations().size());
+        assertEquals("DOC-001", capturedRequest.operations().get(0).delete().id());
+        assertEquals("products-index", capturedRequest.operations().get(0).delete().index());
+        assertEquals("electronics", capturedRequest.operations().get(0).delete().routing());
+        assertNull(capturedRequest.operations().get(1).delete().routing());
+    }
+
+    @Test
+    void bulk_WithWaitForRefresh_SendsOperationsInOrderAndReturnsItems() throws IOException {
+        // Arrange
+        BulkResponseItem item = BulkResponseItem.of(b -> b
+                .operationType(OperationType.Delete).index("products-index").id("DOC-001").status(200));
+        BulkResponse mockBulkResponse = mock(BulkResponse.class);
+        when(mockBulkResponse.items()).thenReturn(List.of(item, item));
+        when(mockClient.bulk(any(BulkRequest.class))).thenReturn(mockBulkResponse);
+        List<BulkOperation> operations = List.of(
+                BulkOperation.of(op -> op.index(i -> i.index("products-index").id("DOC-001").document(testDoc1))),
+                BulkOperation.of(op -> op.delete(d -> d.index("products-index").id("DOC-001"))));
+
+        // Act
+        List<BulkResponseItem> result = openSearchService.bulk(operations, true);
+
+        // Assert
+        assertEquals(2, result.size());
+        verify(mockClient).bulk(bulkRequestCaptor.capture());
+        BulkRequest capturedRequest = bulkRequestCaptor.getValue();
+        assertEquals(Refresh.WaitFor, capturedRequest.refresh());
+        assertTrue(capturedRequest.operations().get(0).isIndex());
+        assertTrue(capturedRequest.operations().get(1).isDelete());
+    }
+
+    @Test
+    void bulkDelete_WithEmptyIds_DoesNotCallClient() throws IOException {
+        // Act
+        openSearchService.bulkDelete(List.of(), "products-index", id -> null);
+
+        // Assert
+        verify(mockClient, never()).bulk(any(BulkRequest.class));
+    }
+
     // Test helper class that implements IndexableDocument for generic testing
     private static class TestDocument implements IndexableDocument {
         private final String id;
@@ -892,4 +1071,248 @@ class OpenSearchServiceTest {
         assertThrows(IllegalArgumentException.class, 
             () -> openSearchService.moveAlias("test-index", null));
     }
-}
\ No newline at end of file
+
+    // Tests for shrink support
+    @Test
+    void withNumberOfShards_WithNestedIndexSettings_ReplacesNestedShardCount() {
+        // Arrange
+        JsonpMapper mapper = new JacksonJsonpMapper();
+        IndexSettings settings = openSearchService.deserializeSettings(
+                new StringReader("{\"index\": {\"number_of_shards\": 1, \"knn\": true}}"), mapper);
+
+        // Act
+        IndexSettings result = OpenSearchService.withNumberOfShards(settings, 6);
+
+        // Assert
+        assertEquals(6, result.index().numberOfShards());
+        assertNull(result.numberOfShards());
+        assertTrue(result.index().knn());
+    }
+
+    @Test
+    void withIndexSort_WithNestedIndexSettings_AddsSortToNestedSettings() {
+        // Arrange
+        IndexSettings settings = openSearchService.deserializeSettings(
+                new StringReader("{\"index\": {\"number_of_shards\": 1}}"), new JacksonJsonpMapper());
+
+        // Act
+        IndexSettings result = OpenSearchService.withIndexSort(settings,
+                List.of("category.keyword", "price"),
+                List.of(SegmentSortOrder.Asc, SegmentSortOrder.Desc));
+
+        // Assert
+        assertEquals(List.of("category.keyword", "price"), result.index().sort().field());
+        assertEquals(List.of(SegmentSortOrder.Asc, SegmentSortOrder.Desc), result.index().sort().order());
+        assertEquals(List.of(SegmentSortMode.Min, SegmentSortMode.Min), result.index().sort().mode());
+        assertEquals(1, result.index().numberOfShards());
+    }
+
+    @Test
+    void withIndexSort_WithMismatchedOrders_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class, () -> OpenSearchService.withIndexSort(
+                new IndexSettings.Builder().build(), List.of("price"), List.of()));
+    }
+
+    @Test
+    void withHnswParameters_WithKnnVectorField_SetsMethodParameters() {
+        // Arrange
+        TypeMapping mapping = openSearchService.deserializeMapping(new StringReader(
+                "{\"properties\": {\"fts_embedding\": {\"type\": \"knn_vector\", \"dimension\": 384, "
+                        + "\"method\": {\"name\": \"hnsw\", \"engine\": \"lucene\"}}}}"),
+                new JacksonJsonpMapper());
+
+        // Act
+        TypeMapping result = OpenSearchService.withHnswParameters(mapping, "fts_embedding", 16, 128);
+
+        // Assert
+        Map<String, org.opensearch.client.json.JsonData> parameters =
+                result.properties().get("fts_embedding").knnVector().method().parameters();
+        assertEquals(16, parameters.get("m").to(Integer.class));
+        assertEquals(128, parameters.get("ef_construction").to(Integer.class));
+        assertEquals(384, result.properties().get("fts_embedding").knnVector().dimension());
+    }
+
+    @Test
+    void withHnswParameters_WithMissingField_ThrowsIllegalArgumentException() {
+        TypeMapping mapping = TypeMapping.of(m -> m.properties("title", p -> p.text(t -> t)));
+
+        assertThrows(IllegalArgumentException.class,
+            () -> OpenSearchService.withHnswParameters(mapping, "fts_embedding", 16, 128));
+    }
+
+    @Test
+    void withSpaceType_WithKnnVectorField_SetsSpaceTypeAndKeepsParameters() {
+        // Arrange
+        TypeMapping mapping = openSearchService.deserializeMapping(new StringReader(
+                "{\"properties\": {\"fts_embedding\": {\"type\": \"knn_vector\", \"dimension\": 384, "
+                        + "\"method\": {\"name\": \"hnsw\", \"space_type\": \"cosinesimil\", \"engine\": \"lucene\", "
+                        + "\"parameters\": {\"m\": 24}}}}}"),
+                new JacksonJsonpMapper());
+
+        // Act
+        TypeMapping result = OpenSearchService.withSpaceType(mapping, "fts_embedding", "innerproduct");
+
+        // Assert
+        org.opensearch.client.opensearch._types.mapping.KnnVectorMethod method =
+                result.properties().get("fts_embedding").knnVector().method();
+        assertEquals("innerproduct", method.spaceType());
+        assertEquals("lucene", method.engine());
+        assertEquals(24, method.parameters().get("m").to(Integer.class));
+    }
+
+    @Test
+    void withDataType_WithKnnVectorField_SetsDataTypeAndKeepsMethod() {
+        // Arrange
+        TypeMapping mapping = openSearchService.deserializeMapping(new StringReader(
+                "{\"properties\": {\"fts_embedding\": {\"type\": \"knn_vector\", \"dimension\": 384, "
+                        + "\"method\": {\"name\": \"hnsw\", \"space_type\": \"cosinesimil\", \"engine\": \"lucene\"}}}}"),
+                new JacksonJsonpMapper());
+
+        // Act
+        TypeMapping result = OpenSearchService.withMeta(
+                OpenSearchService.withDataType(mapping, "fts_embedding", "byte"), "scale", 1.5f);
+
+        // Assert
+        assertEquals("byte", result.properties().get("fts_embedding").knnVector().dataType());
+        assertEquals("cosinesimil", result.properties().get("fts_embedding").knnVector().method().spaceType());
+        assertEquals(384, result.properties().get("fts_embedding").knnVector().dimension());
+        StringWriter writer = new StringWriter();
+        JacksonJsonpMapper mapper = new JacksonJsonpMapper();
+        try (jakarta.json.stream.JsonGenerator generator = mapper.jsonProvider().createGenerator(writer)) {
+            result.serialize(generator, mapper);
+        }
+        String json = writer.toString();
+        assertTrue(json.contains("\"_meta\":{\"scale\":1.5}"), json);
+        assertTrue(json.contains("\"data_type\":\"byte\""), json);
+    }
+
+    @Test
+    void withVectorEngine_WithProfile_SetsEngineModeAndCompressionAndKeepsSpaceType() {
+        // Arrange
+        TypeMapping mapping = openSearchService.deserializeMapping(new StringReader(
+                "{\"properties\": {\"fts_embedding\": {\"type\": \"knn_vector\", \"dimension\": 384, "
+                        + "\"method\": {\"name\": \"hnsw\", \"space_type\": \"cosinesimil\", \"engine\": \"lucene\"}}}}"),
+                new JacksonJsonpMapper());
+
+        // Act
+        TypeMapping result = OpenSearchService.withVectorEngine(mapping, "fts_embedding", "faiss", "on_disk", "32x");
+        TypeMapping unchanged = OpenSearchService.withVectorEngine(mapping, "fts_embedding", null, "", null);
+
+        // Assert
+        assertEquals("faiss", result.properties().get("fts_embedding").knnVector().method().engine());
+        assertEquals("cosinesimil", result.properties().get("fts_embedding").knnVector().method().spaceType());
+        assertEquals("on_disk", result.properties().get("fts_embedding").knnVector().mode());
+        assertEquals("32x", result.properties().get("fts_embedding").knnVector().compressionLevel());
+        assertEquals("lucene", unchanged.properties().get("fts_embedding").knnVector().method().engine());
+        assertNull(unchanged.properties().get("fts_embedding").knnVector().mode());
+    }
+
+    @Test
+    void getStoreSizeBytes_WithStoreStats_ReturnsPrimariesSize() throws IOException {
+        // Arrange
+        OpenSearchIndicesClient mockIndicesClient = mock(OpenSearchIndicesClient.class);
+        IndicesStatsResponse mockResponse = mock(IndicesStatsResponse.class);
+        IndicesStats mockStats = mock(IndicesStats.class);
+        IndexStats mockPrimaries = mock(IndexStats.class);
+        StoreStats mockStore = mock(StoreStats.class);
+        when(mockClient.indices()).thenReturn(mockIndicesClient);
+        when(mockIndicesClient.stats(any(IndicesStatsRequest.class))).thenReturn(mockResponse);
+        when(mockResponse.indices()).thenReturn(Map.of("products-2026.02.23.120000", mockStats));
+        when(mockStats.primaries()).thenReturn(mockPrimaries);
+        when(mockPrimaries.store()).thenReturn(mockStore);
+        when(mockStore.sizeInBytes()).thenReturn(4096L);
+
+        // Act
+        long result = openSearchService.getStoreSizeBytes("products-2026.02.23.120000");
+
+        // Assert
+        assertEquals(4096L, result);
+        assertEquals(0L, openSearchService.getStoreSizeBytes("products-missing"));
+        assertThrows(IllegalArgumentException.class, () -> openSearchService.getStoreSizeBytes(" "));
+    }
+
+    @Test
+    void getMappingMeta_WithMeta_ReturnsEntries() throws IOException {
+        // Arrange
+        OpenSearchIndicesClient mockIndicesClient = mock(OpenSearchIndicesClient.class);
+        when(mockClient.indices()).thenReturn(mockIndicesClient);
+        when(mockIndicesClient.getMapping(any(GetMappingRequest.class))).thenReturn(GetMappingResponse.of(r -> r
+                .result(Map.of("products-2026.02.23.120000", IndexMappingRecord.of(m -> m
+                        .mappings(TypeMapping.of(t -> t.meta("scales", JsonData.of(2)))))))));
+
+        // Act
+        Map<String, JsonData> result = openSearchService.getMappingMeta("products-2026.02.23.120000");
+
+        // Assert
+        assertEquals(2, result.get("scales").to(Integer.class));
+    }
+
+    @Test
+    void getMappingMeta_WithMissingIndex_ReturnsEmptyMap() throws IOException {
+        // Arrange
+        OpenSearchIndicesClient mockIndicesClient = mock(OpenSearchIndicesClient.class);
+        when(mockClient.indices()).thenReturn(mockIndicesClient);
+        when(mockIndicesClient.getMapping(any(GetMappingRequest.class)))
+                .thenReturn(GetMappingResponse.of(r -> r.result(Map.of())));
+
+        // Act & Assert
+        assertTrue(openSearchService.getMappingMeta("products-2026.02.23.120000").isEmpty());
+    }
+
+    @Test
+    void shrinkIndex_WhenAcknowledged_ReturnsTrue() throws IOException {
+        // Arrange
+        org.opensearch.client.opensearch.indices.OpenSearchIndicesClient mockIndicesClient =
+            mock(org.opensearch.client.opensearch.indices.OpenSearchIndicesClient.class);
+        ShrinkResponse mockResponse = mock(ShrinkResponse.class);
+        ArgumentCaptor<ShrinkRequest> requestCaptor = ArgumentCaptor.forClass(ShrinkRequest.class);
+
+        when(mockClient.indices()).thenReturn(mockIndicesClient);
+        when(mockIndicesClient.shrink(any(ShrinkRequest.class))).thenReturn(mockResponse);
+        when(mockResponse.acknowledged()).thenReturn(true);
+        when(mockResponse.shardsAcknowledged()).thenReturn(true);
+
+        // Act
+        boolean result = openSearchService.shrinkIndex(
+            "products-build-2026.02.23.120000", "products-2026.02.23.120000", 1, 30);
+
+        // Assert
+        assertTrue(result);
+        verify(mockIndicesClient).shrink(requestCaptor.capture());
+        assertEquals("products-build-2026.02.23.120000", requestCaptor.getValue().index());
+        assertEquals("products-2026.02.23.120000", requestCaptor.getValue().target());
+        assertTrue(requestCaptor.getValue().settings().containsKey("index.number_of_shards"));
+        assertEquals(1, requestCaptor.getValue().waitForActiveShards().count());
+        assertEquals("30s", requestCaptor.getValue().timeout().time());
+    }
+
+    @Test
+    void shrinkIndex_WhenPrimariesNotActive_ReturnsFalse() throws IOException {
+        // Arrange - the target was created but its primaries did not recover in time
+        org.opensearch.client.opensearch.indices.OpenSearchIndicesClient mockIndicesClient =
+            mock(org.opensearch.client.opensearch.indices.OpenSearchIndicesClient.class);
+        ShrinkResponse mockResponse = mock(ShrinkResponse.class);
+        when(mockClient.indices()).thenReturn(mockIndicesClient);
+        when(mockIndicesClient.shrink(any(ShrinkRequest.class))).thenReturn(mockResponse);
+        when(mockResponse.acknowledged()).thenReturn(true);
+        when(mockResponse.shardsAcknowledged()).thenReturn(false);
+
+        // Act & Assert
+        assertFalse(openSearchService.shrinkIndex(
+            "products-build-2026.02.23.120000", "products-2026.02.23.120000", 1, 30));
+    }
+
+    @Test
+    void shrinkIndex_WithBlankIndexName_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+            () -> openSearchService.shrinkIndex("", "target", 1, 30));
+        assertThrows(IllegalArgumentException.class,
+            () -> openSearchService.shrinkIndex("source", null, 1, 30));
+    }
+
+    @Test
+    void prepareForShrink_WithBlankIndexName_ThrowsIllegalArgumentException() {
+        assertThrows(IllegalArgumentException.class,
+            () -> openSearchService.prepareForShrink("   ", 30));
+    }
+}
@@ -0,0 +1,121 @@
+package org.example.service;
+
+import org.example.config.ProductIndexProperties;
+import org.example.model.Product;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Captor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.opensearch.client.json.JsonData;
+import org.opensearch.client.opensearch._types.query_dsl.KnnQuery;
+import org.opensearch.client.opensearch._types.query_dsl.Query;
+import org.opensearch.client.opensearch.core.SearchRequest;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class ProductSearchServiceTest {
+
+    @Mock
+    private OpenSearchService mockOpenSearchService;
+
+    @Mock
+    private ProductIndexProperties mockIndexProperties;
+
+    @InjectMocks
+    private ProductSearchService productSearchService;
+
+    @Captor
+    private ArgumentCaptor<SearchRequest> requestCaptor;
+
+    private final Query query = Query.of(q -> q.match(m -> m.field("fts").query(v -> v.stringValue("phone"))));
+
+    @BeforeEach
+    void setUp() {
+        when(mockIndexProperties.getAlias()).thenReturn("products");
+    }
+
+    @Test
+    void searchCategory_WithRouteByCategory_RoutesToCategoryShard() {
+        // Arrange
+        when(mockIndexProperties.isRouteByCategory()).thenReturn(true);
+
+        // Act
+        productSearchService.searchCategory("Electronics", query, 10);
+
+        // Assert
+        verify(mockOpenSearchService).search(requestCaptor.capture(), eq(Product.class));
+        SearchRequest request = requestCaptor.getValue();
+        assertEquals("products", request.index().getFirst());
+        assertEquals("electronics", request.routing());
+        assertEquals("Electronics",
+                request.query().bool().filter().getFirst().term().value().stringValue());
+    }
+
+    @Test
+    void searchCategory_WithoutRouteByCategory_SearchesAllShards() {
+        // Arrange
+        when(mockIndexProperties.isRouteByCategory()).thenReturn(false);
+
+        // Act
+        productSearchService.searchCategory("Electronics", query, 10);
+
+        // Assert
+        verify(mockOpenSearchService).search(requestCaptor.capture(), eq(Product.class));
+        assertNull(requestCaptor.getValue().routing());
+    }
+
+    @Test
+    void searchSimilar_WithQuantizedIndex_QuantizesQueryWithIndexScale() {
+        // Arrange
+        when(mockOpenSearchService.getIndexesByAlias("products")).thenReturn(Set.of("products-2026.02.23.120000"));
+        when(mockOpenSearchService.getMappingMeta("products-2026.02.23.120000"))
+                .thenReturn(Map.of("fts_embedding_scale", JsonData.of(10f)));
+
+        // Act
+        productSearchService.searchSimilar(new float[]{0.5f, -2f}, 10);
+        productSearchService.searchSimilar(new float[]{0.5f, -2f}, 10);
+
+        // Assert
+        verify(mockOpenSearchService, times(2)).search(requestCaptor.capture(), eq(Product.class));
+        KnnQuery knn = requestCaptor.getValue().query().knn();
+        assertEquals("fts_embedding", knn.field());
+        assertEquals(List.of(5f, -20f), knn.vector());
+        assertEquals(10, knn.k());
+        verify(mockOpenSearchService, times(1)).getMappingMeta("products-2026.02.23.120000");
+    }
+
+    @Test
+    void searchSimilar_WithFloatIndexAndNormalizeVectors_SendsUnitVector() {
+        // Arrange
+        when(mockIndexProperties.isNormalizeVectors()).thenReturn(true);
+        when(mockOpenSearchService.getIndexesByAlias("products")).thenReturn(Set.of("products-2026.02.23.120000"));
+        when(mockOpenSearchService.getMappingMeta(anyString())).thenReturn(Map.of());
+
+        // Act
+        productSearchService.searchSimilar(new float[]{3f, 4f}, 5);
+
+        // Assert
+        verify(mockOpenSearchService).search(requestCaptor.capture(), eq(Product.class));
+        List<Float> vector = requestCaptor.getValue().query().knn().vector();
+        assertEquals(0.6f, vector.get(0), 1e-6f);
+        assertEquals(0.8f, vector.get(1), 1e-6f);
+    }
+}
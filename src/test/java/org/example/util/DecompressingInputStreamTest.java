@@ -0,0 +1,113 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DecompressingInputStreamTest {
+
+    @Test
+    void read_WithDataLargerThanSeveralChunks_ReturnsOriginalBytes() throws IOException {
+        // Arrange - more than the chunks the decompressor may run ahead
+        byte[] original = randomText(3 * 1024 * 1024);
+        byte[] compressed = gzip(original);
+
+        // Act
+        byte[] result;
+        long compressedBytes;
+        try (DecompressingInputStream input = DecompressingInputStream.start(new ByteArrayInputStream(compressed))) {
+            result = input.readAllBytes();
+            compressedBytes = input.getCompressedBytes();
+            assertEquals(original.length, input.getDecompressedBytes());
+        }
+
+        // Assert
+        assertArrayEquals(original, result);
+        assertEquals(compressed.length, compressedBytes);
+    }
+
+    @Test
+    void read_WithConcatenatedMembers_ReturnsAllOfThem() throws IOException {
+        // Arrange
+        ByteArrayOutputStream members = new ByteArrayOutputStream();
+        members.write(gzip("first\n".getBytes()));
+        members.write(gzip("second\n".getBytes()));
+
+        // Act & Assert
+        try (InputStream input = DecompressingInputStream.start(new ByteArrayInputStream(members.toByteArray()))) {
+            assertEquals("first\nsecond\n", new String(input.readAllBytes()));
+        }
+    }
+
+    @Test
+    void skip_AcrossChunks_ContinuesAtOffset() throws IOException {
+        // Arrange
+        byte[] original = randomText(600 * 1024);
+
+        // Act & Assert
+        try (InputStream input = DecompressingInputStream.start(new ByteArrayInputStream(gzip(original)))) {
+            input.skipNBytes(500_000);
+            assertArrayEquals(Arrays.copyOfRange(original, 500_000, original.length), input.readAllBytes());
+        }
+    }
+
+    @Test
+    void read_WithTruncatedInput_ThrowsIOException() throws IOException {
+        // Arrange
+        byte[] compressed = gzip(randomText(100_000));
+        byte[] truncated = Arrays.copyOf(compressed, compressed.length / 2);
+
+        // Act & Assert
+        try (InputStream input = DecompressingInputStream.start(new ByteArrayInputStream(truncated))) {
+            assertThrows(IOException.class, input::readAllBytes);
+        }
+    }
+
+    @Test
+    void close_BeforeEnd_StopsDecompressor() throws IOException, InterruptedException {
+        // Arrange
+        DecompressingInputStream input =
+                DecompressingInputStream.start(new ByteArrayInputStream(gzip(randomText(4 * 1024 * 1024))));
+        input.read();
+
+        // Act
+        input.close();
+
+        // Assert - the decompressor stopped while its queue was full
+        Thread.sleep(50);
+        assertTrue(input.getDecompressedBytes() < 4 * 1024 * 1024);
+        assertThrows(IOException.class, input::read);
+    }
+
+    @Test
+    void isGzip_ChecksMagicBytes() {
+        assertTrue(DecompressingInputStream.isGzip(new byte[]{0x1f, (byte) 0x8b, 8}));
+        assertFalse(DecompressingInputStream.isGzip("{\"id\"".getBytes()));
+        assertFalse(DecompressingInputStream.isGzip(new byte[]{0x1f}));
+    }
+
+    private static byte[] randomText(int length) {
+        Random random = new Random(42);
+        byte[] text = new byte[length];
+        for (int i = 0; i < length; i++) {
+            text[i] = i % 80 == 79 ? (byte) '\n' : (byte) ('a' + random.nextInt(26));
+        }
+        return text;
+    }
+
+    private static byte[] gzip(byte[] data) throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(out)) {
+            gzip.write(data);
+        }
+        return out.toByteArray();
+    }
+}
@@ -4,10 +4,13 @@ import org.junit.jupiter.api.Test;
 
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.Set;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertFalse;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 class IndexUtilsTest {
@@ -175,4 +178,65 @@ class IndexUtilsTest {
         assertEquals(34, result.getMinute());
         assertEquals(56, result.getSecond());
     }
-}
\ No newline at end of file
+
+    @Test
+    void getBuildIndexName_InsertsBuildMarkerBeforeTimestamp() {
+        // Act
+        String result = IndexUtils.getBuildIndexName("products-2026.03.15.123456");
+
+        // Assert
+        assertEquals("products-build-2026.03.15.123456", result);
+        assertNotNull(IndexUtils.getDateFromIndexName(result));
+    }
+
+    @Test
+    void getServingIndexName_RemovesBuildMarker() {
+        // Act & Assert
+        assertEquals("products-2026.03.15.123456",
+                IndexUtils.getServingIndexName("products-build-2026.03.15.123456"));
+        assertEquals("products-2026.03.15.123456",
+                IndexUtils.getServingIndexName("products-2026.03.15.123456"));
+    }
+
+    @Test
+    void getCategoryRouting_NormalizesCategory() {
+        // Act & Assert
+        assertEquals("electronics", IndexUtils.getCategoryRouting(" Electronics "));
+        assertEquals(IndexUtils.getCategoryRouting("ELECTRONICS"), IndexUtils.getCategoryRouting("electronics"));
+    }
+
+    @Test
+    void getCategoryRouting_WithBlankCategory_ReturnsNull() {
+        // Act & Assert
+        assertNull(IndexUtils.getCategoryRouting(null));
+        assertNull(IndexUtils.getCategoryRouting(" "));
+    }
+
+    @Test
+    void getPartitionRootName_NormalizesCategoryIntoIndexName() {
+        // Act & Assert
+        assertEquals("products-home_kitchen", IndexUtils.getPartitionRootName("products", "Home & Kitchen"));
+        assertEquals("products-electronics", IndexUtils.getPartitionRootName("products", "Electronics"));
+        assertEquals("products-uncategorized", IndexUtils.getPartitionRootName("products", null));
+        assertEquals("products-uncategorized", IndexUtils.getPartitionRootName("products", "&"));
+    }
+
+    @Test
+    void getRootName_RemovesTimestamp() {
+        // Act
+        String indexName = IndexUtils.getIndexName("products-home_kitchen");
+
+        // Assert
+        assertEquals("products-home_kitchen", IndexUtils.getRootName(indexName));
+    }
+
+    @Test
+    void getSingleIndex_ReturnsTheOnlyIndexAndRejectsSeveral() {
+        // Act & Assert
+        assertEquals("products-1", IndexUtils.getSingleIndex(Set.of("products-1"), "products", "delta indexing"));
+        assertNull(IndexUtils.getSingleIndex(Set.of(), "products", "delta indexing"));
+        assertThrows(IllegalStateException.class, () -> IndexUtils.getSingleIndex(
+                Set.of("products-1", "products-2"), "products", "delta indexing"));
+        assertThrows(IllegalStateException.class, () -> IndexUtils.requireSingleIndex(null, "products", "ingest"));
+    }
+}
@@ -0,0 +1,59 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class OffHeapLongIntMapTest {
+
+    @Test
+    void put_ReplacesValueAndReturnsPrevious() {
+        try (OffHeapLongIntMap map = new OffHeapLongIntMap(10)) {
+            // Act & Assert
+            assertEquals(OffHeapLongIntMap.NO_VALUE, map.put(42L, 1));
+            assertEquals(1, map.put(42L, 2));
+            assertEquals(2, map.get(42L));
+            assertEquals(1, map.size());
+        }
+    }
+
+    @Test
+    void putIfAbsent_KeepsFirstValue() {
+        try (OffHeapLongIntMap map = new OffHeapLongIntMap(10)) {
+            // Act & Assert
+            assertEquals(OffHeapLongIntMap.NO_VALUE, map.putIfAbsent(7L, 1));
+            assertEquals(1, map.putIfAbsent(7L, 2));
+            assertEquals(1, map.get(7L));
+            assertEquals(OffHeapLongIntMap.NO_VALUE, map.get(8L));
+        }
+    }
+
+    @Test
+    void put_BeyondExpectedSize_GrowsAndKeepsEntries() {
+        try (OffHeapLongIntMap map = new OffHeapLongIntMap(10)) {
+            long initialBytes = map.byteSize();
+
+            // Act
+            for (int i = 1; i <= 100_000; i++) {
+                map.put(i * 31L, i);
+            }
+
+            // Assert
+            assertEquals(100_000, map.size());
+            assertTrue(map.byteSize() > initialBytes);
+            for (int i = 1; i <= 100_000; i++) {
+                assertEquals(i, map.get(i * 31L));
+            }
+        }
+    }
+
+    @Test
+    void put_WithZeroKey_ThrowsIllegalArgumentException() {
+        try (OffHeapLongIntMap map = new OffHeapLongIntMap(10)) {
+            // Act & Assert
+            assertThrows(IllegalArgumentException.class, () -> map.put(0L, 1));
+        }
+    }
+}
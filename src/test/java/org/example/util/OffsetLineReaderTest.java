@@ -0,0 +1,136 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.zip.GZIPOutputStream;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class OffsetLineReaderTest {
+
+    @TempDir
+    Path tempDir;
+
+    @Test
+    void readLine_TracksByteOffsetOfNextLine() throws IOException {
+        // Arrange - multi byte characters and a CRLF line ending
+        Path file = tempDir.resolve("lines.json");
+        Files.writeString(file, "café\r\nsecond\n\nlast", StandardCharsets.UTF_8);
+
+        // Act & Assert
+        try (OffsetLineReader reader = OffsetLineReader.open(file, 0)) {
+            assertEquals("café", reader.readLine());
+            assertEquals(7, reader.getOffset());
+            assertEquals("second", reader.readLine());
+            assertEquals(14, reader.getOffset());
+            assertEquals("", reader.readLine());
+            assertEquals("last", reader.readLine());
+            assertEquals(Files.size(file), reader.getOffset());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    void of_Stream_CountsBytesReadFromStream() throws IOException {
+        // Arrange
+        byte[] bytes = "first\nsecond".getBytes(StandardCharsets.UTF_8);
+
+        // Act & Assert
+        try (OffsetLineReader reader = OffsetLineReader.of(new ByteArrayInputStream(bytes))) {
+            assertEquals("first", reader.readLine());
+            assertEquals(6, reader.getOffset());
+            assertEquals("second", reader.readLine());
+            assertEquals(bytes.length, reader.getOffset());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    void open_AtRecordedOffset_ContinuesWithNextLine() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("lines.json");
+        Files.writeString(file, "first\nsecond\nthird\n");
+        long offset;
+        try (OffsetLineReader reader = OffsetLineReader.open(file, 0)) {
+            reader.readLine();
+            offset = reader.getOffset();
+        }
+
+        // Act & Assert
+        try (OffsetLineReader reader = OffsetLineReader.open(file, offset)) {
+            assertEquals("second", reader.readLine());
+            assertEquals("third", reader.readLine());
+            assertNull(reader.readLine());
+        }
+    }
+
+    @Test
+    void readCompleteLine_WithPartialLastLine_LeavesItUnread() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("lines.json");
+        Files.writeString(file, "first\nsec");
+
+        // Act & Assert
+        try (OffsetLineReader reader = OffsetLineReader.open(file, 0)) {
+            assertEquals("first", reader.readCompleteLine());
+            assertNull(reader.readCompleteLine());
+            assertEquals(6, reader.getOffset());
+        }
+        Files.writeString(file, "first\nsecond\n");
+        try (OffsetLineReader reader = OffsetLineReader.open(file, 6)) {
+            assertEquals("second", reader.readCompleteLine());
+        }
+    }
+
+    @Test
+    void openInput_WithGzipFileAtOffset_ContinuesWithNextDecompressedLine() throws IOException {
+        // Arrange - offsets of a compressed file count decompressed bytes
+        Path file = tempDir.resolve("lines.json.gz");
+        try (GZIPOutputStream gzip = new GZIPOutputStream(Files.newOutputStream(file))) {
+            gzip.write("first\nsecond\nthird\n".getBytes(StandardCharsets.UTF_8));
+        }
+
+        // Act & Assert
+        try (OffsetLineReader reader = OffsetLineReader.openInput(file, 6)) {
+            assertEquals("second", reader.readLine());
+            assertEquals(13, reader.getOffset());
+            assertEquals("third", reader.readLine());
+            assertNull(reader.readLine());
+            assertEquals(Files.size(file), reader.getSourcePosition());
+        }
+    }
+
+    @Test
+    void openInput_WithPlainFile_SourcePositionIsOffset() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("lines.json");
+        Files.writeString(file, "first\nsecond\n");
+
+        // Act & Assert
+        try (OffsetLineReader reader = OffsetLineReader.openInput(file, 0)) {
+            assertEquals("first", reader.readLine());
+            assertEquals(6, reader.getSourcePosition());
+        }
+    }
+
+    @Test
+    void readLine_WithLineLongerThanBuffer_ReturnsWholeLine() throws IOException {
+        // Arrange
+        Path file = tempDir.resolve("lines.json");
+        String longLine = "x".repeat(200_000);
+        Files.writeString(file, longLine + "\nshort");
+
+        // Act & Assert
+        try (OffsetLineReader reader = OffsetLineReader.open(file, 0)) {
+            assertEquals(longLine, reader.readLine());
+            assertEquals("short", reader.readLine());
+        }
+    }
+}
@@ -0,0 +1,104 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ScalarQuantizerTest {
+
+    @Test
+    void calibrate_MapsWidestDimensionRangeToMaxLevel() {
+        // Arrange
+        final List<float[]> sample = List.of(
+                new float[]{0.5f, -2f, 0f},
+                new float[]{-1f, 1f, 0f});
+
+        // Act
+        final ScalarQuantizer quantizer = ScalarQuantizer.calibrate(sample);
+
+        // Assert
+        assertEquals(63.5f, quantizer.getScale());
+        assertArrayEquals(new byte[]{32, -127, 0}, quantizer.quantize(new float[]{0.5f, -2f, 0f}));
+    }
+
+    @Test
+    void quantize_OutsideCalibratedRange_Clamps() {
+        // Arrange
+        final ScalarQuantizer quantizer = new ScalarQuantizer(127f);
+
+        // Act
+        final byte[] result = quantizer.quantize(new float[]{3f, -3f});
+
+        // Assert
+        assertArrayEquals(new byte[]{127, -127}, result);
+    }
+
+    @Test
+    void calibrate_WithInvalidSample_ThrowsIllegalArgumentException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> ScalarQuantizer.calibrate(List.of()));
+        assertThrows(IllegalArgumentException.class, () -> ScalarQuantizer.calibrate(List.of(new float[]{0f, 0f})));
+        assertThrows(IllegalArgumentException.class,
+                () -> ScalarQuantizer.calibrate(List.of(new float[]{1f}, new float[]{1f, 2f})));
+    }
+
+    @Test
+    void constructor_WithInvalidScale_ThrowsIllegalArgumentException() {
+        // Act & Assert
+        assertThrows(IllegalArgumentException.class, () -> new ScalarQuantizer(0f));
+        assertThrows(IllegalArgumentException.class, () -> new ScalarQuantizer(Float.NaN));
+        assertThrows(IllegalArgumentException.class, () -> new ScalarQuantizer(Float.POSITIVE_INFINITY));
+    }
+
+    @Test
+    void quantize_RandomUnitVectors_KeepsMostNearestNeighbours() {
+        // Arrange
+        final Random random = new Random(7);
+        final int dimension = 64;
+        final float[][] documents = new float[2000][];
+        for (int i = 0; i < documents.length; i++) {
+            documents[i] = randomUnitVector(random, dimension);
+        }
+        final ScalarQuantizer quantizer = ScalarQuantizer.calibrate(List.of(documents).subList(0, 500));
+        final float[][] quantized = new float[documents.length][];
+        for (int i = 0; i < documents.length; i++) {
+            quantized[i] = toFloats(quantizer.quantize(documents[i]));
+        }
+
+        // Act
+        double recall = 0;
+        final int queries = 50;
+        for (int q = 0; q < queries; q++) {
+            final float[] query = randomUnitVector(random, dimension);
+            recall += VectorUtils.recall(
+                    VectorUtils.exactTopK(query, documents, 10),
+                    VectorUtils.exactTopK(toFloats(quantizer.quantize(query)), quantized, 10));
+        }
+
+        // Assert
+        assertTrue(recall / queries >= 0.9, "recall@10 " + recall / queries);
+    }
+
+    private static float[] randomUnitVector(final Random random, final int dimension) {
+        final float[] vector = new float[dimension];
+        for (int i = 0; i < dimension; i++) {
+            vector[i] = (float) random.nextGaussian();
+        }
+        VectorUtils.normalize(vector);
+        return vector;
+    }
+
+    private static float[] toFloats(final byte[] vector) {
+        final float[] result = new float[vector.length];
+        for (int i = 0; i < vector.length; i++) {
+            result[i] = vector[i];
+        }
+        return result;
+    }
+}
@@ -0,0 +1,128 @@
+package org.example.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Random;
+import java.util.function.IntToDoubleFunction;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class VectorUtilsTest {
+
+    @Test
+    void roundToSignificantDigits_RoundsEachComponent() {
+        // Arrange
+        final float[] vector = {0.123456f, -0.0098766f, 12.3456f, 0f, 9.9996f, 1.5e-30f};
+
+        // Act
+        VectorUtils.roundToSignificantDigits(vector, 4);
+
+        // Assert
+        assertArrayEquals(new float[]{0.1235f, -0.009877f, 12.35f, 0f, 10f, 1.5e-30f}, vector);
+    }
+
+    @Test
+    void roundToSignificantDigits_WithFullPrecision_LeavesVectorUnchanged() {
+        // Arrange
+        final float[] vector = {0.123456789f, -1.23456789e-5f};
+        final float[] original = vector.clone();
+
+        // Act
+        VectorUtils.roundToSignificantDigits(vector, 0);
+        VectorUtils.roundToSignificantDigits(vector, VectorUtils.MAX_SIGNIFICANT_DIGITS);
+
+        // Assert
+        assertArrayEquals(original, vector);
+    }
+
+    @Test
+    void exactTopK_ReturnsMostSimilarFirst() {
+        // Arrange
+        final float[][] vectors = {{1, 0}, {0, 1}, {1, 1}, {-1, 0}, {1, 0.1f}};
+
+        // Act
+        final int[] result = VectorUtils.exactTopK(new float[]{1, 0}, vectors, 3);
+
+        // Assert
+        assertArrayEquals(new int[]{0, 4, 2}, result);
+    }
+
+    @Test
+    void recall_CountsExpectedNeighboursFound() {
+        assertEquals(0.5, VectorUtils.recall(new int[]{1, 2, 3, 4}, new int[]{4, 9, 2, 8}));
+        assertEquals(1.0, VectorUtils.recall(new int[]{}, new int[]{1}));
+    }
+
+    @Test
+    void normalize_RanksByInnerProductLikeCosine() {
+        // Arrange
+        final Random random = new Random(11);
+        final float[][] vectors = new float[200][];
+        final float[][] normalized = new float[vectors.length][];
+        for (int i = 0; i < vectors.length; i++) {
+            vectors[i] = randomVector(random, 384);
+            normalized[i] = vectors[i].clone();
+            VectorUtils.normalize(normalized[i]);
+        }
+        final float[] query = randomVector(random, 384);
+        final float[] normalizedQuery = query.clone();
+        VectorUtils.normalize(normalizedQuery);
+
+        // Act
+        final Integer[] byCosine = rank(i -> VectorUtils.cosine(query, vectors[i]), vectors.length);
+        final Integer[] byInnerProduct = rank(i -> VectorUtils.dot(normalizedQuery, normalized[i]), vectors.length);
+
+        // Assert
+        assertArrayEquals(byCosine, byInnerProduct);
+        for (int i = 0; i < vectors.length; i++) {
+            assertEquals(1.0, VectorUtils.dot(normalized[i], normalized[i]), 1e-5);
+            assertEquals(VectorUtils.cosine(query, vectors[i]), VectorUtils.dot(normalizedQuery, normalized[i]), 1e-5);
+        }
+    }
+
+    @Test
+    void normalize_MatchesScalarNormalization() {
+        // Arrange
+        final float[] vector = randomVector(new Random(3), 389);
+        final float[] scalar = vector.clone();
+
+        // Act
+        VectorUtils.normalize(vector);
+        VectorUtils.normalizeScalar(scalar);
+
+        // Assert
+        assertArrayEquals(scalar, vector, 1e-6f);
+    }
+
+    @Test
+    void normalize_WithZeroVector_LeavesItUnchanged() {
+        // Arrange
+        final float[] vector = new float[16];
+
+        // Act
+        VectorUtils.normalize(vector);
+
+        // Assert
+        assertArrayEquals(new float[16], vector);
+    }
+
+    private static float[] randomVector(final Random random, final int dimensions) {
+        final float[] vector = new float[dimensions];
+        for (int i = 0; i < dimensions; i++) {
+            vector[i] = (float) random.nextGaussian() * 3;
+        }
+        return vector;
+    }
+
+    private static Integer[] rank(final IntToDoubleFunction score, final int size) {
+        final Integer[] order = new Integer[size];
+        for (int i = 0; i < size; i++) {
+            order[i] = i;
+        }
+        Arrays.sort(order, Comparator.comparingDouble((Integer i) -> score.applyAsDouble(i)).reversed());
+        return order;
+    }
+}